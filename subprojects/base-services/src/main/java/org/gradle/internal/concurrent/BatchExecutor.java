@@ -0,0 +1,170 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.concurrent;
+
+import org.gradle.api.Action;
+import org.gradle.internal.UncheckedException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Applies an action to each index in a range, splitting the range into contiguous batches. The calling thread processes batches itself, and is
+ * helped by other threads while any are free.
+ *
+ * <p>The number of helper threads is bounded across all callers, so that an instance can be shared by everything that runs during a build without
+ * the number of threads multiplying when several callers use it at the same time. A caller never waits for a helper thread to become free, it
+ * processes the remaining batches itself instead.</p>
+ */
+public class BatchExecutor implements Stoppable {
+    public static final BatchExecutor SERIAL = new BatchExecutor(null, 0);
+
+    private final Executor executor;
+    private final int maxHelpers;
+    private final Semaphore helpers;
+
+    /**
+     * @param maxHelpers The maximum number of threads of the given executor that can be helping callers at any time.
+     */
+    public BatchExecutor(Executor executor, int maxHelpers) {
+        this.executor = executor;
+        this.maxHelpers = maxHelpers;
+        this.helpers = new Semaphore(maxHelpers);
+    }
+
+    /**
+     * Creates an executor with a helper thread for each processor, other than the one used by the calling thread. The executor must be stopped
+     * when no longer required.
+     */
+    public static BatchExecutor create(ExecutorFactory executorFactory, String displayName) {
+        return new BatchExecutor(executorFactory.create(displayName), Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    public void forEachIndex(int count, final Action<Integer> action) {
+        final int batchSize = (count + maxHelpers) / (maxHelpers + 1);
+        final int batches = batchSize == 0 ? 0 : (count + batchSize - 1) / batchSize;
+        int helperCount = 0;
+        while (helperCount < batches - 1 && helpers.tryAcquire()) {
+            helperCount++;
+        }
+        if (helperCount == 0) {
+            for (int i = 0; i < count; i++) {
+                action.execute(i);
+            }
+            return;
+        }
+
+        final Batches work = new Batches(count, batchSize, action);
+        final CountDownLatch remaining = new CountDownLatch(helperCount);
+        for (int i = 0; i < helperCount; i++) {
+            try {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            work.process();
+                        } finally {
+                            helpers.release();
+                            remaining.countDown();
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                // Could not start the helper, carry on without it
+                helpers.release();
+                remaining.countDown();
+            }
+        }
+        work.process();
+
+        try {
+            remaining.await();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        work.rethrowFailure();
+    }
+
+    /**
+     * Runs the given action on a helper thread, if one is free. Does not wait for a helper thread to become free.
+     *
+     * @return true if the action has been handed to a helper thread, false if the caller needs to run it itself.
+     */
+    public boolean tryExecute(final Runnable action) {
+        if (!helpers.tryAcquire()) {
+            return false;
+        }
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        action.run();
+                    } finally {
+                        helpers.release();
+                    }
+                }
+            });
+            return true;
+        } catch (RuntimeException e) {
+            // Could not start the helper, leave the action to the caller
+            helpers.release();
+            return false;
+        }
+    }
+
+    public void stop() {
+        CompositeStoppable.stoppable(executor).stop();
+    }
+
+    /**
+     * The batches of a single call, which are claimed one at a time by the calling thread and its helpers.
+     */
+    private static class Batches {
+        private final int count;
+        private final int batchSize;
+        private final Action<Integer> action;
+        private final AtomicInteger nextBatchStart = new AtomicInteger();
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        private Batches(int count, int batchSize, Action<Integer> action) {
+            this.count = count;
+            this.batchSize = batchSize;
+            this.action = action;
+        }
+
+        void process() {
+            try {
+                for (int start = nextBatchStart.getAndAdd(batchSize); start < count && failure.get() == null; start = nextBatchStart.getAndAdd(batchSize)) {
+                    int end = Math.min(count, start + batchSize);
+                    for (int i = start; i < end; i++) {
+                        action.execute(i);
+                    }
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            }
+        }
+
+        void rethrowFailure() {
+            if (failure.get() != null) {
+                throw UncheckedException.throwAsUncheckedException(failure.get());
+            }
+        }
+    }
+}
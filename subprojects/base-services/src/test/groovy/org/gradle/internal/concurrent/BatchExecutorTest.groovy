@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.concurrent
+
+import org.gradle.api.Action
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class BatchExecutorTest extends ConcurrentSpec {
+    def factory = new DefaultExecutorFactory()
+
+    def cleanup() {
+        factory.stop()
+    }
+
+    def "applies action to each index exactly once"() {
+        def executor = new BatchExecutor(factory.create("test"), 3)
+        def visited = new CopyOnWriteArrayList<Integer>()
+
+        when:
+        executor.forEachIndex(count, { visited << it } as Action)
+
+        then:
+        visited.sort() == (0..<count).toList()
+
+        where:
+        count << [0, 1, 2, 7, 1000]
+    }
+
+    def "processes indexes on calling thread when no helper threads are free"() {
+        def executor = new BatchExecutor(factory.create("test"), 1)
+        def threads = new CopyOnWriteArrayList<Thread>()
+
+        given:
+        start {
+            def caller = Thread.currentThread()
+            executor.forEachIndex(2, {
+                if (Thread.currentThread() == caller) {
+                    thread.blockUntil.helperBusy
+                } else {
+                    instant.helperBusy
+                    thread.blockUntil.done
+                }
+            } as Action)
+        }
+        thread.blockUntil.helperBusy
+
+        when:
+        executor.forEachIndex(10, { threads << Thread.currentThread() } as Action)
+        instant.done
+
+        then:
+        threads.unique() == [Thread.currentThread()]
+    }
+
+    def "runs action on helper thread only while one is free"() {
+        def executor = new BatchExecutor(factory.create("test"), 1)
+        def busy = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def ran = new CountDownLatch(1)
+
+        when:
+        def started = executor.tryExecute {
+            busy.countDown()
+            release.await()
+        }
+        busy.await()
+
+        then:
+        started
+        !executor.tryExecute {}
+        !BatchExecutor.SERIAL.tryExecute {}
+
+        when:
+        release.countDown()
+        def startedAgain = false
+        while (!startedAgain) {
+            startedAgain = executor.tryExecute { ran.countDown() }
+        }
+
+        then:
+        ran.await(10, TimeUnit.SECONDS)
+    }
+
+    def "rethrows failure of action"() {
+        def executor = new BatchExecutor(factory.create("test"), 3)
+        def failure = new RuntimeException()
+
+        when:
+        executor.forEachIndex(100, {
+            if (it == 60) {
+                throw failure
+            }
+        } as Action)
+
+        then:
+        RuntimeException e = thrown()
+        e.is(failure)
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.integtests.resolve.http
+
+import org.gradle.integtests.fixtures.AbstractHttpDependencyResolutionTest
+
+class ConcurrentArtifactDownloadIntegrationTest extends AbstractHttpDependencyResolutionTest {
+    def "downloads the artifacts of a configuration concurrently and preserves their order"() {
+        given:
+        def names = (1..10).collect { "project${it}" }
+        def modules = names.collect { mavenHttpRepo.module('group', it, '1.0').publish() }
+
+        buildFile << """
+repositories {
+    maven { url '${mavenHttpRepo.uri}' }
+}
+configurations { compile }
+dependencies {
+    ${names.collect { "compile 'group:${it}:1.0'" }.join('\n    ')}
+}
+
+task retrieve(type: Sync) {
+    into 'libs'
+    from configurations.compile
+}
+
+task listJars << {
+    assert configurations.compile.collect { it.name } == ${names.collect { "'${it}-1.0.jar'" }}
+}
+"""
+
+        when:
+        modules.each {
+            it.pom.expectGet()
+            it.artifact.expectGet()
+        }
+
+        then:
+        succeeds 'retrieve', 'listJars'
+        file('libs').assertHasDescendants(names.collect { "${it}-1.0.jar" } as String[])
+        modules.eachWithIndex { module, i -> file("libs/${names[i]}-1.0.jar").assertIsCopyOf(module.artifactFile) }
+
+        when:
+        server.resetExpectations()
+
+        then:
+        succeeds 'retrieve', 'listJars'
+    }
+}
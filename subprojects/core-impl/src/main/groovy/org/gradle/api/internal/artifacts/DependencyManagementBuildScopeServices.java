@@ -55,12 +55,14 @@ import org.gradle.api.internal.project.ProjectRegistry;
 import org.gradle.cache.CacheRepository;
 import org.gradle.initialization.ProjectAccessListener;
 import org.gradle.internal.SystemProperties;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resource.cached.ByUrlCachedExternalResourceIndex;
 import org.gradle.internal.resource.cached.ivy.ArtifactAtRepositoryCachedArtifactIndex;
 import org.gradle.internal.resource.local.LocallyAvailableResourceFinder;
 import org.gradle.internal.resource.local.UniquePathKeyFileStore;
 import org.gradle.internal.resource.local.ivy.LocallyAvailableResourceFinderFactory;
+import org.gradle.internal.resource.transport.http.HttpConnectionPool;
 import org.gradle.internal.resource.transport.sftp.SftpClientFactory;
 import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.logging.ProgressLoggerFactory;
@@ -176,19 +178,25 @@ class DependencyManagementBuildScopeServices {
         return new SftpClientFactory();
     }
 
+    HttpConnectionPool createHttpConnectionPool() {
+        return new HttpConnectionPool();
+    }
+
     RepositoryTransportFactory createRepositoryTransportFactory(ProgressLoggerFactory progressLoggerFactory,
                                                                 TemporaryFileProvider temporaryFileProvider,
                                                                 ByUrlCachedExternalResourceIndex externalResourceIndex,
                                                                 BuildCommencedTimeProvider buildCommencedTimeProvider,
                                                                 SftpClientFactory sftpClientFactory,
-                                                                CacheLockingManager cacheLockingManager) {
+                                                                CacheLockingManager cacheLockingManager,
+                                                                HttpConnectionPool httpConnectionPool) {
         return new RepositoryTransportFactory(
                 progressLoggerFactory,
                 temporaryFileProvider,
                 externalResourceIndex,
                 buildCommencedTimeProvider,
                 sftpClientFactory,
-                cacheLockingManager
+                cacheLockingManager,
+                httpConnectionPool
         );
     }
 
@@ -210,10 +218,14 @@ class DependencyManagementBuildScopeServices {
                 latestStrategy);
     }
 
+    DependencyResolveExecutor createDependencyResolveExecutor(ExecutorFactory executorFactory, StartParameter startParameter) {
+        return DependencyResolveExecutor.create(executorFactory, startParameter);
+    }
+
     ArtifactDependencyResolver createArtifactDependencyResolver(ResolveIvyFactory resolveIvyFactory, LocalComponentFactory publishModuleDescriptorConverter, DependencyDescriptorFactory dependencyDescriptorFactory,
                                                                 CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager, ResolutionResultsStoreFactory resolutionResultsStoreFactory,
                                                                 VersionMatcher versionMatcher, LatestStrategy latestStrategy, ProjectRegistry<ProjectInternal> projectRegistry,
-                                                                ComponentIdentifierFactory componentIdentifierFactory) {
+                                                                ComponentIdentifierFactory componentIdentifierFactory, DependencyResolveExecutor dependencyResolveExecutor) {
         ArtifactDependencyResolver resolver = new DefaultDependencyResolver(
                 resolveIvyFactory,
                 publishModuleDescriptorConverter,
@@ -225,7 +237,8 @@ class DependencyManagementBuildScopeServices {
                 ivyContextManager,
                 resolutionResultsStoreFactory,
                 versionMatcher,
-                latestStrategy);
+                latestStrategy,
+                dependencyResolveExecutor);
         return new ErrorHandlingArtifactDependencyResolver(
                 new ShortcircuitEmptyConfigsArtifactDependencyResolver(
                         new SelfResolvingDependencyResolver(
@@ -18,6 +18,7 @@ package org.gradle.api.internal.artifacts.ivyservice;
 import net.jcip.annotations.ThreadSafe;
 import org.gradle.cache.CacheAccess;
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.Factory;
 import org.gradle.messaging.serialize.Serializer;
 
 import java.io.File;
@@ -37,6 +38,13 @@ public interface CacheLockingManager extends ArtifactCacheMetaData, CacheAccess
      */
     <K, V> PersistentIndexedCache<K, V> createCache(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer);
 
+    /**
+     * Runs the given action, which adds files to the file store or the meta-data store, while holding an exclusive lock on the cache.
+     *
+     * <p>This method may only be used by an action being run from {@link #useCache(String, org.gradle.internal.Factory)}.
+     */
+    <T> T updateFiles(Factory<? extends T> action);
+
     /**
      * Returns the root directory for the file store.
      *
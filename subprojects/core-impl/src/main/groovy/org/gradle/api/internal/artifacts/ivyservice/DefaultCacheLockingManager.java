@@ -40,7 +40,8 @@ public class DefaultCacheLockingManager implements CacheLockingManager, Closeabl
                 .store(CacheLayout.ROOT.getKey())
                 .withCrossVersionCache()
                 .withDisplayName("artifact cache")
-                .withLockOptions(mode(FileLockManager.LockMode.None)) // Don't need to lock anything until we use the caches
+                // Don't need to lock anything until we use the caches. Most builds only read from the caches, so let them share the lock
+                .withLockOptions(mode(FileLockManager.LockMode.None).useSharedLockForReads())
                 .open();
     }
 
@@ -73,6 +74,10 @@ public class DefaultCacheLockingManager implements CacheLockingManager, Closeabl
         return cache.createCache(new PersistentIndexedCacheParameters<K, V>(cacheFileInMetaDataStore, keySerializer, valueSerializer));
     }
 
+    public <T> T updateFiles(Factory<? extends T> action) {
+        return cache.updateFiles(action);
+    }
+
     public File getFileStoreDirectory() {
         return createCacheRelativeDir(CacheLayout.FILE_STORE);
     }
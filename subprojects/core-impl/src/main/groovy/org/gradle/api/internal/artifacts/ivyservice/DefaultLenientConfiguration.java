@@ -30,13 +30,20 @@ import java.util.*;
 
 public class DefaultLenientConfiguration implements LenientConfiguration {
     private CacheLockingManager cacheLockingManager;
+    private final ParallelArtifactDownloader artifactDownloader;
     private final Configuration configuration;
     private ResolvedConfigurationResults results;
 
     public DefaultLenientConfiguration(Configuration configuration, ResolvedConfigurationResults results, CacheLockingManager cacheLockingManager) {
+        this(configuration, results, cacheLockingManager, ParallelArtifactDownloader.disabled());
+    }
+
+    public DefaultLenientConfiguration(Configuration configuration, ResolvedConfigurationResults results, CacheLockingManager cacheLockingManager,
+                                       ParallelArtifactDownloader artifactDownloader) {
         this.configuration = configuration;
         this.results = results;
         this.cacheLockingManager = cacheLockingManager;
+        this.artifactDownloader = artifactDownloader;
     }
 
     public boolean hasError() {
@@ -78,6 +85,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
 
     public Set<File> getFilesStrict(Spec<? super Dependency> dependencySpec) {
         Set<ResolvedArtifact> artifacts = getAllArtifacts(dependencySpec);
+        artifactDownloader.download(artifacts);
         return getFiles(artifacts);
     }
 
@@ -88,6 +96,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
      */
     public Set<ResolvedArtifact> getArtifacts(Spec<? super Dependency> dependencySpec) {
         final Set<ResolvedArtifact> allArtifacts = getAllArtifacts(dependencySpec);
+        artifactDownloader.download(allArtifacts);
         return cacheLockingManager.useCache("retrieve artifacts from " + configuration, new Factory<Set<ResolvedArtifact>>() {
             public Set<ResolvedArtifact> create() {
                 return CollectionUtils.filter(allArtifacts, new Spec<ResolvedArtifact>() {
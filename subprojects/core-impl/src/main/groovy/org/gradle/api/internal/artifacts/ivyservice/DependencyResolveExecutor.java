@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.StartParameter;
+import org.gradle.api.Action;
+import org.gradle.internal.concurrent.BatchExecutor;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+
+/**
+ * The threads that dependency resolution uses to access repositories concurrently. Shared by all configurations that are resolved during a
+ * build, so that the number of threads is bounded for the whole build rather than for each configuration.
+ */
+public class DependencyResolveExecutor implements Stoppable {
+    /**
+     * The maximum number of threads used to access repositories, including the resolving thread. Internal use only, this may change at any time.
+     */
+    public static final String MAX_THREADS_PROPERTY = "org.gradle.dependency.resolveThreads";
+    private static final int DEFAULT_MAX_THREADS = 8;
+
+    private final BatchExecutor executor;
+    private final boolean concurrent;
+
+    public DependencyResolveExecutor(BatchExecutor executor, boolean concurrent) {
+        this.executor = executor;
+        this.concurrent = concurrent;
+    }
+
+    /**
+     * Returns an executor that does all work on the calling thread.
+     */
+    public static DependencyResolveExecutor serial() {
+        return new DependencyResolveExecutor(BatchExecutor.SERIAL, false);
+    }
+
+    /**
+     * Creates an executor with the number of threads given by the {@link #MAX_THREADS_PROPERTY} property of the build, if any.
+     */
+    public static DependencyResolveExecutor create(ExecutorFactory executorFactory, StartParameter startParameter) {
+        String maxThreadsValue = startParameter.getSystemPropertiesArgs().get(MAX_THREADS_PROPERTY);
+        int maxThreads = maxThreadsValue == null ? DEFAULT_MAX_THREADS : Integer.parseInt(maxThreadsValue);
+        if (maxThreads <= 1) {
+            return serial();
+        }
+        return new DependencyResolveExecutor(new BatchExecutor(executorFactory.create("Dependency resolve worker"), maxThreads - 1), true);
+    }
+
+    /**
+     * Returns true when this executor can run work on threads other than the calling thread.
+     */
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    /**
+     * Applies the given action to each index in the range, using the calling thread and any free threads of this executor.
+     */
+    public void forEachIndex(int count, Action<Integer> action) {
+        executor.forEachIndex(count, action);
+    }
+
+    /**
+     * Runs the given action on a thread of this executor, if one is free.
+     *
+     * @return true if the action has been handed to another thread, false if the caller needs to run it itself.
+     */
+    public boolean tryExecute(Runnable action) {
+        return executor.tryExecute(action);
+    }
+
+    public void stop() {
+        executor.stop();
+    }
+}
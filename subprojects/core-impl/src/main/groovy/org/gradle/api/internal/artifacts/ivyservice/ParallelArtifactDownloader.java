@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.Action;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Downloads the files of a set of artifacts into the artifact cache using multiple threads, so that the files are available when the artifacts are later
+ * queried one by one.
+ *
+ * <p>Each artifact is resolved through the artifact cache lock as usual. The remote requests for the artifacts overlap, as the lock is released while
+ * an artifact is downloaded. Failures are ignored here, and are reported when the file of the artifact is queried. Each artifact is only downloaded
+ * once by a given downloader, so that the artifacts of a configuration are not visited again each time its files are queried.</p>
+ */
+public class ParallelArtifactDownloader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelArtifactDownloader.class);
+
+    private final CacheLockingManager lockingManager;
+    private final DependencyResolveExecutor executor;
+    private final Set<ResolvedArtifact> downloaded = new HashSet<ResolvedArtifact>();
+
+    public ParallelArtifactDownloader(CacheLockingManager lockingManager, DependencyResolveExecutor executor) {
+        this.lockingManager = lockingManager;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns a downloader that does nothing, leaving all artifacts to be downloaded on demand.
+     */
+    public static ParallelArtifactDownloader disabled() {
+        return new ParallelArtifactDownloader(null, DependencyResolveExecutor.serial());
+    }
+
+    /**
+     * Downloads the files of those of the given artifacts that this downloader has not downloaded yet, and blocks until they are all available.
+     */
+    public void download(Collection<? extends ResolvedArtifact> artifacts) {
+        if (!executor.isConcurrent()) {
+            return;
+        }
+
+        final List<ResolvedArtifact> queue = new ArrayList<ResolvedArtifact>();
+        synchronized (downloaded) {
+            for (ResolvedArtifact artifact : artifacts) {
+                if (downloaded.add(artifact)) {
+                    queue.add(artifact);
+                }
+            }
+        }
+        if (queue.size() <= 1) {
+            return;
+        }
+
+        // Allow the other threads to use the cache while this thread is not
+        lockingManager.longRunningOperation("Download artifacts", new Runnable() {
+            public void run() {
+                executor.forEachIndex(queue.size(), new Action<Integer>() {
+                    public void execute(Integer index) {
+                        ResolvedArtifact artifact = queue.get(index);
+                        try {
+                            artifact.getFile();
+                        } catch (RuntimeException e) {
+                            LOGGER.debug("Could not download {}. Will retry when the artifact is used.", artifact, e);
+                        }
+                    }
+                });
+            }
+        });
+    }
+}
@@ -28,7 +28,7 @@ import org.gradle.api.internal.artifacts.metadata.ExternalComponentMetaData;
 
 /**
  * A {@link org.gradle.api.internal.artifacts.ivyservice.DependencyToModuleVersionIdResolver} implementation which returns lazy resolvers that don't actually retrieve module descriptors until
- * required.
+ * required. For a dynamic version, this is when the id or failure of the result is first queried.
  */
 public class LazyDependencyToModuleResolver implements DependencyToModuleVersionIdResolver {
     private final DependencyToModuleVersionResolver dependencyResolver;
@@ -43,9 +43,7 @@ public class LazyDependencyToModuleResolver implements DependencyToModuleVersion
 
     public ModuleVersionIdResolveResult resolve(DependencyMetaData dependency) {
         if (versionMatcher.isDynamic(dependency.getRequested().getVersion())) {
-            DynamicVersionResolveResult result = new DynamicVersionResolveResult(dependency);
-            result.resolve();
-            return result;
+            return new DynamicVersionResolveResult(dependency);
         }
         return new StaticVersionResolveResult(dependency);
     }
@@ -27,6 +27,7 @@ import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.Compone
 import org.gradle.api.internal.artifacts.metadata.ModuleVersionMetaData;
 import org.gradle.internal.resource.local.PathKeyFileStore;
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.Factory;
 import org.gradle.internal.hash.HashValue;
 import org.gradle.internal.resource.local.LocallyAvailableResource;
 import org.gradle.messaging.serialize.Decoder;
@@ -86,10 +87,14 @@ public class DefaultModuleMetaDataCache implements ModuleMetaDataCache {
         return new DefaultCachedMetaData(entry, null, timeProvider);
     }
 
-    public CachedMetaData cacheMetaData(ModuleComponentRepository repository, ModuleVersionMetaData metaData, ModuleSource moduleSource) {
-        ModuleDescriptor moduleDescriptor = metaData.getDescriptor();
+    public CachedMetaData cacheMetaData(final ModuleComponentRepository repository, ModuleVersionMetaData metaData, ModuleSource moduleSource) {
+        final ModuleDescriptor moduleDescriptor = metaData.getDescriptor();
         LOGGER.debug("Recording module descriptor in cache: {} [changing = {}]", moduleDescriptor.getModuleRevisionId(), metaData.isChanging());
-        LocallyAvailableResource resource = moduleDescriptorStore.putModuleDescriptor(repository, moduleDescriptor);
+        LocallyAvailableResource resource = cacheLockingManager.updateFiles(new Factory<LocallyAvailableResource>() {
+            public LocallyAvailableResource create() {
+                return moduleDescriptorStore.putModuleDescriptor(repository, moduleDescriptor);
+            }
+        });
         ModuleDescriptorCacheEntry entry = createEntry(metaData, resource.getSha1(), moduleSource);
         getCache().put(createKey(repository, metaData.getComponentId()), entry);
         return new DefaultCachedMetaData(entry, null, timeProvider);
@@ -37,6 +37,7 @@ import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectArtifac
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectComponentRegistry;
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectDependencyResolver;
 import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.StrictConflictResolution;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.ConflictHandler;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.DefaultConflictHandler;
@@ -66,10 +67,12 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
     private final ResolutionResultsStoreFactory storeFactory;
     private final VersionMatcher versionMatcher;
     private final LatestStrategy latestStrategy;
+    private final DependencyResolveExecutor resolveExecutor;
 
     public DefaultDependencyResolver(ResolveIvyFactory ivyFactory, LocalComponentFactory localComponentFactory, DependencyDescriptorFactory dependencyDescriptorFactory,
                                      ProjectComponentRegistry projectComponentRegistry, CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager,
-                                     ResolutionResultsStoreFactory storeFactory, VersionMatcher versionMatcher, LatestStrategy latestStrategy) {
+                                     ResolutionResultsStoreFactory storeFactory, VersionMatcher versionMatcher, LatestStrategy latestStrategy,
+                                     DependencyResolveExecutor resolveExecutor) {
         this.ivyFactory = ivyFactory;
         this.localComponentFactory = localComponentFactory;
         this.dependencyDescriptorFactory = dependencyDescriptorFactory;
@@ -79,6 +82,7 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
         this.storeFactory = storeFactory;
         this.versionMatcher = versionMatcher;
         this.latestStrategy = latestStrategy;
+        this.resolveExecutor = resolveExecutor;
     }
 
     public void resolve(final ConfigurationInternal configuration,
@@ -109,7 +113,8 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
                 conflictResolver = new VersionSelectionReasonResolver(conflictResolver);
                 ConflictHandler conflictHandler = new DefaultConflictHandler(conflictResolver, metadataHandler.getModuleReplacements());
 
-                DependencyGraphBuilder builder = new DependencyGraphBuilder(idResolver, projectDependencyResolver, artifactResolver, conflictHandler, new DefaultDependencyToConfigurationResolver());
+                ComponentMetaDataPrefetcher prefetcher = new ComponentMetaDataPrefetcher(cacheLockingManager, ivyContextManager, resolveExecutor);
+                DependencyGraphBuilder builder = new DependencyGraphBuilder(idResolver, projectDependencyResolver, artifactResolver, conflictHandler, new DefaultDependencyToConfigurationResolver(), prefetcher);
 
                 StoreSet stores = storeFactory.createStoreSet();
 
@@ -123,7 +128,7 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
                 DefaultResolvedConfigurationBuilder oldModelBuilder = new DefaultResolvedConfigurationBuilder(oldTransientModelBuilder);
 
                 builder.resolve(configuration, newModelBuilder, oldModelBuilder);
-                DefaultLenientConfiguration result = new DefaultLenientConfiguration(configuration, oldModelBuilder, cacheLockingManager);
+                DefaultLenientConfiguration result = new DefaultLenientConfiguration(configuration, oldModelBuilder, cacheLockingManager, new ParallelArtifactDownloader(cacheLockingManager, resolveExecutor));
                 results.resolved(new DefaultResolvedConfiguration(result), newModelBuilder.complete());
             }
         });
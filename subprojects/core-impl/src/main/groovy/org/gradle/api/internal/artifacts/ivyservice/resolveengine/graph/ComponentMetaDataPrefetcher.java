@@ -0,0 +1,201 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
+
+import org.apache.ivy.Ivy;
+import org.gradle.api.Transformer;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.ComponentResolveResult;
+import org.gradle.api.internal.artifacts.ivyservice.DependencyResolveExecutor;
+import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager;
+import org.gradle.api.internal.artifacts.ivyservice.ModuleVersionIdResolveResult;
+import org.gradle.api.internal.artifacts.metadata.DependencyMetaData;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Resolves the meta-data of newly discovered dependencies on the free threads of the build's {@link DependencyResolveExecutor}, ahead of the graph
+ * traversal that will need it.
+ *
+ * <p>The traversal itself stays on the calling thread and visits the edges in the same order as before, so the resulting graph does not
+ * change. It only goes through {@link #await(ModuleVersionIdResolveResult)} or {@link #resolve(ModuleVersionIdResolveResult)} before it uses
+ * a result, which either waits for the worker that is fetching it, or fetches it inline when no worker has picked it up yet.</p>
+ *
+ * <p>Workers access the repositories from inside the artifact cache lock, exactly like the traversal does. The calling thread gives up
+ * the lock while it waits, and each worker gives it up for the duration of its remote requests, so the remote requests of all workers
+ * overlap while access to the caches remains serialized.</p>
+ *
+ * <p>All methods must be called from the thread that traverses the graph.</p>
+ */
+public class ComponentMetaDataPrefetcher implements Stoppable {
+    private final CacheLockingManager lockingManager;
+    private final IvyContextManager ivyContextManager;
+    private final DependencyResolveExecutor executor;
+    private final Map<ModuleVersionIdResolveResult, FutureTask<ComponentResolveResult>> pending = new IdentityHashMap<ModuleVersionIdResolveResult, FutureTask<ComponentResolveResult>>();
+    private final BlockingQueue<FutureTask<ComponentResolveResult>> queue = new LinkedBlockingQueue<FutureTask<ComponentResolveResult>>();
+    private final Object workersLock = new Object();
+    private int activeWorkers;
+
+    public ComponentMetaDataPrefetcher(CacheLockingManager lockingManager, IvyContextManager ivyContextManager, DependencyResolveExecutor executor) {
+        this.lockingManager = lockingManager;
+        this.ivyContextManager = ivyContextManager;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns a prefetcher that does nothing, leaving all meta-data to be resolved on demand by the traversal.
+     */
+    public static ComponentMetaDataPrefetcher disabled() {
+        return new ComponentMetaDataPrefetcher(null, null, DependencyResolveExecutor.serial());
+    }
+
+    public boolean isEnabled() {
+        return executor.isConcurrent();
+    }
+
+    /**
+     * Starts resolving the meta-data of the given result in the background.
+     */
+    public void prefetch(final DependencyMetaData dependency, final ModuleVersionIdResolveResult result) {
+        if (!isEnabled() || pending.containsKey(result)) {
+            return;
+        }
+        FutureTask<ComponentResolveResult> task = new FutureTask<ComponentResolveResult>(new Callable<ComponentResolveResult>() {
+            public ComponentResolveResult call() {
+                return lockingManager.useCache(String.format("Resolve %s", dependency), new Factory<ComponentResolveResult>() {
+                    public ComponentResolveResult create() {
+                        return ivyContextManager.withIvy(new Transformer<ComponentResolveResult, Ivy>() {
+                            public ComponentResolveResult transform(Ivy ivy) {
+                                return result.resolve();
+                            }
+                        });
+                    }
+                });
+            }
+        });
+        pending.put(result, task);
+        queue.add(task);
+
+        // When no thread is free, or a worker that is just about to exit leaves this task in the queue, the traversal runs the task inline when it
+        // gets to it
+        synchronized (workersLock) {
+            if (activeWorkers >= queue.size()) {
+                return;
+            }
+            activeWorkers++;
+        }
+        if (!executor.tryExecute(new Worker())) {
+            workerFinished();
+        }
+    }
+
+    /**
+     * Makes sure that any prefetch for the given result has completed, so that the result can be queried by the calling thread.
+     */
+    public void await(ModuleVersionIdResolveResult result) {
+        FutureTask<ComponentResolveResult> task = pending.get(result);
+        if (task != null) {
+            complete(task);
+        }
+    }
+
+    /**
+     * Returns the meta-data for the given result, using the prefetched meta-data when there is some.
+     */
+    public ComponentResolveResult resolve(ModuleVersionIdResolveResult result) {
+        FutureTask<ComponentResolveResult> task = pending.remove(result);
+        if (task == null) {
+            return result.resolve();
+        }
+        return complete(task);
+    }
+
+    private ComponentResolveResult complete(final FutureTask<ComponentResolveResult> task) {
+        // Does nothing if a worker has already started on this task
+        task.run();
+
+        if (!task.isDone()) {
+            lockingManager.longRunningOperation("Wait for dependency meta-data", new Runnable() {
+                public void run() {
+                    waitFor(task);
+                }
+            });
+        }
+        return waitFor(task);
+    }
+
+    private ComponentResolveResult waitFor(FutureTask<ComponentResolveResult> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+    }
+
+    /**
+     * Discards any prefetches that have not started yet, and waits for the others to complete. The threads are left to the executor.
+     */
+    public void stop() {
+        queue.clear();
+        pending.clear();
+        synchronized (workersLock) {
+            if (activeWorkers == 0) {
+                return;
+            }
+        }
+        lockingManager.longRunningOperation("Wait for dependency meta-data prefetch", new Runnable() {
+            public void run() {
+                synchronized (workersLock) {
+                    while (activeWorkers > 0) {
+                        try {
+                            workersLock.wait();
+                        } catch (InterruptedException e) {
+                            throw UncheckedException.throwAsUncheckedException(e);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private void workerFinished() {
+        synchronized (workersLock) {
+            activeWorkers--;
+            workersLock.notifyAll();
+        }
+    }
+
+    private class Worker implements Runnable {
+        public void run() {
+            try {
+                FutureTask<ComponentResolveResult> task;
+                while ((task = queue.poll()) != null) {
+                    task.run();
+                }
+            } finally {
+                workerFinished();
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ import org.gradle.api.Action;
 import org.gradle.api.artifacts.*;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ProjectComponentSelector;
 import org.gradle.api.artifacts.result.ComponentSelectionReason;
 import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
 import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
@@ -56,17 +57,28 @@ public class DependencyGraphBuilder {
     private final ConflictHandler conflictHandler;
     private final ModuleToModuleVersionResolver moduleResolver;
     private final ArtifactResolver artifactResolver;
+    private final ComponentMetaDataPrefetcher prefetcher;
 
     public DependencyGraphBuilder(DependencyToModuleVersionIdResolver dependencyResolver,
                                   ModuleToModuleVersionResolver moduleResolver,
                                   ArtifactResolver artifactResolver,
                                   ConflictHandler conflictHandler,
                                   DependencyToConfigurationResolver dependencyToConfigurationResolver) {
+        this(dependencyResolver, moduleResolver, artifactResolver, conflictHandler, dependencyToConfigurationResolver, ComponentMetaDataPrefetcher.disabled());
+    }
+
+    public DependencyGraphBuilder(DependencyToModuleVersionIdResolver dependencyResolver,
+                                  ModuleToModuleVersionResolver moduleResolver,
+                                  ArtifactResolver artifactResolver,
+                                  ConflictHandler conflictHandler,
+                                  DependencyToConfigurationResolver dependencyToConfigurationResolver,
+                                  ComponentMetaDataPrefetcher prefetcher) {
         this.dependencyResolver = dependencyResolver;
         this.moduleResolver = moduleResolver;
         this.artifactResolver = artifactResolver;
         this.conflictHandler = conflictHandler;
         this.dependencyToConfigurationResolver = dependencyToConfigurationResolver;
+        this.prefetcher = prefetcher;
     }
 
     public void resolve(ConfigurationInternal configuration,
@@ -83,10 +95,14 @@ public class DependencyGraphBuilder {
         DefaultBuildableComponentResolveResult rootModule = new DefaultBuildableComponentResolveResult();
         moduleResolver.resolve(configuration.getModule(), configuration.getAll(), rootModule);
 
-        ResolveState resolveState = new ResolveState(rootModule, configuration.getName(), dependencyResolver, dependencyToConfigurationResolver, artifactResolver);
+        ResolveState resolveState = new ResolveState(rootModule, configuration.getName(), dependencyResolver, dependencyToConfigurationResolver, artifactResolver, prefetcher);
         conflictHandler.registerResolver(new DirectDependencyForcingResolver(resolveState.root.moduleRevision));
 
-        traverseGraph(resolveState, conflictHandler);
+        try {
+            traverseGraph(resolveState, conflictHandler);
+        } finally {
+            prefetcher.stop();
+        }
 
         assembleResult(resolveState, modelVisitor);
     }
@@ -107,6 +123,11 @@ public class DependencyGraphBuilder {
                 dependencies.clear();
                 node.visitOutgoingDependencies(dependencies);
 
+                // Start fetching the meta-data for all the edges before waiting on the first of them
+                for (DependencyEdge dependency : dependencies) {
+                    dependency.selector.prefetch();
+                }
+
                 for (DependencyEdge dependency : dependencies) {
                     LOGGER.debug("Visiting dependency {}", dependency);
 
@@ -324,14 +345,17 @@ public class DependencyGraphBuilder {
         private final DependencyToModuleVersionIdResolver resolver;
         private final DependencyToConfigurationResolver dependencyToConfigurationResolver;
         private final ArtifactResolver artifactResolver;
+        private final ComponentMetaDataPrefetcher prefetcher;
         private final Set<ConfigurationNode> queued = new HashSet<ConfigurationNode>();
         private final LinkedList<ConfigurationNode> queue = new LinkedList<ConfigurationNode>();
 
         public ResolveState(ComponentResolveResult rootResult, String rootConfigurationName, DependencyToModuleVersionIdResolver resolver,
-                            DependencyToConfigurationResolver dependencyToConfigurationResolver, ArtifactResolver artifactResolver) {
+                            DependencyToConfigurationResolver dependencyToConfigurationResolver, ArtifactResolver artifactResolver,
+                            ComponentMetaDataPrefetcher prefetcher) {
             this.resolver = resolver;
             this.dependencyToConfigurationResolver = dependencyToConfigurationResolver;
             this.artifactResolver = artifactResolver;
+            this.prefetcher = prefetcher;
             ModuleVersionResolveState rootVersion = getRevision(rootResult.getId());
             rootVersion.setResolveResult(rootResult);
             root = new RootConfigurationNode(rootVersion, new ResolvedConfigurationIdentifier(rootVersion.id, rootConfigurationName), this);
@@ -394,6 +418,8 @@ public class DependencyGraphBuilder {
             // possible before attempting to resolve them
             if (queued.add(configuration)) {
                 queue.addLast(configuration);
+                // Fetch the next level of the graph while the rest of this level is traversed
+                configuration.prefetchOutgoingDependencies();
             }
         }
 
@@ -556,7 +582,7 @@ public class DependencyGraphBuilder {
                 return null;
             }
 
-            resolveResult = idResolveResult.resolve();
+            resolveResult = module.resolveState.prefetcher.resolve(idResolveResult);
             if (resolveResult.getFailure() != null) {
                 failure = resolveResult.getFailure();
                 return null;
@@ -667,13 +693,7 @@ public class DependencyGraphBuilder {
                 return;
             }
 
-            List<DependencyEdge> transitiveIncoming = new ArrayList<DependencyEdge>();
-            for (DependencyEdge edge : incomingEdges) {
-                if (edge.isTransitive()) {
-                    transitiveIncoming.add(edge);
-                }
-            }
-
+            List<DependencyEdge> transitiveIncoming = getTransitiveIncomingEdges();
             if (transitiveIncoming.isEmpty() && this != resolveState.root) {
                 if (previousTraversal != null) {
                     removeOutgoingEdges();
@@ -709,6 +729,36 @@ public class DependencyGraphBuilder {
             previousTraversal = selectorSpec;
         }
 
+        /**
+         * Starts fetching the meta-data for the dependencies that this configuration is likely to have when it is visited, based on its current incoming edges.
+         */
+        public void prefetchOutgoingDependencies() {
+            if (!resolveState.prefetcher.isEnabled() || moduleRevision.state != ModuleState.Selected) {
+                return;
+            }
+            List<DependencyEdge> transitiveIncoming = getTransitiveIncomingEdges();
+            if (transitiveIncoming.isEmpty() && this != resolveState.root) {
+                return;
+            }
+            ModuleVersionSpec selectorSpec = getSelector(transitiveIncoming);
+            for (DependencyMetaData dependency : metaData.getDependencies()) {
+                ModuleId targetModuleId = dependency.getDescriptor().getDependencyRevisionId().getModuleId();
+                if (selectorSpec.isSatisfiedBy(targetModuleId)) {
+                    resolveState.getSelector(dependency).prefetch();
+                }
+            }
+        }
+
+        private List<DependencyEdge> getTransitiveIncomingEdges() {
+            List<DependencyEdge> transitiveIncoming = new ArrayList<DependencyEdge>();
+            for (DependencyEdge edge : incomingEdges) {
+                if (edge.isTransitive()) {
+                    transitiveIncoming.add(edge);
+                }
+            }
+            return transitiveIncoming;
+        }
+
         public void addIncomingEdge(DependencyEdge dependencyEdge) {
             incomingEdges.add(dependencyEdge);
             resolveState.onMoreSelected(this);
@@ -829,6 +879,20 @@ public class DependencyGraphBuilder {
             return targetModule;
         }
 
+        /**
+         * Starts resolving this selector in the background, if it has not been resolved yet. Project dependencies are always resolved on demand.
+         */
+        public void prefetch() {
+            if (!resolveState.prefetcher.isEnabled() || idResolveResult != null || targetModuleRevision != null || failure != null) {
+                return;
+            }
+            if (dependencyMetaData.getSelector() instanceof ProjectComponentSelector) {
+                return;
+            }
+            idResolveResult = resolver.resolve(dependencyMetaData);
+            resolveState.prefetcher.prefetch(dependencyMetaData, idResolveResult);
+        }
+
         /**
          * @return The module version, or null if there is a failure to resolve this selector.
          */
@@ -840,7 +904,10 @@ public class DependencyGraphBuilder {
                 return null;
             }
 
-            idResolveResult = resolver.resolve(dependencyMetaData);
+            if (idResolveResult == null) {
+                idResolveResult = resolver.resolve(dependencyMetaData);
+            }
+            resolveState.prefetcher.await(idResolveResult);
             if (idResolveResult.getFailure() != null) {
                 failure = idResolveResult.getFailure();
                 return null;
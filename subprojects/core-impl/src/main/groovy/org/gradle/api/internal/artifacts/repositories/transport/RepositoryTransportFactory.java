@@ -20,6 +20,7 @@ import org.gradle.api.artifacts.repositories.PasswordCredentials;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
 import org.gradle.internal.resource.cached.CachedExternalResourceIndex;
 import org.gradle.internal.resource.transport.file.FileTransport;
+import org.gradle.internal.resource.transport.http.HttpConnectionPool;
 import org.gradle.internal.resource.transport.http.HttpTransport;
 import org.gradle.internal.resource.transport.sftp.SftpClientFactory;
 import org.gradle.internal.resource.transport.sftp.SftpTransport;
@@ -38,23 +39,26 @@ public class RepositoryTransportFactory {
     private final BuildCommencedTimeProvider timeProvider;
     private final SftpClientFactory sftpClientFactory;
     private final CacheLockingManager cacheLockingManager;
+    private final HttpConnectionPool httpConnectionPool;
 
     public RepositoryTransportFactory(ProgressLoggerFactory progressLoggerFactory,
                                       TemporaryFileProvider temporaryFileProvider,
                                       CachedExternalResourceIndex<String> cachedExternalResourceIndex,
                                       BuildCommencedTimeProvider timeProvider,
                                       SftpClientFactory sftpClientFactory,
-                                      CacheLockingManager cacheLockingManager) {
+                                      CacheLockingManager cacheLockingManager,
+                                      HttpConnectionPool httpConnectionPool) {
         this.progressLoggerFactory = progressLoggerFactory;
         this.temporaryFileProvider = temporaryFileProvider;
         this.cachedExternalResourceIndex = cachedExternalResourceIndex;
         this.timeProvider = timeProvider;
         this.sftpClientFactory = sftpClientFactory;
         this.cacheLockingManager = cacheLockingManager;
+        this.httpConnectionPool = httpConnectionPool;
     }
 
     private RepositoryTransport createHttpTransport(String name, PasswordCredentials credentials) {
-        return new HttpTransport(name, convertPasswordCredentials(credentials), progressLoggerFactory, temporaryFileProvider, cachedExternalResourceIndex, timeProvider, cacheLockingManager);
+        return new HttpTransport(name, convertPasswordCredentials(credentials), progressLoggerFactory, temporaryFileProvider, cachedExternalResourceIndex, timeProvider, cacheLockingManager, httpConnectionPool);
     }
 
     private RepositoryTransport createFileTransport(String name) {
@@ -147,7 +147,11 @@ public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExte
             }
             return cacheLockingManager.useCache(String.format("Store %s", resource.getName()), new Factory<LocallyAvailableExternalResource>() {
                 public LocallyAvailableExternalResource create() {
-                    LocallyAvailableResource cachedResource = fileStore.moveIntoCache(destination);
+                    LocallyAvailableResource cachedResource = cacheLockingManager.updateFiles(new Factory<LocallyAvailableResource>() {
+                        public LocallyAvailableResource create() {
+                            return fileStore.moveIntoCache(destination);
+                        }
+                    });
                     File fileInFileStore = cachedResource.getFile();
                     ExternalResourceMetaData metaData = resource.getMetaData();
                     cachedExternalResourceIndex.store(source.toString(), fileInFileStore, metaData);
@@ -38,9 +38,10 @@ public class HttpTransport extends AbstractRepositoryTransport {
                          TemporaryFileProvider temporaryFileProvider,
                          CachedExternalResourceIndex<String> cachedExternalResourceIndex,
                          BuildCommencedTimeProvider timeProvider,
-                         CacheLockingManager cacheLockingManager) {
+                         CacheLockingManager cacheLockingManager,
+                         HttpConnectionPool connectionPool) {
         super(name);
-        HttpClientHelper http = new HttpClientHelper(new DefaultHttpSettings(credentials));
+        HttpClientHelper http = new HttpClientHelper(new DefaultHttpSettings(credentials), connectionPool);
         HttpResourceAccessor accessor = new HttpResourceAccessor(http);
         HttpResourceUploader uploader = new HttpResourceUploader(http);
         ProgressLoggingExternalResourceAccessor loggingAccessor = new ProgressLoggingExternalResourceAccessor(accessor, progressLoggerFactory);
@@ -47,7 +47,7 @@ class DefaultCacheLockingManagerTest extends Specification {
         1 * cacheRepository.store(CacheLayout.ROOT.getKey()) >> directoryCacheBuilder
         1 * directoryCacheBuilder.withDisplayName("artifact cache") >> directoryCacheBuilder
         1 * directoryCacheBuilder.withCrossVersionCache() >> directoryCacheBuilder
-        1 * directoryCacheBuilder.withLockOptions(mode(FileLockManager.LockMode.None)) >> directoryCacheBuilder
+        1 * directoryCacheBuilder.withLockOptions(mode(FileLockManager.LockMode.None).useSharedLockForReads()) >> directoryCacheBuilder
         1 * directoryCacheBuilder.open() >> persistentCache
         _ * persistentCache.baseDir >> testCacheDir
     }
@@ -67,7 +67,7 @@ class DefaultCacheLockingManagerTest extends Specification {
         1 * cacheRepository.store(CacheLayout.ROOT.getKey()) >> directoryCacheBuilder
         1 * directoryCacheBuilder.withDisplayName("artifact cache") >> directoryCacheBuilder
         1 * directoryCacheBuilder.withCrossVersionCache() >> directoryCacheBuilder
-        1 * directoryCacheBuilder.withLockOptions(mode(FileLockManager.LockMode.None)) >> directoryCacheBuilder
+        1 * directoryCacheBuilder.withLockOptions(mode(FileLockManager.LockMode.None).useSharedLockForReads()) >> directoryCacheBuilder
         1 * directoryCacheBuilder.open() >> persistentCache
         _ * persistentCache.baseDir >> testCacheDir
     }
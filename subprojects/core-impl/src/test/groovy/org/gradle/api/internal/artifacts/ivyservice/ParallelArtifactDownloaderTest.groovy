@@ -0,0 +1,128 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.artifacts.ResolvedArtifact
+import org.gradle.internal.concurrent.BatchExecutor
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+
+class ParallelArtifactDownloaderTest extends Specification {
+    final lockingManager = Mock(CacheLockingManager)
+    final executorFactory = new DefaultExecutorFactory()
+
+    def setup() {
+        _ * lockingManager.longRunningOperation(_, _ as Runnable) >> { String name, Runnable action -> action.run() }
+    }
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "downloads the files of all artifacts"() {
+        def downloader = newDownloader(4)
+        def artifacts = (1..10).collect { Mock(ResolvedArtifact) }
+
+        when:
+        downloader.download(artifacts)
+
+        then:
+        artifacts.each { 1 * it.getFile() }
+    }
+
+    def "downloads artifacts concurrently"() {
+        def downloader = newDownloader(2)
+        def latch = new CountDownLatch(2)
+        def artifact1 = Mock(ResolvedArtifact)
+        def artifact2 = Mock(ResolvedArtifact)
+
+        when:
+        downloader.download([artifact1, artifact2])
+
+        then:
+        1 * artifact1.getFile() >> { latch.countDown(); latch.await(); null }
+        1 * artifact2.getFile() >> { latch.countDown(); latch.await(); null }
+    }
+
+    def "ignores failure to download an artifact"() {
+        def downloader = newDownloader(4)
+        def artifact1 = Mock(ResolvedArtifact)
+        def artifact2 = Mock(ResolvedArtifact)
+
+        when:
+        downloader.download([artifact1, artifact2])
+
+        then:
+        1 * artifact1.getFile() >> { throw new RuntimeException("broken") }
+        1 * artifact2.getFile()
+    }
+
+    def "does nothing when disabled or when there is a single artifact"() {
+        def artifact1 = Mock(ResolvedArtifact)
+        def artifact2 = Mock(ResolvedArtifact)
+
+        when:
+        ParallelArtifactDownloader.disabled().download([artifact1, artifact2])
+        newDownloader(4).download([artifact1])
+
+        then:
+        0 * artifact1._
+        0 * artifact2._
+        0 * lockingManager._
+    }
+
+    def "downloads each artifact only once"() {
+        def downloader = newDownloader(4)
+        def artifact1 = Mock(ResolvedArtifact)
+        def artifact2 = Mock(ResolvedArtifact)
+        def artifact3 = Mock(ResolvedArtifact)
+
+        when:
+        downloader.download([artifact1, artifact2])
+        downloader.download([artifact1, artifact2, artifact3])
+
+        then:
+        1 * artifact1.getFile()
+        1 * artifact2.getFile()
+        0 * artifact3._
+    }
+
+    def "can share executor between downloaders"() {
+        def executor = newExecutor(2)
+        def latch = new CountDownLatch(2)
+        def artifact1 = Mock(ResolvedArtifact)
+        def artifact2 = Mock(ResolvedArtifact)
+
+        when:
+        new ParallelArtifactDownloader(lockingManager, executor).download([artifact1, artifact2])
+        new ParallelArtifactDownloader(lockingManager, executor).download([artifact1, artifact2])
+
+        then:
+        2 * artifact1.getFile() >> { latch.countDown(); latch.await(); null }
+        2 * artifact2.getFile() >> { latch.countDown(); latch.await(); null }
+    }
+
+    private ParallelArtifactDownloader newDownloader(int maxThreads) {
+        return new ParallelArtifactDownloader(lockingManager, newExecutor(maxThreads))
+    }
+
+    private DependencyResolveExecutor newExecutor(int maxThreads) {
+        return new DependencyResolveExecutor(new BatchExecutor(executorFactory.create("test"), maxThreads - 1), true)
+    }
+}
@@ -69,7 +69,7 @@ class LazyDependencyToModuleResolverTest extends Specification {
         0 * target._
     }
 
-    def "resolves module for dynamic version dependency immediately"() {
+    def "resolves module for dynamic version dependency when id is requested"() {
         def dependency = dependency()
         def metaData = module()
 
@@ -78,6 +78,11 @@ class LazyDependencyToModuleResolverTest extends Specification {
 
         when:
         def idResolveResult = resolver.resolve(dependency)
+
+        then:
+        0 * target._
+
+        when:
         def id = idResolveResult.id
 
         then:
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph
+
+import org.gradle.api.Transformer
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
+import org.gradle.api.internal.artifacts.ivyservice.ComponentResolveResult
+import org.gradle.api.internal.artifacts.ivyservice.DependencyResolveExecutor
+import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager
+import org.gradle.api.internal.artifacts.ivyservice.ModuleVersionIdResolveResult
+import org.gradle.api.internal.artifacts.metadata.DependencyMetaData
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.BatchExecutor
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+
+class ComponentMetaDataPrefetcherTest extends Specification {
+    final lockingManager = Mock(CacheLockingManager)
+    final ivyContextManager = Mock(IvyContextManager)
+    final dependency = Stub(DependencyMetaData)
+    final executorFactory = new DefaultExecutorFactory()
+    final executor = new DependencyResolveExecutor(new BatchExecutor(executorFactory.create("test"), 3), true)
+    final prefetcher = new ComponentMetaDataPrefetcher(lockingManager, ivyContextManager, executor)
+
+    def setup() {
+        _ * lockingManager.useCache(_, _ as Factory) >> { String name, Factory factory -> factory.create() }
+        _ * lockingManager.longRunningOperation(_, _ as Runnable) >> { String name, Runnable action -> action.run() }
+        _ * ivyContextManager.withIvy(_ as Transformer) >> { Transformer transformer -> transformer.transform(null) }
+    }
+
+    def cleanup() {
+        prefetcher.stop()
+        executorFactory.stop()
+    }
+
+    def "hands prefetched meta-data to the traversal"() {
+        def result = Mock(ModuleVersionIdResolveResult)
+        def resolved = Mock(ComponentResolveResult)
+
+        when:
+        prefetcher.prefetch(dependency, result)
+        prefetcher.await(result)
+        def value = prefetcher.resolve(result)
+
+        then:
+        value == resolved
+        1 * result.resolve() >> resolved
+        0 * result._
+    }
+
+    def "resolves inline when nothing has been prefetched"() {
+        def result = Mock(ModuleVersionIdResolveResult)
+        def resolved = Mock(ComponentResolveResult)
+
+        when:
+        def value = prefetcher.resolve(result)
+
+        then:
+        value == resolved
+        1 * result.resolve() >> resolved
+        0 * lockingManager._
+    }
+
+    def "does nothing when disabled"() {
+        def disabled = ComponentMetaDataPrefetcher.disabled()
+        def result = Mock(ModuleVersionIdResolveResult)
+        def resolved = Mock(ComponentResolveResult)
+
+        when:
+        disabled.prefetch(dependency, result)
+
+        then:
+        !disabled.enabled
+        0 * result._
+
+        when:
+        def value = disabled.resolve(result)
+
+        then:
+        value == resolved
+        1 * result.resolve() >> resolved
+    }
+
+    def "releases the cache lock while waiting for a running prefetch"() {
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def result = Mock(ModuleVersionIdResolveResult)
+        def resolved = Mock(ComponentResolveResult)
+        _ * result.resolve() >> {
+            started.countDown()
+            release.await()
+            resolved
+        }
+
+        when:
+        prefetcher.prefetch(dependency, result)
+        started.await()
+        def value = prefetcher.resolve(result)
+
+        then:
+        value == resolved
+        1 * lockingManager.longRunningOperation("Wait for dependency meta-data", _ as Runnable) >> { String name, Runnable action ->
+            release.countDown()
+            action.run()
+        }
+    }
+
+    def "resolves inline when no thread of the executor is free"() {
+        def busyExecutor = Mock(DependencyResolveExecutor)
+        def prefetcher = new ComponentMetaDataPrefetcher(lockingManager, ivyContextManager, busyExecutor)
+        def result = Mock(ModuleVersionIdResolveResult)
+        def resolved = Mock(ComponentResolveResult)
+
+        given:
+        _ * busyExecutor.concurrent >> true
+
+        when:
+        prefetcher.prefetch(dependency, result)
+        def value = prefetcher.resolve(result)
+        prefetcher.stop()
+
+        then:
+        value == resolved
+        1 * busyExecutor.tryExecute(_) >> false
+        1 * result.resolve() >> resolved
+        0 * busyExecutor.stop()
+    }
+
+    def "leaves the executor running when stopped"() {
+        def result = Mock(ModuleVersionIdResolveResult)
+        def other = Mock(ModuleVersionIdResolveResult)
+        def resolved = Mock(ComponentResolveResult)
+
+        when:
+        prefetcher.prefetch(dependency, result)
+        prefetcher.stop()
+        def nextPrefetcher = new ComponentMetaDataPrefetcher(lockingManager, ivyContextManager, executor)
+        nextPrefetcher.prefetch(dependency, other)
+        nextPrefetcher.await(other)
+        def value = nextPrefetcher.resolve(other)
+
+        then:
+        value == resolved
+        _ * result.resolve()
+        1 * other.resolve() >> resolved
+    }
+
+    def "rethrows failure to prefetch"() {
+        def result = Mock(ModuleVersionIdResolveResult)
+        def failure = new RuntimeException("broken")
+
+        given:
+        _ * result.resolve() >> { throw failure }
+
+        when:
+        prefetcher.prefetch(dependency, result)
+        prefetcher.resolve(result)
+
+        then:
+        RuntimeException e = thrown()
+        e == failure
+    }
+}
@@ -107,6 +107,9 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         1 * cacheLockingManager.useCache(_, _) >> { String description, org.gradle.internal.Factory factory ->
             return factory.create()
         }
+        1 * cacheLockingManager.updateFiles(_) >> { org.gradle.internal.Factory factory ->
+            return factory.create()
+        }
         1 * fileStore.moveIntoCache(tempFile) >> localResource
         1 * remoteResource.metaData >> metaData
         1 * index.store("scheme:thing", cachedFile, metaData)
@@ -177,6 +180,9 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         1 * cacheLockingManager.useCache(_, _) >> { String description, org.gradle.internal.Factory factory ->
             return factory.create()
         }
+        1 * cacheLockingManager.updateFiles(_) >> { org.gradle.internal.Factory factory ->
+            return factory.create()
+        }
         1 * fileStore.moveIntoCache(tempFile) >> localResource
         1 * index.store("scheme:thing", cachedFile, remoteMetaData)
         0 * _._
@@ -227,6 +233,9 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         1 * cacheLockingManager.useCache(_, _) >> { String description, org.gradle.internal.Factory factory ->
             return factory.create()
         }
+        1 * cacheLockingManager.updateFiles(_) >> { org.gradle.internal.Factory factory ->
+            return factory.create()
+        }
         1 * fileStore.moveIntoCache(tempFile) >> localResource
         1 * index.store("scheme:thing", cachedFile, remoteMetaData)
         0 * _._
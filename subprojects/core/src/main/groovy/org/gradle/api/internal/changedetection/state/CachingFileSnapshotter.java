@@ -15,22 +15,32 @@
  */
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.Action;
+import org.gradle.api.internal.hash.DefaultHasher;
 import org.gradle.api.internal.hash.Hasher;
+import org.gradle.api.internal.hash.Murmur3Hasher;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentStore;
+import org.gradle.internal.concurrent.BatchExecutor;
 import org.gradle.messaging.serialize.Decoder;
 import org.gradle.messaging.serialize.Encoder;
 import org.gradle.messaging.serialize.Serializer;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 public class CachingFileSnapshotter implements FileSnapshotter {
     private final PersistentIndexedCache<File, FileInfo> cache;
     private final Hasher hasher;
+    private final String algorithm;
     private final FileInfoSerializer serializer = new FileInfoSerializer();
 
     public CachingFileSnapshotter(Hasher hasher, PersistentStore store) {
         this.hasher = hasher;
+        this.algorithm = hasher.getAlgorithm();
         this.cache = store.createCache("fileHashes", File.class, serializer);
     }
 
@@ -39,22 +49,69 @@ public class CachingFileSnapshotter implements FileSnapshotter {
 
         long length = file.length();
         long timestamp = file.lastModified();
-        if (info != null && length == info.length && timestamp == info.timestamp) {
+        if (isUpToDate(info, length, timestamp)) {
             return info;
         }
 
         byte[] hash = hasher.hash(file);
-        info = new FileInfo(hash, length, timestamp);
+        info = new FileInfo(algorithm, hash, length, timestamp);
         cache.put(file, info);
         return info;
     }
 
+    public List<FileSnapshot> findSnapshots(List<File> files) {
+        return Collections.nCopies(files.size(), null);
+    }
+
+    public List<FileSnapshot> snapshot(final List<File> files, BatchExecutor batchExecutor) {
+        final long[] lengths = new long[files.size()];
+        final long[] timestamps = new long[files.size()];
+        batchExecutor.forEachIndex(files.size(), new Action<Integer>() {
+            public void execute(Integer index) {
+                File file = files.get(index);
+                lengths[index] = file.length();
+                timestamps[index] = file.lastModified();
+            }
+        });
+
+        // The cache can only be used by the thread that owns it, so look up and store the results here, and only hash concurrently
+        final FileInfo[] snapshots = new FileInfo[files.size()];
+        final List<Integer> changed = new ArrayList<Integer>();
+        for (int i = 0; i < snapshots.length; i++) {
+            FileInfo info = cache.get(files.get(i));
+            if (isUpToDate(info, lengths[i], timestamps[i])) {
+                snapshots[i] = info;
+            } else {
+                changed.add(i);
+            }
+        }
+
+        batchExecutor.forEachIndex(changed.size(), new Action<Integer>() {
+            public void execute(Integer index) {
+                int fileIndex = changed.get(index);
+                byte[] hash = hasher.hash(files.get(fileIndex));
+                snapshots[fileIndex] = new FileInfo(algorithm, hash, lengths[fileIndex], timestamps[fileIndex]);
+            }
+        });
+
+        for (Integer fileIndex : changed) {
+            cache.put(files.get(fileIndex), snapshots[fileIndex]);
+        }
+        return Arrays.<FileSnapshot>asList(snapshots);
+    }
+
+    private boolean isUpToDate(FileInfo info, long length, long timestamp) {
+        return info != null && length == info.length && timestamp == info.timestamp && algorithm.equals(info.algorithm);
+    }
+
     public static class FileInfo implements FileSnapshot {
+        private final String algorithm;
         private final byte[] hash;
         private final long timestamp;
         private final long length;
 
-        public FileInfo(byte[] hash, long length, long timestamp) {
+        public FileInfo(String algorithm, byte[] hash, long length, long timestamp) {
+            this.algorithm = algorithm;
             this.hash = hash;
             this.length = length;
             this.timestamp = timestamp;
@@ -65,15 +122,26 @@ public class CachingFileSnapshotter implements FileSnapshotter {
         }
     }
 
-    private static class FileInfoSerializer implements Serializer<FileInfo> {
+    static class FileInfoSerializer implements Serializer<FileInfo> {
+        // The algorithm of each entry is written as its index in this list, so new algorithms must be added at the end
+        private static final List<String> ALGORITHMS = Arrays.asList(DefaultHasher.ALGORITHM, Murmur3Hasher.ALGORITHM);
+
         public FileInfo read(Decoder decoder) throws Exception {
+            int algorithmId = decoder.readByte();
+            // An unknown algorithm leaves the entry without one, so that the file is hashed again
+            String algorithm = algorithmId >= 0 && algorithmId < ALGORITHMS.size() ? ALGORITHMS.get(algorithmId) : null;
             byte[] hash = decoder.readBinary();
             long timestamp = decoder.readLong();
             long length = decoder.readLong();
-            return new FileInfo(hash, length, timestamp);
+            return new FileInfo(algorithm, hash, length, timestamp);
         }
 
         public void write(Encoder encoder, FileInfo value) throws Exception {
+            int algorithmId = ALGORITHMS.indexOf(value.algorithm);
+            if (algorithmId < 0) {
+                throw new IllegalArgumentException(String.format("Cannot serialize hash of unknown algorithm '%s'.", value.algorithm));
+            }
+            encoder.writeByte((byte) algorithmId);
             encoder.writeBinary(value.hash);
             encoder.writeLong(value.timestamp);
             encoder.writeLong(value.length);
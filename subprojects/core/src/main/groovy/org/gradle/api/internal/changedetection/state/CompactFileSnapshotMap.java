@@ -0,0 +1,252 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import java.util.*;
+
+/**
+ * An immutable map from absolute path to file snapshot, which avoids holding an object per file. The paths are kept sorted, so that a snapshot
+ * can be found using a binary search, and the hashes of all files are kept in a single array.
+ */
+class CompactFileSnapshotMap extends AbstractMap<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot> {
+    static final byte DIR = 1;
+    static final byte MISSING = 2;
+    static final byte FILE = 3;
+
+    private static final DefaultFileCollectionSnapshotter.DirSnapshot DIR_SNAPSHOT = new DefaultFileCollectionSnapshotter.DirSnapshot();
+    private static final DefaultFileCollectionSnapshotter.MissingFileSnapshot MISSING_SNAPSHOT = new DefaultFileCollectionSnapshotter.MissingFileSnapshot();
+
+    private final String[] paths;
+    private final byte[] kinds;
+    // The hash of file i is hashes[hashOffsets[i]] to hashes[hashOffsets[i + 1]]
+    private final int[] hashOffsets;
+    private final byte[] hashes;
+
+    /**
+     * Creates a map from the given arrays. The paths must be sorted.
+     */
+    CompactFileSnapshotMap(String[] paths, byte[] kinds, int[] hashOffsets, byte[] hashes) {
+        this.paths = paths;
+        this.kinds = kinds;
+        this.hashOffsets = hashOffsets;
+        this.hashes = hashes;
+    }
+
+    static CompactFileSnapshotMap of(Map<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot> snapshots) {
+        if (snapshots instanceof CompactFileSnapshotMap) {
+            return (CompactFileSnapshotMap) snapshots;
+        }
+
+        String[] paths = snapshots.keySet().toArray(new String[snapshots.size()]);
+        Arrays.sort(paths);
+        byte[] kinds = new byte[paths.length];
+        int[] hashOffsets = new int[paths.length + 1];
+        int hashesLength = 0;
+        for (int i = 0; i < paths.length; i++) {
+            DefaultFileCollectionSnapshotter.IncrementalFileSnapshot snapshot = snapshots.get(paths[i]);
+            kinds[i] = kindOf(snapshot);
+            if (kinds[i] == FILE) {
+                hashesLength += ((DefaultFileCollectionSnapshotter.FileHashSnapshot) snapshot).hash.length;
+            }
+            hashOffsets[i + 1] = hashesLength;
+        }
+
+        byte[] hashes = new byte[hashesLength];
+        for (int i = 0; i < paths.length; i++) {
+            if (kinds[i] == FILE) {
+                byte[] hash = ((DefaultFileCollectionSnapshotter.FileHashSnapshot) snapshots.get(paths[i])).hash;
+                System.arraycopy(hash, 0, hashes, hashOffsets[i], hash.length);
+            }
+        }
+        return new CompactFileSnapshotMap(paths, kinds, hashOffsets, hashes);
+    }
+
+    private static byte kindOf(DefaultFileCollectionSnapshotter.IncrementalFileSnapshot snapshot) {
+        if (snapshot instanceof DefaultFileCollectionSnapshotter.DirSnapshot) {
+            return DIR;
+        }
+        if (snapshot instanceof DefaultFileCollectionSnapshotter.MissingFileSnapshot) {
+            return MISSING;
+        }
+        if (snapshot instanceof DefaultFileCollectionSnapshotter.FileHashSnapshot) {
+            return FILE;
+        }
+        throw new IllegalArgumentException(String.format("Unexpected file snapshot %s.", snapshot));
+    }
+
+    @Override
+    public int size() {
+        return paths.length;
+    }
+
+    String getPath(int index) {
+        return paths[index];
+    }
+
+    byte getKind(int index) {
+        return kinds[index];
+    }
+
+    byte[] getHash(int index) {
+        return Arrays.copyOfRange(hashes, hashOffsets[index], hashOffsets[index + 1]);
+    }
+
+    /**
+     * Returns true when the entry at the given index is up-to-date with the entry at the given index of the other map. Unlike comparing the
+     * snapshots returned by {@link #get(Object)}, this does not allocate.
+     */
+    boolean isUpToDate(int index, CompactFileSnapshotMap other, int otherIndex) {
+        if (kinds[index] != other.kinds[otherIndex]) {
+            return false;
+        }
+        if (kinds[index] != FILE) {
+            return true;
+        }
+        int start = hashOffsets[index];
+        int length = hashOffsets[index + 1] - start;
+        int otherStart = other.hashOffsets[otherIndex];
+        if (length != other.hashOffsets[otherIndex + 1] - otherStart) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (hashes[start + i] != other.hashes[otherStart + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private DefaultFileCollectionSnapshotter.IncrementalFileSnapshot getSnapshot(int index) {
+        switch (kinds[index]) {
+            case DIR:
+                return DIR_SNAPSHOT;
+            case MISSING:
+                return MISSING_SNAPSHOT;
+            default:
+                return new DefaultFileCollectionSnapshotter.FileHashSnapshot(getHash(index));
+        }
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        return Arrays.binarySearch(paths, key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public DefaultFileCollectionSnapshotter.IncrementalFileSnapshot get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : getSnapshot(index);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return Collections.unmodifiableList(Arrays.asList(paths)).iterator();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return paths.length;
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot>> entrySet() {
+        return new AbstractSet<Entry<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot>>() {
+            @Override
+            public Iterator<Entry<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot>> iterator() {
+                return new Iterator<Entry<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot>>() {
+                    private int next;
+
+                    public boolean hasNext() {
+                        return next < paths.length;
+                    }
+
+                    public Entry<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        int index = next++;
+                        return new SimpleImmutableEntry<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot>(paths[index], getSnapshot(index));
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return paths.length;
+            }
+        };
+    }
+
+    /**
+     * Builds a map by copying entries from other maps, without creating a snapshot object per entry. The entries must be added in path order.
+     */
+    static class Builder {
+        private final String[] paths;
+        private final byte[] kinds;
+        private final int[] hashOffsets;
+        private byte[] hashes = new byte[256];
+        private int count;
+
+        Builder(int maxSize) {
+            paths = new String[maxSize];
+            kinds = new byte[maxSize];
+            hashOffsets = new int[maxSize + 1];
+        }
+
+        void add(CompactFileSnapshotMap source, int index) {
+            int start = source.hashOffsets[index];
+            int length = source.hashOffsets[index + 1] - start;
+            int offset = hashOffsets[count];
+            if (offset + length > hashes.length) {
+                byte[] newHashes = new byte[Math.max(hashes.length * 2, offset + length)];
+                System.arraycopy(hashes, 0, newHashes, 0, offset);
+                hashes = newHashes;
+            }
+            System.arraycopy(source.hashes, start, hashes, offset, length);
+            paths[count] = source.paths[index];
+            kinds[count] = source.kinds[index];
+            hashOffsets[count + 1] = offset + length;
+            count++;
+        }
+
+        CompactFileSnapshotMap build() {
+            return new CompactFileSnapshotMap(Arrays.copyOf(paths, count), Arrays.copyOf(kinds, count), Arrays.copyOf(hashOffsets, count + 1),
+                    Arrays.copyOf(hashes, hashOffsets[count]));
+        }
+    }
+}
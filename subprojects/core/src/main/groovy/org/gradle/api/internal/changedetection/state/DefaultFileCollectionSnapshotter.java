@@ -16,8 +16,10 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.Action;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.file.collections.SimpleFileCollection;
+import org.gradle.internal.concurrent.BatchExecutor;
 import org.gradle.messaging.serialize.SerializerRegistry;
 import org.gradle.util.ChangeListener;
 import org.gradle.util.NoOpChangeListener;
@@ -27,12 +29,20 @@ import java.math.BigInteger;
 import java.util.*;
 
 public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshotter {
+    // Below this, the cost of handing files to other threads outweighs the cost of checking them
+    private static final int MIN_FILES_FOR_CONCURRENCY = 200;
+
     private final FileSnapshotter snapshotter;
     private TaskArtifactStateCacheAccess cacheAccess;
+    private final BatchExecutor batchExecutor;
 
-    public DefaultFileCollectionSnapshotter(FileSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess) {
+    /**
+     * @param batchExecutor The executor to use to check and hash the files of large file collections. Shared with other users for the build.
+     */
+    public DefaultFileCollectionSnapshotter(FileSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess, BatchExecutor batchExecutor) {
         this.snapshotter = snapshotter;
         this.cacheAccess = cacheAccess;
+        this.batchExecutor = batchExecutor;
     }
 
     public void registerSerializers(SerializerRegistry<FileCollectionSnapshot> registry) {
@@ -44,24 +54,56 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
     }
 
     public FileCollectionSnapshot snapshot(FileCollection input) {
-        final Set<File> files = input.getAsFileTree().getFiles();
+        final List<File> files = new ArrayList<File>(input.getAsFileTree().getFiles());
         if (files.isEmpty()) {
             return new FileCollectionSnapshotImpl(Collections.<String, IncrementalFileSnapshot>emptyMap());
         }
+
+        return snapshot(files, files.size() < MIN_FILES_FOR_CONCURRENCY ? BatchExecutor.SERIAL : batchExecutor);
+    }
+
+    private FileCollectionSnapshot snapshot(final List<File> files, final BatchExecutor batchExecutor) {
+        // Find out what each file is without holding the cache lock, skipping the files whose snapshot is already known
+        final List<FileSnapshot> knownSnapshots = snapshotter.findSnapshots(files);
+        final IncrementalFileSnapshot[] details = new IncrementalFileSnapshot[files.size()];
+        batchExecutor.forEachIndex(files.size(), new Action<Integer>() {
+            public void execute(Integer index) {
+                File file = files.get(index);
+                FileSnapshot knownSnapshot = knownSnapshots.get(index);
+                if (knownSnapshot != null) {
+                    details[index] = new FileHashSnapshot(knownSnapshot.getHash());
+                    return;
+                }
+                if (file.isFile()) {
+                    return;
+                }
+                details[index] = file.isDirectory() ? new DirSnapshot() : new MissingFileSnapshot();
+            }
+        });
+
+        final List<File> regularFiles = new ArrayList<File>();
+        for (int i = 0; i < details.length; i++) {
+            if (details[i] == null) {
+                regularFiles.add(files.get(i));
+            }
+        }
+
         final Map<String, IncrementalFileSnapshot> snapshots = new HashMap<String, IncrementalFileSnapshot>();
-        cacheAccess.useCache("Create file snapshot", new Runnable() {
-            public void run() {
-                for (File file : files) {
-                    if (file.isFile()) {
-                        snapshots.put(file.getAbsolutePath(), new FileHashSnapshot(snapshotter.snapshot(file).getHash()));
-                    } else if (file.isDirectory()) {
-                        snapshots.put(file.getAbsolutePath(), new DirSnapshot());
-                    } else {
-                        snapshots.put(file.getAbsolutePath(), new MissingFileSnapshot());
+        if (!regularFiles.isEmpty()) {
+            cacheAccess.useCache("Create file snapshot", new Runnable() {
+                public void run() {
+                    List<FileSnapshot> fileSnapshots = snapshotter.snapshot(regularFiles, batchExecutor);
+                    for (int i = 0; i < regularFiles.size(); i++) {
+                        snapshots.put(regularFiles.get(i).getAbsolutePath(), new FileHashSnapshot(fileSnapshots.get(i).getHash()));
                     }
                 }
+            });
+        }
+        for (int i = 0; i < details.length; i++) {
+            if (details[i] != null) {
+                snapshots.put(files.get(i).getAbsolutePath(), details[i]);
             }
-        });
+        }
         return new FileCollectionSnapshotImpl(snapshots);
     }
 
@@ -108,17 +150,17 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
     }
 
     static class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
-        final Map<String, IncrementalFileSnapshot> snapshots;
+        final CompactFileSnapshotMap snapshots;
 
         public FileCollectionSnapshotImpl(Map<String, IncrementalFileSnapshot> snapshots) {
-            this.snapshots = snapshots;
+            this.snapshots = CompactFileSnapshotMap.of(snapshots);
         }
 
         public FileCollection getFiles() {
             List<File> files = new ArrayList<File>();
-            for (Map.Entry<String, IncrementalFileSnapshot> entry : snapshots.entrySet()) {
-                if (entry.getValue() instanceof FileHashSnapshot) {
-                    files.add(new File(entry.getKey()));
+            for (int i = 0; i < snapshots.size(); i++) {
+                if (snapshots.getKind(i) == CompactFileSnapshotMap.FILE) {
+                    files.add(new File(snapshots.getPath(i)));
                 }
             }
             return new SimpleFileCollection(files);
@@ -137,38 +179,24 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
         }
 
         public ChangeIterator<String> iterateChangesSince(FileCollectionSnapshot oldSnapshot) {
-            FileCollectionSnapshotImpl other = (FileCollectionSnapshotImpl) oldSnapshot;
-            final Map<String, IncrementalFileSnapshot> otherSnapshots = new HashMap<String, IncrementalFileSnapshot>(other.snapshots);
-            final Iterator<String> currentFiles = snapshots.keySet().iterator();
+            final CompactFileSnapshotMap otherSnapshots = ((FileCollectionSnapshotImpl) oldSnapshot).snapshots;
+            final SortedDiff diff = new SortedDiff(snapshots, otherSnapshots);
 
             return new ChangeIterator<String>() {
-                private Iterator<String> removedFiles;
-
-                public boolean next(ChangeListener<String> listener) {
-                    while (currentFiles.hasNext()) {
-                        String currentFile = currentFiles.next();
-                        IncrementalFileSnapshot otherFile = otherSnapshots.remove(currentFile);
-
-                        if (otherFile == null) {
-                            listener.added(currentFile);
-                            return true;
-                        } else if (!snapshots.get(currentFile).isUpToDate(otherFile)) {
-                            listener.changed(currentFile);
-                            return true;
+                public boolean next(final ChangeListener<String> listener) {
+                    return diff.next(new ChangeListener<Integer>() {
+                        public void added(Integer index) {
+                            listener.added(snapshots.getPath(index));
                         }
-                    }
-
-                    // Create a single iterator to use for all of the removed files
-                    if (removedFiles == null) {
-                        removedFiles = otherSnapshots.keySet().iterator();
-                    }
 
-                    if (removedFiles.hasNext()) {
-                        listener.removed(removedFiles.next());
-                        return true;
-                    }
+                        public void removed(Integer index) {
+                            listener.removed(otherSnapshots.getPath(index));
+                        }
 
-                    return false;
+                        public void changed(Integer index) {
+                            listener.changed(snapshots.getPath(index));
+                        }
+                    });
                 }
             };
         }
@@ -181,29 +209,134 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
                 }
 
                 public FileCollectionSnapshot applyTo(FileCollectionSnapshot snapshot, final ChangeListener<Merge> listener) {
+                    // Indexes into the new snapshots of the entries to add or replace, and into the old snapshots of the entries to remove
+                    final List<Integer> updated = new ArrayList<Integer>();
+                    final List<Integer> removed = new ArrayList<Integer>();
+                    SortedDiff diff = new SortedDiff(snapshots, other.snapshots);
+                    ChangeListener<Integer> mergeListener = new ChangeListener<Integer>() {
+                        public void added(Integer index) {
+                            MapMergeChangeListener.DefaultMerge merge = new MapMergeChangeListener.DefaultMerge();
+                            listener.added(merge);
+                            if (!merge.isIgnore()) {
+                                updated.add(index);
+                            }
+                        }
+
+                        public void removed(Integer index) {
+                            MapMergeChangeListener.DefaultMerge merge = new MapMergeChangeListener.DefaultMerge();
+                            listener.removed(merge);
+                            if (!merge.isIgnore()) {
+                                removed.add(index);
+                            }
+                        }
+
+                        public void changed(Integer index) {
+                            MapMergeChangeListener.DefaultMerge merge = new MapMergeChangeListener.DefaultMerge();
+                            listener.changed(merge);
+                            if (!merge.isIgnore()) {
+                                updated.add(index);
+                            }
+                        }
+                    };
+                    while (diff.next(mergeListener)) {
+                    }
+
                     FileCollectionSnapshotImpl target = (FileCollectionSnapshotImpl) snapshot;
-                    final Map<String, IncrementalFileSnapshot> newSnapshots = new HashMap<String, IncrementalFileSnapshot>(target.snapshots);
-                    diff(snapshots, other.snapshots, new MapMergeChangeListener<String, IncrementalFileSnapshot>(listener, newSnapshots));
-                    return new FileCollectionSnapshotImpl(newSnapshots);
+                    if (updated.isEmpty() && removed.isEmpty()) {
+                        return target;
+                    }
+                    return new FileCollectionSnapshotImpl(merge(target.snapshots, snapshots, updated, other.snapshots, removed));
                 }
             };
         }
 
-        private void diff(Map<String, IncrementalFileSnapshot> snapshots, Map<String, IncrementalFileSnapshot> oldSnapshots,
-                          ChangeListener<Map.Entry<String, IncrementalFileSnapshot>> listener) {
-            Map<String, IncrementalFileSnapshot> otherSnapshots = new HashMap<String, IncrementalFileSnapshot>(oldSnapshots);
-            for (Map.Entry<String, IncrementalFileSnapshot> entry : snapshots.entrySet()) {
-                IncrementalFileSnapshot otherFile = otherSnapshots.remove(entry.getKey());
-                if (otherFile == null) {
-                    listener.added(entry);
-                } else if (!entry.getValue().isUpToDate(otherFile)) {
-                    listener.changed(entry);
+        /**
+         * Merges the given changes into the target map. All of the maps are sorted by path, as are the given updates and removals, so the
+         * result is built in a single pass over them.
+         */
+        private static CompactFileSnapshotMap merge(CompactFileSnapshotMap target, CompactFileSnapshotMap source, List<Integer> updated,
+                                                    CompactFileSnapshotMap oldSnapshots, List<Integer> removed) {
+            CompactFileSnapshotMap.Builder builder = new CompactFileSnapshotMap.Builder(target.size() + updated.size());
+            int targetIndex = 0;
+            int updatedIndex = 0;
+            int removedIndex = 0;
+            while (targetIndex < target.size() || updatedIndex < updated.size()) {
+                String targetPath = targetIndex < target.size() ? target.getPath(targetIndex) : null;
+                String updatedPath = updatedIndex < updated.size() ? source.getPath(updated.get(updatedIndex)) : null;
+                int order = targetPath == null ? 1 : updatedPath == null ? -1 : targetPath.compareTo(updatedPath);
+                if (order >= 0) {
+                    builder.add(source, updated.get(updatedIndex++));
+                    if (order == 0) {
+                        targetIndex++;
+                    }
+                    continue;
                 }
+                while (removedIndex < removed.size() && oldSnapshots.getPath(removed.get(removedIndex)).compareTo(targetPath) < 0) {
+                    removedIndex++;
+                }
+                if (removedIndex == removed.size() || !oldSnapshots.getPath(removed.get(removedIndex)).equals(targetPath)) {
+                    builder.add(target, targetIndex);
+                }
+                targetIndex++;
             }
-            for (Map.Entry<String, IncrementalFileSnapshot> entry : otherSnapshots.entrySet()) {
-                listener.removed(entry);
-            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * Walks two snapshot maps side by side, reporting the changes from the old map to the new one. Both maps are sorted by path, so this
+     * needs neither lookups nor copies of the maps. The added and changed entries are reported first, by their index in the new map, and
+     * then the removed entries, by their index in the old map.
+     */
+    private static class SortedDiff {
+        private final CompactFileSnapshotMap snapshots;
+        private final CompactFileSnapshotMap oldSnapshots;
+        private int index;
+        private int oldIndex;
+        private boolean checkingRemoved;
+
+        SortedDiff(CompactFileSnapshotMap snapshots, CompactFileSnapshotMap oldSnapshots) {
+            this.snapshots = snapshots;
+            this.oldSnapshots = oldSnapshots;
         }
 
+        /**
+         * Reports the next change to the given listener. Returns false when there are no more changes.
+         */
+        boolean next(ChangeListener<Integer> listener) {
+            while (!checkingRemoved && index < snapshots.size()) {
+                String path = snapshots.getPath(index);
+                while (oldIndex < oldSnapshots.size() && oldSnapshots.getPath(oldIndex).compareTo(path) < 0) {
+                    oldIndex++;
+                }
+                int current = index++;
+                if (oldIndex == oldSnapshots.size() || !oldSnapshots.getPath(oldIndex).equals(path)) {
+                    listener.added(current);
+                    return true;
+                }
+                if (!snapshots.isUpToDate(current, oldSnapshots, oldIndex)) {
+                    listener.changed(current);
+                    return true;
+                }
+            }
+
+            if (!checkingRemoved) {
+                checkingRemoved = true;
+                index = 0;
+                oldIndex = 0;
+            }
+            while (oldIndex < oldSnapshots.size()) {
+                String path = oldSnapshots.getPath(oldIndex);
+                while (index < snapshots.size() && snapshots.getPath(index).compareTo(path) < 0) {
+                    index++;
+                }
+                int old = oldIndex++;
+                if (index == snapshots.size() || !snapshots.getPath(index).equals(path)) {
+                    listener.removed(old);
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 }
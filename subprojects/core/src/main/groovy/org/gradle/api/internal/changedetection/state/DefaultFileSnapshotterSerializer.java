@@ -20,48 +20,69 @@ import org.gradle.messaging.serialize.Decoder;
 import org.gradle.messaging.serialize.Encoder;
 import org.gradle.messaging.serialize.Serializer;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.ByteArrayOutputStream;
 
+/**
+ * Writes the paths in sorted order, each as the length of the prefix it shares with the previous path followed by the rest of the path.
+ */
 class DefaultFileSnapshotterSerializer implements Serializer<DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl> {
     public DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl read(Decoder decoder) throws Exception {
-        Map<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot> snapshots = new HashMap<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot>();
-        DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl snapshot = new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(snapshots);
         int snapshotsCount = decoder.readSmallInt();
+        String[] paths = new String[snapshotsCount];
+        byte[] kinds = new byte[snapshotsCount];
+        int[] hashOffsets = new int[snapshotsCount + 1];
+        ByteArrayOutputStream hashes = new ByteArrayOutputStream();
+        String previous = "";
         for (int i = 0; i < snapshotsCount; i++) {
-            String key = decoder.readString();
+            int prefixLength = decoder.readSmallInt();
+            String path = previous.substring(0, prefixLength) + decoder.readString();
             byte fileSnapshotKind = decoder.readByte();
-            if (fileSnapshotKind == 1) {
-                snapshots.put(key, new DefaultFileCollectionSnapshotter.DirSnapshot());
-            } else if (fileSnapshotKind == 2) {
-                snapshots.put(key, new DefaultFileCollectionSnapshotter.MissingFileSnapshot());
-            } else if (fileSnapshotKind == 3) {
+            if (fileSnapshotKind == CompactFileSnapshotMap.FILE) {
                 byte hashSize = decoder.readByte();
                 byte[] hash = new byte[hashSize];
                 decoder.readBytes(hash);
-                snapshots.put(key, new DefaultFileCollectionSnapshotter.FileHashSnapshot(hash));
-            } else {
+                hashes.write(hash);
+            } else if (fileSnapshotKind != CompactFileSnapshotMap.DIR && fileSnapshotKind != CompactFileSnapshotMap.MISSING) {
                 throw new RuntimeException("Unable to read serialized file collection snapshot. Unrecognized value found in the data stream.");
             }
+            paths[i] = path;
+            kinds[i] = fileSnapshotKind;
+            hashOffsets[i + 1] = hashes.size();
+            previous = path;
         }
-        return snapshot;
+        return new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(new CompactFileSnapshotMap(paths, kinds, hashOffsets, hashes.toByteArray()));
     }
 
     public void write(Encoder encoder, DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl value) throws Exception {
-        encoder.writeSmallInt(value.snapshots.size());
-        for (String key : value.snapshots.keySet()) {
-            encoder.writeString(key);
-            DefaultFileCollectionSnapshotter.IncrementalFileSnapshot incrementalFileSnapshot = value.snapshots.get(key);
-            if (incrementalFileSnapshot instanceof DefaultFileCollectionSnapshotter.DirSnapshot) {
-                encoder.writeByte((byte) 1);
-            } else if (incrementalFileSnapshot instanceof DefaultFileCollectionSnapshotter.MissingFileSnapshot) {
-                encoder.writeByte((byte) 2);
-            } else if (incrementalFileSnapshot instanceof DefaultFileCollectionSnapshotter.FileHashSnapshot) {
-                encoder.writeByte((byte) 3);
-                byte[] hash = ((DefaultFileCollectionSnapshotter.FileHashSnapshot) incrementalFileSnapshot).hash;
+        CompactFileSnapshotMap snapshots = value.snapshots;
+        encoder.writeSmallInt(snapshots.size());
+        String previous = "";
+        for (int i = 0; i < snapshots.size(); i++) {
+            String path = snapshots.getPath(i);
+            int prefixLength = commonPrefixLength(previous, path);
+            encoder.writeSmallInt(prefixLength);
+            encoder.writeString(path.substring(prefixLength));
+            byte kind = snapshots.getKind(i);
+            encoder.writeByte(kind);
+            if (kind == CompactFileSnapshotMap.FILE) {
+                byte[] hash = snapshots.getHash(i);
                 encoder.writeByte((byte) hash.length);
                 encoder.writeBytes(hash);
             }
+            previous = path;
+        }
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int maxLength = Math.min(a.length(), b.length());
+        int length = 0;
+        while (length < maxLength && a.charAt(length) == b.charAt(length)) {
+            length++;
+        }
+        // Don't split a surrogate pair, as the rest of the path would not be a valid string
+        if (length > 0 && Character.isHighSurrogate(a.charAt(length - 1))) {
+            length--;
         }
+        return length;
     }
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.Nullable;
+import org.gradle.internal.concurrent.Stoppable;
+
+import java.io.File;
+
+/**
+ * Receives notifications of changes to the entries of a set of directories.
+ */
+public interface DirectoryWatcher extends Stoppable {
+    /**
+     * Starts watching the given directory for changes to its entries, if not already watching it.
+     *
+     * @return true if the directory is being watched, false if it cannot be watched.
+     */
+    boolean watch(File directory);
+
+    /**
+     * Stops watching the given directory, if watching it.
+     */
+    void unwatch(File directory);
+
+    /**
+     * Returns a value that identifies the directory currently at the given location, so that a directory which has been moved or replaced can be
+     * detected. Returns null if the directory does not exist.
+     */
+    @Nullable
+    Object getDirectoryKey(File directory);
+
+    /**
+     * Notifies the given listener of the changes to watched directories since the last call to this method. Blocks until every change made before
+     * this method was called has been received, so that the caller can rely on the listener having been notified of them.
+     */
+    void pollChanges(Listener listener);
+
+    interface Listener {
+        /**
+         * Called when the given entry of a watched directory has been created, modified or removed.
+         */
+        void changed(File file);
+
+        /**
+         * Called when the given directory is no longer watched, for example because it has been removed.
+         */
+        void directoryRemoved(File directory);
+
+        /**
+         * Called when some changes have been lost, so that any of the watched directories may have changed.
+         */
+        void changesLost();
+    }
+}
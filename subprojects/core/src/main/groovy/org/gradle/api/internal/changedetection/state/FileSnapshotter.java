@@ -16,7 +16,10 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.internal.concurrent.BatchExecutor;
+
 import java.io.File;
+import java.util.List;
 
 public interface FileSnapshotter {
     /**
@@ -24,4 +27,19 @@ public interface FileSnapshotter {
      */
     FileSnapshot snapshot(File file);
 
+    /**
+     * Takes a snapshot of the current content of each of the given files, using the given executor to do so concurrently. The provided files must exist and be files.
+     *
+     * @return The snapshots, in the same order as the files.
+     */
+    List<FileSnapshot> snapshot(List<File> files, BatchExecutor batchExecutor);
+
+    /**
+     * Returns the snapshots of the given files that are known to be current without looking at the files. A file with a known snapshot is a file
+     * (rather than, say, a directory).
+     *
+     * @return The snapshots, in the same order as the files, with null for each file whose snapshot is not known.
+     */
+    List<FileSnapshot> findSnapshots(List<File> files);
+
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.file.FileCollection;
+import org.gradle.messaging.serialize.SerializerRegistry;
+import org.gradle.profile.TaskExecutionPhase;
+import org.gradle.profile.TaskPhaseRecorder;
+
+/**
+ * Records the time spent taking snapshots as the given phase of task execution.
+ */
+public class ProfilingFileCollectionSnapshotter implements FileCollectionSnapshotter {
+    private final FileCollectionSnapshotter delegate;
+    private final TaskExecutionPhase phase;
+    private final TaskPhaseRecorder recorder;
+
+    public ProfilingFileCollectionSnapshotter(FileCollectionSnapshotter delegate, TaskExecutionPhase phase, TaskPhaseRecorder recorder) {
+        this.delegate = delegate;
+        this.phase = phase;
+        this.recorder = recorder;
+    }
+
+    public void registerSerializers(SerializerRegistry<FileCollectionSnapshot> registry) {
+        delegate.registerSerializers(registry);
+    }
+
+    public FileCollectionSnapshot emptySnapshot() {
+        return delegate.emptySnapshot();
+    }
+
+    public FileCollectionSnapshot snapshot(FileCollection files) {
+        recorder.start(phase);
+        try {
+            return delegate.snapshot(files);
+        } finally {
+            recorder.finish(phase);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.profile.TaskExecutionPhase;
+import org.gradle.profile.TaskPhaseRecorder;
+
+/**
+ * Records the time spent loading and storing the file snapshots of task history.
+ */
+public class ProfilingFileSnapshotRepository implements FileSnapshotRepository {
+    private final FileSnapshotRepository delegate;
+    private final TaskPhaseRecorder recorder;
+
+    public ProfilingFileSnapshotRepository(FileSnapshotRepository delegate, TaskPhaseRecorder recorder) {
+        this.delegate = delegate;
+        this.recorder = recorder;
+    }
+
+    public FileCollectionSnapshot get(Long id) {
+        recorder.start(TaskExecutionPhase.TASK_HISTORY);
+        try {
+            return delegate.get(id);
+        } finally {
+            recorder.finish(TaskExecutionPhase.TASK_HISTORY);
+        }
+    }
+
+    public Long add(FileCollectionSnapshot snapshot) {
+        recorder.start(TaskExecutionPhase.TASK_HISTORY);
+        try {
+            return delegate.add(snapshot);
+        } finally {
+            recorder.finish(TaskExecutionPhase.TASK_HISTORY);
+        }
+    }
+
+    public void remove(Long id) {
+        recorder.start(TaskExecutionPhase.TASK_HISTORY);
+        try {
+            delegate.remove(id);
+        } finally {
+            recorder.finish(TaskExecutionPhase.TASK_HISTORY);
+        }
+    }
+}
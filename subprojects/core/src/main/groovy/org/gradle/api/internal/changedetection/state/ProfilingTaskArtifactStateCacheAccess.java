@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.messaging.serialize.Serializer;
+import org.gradle.profile.TaskExecutionPhase;
+import org.gradle.profile.TaskPhaseRecorder;
+
+import java.io.Closeable;
+
+/**
+ * Records the time spent waiting to use the task history cache.
+ */
+public class ProfilingTaskArtifactStateCacheAccess implements TaskArtifactStateCacheAccess, Closeable {
+    private final TaskArtifactStateCacheAccess delegate;
+    private final TaskPhaseRecorder recorder;
+
+    public ProfilingTaskArtifactStateCacheAccess(TaskArtifactStateCacheAccess delegate, TaskPhaseRecorder recorder) {
+        this.delegate = delegate;
+        this.recorder = recorder;
+    }
+
+    public void close() {
+        CompositeStoppable.stoppable(delegate).stop();
+    }
+
+    public <K, V> PersistentIndexedCache<K, V> createCache(String name, Class<K> keyType, Serializer<V> valueSerializer) {
+        return delegate.createCache(name, keyType, valueSerializer);
+    }
+
+    public <T> T useCache(String operationDisplayName, final Factory<? extends T> action) {
+        final LockWait lockWait = new LockWait();
+        try {
+            return delegate.useCache(operationDisplayName, new Factory<T>() {
+                public T create() {
+                    lockWait.acquired();
+                    return action.create();
+                }
+            });
+        } finally {
+            lockWait.acquired();
+        }
+    }
+
+    public void useCache(String operationDisplayName, final Runnable action) {
+        final LockWait lockWait = new LockWait();
+        try {
+            delegate.useCache(operationDisplayName, new Runnable() {
+                public void run() {
+                    lockWait.acquired();
+                    action.run();
+                }
+            });
+        } finally {
+            lockWait.acquired();
+        }
+    }
+
+    public <T> T longRunningOperation(String operationDisplayName, Factory<? extends T> action) {
+        return delegate.longRunningOperation(operationDisplayName, action);
+    }
+
+    public void longRunningOperation(String operationDisplayName, Runnable action) {
+        delegate.longRunningOperation(operationDisplayName, action);
+    }
+
+    /**
+     * Times from the request for the cache until the action starts, or the request fails.
+     */
+    private class LockWait {
+        private boolean waiting = true;
+
+        LockWait() {
+            recorder.start(TaskExecutionPhase.CACHE_LOCK_WAIT);
+        }
+
+        void acquired() {
+            if (waiting) {
+                waiting = false;
+                recorder.finish(TaskExecutionPhase.CACHE_LOCK_WAIT);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.profile.TaskExecutionPhase;
+import org.gradle.profile.TaskPhaseRecorder;
+
+/**
+ * Records the time spent loading and storing task history.
+ */
+public class ProfilingTaskHistoryRepository implements TaskHistoryRepository {
+    private final TaskHistoryRepository delegate;
+    private final TaskPhaseRecorder recorder;
+
+    public ProfilingTaskHistoryRepository(TaskHistoryRepository delegate, TaskPhaseRecorder recorder) {
+        this.delegate = delegate;
+        this.recorder = recorder;
+    }
+
+    public History getHistory(TaskInternal task) {
+        final History history;
+        recorder.start(TaskExecutionPhase.TASK_HISTORY);
+        try {
+            history = delegate.getHistory(task);
+        } finally {
+            recorder.finish(TaskExecutionPhase.TASK_HISTORY);
+        }
+
+        return new History() {
+            public TaskExecution getPreviousExecution() {
+                return history.getPreviousExecution();
+            }
+
+            public TaskExecution getCurrentExecution() {
+                return history.getCurrentExecution();
+            }
+
+            public void update() {
+                recorder.start(TaskExecutionPhase.TASK_HISTORY);
+                try {
+                    history.update();
+                } finally {
+                    recorder.finish(TaskExecutionPhase.TASK_HISTORY);
+                }
+            }
+        };
+    }
+}
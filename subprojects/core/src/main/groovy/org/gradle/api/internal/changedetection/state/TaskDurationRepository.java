@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.Task;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Records how long each task took the last time it was executed.
+ */
+public interface TaskDurationRepository {
+    /**
+     * Returns the duration in milliseconds of the previous execution of each of the given tasks. Tasks that have not been executed before are not included in the result.
+     */
+    Map<Task, Long> getPreviousDurations(Collection<? extends Task> tasks);
+
+    void recordDuration(Task task, long durationMillis);
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.JavaVersion;
+import org.gradle.api.Nullable;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.concurrent.BatchExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the snapshots of files in memory for as long as the files have not changed, so that a long running process does not need to hash the
+ * files again for each build. Intended for use in the daemon.
+ *
+ * <p>Before snapshots are used, the change events for every change made so far are received from the {@link DirectoryWatcher}, and the
+ * snapshots of the changed files are discarded. The files themselves are not looked at. Snapshots are looked up without locking. The number of
+ * snapshots kept is bounded, and directories are no longer watched once their snapshots have been discarded.</p>
+ */
+public class WatchedFileSnapshotCache implements Stoppable {
+    /**
+     * Watch the directories of input files for changes, when running in the daemon. Internal use only, this may change at any time.
+     */
+    public static final String ENABLED_PROPERTY = "org.gradle.daemon.watch";
+
+    /**
+     * The maximum number of file snapshots to keep in memory. Internal use only, this may change at any time.
+     */
+    public static final String MAX_SNAPSHOTS_PROPERTY = "org.gradle.daemon.watch.maxSnapshots";
+    private static final int DEFAULT_MAX_SNAPSHOTS = 100000;
+
+    private static final Logger LOGGER = Logging.getLogger(WatchedFileSnapshotCache.class);
+    private static final Object PENDING = new Object();
+    private static final String WATCHER_TYPE = "org.gradle.api.internal.changedetection.state.jdk7.WatchServiceDirectoryWatcher";
+
+    private final DirectoryWatcher watcher;
+    private final int maxSnapshots;
+    private final ConcurrentMap<File, WatchedDirectory> directories = new ConcurrentHashMap<File, WatchedDirectory>();
+    private final AtomicInteger snapshotCount = new AtomicInteger();
+    private final AtomicLong useCount = new AtomicLong();
+    // Held while watching, discarding or recording into directories, not while looking up snapshots
+    private final Object directoriesLock = new Object();
+    private final Lock changesLock = new ReentrantLock();
+    private final AtomicLong changePollsStarted = new AtomicLong();
+    private long changePollsCompleted;
+    private final DirectoryWatcher.Listener changeListener = new DirectoryWatcher.Listener() {
+        public void changed(File file) {
+            WatchedDirectory watchedDirectory = directories.get(file.getParentFile());
+            if (watchedDirectory != null && watchedDirectory.snapshots.remove(file) != null) {
+                snapshotCount.decrementAndGet();
+            }
+        }
+
+        public void directoryRemoved(File directory) {
+            discard(directory);
+        }
+
+        public void changesLost() {
+            LOGGER.info("Some changes to watched directories have been lost. Discarding all file snapshots.");
+            for (File directory : new ArrayList<File>(directories.keySet())) {
+                discard(directory);
+            }
+        }
+    };
+
+    WatchedFileSnapshotCache(@Nullable DirectoryWatcher watcher) {
+        this(watcher, Integer.getInteger(MAX_SNAPSHOTS_PROPERTY, DEFAULT_MAX_SNAPSHOTS));
+    }
+
+    WatchedFileSnapshotCache(@Nullable DirectoryWatcher watcher, int maxSnapshots) {
+        this.watcher = watcher;
+        this.maxSnapshots = maxSnapshots;
+    }
+
+    /**
+     * Creates a cache that watches directories if enabled and supported by the current JVM, and otherwise does nothing.
+     */
+    public static WatchedFileSnapshotCache create(boolean longLivingProcess) {
+        if (!longLivingProcess || !Boolean.getBoolean(ENABLED_PROPERTY) || !JavaVersion.current().isJava7Compatible()) {
+            return new WatchedFileSnapshotCache(null);
+        }
+        try {
+            DirectoryWatcher watcher = (DirectoryWatcher) WatchedFileSnapshotCache.class.getClassLoader().loadClass(WATCHER_TYPE).newInstance();
+            LOGGER.debug("Watching directories of input files for changes.");
+            return new WatchedFileSnapshotCache(watcher);
+        } catch (Exception e) {
+            LOGGER.info("Unable to watch directories for changes. Continuing without.", e);
+            return new WatchedFileSnapshotCache(null);
+        }
+    }
+
+    public FileSnapshotter decorate(FileSnapshotter snapshotter) {
+        if (watcher == null) {
+            return snapshotter;
+        }
+        return new WatchingFileSnapshotter(snapshotter);
+    }
+
+    public void stop() {
+        if (watcher != null) {
+            watcher.stop();
+        }
+    }
+
+    /**
+     * Receives every change made before this method was called. Threads that ask at the same time share the work.
+     */
+    private void processChanges() {
+        // Any poll that starts after this point also receives the changes made so far
+        long required = changePollsStarted.get() + 1;
+        changesLock.lock();
+        try {
+            if (changePollsCompleted >= required) {
+                return;
+            }
+            long poll = changePollsStarted.incrementAndGet();
+            watcher.pollChanges(changeListener);
+            changePollsCompleted = poll;
+        } finally {
+            changesLock.unlock();
+        }
+    }
+
+    /**
+     * Discards the snapshots of the given directory, and stops watching it.
+     */
+    private void discard(File directory) {
+        synchronized (directoriesLock) {
+            WatchedDirectory watchedDirectory = directories.remove(directory);
+            if (watchedDirectory != null) {
+                snapshotCount.addAndGet(-watchedDirectory.snapshots.size());
+            }
+            watcher.unwatch(directory);
+        }
+    }
+
+    private static class WatchedDirectory {
+        final Object key;
+        // Holds PENDING for a file that is being snapshotted
+        final ConcurrentMap<File, Object> snapshots = new ConcurrentHashMap<File, Object>();
+        volatile long lastUsed;
+
+        WatchedDirectory(Object key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Used for a single build. Checks once per build that each directory is still the one that was watched, as moving a directory does not
+     * produce a change event for the directory itself.
+     */
+    private class WatchingFileSnapshotter implements FileSnapshotter {
+        private final FileSnapshotter delegate;
+        private final Set<File> checkedDirectories = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+
+        WatchingFileSnapshotter(FileSnapshotter delegate) {
+            this.delegate = delegate;
+        }
+
+        public FileSnapshot snapshot(File file) {
+            return snapshot(Collections.singletonList(file), BatchExecutor.SERIAL).get(0);
+        }
+
+        public List<FileSnapshot> findSnapshots(List<File> files) {
+            processChanges();
+            List<FileSnapshot> snapshots = new ArrayList<FileSnapshot>(files.size());
+            for (File file : files) {
+                snapshots.add(lookup(file));
+            }
+            return snapshots;
+        }
+
+        public List<FileSnapshot> snapshot(List<File> files, BatchExecutor batchExecutor) {
+            processChanges();
+
+            FileSnapshot[] snapshots = new FileSnapshot[files.size()];
+            List<Integer> unknown = new ArrayList<Integer>();
+            for (int i = 0; i < snapshots.length; i++) {
+                snapshots[i] = lookup(files.get(i));
+                if (snapshots[i] == null) {
+                    unknown.add(i);
+                }
+            }
+            if (unknown.isEmpty()) {
+                return Arrays.asList(snapshots);
+            }
+
+            // Mark each file as pending and start watching its directory before the file is checked. A change event received for the file from
+            // now on removes the mark, so that a snapshot taken before the change is not kept
+            List<File> unknownFiles = new ArrayList<File>(unknown.size());
+            List<WatchedDirectory> unknownDirectories = new ArrayList<WatchedDirectory>(unknown.size());
+            Map<File, WatchedDirectory> startedDirectories = new HashMap<File, WatchedDirectory>();
+            for (Integer index : unknown) {
+                File file = files.get(index);
+                File directory = file.getParentFile();
+                WatchedDirectory watchedDirectory;
+                if (startedDirectories.containsKey(directory)) {
+                    watchedDirectory = startedDirectories.get(directory);
+                } else {
+                    watchedDirectory = startWatching(directory);
+                    startedDirectories.put(directory, watchedDirectory);
+                }
+                if (watchedDirectory != null && watchedDirectory.snapshots.put(file, PENDING) == null) {
+                    snapshotCount.incrementAndGet();
+                }
+                unknownFiles.add(file);
+                unknownDirectories.add(watchedDirectory);
+            }
+
+            List<FileSnapshot> unknownSnapshots = delegate.snapshot(unknownFiles, batchExecutor);
+            for (int i = 0; i < unknownSnapshots.size(); i++) {
+                snapshots[unknown.get(i)] = unknownSnapshots.get(i);
+            }
+
+            processChanges();
+            synchronized (directoriesLock) {
+                for (int i = 0; i < unknownFiles.size(); i++) {
+                    File file = unknownFiles.get(i);
+                    WatchedDirectory watchedDirectory = unknownDirectories.get(i);
+                    if (watchedDirectory != null && directories.get(file.getParentFile()) == watchedDirectory) {
+                        watchedDirectory.snapshots.replace(file, PENDING, unknownSnapshots.get(i));
+                    }
+                }
+                evictLeastRecentlyUsed(startedDirectories.keySet());
+            }
+            return Arrays.asList(snapshots);
+        }
+
+        @Nullable
+        private FileSnapshot lookup(File file) {
+            File directory = file.getParentFile();
+            WatchedDirectory watchedDirectory = directories.get(directory);
+            if (watchedDirectory == null) {
+                return null;
+            }
+            if (checkedDirectories.add(directory) && !watchedDirectory.key.equals(watcher.getDirectoryKey(directory))) {
+                discard(directory);
+                return null;
+            }
+            watchedDirectory.lastUsed = useCount.incrementAndGet();
+            Object snapshot = watchedDirectory.snapshots.get(file);
+            return snapshot instanceof FileSnapshot ? (FileSnapshot) snapshot : null;
+        }
+
+        /**
+         * Returns the snapshots of the given directory, watching it if not already watched, or null if it cannot be watched.
+         */
+        @Nullable
+        private WatchedDirectory startWatching(File directory) {
+            Object key = watcher.getDirectoryKey(directory);
+            if (key == null) {
+                return null;
+            }
+            synchronized (directoriesLock) {
+                if (!watcher.watch(directory)) {
+                    return null;
+                }
+                checkedDirectories.add(directory);
+                WatchedDirectory watchedDirectory = directories.get(directory);
+                if (watchedDirectory == null || !watchedDirectory.key.equals(key)) {
+                    if (watchedDirectory != null) {
+                        snapshotCount.addAndGet(-watchedDirectory.snapshots.size());
+                    }
+                    watchedDirectory = new WatchedDirectory(key);
+                    directories.put(directory, watchedDirectory);
+                }
+                watchedDirectory.lastUsed = useCount.incrementAndGet();
+                return watchedDirectory;
+            }
+        }
+
+        /**
+         * Discards the least recently used directories, other than the given ones, while there are too many snapshots. Must be called while
+         * holding the directories lock.
+         */
+        private void evictLeastRecentlyUsed(Set<File> keep) {
+            if (snapshotCount.get() <= maxSnapshots) {
+                return;
+            }
+            List<Map.Entry<File, WatchedDirectory>> candidates = new ArrayList<Map.Entry<File, WatchedDirectory>>();
+            for (Map.Entry<File, WatchedDirectory> entry : directories.entrySet()) {
+                if (!keep.contains(entry.getKey())) {
+                    candidates.add(entry);
+                }
+            }
+            Collections.sort(candidates, new Comparator<Map.Entry<File, WatchedDirectory>>() {
+                public int compare(Map.Entry<File, WatchedDirectory> left, Map.Entry<File, WatchedDirectory> right) {
+                    long diff = left.getValue().lastUsed - right.getValue().lastUsed;
+                    return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+                }
+            });
+            for (int i = 0; i < candidates.size() && snapshotCount.get() > maxSnapshots; i++) {
+                discard(candidates.get(i).getKey());
+            }
+        }
+    }
+}
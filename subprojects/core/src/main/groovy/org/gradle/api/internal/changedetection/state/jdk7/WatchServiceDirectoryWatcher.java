@@ -0,0 +1,195 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state.jdk7;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.changedetection.state.DirectoryWatcher;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.UncheckedException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * A {@link DirectoryWatcher} backed by the JDK 7 {@link WatchService}.
+ *
+ * <p>To find out when every change made before {@link #pollChanges(Listener)} was called has been received, a barrier file is created in a
+ * directory that is watched too, and events are received until the event for the barrier file arrives. This relies on the events of all
+ * directories being delivered in the order they happened, as they are by inotify, so only the Linux implementation is used.</p>
+ */
+public class WatchServiceDirectoryWatcher implements DirectoryWatcher {
+    private static final Logger LOGGER = Logging.getLogger(WatchServiceDirectoryWatcher.class);
+    private static final Object NO_FILE_KEY = new Object();
+    private static final long BARRIER_TIMEOUT_MILLIS = 10000;
+
+    private final WatchService watchService;
+    private final Path barrierDirectory;
+    private final WatchKey barrierKey;
+    private final ConcurrentMap<Path, WatchKey> watched = new ConcurrentHashMap<Path, WatchKey>();
+    private long barrierCount;
+
+    public WatchServiceDirectoryWatcher() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        if (!watchService.getClass().getName().contains("Linux")) {
+            watchService.close();
+            throw new UnsupportedOperationException("Ordered native file system notifications are not available on this platform.");
+        }
+        barrierDirectory = Files.createTempDirectory("gradle-watch");
+        barrierKey = barrierDirectory.register(watchService, ENTRY_CREATE);
+    }
+
+    public boolean watch(File directory) {
+        Path path = directory.toPath();
+        if (watched.containsKey(path)) {
+            return true;
+        }
+        WatchKey key;
+        try {
+            key = path.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        } catch (IOException e) {
+            LOGGER.debug("Could not watch directory {}: {}", directory, e.getMessage());
+            return false;
+        } catch (ClosedWatchServiceException e) {
+            return false;
+        }
+        watched.put(path, key);
+        return true;
+    }
+
+    public void unwatch(File directory) {
+        WatchKey key = watched.remove(directory.toPath());
+        if (key != null) {
+            key.cancel();
+        }
+    }
+
+    public Object getDirectoryKey(File directory) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(directory.toPath(), BasicFileAttributes.class);
+            if (!attributes.isDirectory()) {
+                return null;
+            }
+            Object fileKey = attributes.fileKey();
+            return fileKey == null ? NO_FILE_KEY : fileKey;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized void pollChanges(Listener listener) {
+        Path barrierFile = barrierDirectory.resolve(String.valueOf(++barrierCount));
+        try {
+            Files.createFile(barrierFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            long deadline = System.currentTimeMillis() + BARRIER_TIMEOUT_MILLIS;
+            while (true) {
+                WatchKey key = poll(deadline);
+                if (key == null) {
+                    LOGGER.info("Timed out waiting for changes to watched directories to be received.");
+                    listener.changesLost();
+                    return;
+                }
+                if (key != barrierKey) {
+                    dispatch(key, listener);
+                    continue;
+                }
+                boolean reached = false;
+                boolean lost = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    lost |= event.kind() == OVERFLOW;
+                    reached |= barrierFile.getFileName().equals(event.context());
+                }
+                key.reset();
+                if (lost) {
+                    listener.changesLost();
+                    return;
+                }
+                if (reached) {
+                    return;
+                }
+            }
+        } finally {
+            try {
+                Files.deleteIfExists(barrierFile);
+            } catch (IOException e) {
+                LOGGER.debug("Could not delete barrier file {}: {}", barrierFile, e.getMessage());
+            }
+        }
+    }
+
+    private void dispatch(WatchKey key, Listener listener) {
+        Path directory = (Path) key.watchable();
+        File directoryFile = directory.toFile();
+        boolean lost = false;
+        List<File> changed = new ArrayList<File>();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                lost = true;
+            } else {
+                changed.add(new File(directoryFile, event.context().toString()));
+            }
+        }
+        boolean valid = key.reset();
+        if (!valid) {
+            // No longer watched, for example because the directory has been deleted or is no longer required
+            watched.remove(directory, key);
+        }
+        if (lost) {
+            listener.changesLost();
+        }
+        for (File file : changed) {
+            listener.changed(file);
+        }
+        if (!valid) {
+            listener.directoryRemoved(directoryFile);
+        }
+    }
+
+    private WatchKey poll(long deadline) {
+        try {
+            return watchService.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (ClosedWatchServiceException e) {
+            return null;
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    public void stop() {
+        try {
+            watchService.close();
+            Files.deleteIfExists(barrierDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash;
+
+import org.gradle.api.UncheckedIOException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Hashes file content using the 128 bit x64 variant of MurmurHash3, which is much cheaper to calculate than MD5. The result is the same as Guava's
+ * {@code Hashing.murmur3_128()}.
+ *
+ * <p>Small files are read through a direct buffer that is reused by each thread, and large files are mapped into memory.</p>
+ */
+public class Murmur3Hasher implements Hasher {
+    /**
+     * Use this hasher for file snapshots, rather than MD5. Internal use only, this may change at any time.
+     */
+    public static final String ENABLED_PROPERTY = "org.gradle.hash.murmur3";
+    public static final String ALGORITHM = "MURMUR3_128";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MAPPED_THRESHOLD = 4 * 1024 * 1024;
+    // Must be a multiple of the block size, so that only the final region has a partial block
+    private static final long MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    };
+
+    public byte[] hash(File file) {
+        try {
+            FileInputStream inputStream = new FileInputStream(file);
+            try {
+                FileChannel channel = inputStream.getChannel();
+                long size = channel.size();
+                if (size >= MAPPED_THRESHOLD) {
+                    return hashMapped(channel, size);
+                }
+                return hashBuffered(channel);
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Failed to create %s hash for file %s.", ALGORITHM, file.getAbsolutePath()), e);
+        }
+    }
+
+    public String getAlgorithm() {
+        return ALGORITHM;
+    }
+
+    private static byte[] hashBuffered(FileChannel channel) throws IOException {
+        ByteBuffer buffer = BUFFER.get();
+        buffer.clear();
+        Murmur3 murmur3 = new Murmur3();
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            murmur3.update(buffer);
+            buffer.compact();
+        }
+        buffer.flip();
+        return murmur3.finish(buffer);
+    }
+
+    private static byte[] hashMapped(FileChannel channel, long size) throws IOException {
+        Murmur3 murmur3 = new Murmur3();
+        ByteBuffer region = null;
+        for (long position = 0; position < size; position += MAPPED_REGION_SIZE) {
+            region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_REGION_SIZE, size - position));
+            region.order(ByteOrder.LITTLE_ENDIAN);
+            murmur3.update(region);
+        }
+        return murmur3.finish(region);
+    }
+
+    /**
+     * The hash state. Consumes whole 16 byte blocks, and leaves any partial block in the buffer for the caller to complete.
+     */
+    static class Murmur3 {
+        private static final int BLOCK_SIZE = 16;
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private long h1;
+        private long h2;
+        private long length;
+
+        void update(ByteBuffer buffer) {
+            while (buffer.remaining() >= BLOCK_SIZE) {
+                long k1 = buffer.getLong();
+                long k2 = buffer.getLong();
+                mixBlock(k1, k2);
+                length += BLOCK_SIZE;
+            }
+        }
+
+        byte[] finish(ByteBuffer tail) {
+            int remaining = tail.remaining();
+            if (remaining > 0) {
+                long k1 = 0;
+                long k2 = 0;
+                for (int i = 0; i < remaining; i++) {
+                    long b = tail.get() & 0xffL;
+                    if (i < 8) {
+                        k1 ^= b << (i * 8);
+                    } else {
+                        k2 ^= b << ((i - 8) * 8);
+                    }
+                }
+                h1 ^= mixK1(k1);
+                h2 ^= mixK2(k2);
+                length += remaining;
+            }
+
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+            h1 += h2;
+            h2 += h1;
+
+            return ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN).putLong(h1).putLong(h2).array();
+        }
+
+        private void mixBlock(long k1, long k2) {
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            return k1;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            return k2;
+        }
+
+        private static long fmix64(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
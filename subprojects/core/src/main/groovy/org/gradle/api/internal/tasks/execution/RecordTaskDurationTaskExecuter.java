@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.execution;
+
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository;
+import org.gradle.api.internal.tasks.TaskExecuter;
+import org.gradle.api.internal.tasks.TaskExecutionContext;
+import org.gradle.api.internal.tasks.TaskStateInternal;
+import org.gradle.internal.TimeProvider;
+
+/**
+ * A {@link org.gradle.api.internal.tasks.TaskExecuter} which records how long the actions of a task took to execute, so that later builds can schedule long
+ * running tasks early. Only used around the actions, so that tasks which are skipped do not record a duration.
+ */
+public class RecordTaskDurationTaskExecuter implements TaskExecuter {
+    private final TaskDurationRepository taskDurationRepository;
+    private final TimeProvider timeProvider;
+    private final TaskExecuter executer;
+
+    public RecordTaskDurationTaskExecuter(TaskDurationRepository taskDurationRepository, TimeProvider timeProvider, TaskExecuter executer) {
+        this.taskDurationRepository = taskDurationRepository;
+        this.timeProvider = timeProvider;
+        this.executer = executer;
+    }
+
+    public void execute(TaskInternal task, TaskStateInternal state, TaskExecutionContext context) {
+        long start = timeProvider.getCurrentTime();
+        executer.execute(task, state, context);
+        taskDurationRepository.recordDuration(task, timeProvider.getCurrentTime() - start);
+    }
+}
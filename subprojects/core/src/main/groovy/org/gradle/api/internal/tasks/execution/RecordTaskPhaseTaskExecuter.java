@@ -0,0 +1,47 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.execution;
+
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.tasks.TaskExecuter;
+import org.gradle.api.internal.tasks.TaskExecutionContext;
+import org.gradle.api.internal.tasks.TaskStateInternal;
+import org.gradle.profile.TaskExecutionPhase;
+import org.gradle.profile.TaskPhaseRecorder;
+
+/**
+ * A {@link org.gradle.api.internal.tasks.TaskExecuter} which records the time spent by the given executer as a phase of the task's execution, for the profile report.
+ */
+public class RecordTaskPhaseTaskExecuter implements TaskExecuter {
+    private final TaskExecutionPhase phase;
+    private final TaskPhaseRecorder recorder;
+    private final TaskExecuter executer;
+
+    public RecordTaskPhaseTaskExecuter(TaskExecutionPhase phase, TaskPhaseRecorder recorder, TaskExecuter executer) {
+        this.phase = phase;
+        this.recorder = recorder;
+        this.executer = executer;
+    }
+
+    public void execute(TaskInternal task, TaskStateInternal state, TaskExecutionContext context) {
+        recorder.start(phase);
+        try {
+            executer.execute(task, state, context);
+        } finally {
+            recorder.finish(phase);
+        }
+    }
+}
@@ -15,6 +15,8 @@
  */
 package org.gradle.cache;
 
+import org.gradle.internal.Factory;
+
 import java.io.Closeable;
 import java.io.File;
 
@@ -47,6 +49,14 @@ public interface PersistentCache extends PersistentStore, CacheAccess, Closeable
      */
     <K, V> PersistentIndexedCache<K, V> createCache(PersistentIndexedCacheParameters<K, V> parameters);
 
+    /**
+     * Runs the given action, which changes the files of this cache other than through an indexed cache, while holding an exclusive lock on the cache.
+     *
+     * <p>This method may only be used by an action being run from {@link #useCache(String, org.gradle.internal.Factory)}. For a cache whose lock
+     * is shared by readers, the lock is upgraded to an exclusive lock before the given action is run.
+     */
+    <T> T updateFiles(Factory<? extends T> action);
+
     /**
      * Closes this cache, blocking until all operations are complete.
      */
@@ -20,6 +20,7 @@ import org.gradle.cache.CacheAccess;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.filelock.LockOptions;
+import org.gradle.internal.Factory;
 
 import java.io.Closeable;
 
@@ -32,4 +33,9 @@ public interface CacheCoordinator extends CacheAccess, Closeable {
     void close();
 
     <K, V> PersistentIndexedCache<K, V> newCache(PersistentIndexedCacheParameters<K, V> parameters);
+
+    /**
+     * Runs the given action while holding an exclusive lock on the cache. May only be called from an action being run by {@link #useCache(String, Factory)}.
+     */
+    <T> T updateFiles(Factory<? extends T> action);
 }
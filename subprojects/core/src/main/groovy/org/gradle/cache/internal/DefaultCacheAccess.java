@@ -312,6 +312,9 @@ public class    DefaultCacheAccess implements CacheCoordinator {
         final File cacheFile = new File(baseDir, parameters.getCacheName() + ".bin");
         Factory<BTreePersistentIndexedCache<K, V>> indexedCacheFactory = new Factory<BTreePersistentIndexedCache<K, V>>() {
             public BTreePersistentIndexedCache<K, V> create() {
+                if (fileLock != null && fileLock.getMode() == Shared && cacheFile.length() == 0) {
+                    throw new InsufficientLockModeException(String.format("An exclusive lock is required to create %s.", cacheFile));
+                }
                 return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
             }
         };
@@ -333,16 +336,40 @@ public class    DefaultCacheAccess implements CacheCoordinator {
         return indexedCache;
     }
 
-    <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-        return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer);
+    public <T> T updateFiles(Factory<? extends T> action) {
+        getLockForUpdate();
+        return action.create();
+    }
+
+    <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(final File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer, new BTreePersistentIndexedCache.DiscardCheck() {
+            public void checkCanDiscard() {
+                // Other processes may be reading the file while a shared lock is held
+                if (fileLock != null && fileLock.getMode() == Shared) {
+                    throw new InsufficientLockModeException(String.format("An exclusive lock is required to discard the content of corrupt %s.", cacheFile));
+                }
+            }
+        });
     }
 
     private boolean onStartWork() {
         if (fileLock != null) {
             return false;
         }
-        fileLock = lockManager.lock(lockTarget, lockOptions.withMode(Exclusive), cacheDisplayName, operations.getDescription());
+        lockFile(lockOptions.isUseSharedLockForReads() ? Shared : Exclusive);
+        return true;
+    }
+
+    private void lockFile(FileLockManager.LockMode mode) {
+        fileLock = lockManager.lock(lockTarget, lockOptions.withMode(mode), cacheDisplayName, operations.getDescription());
         if (initializationAction.requiresInitialization(fileLock)) {
+            if (fileLock.getMode() == Shared) {
+                // Need an exclusive lock to initialize the cache
+                fileLock.close();
+                fileLock = null;
+                lockFile(Exclusive);
+                return;
+            }
             fileLock.writeFile(new Runnable() {
                 public void run() {
                     initializationAction.initialize(fileLock);
@@ -355,8 +382,26 @@ public class    DefaultCacheAccess implements CacheCoordinator {
         }
 
         lockManager.allowContention(fileLock, whenContended());
+    }
 
-        return true;
+    /**
+     * Replaces the shared lock taken for reading with an exclusive lock. A file lock cannot be upgraded in place, so other processes may change the
+     * caches between the two locks. The caches are notified as if one unit of work ended and another started, so that they can discard what they
+     * have read so far.
+     */
+    private void upgradeFileLock() {
+        lock.lock();
+        try {
+            FileLock.State state = fileLock.getState();
+            for (UnitOfWorkParticipant cache : caches) {
+                cache.onEndWork(state);
+            }
+            fileLock.close();
+            fileLock = null;
+            lockFile(Exclusive);
+        } finally {
+            lock.unlock();
+        }
     }
 
     private boolean onEndWork() {
@@ -381,6 +426,15 @@ public class    DefaultCacheAccess implements CacheCoordinator {
         return fileLock;
     }
 
+    private FileLock getLockForUpdate() {
+        FileLock fileLock = getLock();
+        if (fileLock != null && fileLock.getMode() == Shared && lockOptions.isUseSharedLockForReads()) {
+            upgradeFileLock();
+            return this.fileLock;
+        }
+        return fileLock;
+    }
+
     private class UnitOfWorkFileAccess extends AbstractFileAccess {
         @Override
         public String toString() {
@@ -392,11 +446,11 @@ public class    DefaultCacheAccess implements CacheCoordinator {
         }
 
         public void updateFile(Runnable action) throws LockTimeoutException {
-            getLock().updateFile(action);
+            getLockForUpdate().updateFile(action);
         }
 
         public void writeFile(Runnable action) throws LockTimeoutException {
-            getLock().writeFile(action);
+            getLockForUpdate().writeFile(action);
         }
     }
 
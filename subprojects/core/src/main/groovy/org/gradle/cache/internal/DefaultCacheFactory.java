@@ -183,6 +183,10 @@ public class DefaultCacheFactory implements CacheFactory, Closeable {
             return reference.cache.useCache(operationDisplayName, action);
         }
 
+        public <T> T updateFiles(Factory<? extends T> action) {
+            return reference.cache.updateFiles(action);
+        }
+
         public void useCache(String operationDisplayName, Runnable action) {
             reference.cache.useCache(operationDisplayName, action);
         }
@@ -39,6 +39,7 @@ import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
 public class DefaultFileLockManager implements FileLockManager {
     private static final Logger LOGGER = Logging.getLogger(DefaultFileLockManager.class);
     public static final int DEFAULT_LOCK_TIMEOUT = 60000;
+    private static final long RETRY_INTERVAL_MS = 200L;
 
     private final Set<File> lockedFiles = new CopyOnWriteArraySet<File>();
     private final ProcessMetaDataProvider metaDataProvider;
@@ -130,6 +131,7 @@ public class DefaultFileLockManager implements FileLockManager {
                 lockFileAccess.close();
                 throw t;
             }
+            fileLockContentionHandler.lockAcquired(lockId);
 
             this.mode = lock.isShared() ? LockMode.Shared : LockMode.Exclusive;
         }
@@ -233,6 +235,12 @@ public class DefaultFileLockManager implements FileLockManager {
                     }
                 }
             });
+            stoppable.add(new Stoppable() {
+                public void stop() {
+                    // Let the processes that are waiting for this lock know that they can go ahead
+                    fileLockContentionHandler.lockReleased(lockId);
+                }
+            });
             stoppable.add(new Stoppable() {
                 public void stop() {
                     lock = null;
@@ -308,22 +316,35 @@ public class DefaultFileLockManager implements FileLockManager {
         }
 
         private java.nio.channels.FileLock lockStateRegion(LockMode lockMode, final long waitUntil) throws IOException, InterruptedException {
+            long startTime = System.currentTimeMillis();
+            int attempts = 0;
+            int releaseNotifications = 0;
             do {
                 java.nio.channels.FileLock fileLock = lockFileAccess.tryLockState(lockMode == LockMode.Shared);
+                attempts++;
                 if (fileLock != null) {
+                    if (attempts > 1) {
+                        LOGGER.info("Waited {} ms to acquire {} lock on {} ({} attempts, {} release notifications).",
+                                System.currentTimeMillis() - startTime, lockMode.toString().toLowerCase(), displayName, attempts, releaseNotifications);
+                    }
                     return fileLock;
                 }
                 if (port != -1) { //we don't like the assumption about the port very much
                     LockInfo lockInfo = readInformationRegion(System.currentTimeMillis()); //no need for timeout here, as we're already looping with timeout
                     if (lockInfo.port != -1) {
                         LOGGER.debug("The file lock is held by a different Gradle process (pid: {}, operation: {}). Will attempt to ping owner at port {}", lockInfo.pid, lockInfo.operation, lockInfo.port);
-                        fileLockContentionHandler.pingOwner(lockInfo.port, lockInfo.lockId, displayName);
+                        // Wake up as soon as the owner has released the lock. Owners running older versions never tell, so also retry periodically
+                        long timeout = Math.max(0, Math.min(RETRY_INTERVAL_MS, waitUntil - System.currentTimeMillis()));
+                        if (fileLockContentionHandler.waitForRelease(lockInfo.port, lockInfo.lockId, displayName, timeout)) {
+                            releaseNotifications++;
+                        }
+                        continue;
                     } else {
                         LOGGER.debug("The file lock is held by a different Gradle process. I was unable to read on which port the owner listens for lock access requests.");
                     }
                 }
                 //TODO SF we should inform on the progress/status bar that we're waiting
-                Thread.sleep(200L);
+                Thread.sleep(RETRY_INTERVAL_MS);
             } while (System.currentTimeMillis() < waitUntil);
             return null;
         }
@@ -334,7 +355,7 @@ public class DefaultFileLockManager implements FileLockManager {
                 if (fileLock != null) {
                     return fileLock;
                 }
-                Thread.sleep(200L);
+                Thread.sleep(RETRY_INTERVAL_MS);
             }
             while (System.currentTimeMillis() < waitUntil);
             return null;
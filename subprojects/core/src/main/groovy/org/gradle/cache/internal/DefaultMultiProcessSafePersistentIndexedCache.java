@@ -23,6 +23,8 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
     private final FileAccess fileAccess;
     private final Factory<BTreePersistentIndexedCache<K, V>> factory;
     private BTreePersistentIndexedCache<K, V> cache;
+    private boolean modified;
+    private FileLock.State lastState;
 
     public DefaultMultiProcessSafePersistentIndexedCache(Factory<BTreePersistentIndexedCache<K, V>> factory, FileAccess fileAccess) {
         this.factory = factory;
@@ -39,6 +41,15 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
             });
         } catch (FileIntegrityViolationException e) {
             return null;
+        } catch (InsufficientLockModeException e) {
+            // The cache is corrupt, and its content can only be discarded while holding an exclusive lock
+            modified = true;
+            fileAccess.writeFile(new Runnable() {
+                public void run() {
+                    cache.get(key);
+                }
+            });
+            return null;
         }
     }
 
@@ -46,6 +57,7 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
         final PersistentIndexedCache<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
+        modified = true;
         fileAccess.writeFile(new Runnable() {
             public void run() {
                 cache.put(key, value);
@@ -57,6 +69,7 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
         final PersistentIndexedCache<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
+        modified = true;
         fileAccess.writeFile(new Runnable() {
             public void run() {
                 cache.remove(key);
@@ -65,35 +78,57 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
     }
 
     public void onStartWork(String operationDisplayName, FileLock.State currentCacheState) {
+        if (cache != null && lastState != null && currentCacheState.hasBeenUpdatedSince(lastState)) {
+            // The cache was kept open while the file was unlocked, and another process has changed it in the meantime
+            cache.reset();
+        }
     }
 
     public void onEndWork(FileLock.State currentCacheState) {
+        lastState = currentCacheState;
     }
 
     public void close() {
         if (cache != null) {
             try {
-                fileAccess.writeFile(new Runnable() {
-                    public void run() {
-                        cache.close();
-                    }
-                });
+                if (modified) {
+                    fileAccess.writeFile(new Runnable() {
+                        public void run() {
+                            cache.close();
+                        }
+                    });
+                } else {
+                    // Nothing to write, so does not need an exclusive lock
+                    cache.close();
+                }
             } finally {
                 cache = null;
+                modified = false;
             }
         }
     }
 
     private PersistentIndexedCache<K, V> getCache() {
         if (cache == null) {
-            // Use writeFile because the cache can internally recover from datafile
-            // corruption, so we don't care at this level if it's corrupt
-            fileAccess.writeFile(new Runnable() {
-                public void run() {
-                    cache = factory.create();
-                }
-            });
+            try {
+                // Opening an intact cache does not change it, so does not need an exclusive lock
+                cache = fileAccess.readFile(factory);
+            } catch (FileIntegrityViolationException e) {
+                open();
+            } catch (InsufficientLockModeException e) {
+                open();
+            }
         }
         return cache;
     }
+
+    private void open() {
+        // Use writeFile because the cache can internally recover from datafile
+        // corruption, so we don't care at this level if it's corrupt
+        fileAccess.writeFile(new Runnable() {
+            public void run() {
+                cache = factory.create();
+            }
+        });
+    }
 }
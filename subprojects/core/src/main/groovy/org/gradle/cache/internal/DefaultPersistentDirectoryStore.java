@@ -102,6 +102,10 @@ public class DefaultPersistentDirectoryStore implements ReferencablePersistentCa
         return cacheAccess.useCache(operationDisplayName, action);
     }
 
+    public <T> T updateFiles(Factory<? extends T> action) {
+        return cacheAccess.updateFiles(action);
+    }
+
     public void useCache(String operationDisplayName, Runnable action) {
         cacheAccess.useCache(operationDisplayName, action);
     }
@@ -19,15 +19,21 @@ package org.gradle.cache.internal;
 import org.gradle.messaging.remote.internal.inet.InetAddressFactory;
 
 import java.io.*;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
-import java.net.SocketException;
+import java.net.*;
 
 import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
 
+/**
+ * Exchanges {@link FileLockPacket}s with other processes over UDP.
+ *
+ * <p>A packet consists of the protocol version and the lock id, optionally followed by the packet type. Older versions send and expect only the version
+ * and the lock id, and ignore any trailing bytes, so the packet type is left out of unlock requests that don't ask for a release notification. Release
+ * notifications are only sent to processes that asked for one.</p>
+ */
 public class FileLockCommunicator {
     private static final byte PROTOCOL_VERSION = 1;
+    private static final byte UNLOCK_REQUEST_WITH_RELEASE_NOTIFICATION = 1;
+    private static final byte LOCK_RELEASED = 2;
     private final DatagramSocket socket;
     private final InetAddressFactory addressFactory;
     private boolean stopped;
@@ -41,9 +47,13 @@ public class FileLockCommunicator {
         }
     }
 
+    /**
+     * Asks the owner of the given lock to release it, and to send a {@link FileLockPacket.Type#LOCK_RELEASED} packet back to this communicator once it
+     * has done so.
+     */
     public void pingOwner(int ownerPort, long lockId, String displayName) {
         try {
-            byte[] bytesToSend = encode(lockId);
+            byte[] bytesToSend = encode(lockId, UNLOCK_REQUEST_WITH_RELEASE_NOTIFICATION);
             // Ping the owner via all available local addresses
             for (InetAddress address : addressFactory.findLocalAddresses()) {
                 socket.send(new DatagramPacket(bytesToSend, bytesToSend.length, address, ownerPort));
@@ -53,12 +63,24 @@ public class FileLockCommunicator {
         }
     }
 
-    public long receive() throws GracefullyStoppedException {
+    /**
+     * Tells a process that asked for the given lock that the lock has been released.
+     */
+    public void confirmReleased(SocketAddress requester, long lockId) {
         try {
-            byte[] bytes = new byte[9];
+            byte[] bytesToSend = encode(lockId, LOCK_RELEASED);
+            socket.send(new DatagramPacket(bytesToSend, bytesToSend.length, requester));
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Failed to confirm release of lock to %s (lock id: %s)", requester, lockId), e);
+        }
+    }
+
+    public FileLockPacket receive() throws GracefullyStoppedException {
+        try {
+            byte[] bytes = new byte[10];
             DatagramPacket packet = new DatagramPacket(bytes, bytes.length);
             socket.receive(packet);
-            return decode(bytes);
+            return decode(packet);
         } catch (IOException e) {
             if (!stopped) {
                 throw new RuntimeException(e);
@@ -72,22 +94,33 @@ public class FileLockCommunicator {
         socket.close();
     }
 
-    private static byte[] encode(long lockId) throws IOException {
+    private static byte[] encode(long lockId, byte type) throws IOException {
         ByteArrayOutputStream packet = new ByteArrayOutputStream();
         DataOutputStream dataOutput = new DataOutputStream(packet);
         dataOutput.writeByte(PROTOCOL_VERSION);
         dataOutput.writeLong(lockId);
+        dataOutput.writeByte(type);
         dataOutput.flush();
         return packet.toByteArray();
     }
 
-    private static long decode(byte[] bytes) throws IOException {
-        DataInputStream dataInput = new DataInputStream(new ByteArrayInputStream(bytes));
+    private static FileLockPacket decode(DatagramPacket packet) throws IOException {
+        DataInputStream dataInput = new DataInputStream(new ByteArrayInputStream(packet.getData(), packet.getOffset(), packet.getLength()));
         byte version = dataInput.readByte();
         if (version != PROTOCOL_VERSION) {
             throw new IllegalArgumentException(String.format("Unexpected protocol version %s received in lock contention notification message", version));
         }
-        return dataInput.readLong();
+        long lockId = dataInput.readLong();
+        FileLockPacket.Type type = FileLockPacket.Type.UNLOCK_REQUEST;
+        if (packet.getLength() > 9) {
+            byte typeId = dataInput.readByte();
+            if (typeId == UNLOCK_REQUEST_WITH_RELEASE_NOTIFICATION) {
+                type = FileLockPacket.Type.UNLOCK_REQUEST_WITH_RELEASE_NOTIFICATION;
+            } else if (typeId == LOCK_RELEASED) {
+                type = FileLockPacket.Type.LOCK_RELEASED;
+            }
+        }
+        return new FileLockPacket(type, lockId, packet.getSocketAddress());
     }
 
     public int getPort() {
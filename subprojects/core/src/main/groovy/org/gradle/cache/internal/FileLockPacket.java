@@ -0,0 +1,61 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import java.net.SocketAddress;
+
+/**
+ * A message exchanged between processes that contend for a file lock.
+ */
+public class FileLockPacket {
+    public enum Type {
+        /**
+         * Asks the owner of a lock to release it. Sent by older versions.
+         */
+        UNLOCK_REQUEST,
+        /**
+         * Asks the owner of a lock to release it, and to tell the sender once it has done so.
+         */
+        UNLOCK_REQUEST_WITH_RELEASE_NOTIFICATION,
+        /**
+         * Tells a process that asked for a lock that the lock has been released.
+         */
+        LOCK_RELEASED
+    }
+
+    private final Type type;
+    private final long lockId;
+    private final SocketAddress sender;
+
+    public FileLockPacket(Type type, long lockId, SocketAddress sender) {
+        this.type = type;
+        this.lockId = lockId;
+        this.sender = sender;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getLockId() {
+        return lockId;
+    }
+
+    public SocketAddress getSender() {
+        return sender;
+    }
+}
@@ -17,6 +17,8 @@ package org.gradle.cache.internal.btree;
 
 import org.gradle.api.UncheckedIOException;
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.internal.InsufficientLockModeException;
+import org.gradle.internal.os.OperatingSystem;
 import org.gradle.messaging.serialize.Serializer;
 import org.gradle.messaging.serialize.kryo.KryoBackedDecoder;
 import org.gradle.messaging.serialize.kryo.KryoBackedEncoder;
@@ -42,35 +44,70 @@ import java.util.*;
 // todo - merge adjacent free blocks
 // todo - use more efficient lookup for free block with nearest size
 public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache<K, V> {
+    /**
+     * The system property that enables reading cache files through memory mapped regions. See {@link MappedFileBlockStore}.
+     */
+    public static final String MEMORY_MAPPED_PROPERTY = "org.gradle.cache.mapped";
     private static final Logger LOGGER = LoggerFactory.getLogger(BTreePersistentIndexedCache.class);
+    private static final DiscardCheck ALWAYS_DISCARD = new DiscardCheck() {
+        public void checkCanDiscard() {
+        }
+    };
     private final File cacheFile;
     private final Serializer<K> keySerializer;
     private final Serializer<V> serializer;
     private final short maxChildIndexEntries;
     private final int minIndexChildNodes;
     private final StateCheckBlockStore store;
+    private final DiscardCheck discardCheck;
     private HeaderBlock header;
 
     public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-        this(cacheFile, keySerializer, valueSerializer, (short) 512, 512);
+        this(cacheFile, keySerializer, valueSerializer, ALWAYS_DISCARD);
+    }
+
+    public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer, DiscardCheck discardCheck) {
+        this(cacheFile, createFileStore(cacheFile), keySerializer, valueSerializer, (short) 512, 512, discardCheck);
     }
 
     public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
                                        short maxChildIndexEntries, int maxFreeListEntries) {
+        this(cacheFile, createFileStore(cacheFile), keySerializer, valueSerializer, maxChildIndexEntries, maxFreeListEntries);
+    }
+
+    public BTreePersistentIndexedCache(File cacheFile, BlockStore fileStore, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries) {
+        this(cacheFile, fileStore, keySerializer, valueSerializer, maxChildIndexEntries, maxFreeListEntries, ALWAYS_DISCARD);
+    }
+
+    public BTreePersistentIndexedCache(File cacheFile, BlockStore fileStore, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries, DiscardCheck discardCheck) {
         this.cacheFile = cacheFile;
+        this.discardCheck = discardCheck;
         this.keySerializer = keySerializer;
         this.serializer = valueSerializer;
         this.maxChildIndexEntries = maxChildIndexEntries;
         this.minIndexChildNodes = maxChildIndexEntries / 2;
-        BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
+        BlockStore cachingStore = new CachingBlockStore(fileStore, IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
         store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
         try {
             open();
+        } catch (InsufficientLockModeException e) {
+            throw e;
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not open %s.", this), e);
         }
     }
 
+    private static BlockStore createFileStore(File cacheFile) {
+        // A file cannot be truncated on Windows while it is mapped, and there is no way to unmap a region other than to leave it to garbage collection,
+        // so the cache could not be cleared when it is found to be corrupt
+        if (Boolean.getBoolean(MEMORY_MAPPED_PROPERTY) && !OperatingSystem.current().isWindows()) {
+            return new MappedFileBlockStore(cacheFile);
+        }
+        return new FileBackedBlockStore(cacheFile);
+    }
+
     @Override
     public String toString() {
         return String.format("cache %s (%s)", cacheFile.getName(), cacheFile);
@@ -125,6 +162,8 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
                 rebuild();
                 return null;
             }
+        } catch (InsufficientLockModeException e) {
+            throw e;
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
         }
@@ -203,6 +242,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     }
 
     private void rebuild() throws Exception {
+        discardCheck.checkCanDiscard();
         LOGGER.warn(String.format("%s is corrupt. Discarding.", this));
         store.clear();
         close();
@@ -725,4 +765,16 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             return new BigInteger(digest).longValue();
         }
     }
+
+    /**
+     * Decides whether the content of a corrupt cache file can be discarded.
+     */
+    public interface DiscardCheck {
+        /**
+         * Called before the content of a corrupt cache file is discarded.
+         *
+         * @throws InsufficientLockModeException If the file is not locked for writing, so cannot be changed.
+         */
+        void checkCanDiscard() throws InsufficientLockModeException;
+    }
 }
@@ -0,0 +1,383 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.gradle.api.UncheckedIOException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link BlockStore} that reads blocks from memory mapped regions of the backing file, rather than seeking and reading the file for each block. Blocks are written
+ * using positional writes to the file channel. Uses the same block format as {@link FileBackedBlockStore}, so the two can be used interchangeably on the same file.
+ *
+ * <p>The file is mapped in fixed size regions, which are mapped as they are first read. The last region of the file is mapped again when a read reaches past the end of
+ * its current mapping, as the file grows. Another process may also grow the file while this store is open, so the length of the file is read again when a read
+ * reaches past its known end.</p>
+ *
+ * <p>A region that is no longer used is only unmapped when it is garbage collected, as there is no supported way to unmap it earlier. As a file cannot be truncated on
+ * Windows while any region of it is still mapped, this store must not be used on Windows.</p>
+ */
+public class MappedFileBlockStore implements BlockStore {
+    static final int DEFAULT_REGION_SIZE = 1024 * 1024;
+
+    private final File cacheFile;
+    private final int regionSize;
+    private final List<MappedByteBuffer> regions = new ArrayList<MappedByteBuffer>();
+    private final WriteBuffer writeBuffer = new WriteBuffer();
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private long length;
+    private long nextBlock;
+    private Factory factory;
+
+    public MappedFileBlockStore(File cacheFile) {
+        this(cacheFile, DEFAULT_REGION_SIZE);
+    }
+
+    MappedFileBlockStore(File cacheFile, int regionSize) {
+        this.cacheFile = cacheFile;
+        this.regionSize = regionSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cache '%s'", cacheFile);
+    }
+
+    public void open(Runnable runnable, Factory factory) {
+        this.factory = factory;
+        try {
+            cacheFile.getParentFile().mkdirs();
+            openFile();
+            if (length == 0) {
+                runnable.run();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void openFile() throws IOException {
+        file = new RandomAccessFile(cacheFile, "rw");
+        channel = file.getChannel();
+        length = file.length();
+        nextBlock = length;
+    }
+
+    public void close() {
+        regions.clear();
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void clear() {
+        // Drop the mappings and the channel they were made through before truncating, so that nothing can read from a region past the new end of the file
+        regions.clear();
+        try {
+            file.close();
+            openFile();
+            file.setLength(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        length = 0;
+        nextBlock = 0;
+    }
+
+    public void attach(BlockPayload block) {
+        if (block.getBlock() == null) {
+            block.setBlock(new BlockImpl(block));
+        }
+    }
+
+    public void remove(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        blockImpl.detach();
+    }
+
+    public void flush() {
+    }
+
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        return read(new BlockPointer(0), payloadType);
+    }
+
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        assert !pos.isNull();
+        try {
+            T payload = payloadType.cast(factory.create(payloadType));
+            BlockImpl block = new BlockImpl(payload, pos);
+            block.read();
+            return payload;
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        try {
+            blockImpl.write();
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns true when the file is at least the given length. Reads the length of the file again when it is shorter than that, as another process may have grown it.
+     */
+    private boolean hasLength(long requiredLength) throws IOException {
+        if (requiredLength > length) {
+            refreshLength();
+        }
+        return requiredLength <= length;
+    }
+
+    private void refreshLength() throws IOException {
+        long newLength = channel.size();
+        if (newLength < length) {
+            // Truncated by another process, so none of the mappings can be trusted
+            regions.clear();
+        } else if (newLength > length) {
+            // Drop the mappings of the region that held the old end of the file and of any after it, so that they are mapped again at their new size
+            for (int i = (int) (length / regionSize); i < regions.size(); i++) {
+                regions.set(i, null);
+            }
+            nextBlock = Math.max(nextBlock, newLength);
+        }
+        length = newLength;
+    }
+
+    private long alloc(long length) {
+        long pos = nextBlock;
+        nextBlock += length;
+        return pos;
+    }
+
+    /**
+     * Returns the mapped region containing the given position, mapping or remapping the region as required. The position must be within the file.
+     */
+    private MappedByteBuffer region(long pos) throws IOException {
+        int index = (int) (pos / regionSize);
+        while (regions.size() <= index) {
+            regions.add(null);
+        }
+        long regionStart = (long) index * regionSize;
+        MappedByteBuffer region = regions.get(index);
+        if (region == null || regionStart + region.capacity() <= pos) {
+            int size = (int) Math.min(regionSize, length - regionStart);
+            region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, size);
+            regions.set(index, region);
+        }
+        return region;
+    }
+
+    private final class BlockImpl extends Block {
+        private static final int HEADER_SIZE = 2 + INT_SIZE;
+        private static final int TAIL_SIZE = LONG_SIZE;
+        static final int BLOCK_MARKER = 0xCC;
+
+        private BlockPointer pos;
+        private int payloadSize;
+
+        private BlockImpl(BlockPayload payload, BlockPointer pos) {
+            this(payload);
+            setPos(pos);
+        }
+
+        public BlockImpl(BlockPayload payload) {
+            super(payload);
+            pos = null;
+            payloadSize = -1;
+        }
+
+        @Override
+        public boolean hasPos() {
+            return pos != null;
+        }
+
+        @Override
+        public BlockPointer getPos() {
+            if (pos == null) {
+                pos = new BlockPointer(alloc(getSize()));
+            }
+            return pos;
+        }
+
+        @Override
+        public void setPos(BlockPointer pos) {
+            assert this.pos == null && !pos.isNull();
+            this.pos = pos;
+        }
+
+        public int getSize() {
+            if (payloadSize < 0) {
+                payloadSize = getPayload().getSize();
+            }
+            return payloadSize + HEADER_SIZE + TAIL_SIZE;
+        }
+
+        @Override
+        public void setSize(int size) {
+            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
+            assert newPayloadSize >= payloadSize;
+            payloadSize = newPayloadSize;
+        }
+
+        public void write() throws Exception {
+            long pos = getPos().getPos();
+
+            writeBuffer.reset();
+            Crc32OutputStream checkSumOutputStream = new Crc32OutputStream(writeBuffer);
+            DataOutputStream outputStream = new DataOutputStream(checkSumOutputStream);
+
+            BlockPayload payload = getPayload();
+
+            // Write header
+            outputStream.writeByte(BLOCK_MARKER);
+            outputStream.writeByte(payload.getType());
+            outputStream.writeInt(payloadSize);
+            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
+
+            // Write body
+            payload.write(outputStream);
+
+            // Write checksum
+            outputStream.writeLong(checkSumOutputStream.checksum.getValue());
+            outputStream.flush();
+
+            ByteBuffer buffer = writeBuffer.asByteBuffer();
+            long writePos = pos;
+            while (buffer.hasRemaining()) {
+                writePos += channel.write(buffer, writePos);
+            }
+            length = Math.max(length, writePos);
+
+            // Pad
+            if (length < finalSize) {
+                file.setLength(finalSize);
+                length = finalSize;
+            }
+        }
+
+        public void read() throws Exception {
+            long pos = getPos().getPos();
+            assert pos >= 0;
+            if (!hasLength(pos + HEADER_SIZE + 1)) {
+                throw blockCorruptedException();
+            }
+
+            Crc32InputStream checkSumInputStream = new Crc32InputStream(new RegionInputStream(pos));
+            DataInputStream inputStream = new DataInputStream(checkSumInputStream);
+
+            BlockPayload payload = getPayload();
+
+            // Read header
+            byte type = inputStream.readByte();
+            if (type != (byte) BLOCK_MARKER) {
+                throw blockCorruptedException();
+            }
+            type = inputStream.readByte();
+            if (type != (byte) payload.getType()) {
+                throw blockCorruptedException();
+            }
+
+            // Read body
+            payloadSize = inputStream.readInt();
+            if (!hasLength(pos + HEADER_SIZE + TAIL_SIZE + payloadSize)) {
+                throw blockCorruptedException();
+            }
+            payload.read(inputStream);
+
+            // Read and verify checksum
+            long actualChecksum = checkSumInputStream.checksum.getValue();
+            long checksum = inputStream.readLong();
+            if (actualChecksum != checksum) {
+                throw blockCorruptedException();
+            }
+        }
+
+        public RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
+                    MappedFileBlockStore.this));
+        }
+    }
+
+    /**
+     * Reads directly from the mapped regions of the file, starting at a given position.
+     */
+    private class RegionInputStream extends InputStream {
+        private long pos;
+
+        private RegionInputStream(long pos) {
+            this.pos = pos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!hasLength(pos + 1)) {
+                return -1;
+            }
+            MappedByteBuffer region = region(pos);
+            int b = region.get((int) (pos % regionSize)) & 0xff;
+            pos++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int max) throws IOException {
+            if (max == 0) {
+                return 0;
+            }
+            if (!hasLength(pos + 1)) {
+                return -1;
+            }
+            ByteBuffer region = region(pos).duplicate();
+            int regionOffset = (int) (pos % regionSize);
+            int count = Math.min(max, region.capacity() - regionOffset);
+            region.position(regionOffset);
+            region.get(bytes, offset, count);
+            pos += count;
+            return count;
+        }
+    }
+
+    /**
+     * A reusable buffer that a block is serialized into before it is written to the file.
+     */
+    private static class WriteBuffer extends ByteArrayOutputStream {
+        private WriteBuffer() {
+            super(4096);
+        }
+
+        ByteBuffer asByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
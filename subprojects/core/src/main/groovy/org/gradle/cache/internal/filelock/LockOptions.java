@@ -23,6 +23,12 @@ public interface LockOptions {
 
     boolean isUseCrossVersionImplementation();
 
+    /**
+     * Returns true when a cache that is locked on demand should be locked for reading using a shared lock, and only locked exclusively when it is
+     * written to. Has no effect for other modes.
+     */
+    boolean isUseSharedLockForReads();
+
     /**
      * Creates a copy of these options with the given mode.
      */
@@ -19,21 +19,31 @@ package org.gradle.cache.internal.locklistener;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.cache.internal.FileLockCommunicator;
+import org.gradle.cache.internal.FileLockPacket;
 import org.gradle.cache.internal.GracefullyStoppedException;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.messaging.remote.internal.inet.InetAddressFactory;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.net.SocketAddress;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Listens for requests from other processes to release the locks held by this process, and tells these processes once a lock has been released, so
+ * that they can acquire it without having to poll for it.
+ */
 public class DefaultFileLockContentionHandler implements FileLockContentionHandler, Stoppable {
     private static final Logger LOGGER = Logging.getLogger(DefaultFileLockContentionHandler.class);
     private final Lock lock = new ReentrantLock();
     private final Map<Long, Runnable> contendedActions = new HashMap<Long, Runnable>();
+    private final Set<Long> heldLocks = new HashSet<Long>();
+    private final Map<Long, Set<SocketAddress>> requesters = new HashMap<Long, Set<SocketAddress>>();
+    private final Map<Long, CountDownLatch> releaseWaiters = new HashMap<Long, CountDownLatch>();
     private final ExecutorFactory executorFactory;
     private final InetAddressFactory addressFactory;
 
@@ -62,23 +72,45 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
 
             private void doRun() {
                 while (true) {
-                    long lockId;
+                    FileLockPacket packet;
                     try {
-                        lockId = communicator.receive();
+                        packet = communicator.receive();
                     } catch (GracefullyStoppedException e) {
                         return;
                     }
+                    long lockId = packet.getLockId();
+                    if (packet.getType() == FileLockPacket.Type.LOCK_RELEASED) {
+                        releaseReceived(lockId);
+                        continue;
+                    }
                     lock.lock();
                     Runnable action;
+                    boolean released = false;
                     try {
-                        action = contendedActions.get(lockId);
-                        if (action == null) {
-                            //received access request for lock that is already closed
-                            continue;
+                        if (packet.getType() == FileLockPacket.Type.UNLOCK_REQUEST_WITH_RELEASE_NOTIFICATION) {
+                            if (heldLocks.contains(lockId)) {
+                                Set<SocketAddress> lockRequesters = requesters.get(lockId);
+                                if (lockRequesters == null) {
+                                    lockRequesters = new LinkedHashSet<SocketAddress>();
+                                    requesters.put(lockId, lockRequesters);
+                                }
+                                lockRequesters.add(packet.getSender());
+                            } else {
+                                //received request for lock that is already released, so the requester can go ahead
+                                released = true;
+                            }
                         }
+                        action = contendedActions.get(lockId);
                     } finally {
                         lock.unlock();
                     }
+                    if (released) {
+                        confirmReleased(packet.getSender(), lockId);
+                    }
+                    if (action == null) {
+                        //received access request for lock that is already closed
+                        continue;
+                    }
                     action.run();
                 }
             }
@@ -92,10 +124,7 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
             if (communicator == null) {
                 throw new IllegalStateException("Must initialize the handler by reserving the port first.");
             }
-            if (executor == null) {
-                executor = executorFactory.create("File lock request listener");
-                executor.execute(listener());
-            }
+            startListener();
             if (contendedActions.containsKey(lockId)) {
                 throw new UnsupportedOperationException("Multiple contention actions for a given lock are currently not supported.");
             }
@@ -105,10 +134,98 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
         }
     }
 
+    private void startListener() {
+        if (executor == null) {
+            executor = executorFactory.create("File lock request listener");
+            executor.execute(listener());
+        }
+    }
+
     public void pingOwner(int port, long lockId, String displayName) {
         getCommunicator().pingOwner(port, lockId, displayName);
     }
 
+    public void lockAcquired(long lockId) {
+        lock.lock();
+        try {
+            if (stopped || communicator == null) {
+                // Nobody can reach this process
+                return;
+            }
+            heldLocks.add(lockId);
+            startListener();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void lockReleased(long lockId) {
+        Set<SocketAddress> lockRequesters;
+        lock.lock();
+        try {
+            heldLocks.remove(lockId);
+            lockRequesters = requesters.remove(lockId);
+        } finally {
+            lock.unlock();
+        }
+        if (lockRequesters != null) {
+            for (SocketAddress requester : lockRequesters) {
+                confirmReleased(requester, lockId);
+            }
+        }
+    }
+
+    public boolean waitForRelease(int port, long lockId, String displayName, long timeoutMs) throws InterruptedException {
+        CountDownLatch released;
+        lock.lock();
+        try {
+            getCommunicator();
+            startListener();
+            released = releaseWaiters.get(lockId);
+            if (released == null) {
+                released = new CountDownLatch(1);
+                releaseWaiters.put(lockId, released);
+            }
+        } finally {
+            lock.unlock();
+        }
+        try {
+            pingOwner(port, lockId, displayName);
+            return released.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } finally {
+            lock.lock();
+            try {
+                if (releaseWaiters.get(lockId) == released) {
+                    releaseWaiters.remove(lockId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void releaseReceived(long lockId) {
+        CountDownLatch released;
+        lock.lock();
+        try {
+            released = releaseWaiters.remove(lockId);
+        } finally {
+            lock.unlock();
+        }
+        if (released != null) {
+            released.countDown();
+        }
+    }
+
+    private void confirmReleased(SocketAddress requester, long lockId) {
+        try {
+            communicator.confirmReleased(requester, lockId);
+        } catch (RuntimeException e) {
+            // The requester retries after a short while anyway
+            LOGGER.debug(String.format("Could not confirm release of lock %s to %s.", lockId, requester), e);
+        }
+    }
+
     private void assertNotStopped() {
         if (stopped) {
             throw new IllegalStateException(
@@ -130,6 +247,12 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
         try {
             stopped = true;
             contendedActions.clear();
+            heldLocks.clear();
+            requesters.clear();
+            for (CountDownLatch released : releaseWaiters.values()) {
+                released.countDown();
+            }
+            releaseWaiters.clear();
             if (communicator != null) {
                 communicator.stop();
             }
@@ -24,4 +24,22 @@ public interface FileLockContentionHandler {
     int reservePort();
 
     void pingOwner(int port, long lockId, String displayName);
+
+    /**
+     * Called when this process has acquired the given lock. Processes that ask for the lock from now on are told when it is released.
+     */
+    void lockAcquired(long lockId);
+
+    /**
+     * Called when this process has released the given lock. Tells the processes that asked for the lock, in the order in which they asked.
+     */
+    void lockReleased(long lockId);
+
+    /**
+     * Asks the owner of the given lock to release it, and waits until the owner reports that it has done so, or until the given timeout expires.
+     * Owners running older versions never report the release, so callers should also retry when the timeout expires.
+     *
+     * @return true when the owner reported that the lock was released.
+     */
+    boolean waitForRelease(int port, long lockId, String displayName, long timeoutMs) throws InterruptedException;
 }
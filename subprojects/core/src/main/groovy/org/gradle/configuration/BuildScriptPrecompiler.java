@@ -0,0 +1,83 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.groovy.scripts.ScriptSource;
+import org.gradle.groovy.scripts.internal.FileCacheBackedScriptClassCompiler;
+import org.gradle.internal.concurrent.BatchExecutor;
+import org.gradle.util.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compiles the build scripts of a set of projects into the script cache using the build's {@link BatchExecutor}, before the projects are evaluated.
+ *
+ * <p>The scripts are compiled the same way as {@link DefaultScriptPluginFactory} compiles them, but with a class loader that does not include the
+ * classpath declared by the build scripts. {@link FileCacheBackedScriptClassCompiler} discards a precompiled script when this makes a difference.</p>
+ */
+public class BuildScriptPrecompiler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildScriptPrecompiler.class);
+
+    private final FileCacheBackedScriptClassCompiler scriptClassCompiler;
+    private final ImportsReader importsReader;
+    private final DocumentationRegistry documentationRegistry;
+    private final BatchExecutor batchExecutor;
+
+    public BuildScriptPrecompiler(FileCacheBackedScriptClassCompiler scriptClassCompiler, ImportsReader importsReader, DocumentationRegistry documentationRegistry,
+                                  BatchExecutor batchExecutor) {
+        this.scriptClassCompiler = scriptClassCompiler;
+        this.importsReader = importsReader;
+        this.documentationRegistry = documentationRegistry;
+        this.batchExecutor = batchExecutor;
+    }
+
+    /**
+     * Compiles the given build scripts, and blocks until they have all been compiled. Scripts that are already in the cache or that fail to compile are skipped.
+     */
+    public void precompile(Collection<? extends ScriptSource> buildScripts, final ClassLoader classLoader) {
+        if (buildScripts.size() <= 1) {
+            return;
+        }
+
+        Clock clock = new Clock();
+        final List<ScriptSource> sources = new ArrayList<ScriptSource>(buildScripts.size());
+        for (ScriptSource buildScript : buildScripts) {
+            sources.add(importsReader.withImports(buildScript));
+        }
+        batchExecutor.forEachIndex(sources.size(), new Action<Integer>() {
+            public void execute(Integer index) {
+                precompile(sources.get(index), classLoader);
+            }
+        });
+        LOGGER.debug("Timing: Precompiling {} build scripts took {}", buildScripts.size(), clock.getTime());
+    }
+
+    private void precompile(ScriptSource source, ClassLoader classLoader) {
+        if (source.getResource().getText().matches("\\s*")) {
+            return;
+        }
+        DefaultScriptPluginFactory.ScriptCompilation compilation = DefaultScriptPluginFactory.buildScriptCompilation(documentationRegistry);
+        scriptClassCompiler.precompile(source, classLoader, compilation.getClasspathTransformer(), compilation.getScriptType(), compilation.createClasspathVerifier());
+        scriptClassCompiler.precompile(source, classLoader, compilation.getBuildTransformer(), compilation.getScriptType(), compilation.createBuildVerifier());
+    }
+}
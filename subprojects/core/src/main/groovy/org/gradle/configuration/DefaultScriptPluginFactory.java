@@ -16,6 +16,7 @@
 
 package org.gradle.configuration;
 
+import org.codehaus.groovy.classgen.Verifier;
 import org.gradle.api.initialization.dsl.ScriptHandler;
 import org.gradle.api.internal.DocumentationRegistry;
 import org.gradle.api.internal.file.FileLookup;
@@ -39,6 +40,7 @@ import org.gradle.plugin.use.internal.PluginRequestApplicator;
 import java.util.List;
 
 public class DefaultScriptPluginFactory implements ScriptPluginFactory {
+    public static final String BUILD_SCRIPT_CLASSPATH_CLOSURE_NAME = "buildscript";
 
     private final ScriptCompilerFactory scriptCompilerFactory;
     private final ImportsReader importsReader;
@@ -71,6 +73,51 @@ public class DefaultScriptPluginFactory implements ScriptPluginFactory {
         return new ScriptPluginImpl(scriptSource, scriptHandler, targetScope, baseScope, classpathClosureName, scriptClass, ownerScript);
     }
 
+    /**
+     * Describes how a build script is compiled, for {@link BuildScriptPrecompiler}.
+     */
+    static ScriptCompilation buildScriptCompilation(DocumentationRegistry documentationRegistry) {
+        return new ScriptCompilation(BUILD_SCRIPT_CLASSPATH_CLOSURE_NAME, ProjectScript.class, documentationRegistry);
+    }
+
+    /**
+     * The transformers, verifiers and base class used to compile a script in two passes: the first extracts the classpath and plugins blocks,
+     * the second includes everything except what the first pass extracted.
+     */
+    static class ScriptCompilation {
+        private final Class<? extends BasicScript> scriptType;
+        private final StatementExtractingScriptTransformer classpathTransformer;
+
+        ScriptCompilation(String classpathClosureName, Class<? extends BasicScript> scriptType, DocumentationRegistry documentationRegistry) {
+            this.scriptType = scriptType;
+            boolean supportsPluginsBlock = ProjectScript.class.isAssignableFrom(scriptType);
+            String onPluginBlockError = supportsPluginsBlock ? null : "Only Project build scripts can contain plugins {} blocks";
+            PluginsAndBuildscriptTransformer scriptBlockTransformer = new PluginsAndBuildscriptTransformer(classpathClosureName, onPluginBlockError, documentationRegistry);
+            this.classpathTransformer = new StatementExtractingScriptTransformer(classpathClosureName, scriptBlockTransformer);
+        }
+
+        Class<? extends BasicScript> getScriptType() {
+            return scriptType;
+        }
+
+        Transformer getClasspathTransformer() {
+            return classpathTransformer;
+        }
+
+        Verifier createClasspathVerifier() {
+            return new Verifier();
+        }
+
+        Transformer getBuildTransformer() {
+            return new BuildScriptTransformer("no_" + classpathTransformer.getId(), classpathTransformer.invert());
+        }
+
+        Verifier createBuildVerifier() {
+            // TODO - find a less tangled way of getting this in here, see the verifier impl for why it's needed
+            return new ClosureCreationInterceptingVerifier();
+        }
+    }
+
     private class ScriptPluginImpl implements ScriptPlugin {
         private final ScriptSource scriptSource;
         private final ClassLoaderScope targetScope;
@@ -113,14 +160,10 @@ public class DefaultScriptPluginFactory implements ScriptPluginFactory {
             ScriptCompiler compiler = scriptCompilerFactory.createCompiler(withImports);
             compiler.setClassloader(baseScope.getExportClassLoader());
 
-            boolean supportsPluginsBlock = ProjectScript.class.isAssignableFrom(scriptType);
-            String onPluginBlockError = supportsPluginsBlock ? null : "Only Project build scripts can contain plugins {} blocks";
-
-            PluginsAndBuildscriptTransformer scriptBlockTransformer = new PluginsAndBuildscriptTransformer(classpathClosureName, onPluginBlockError, documentationRegistry);
+            ScriptCompilation compilation = new ScriptCompilation(classpathClosureName, scriptType, documentationRegistry);
 
-            StatementExtractingScriptTransformer classpathScriptTransformer = new StatementExtractingScriptTransformer(classpathClosureName, scriptBlockTransformer);
-
-            compiler.setTransformer(classpathScriptTransformer);
+            compiler.setTransformer(compilation.getClasspathTransformer());
+            compiler.setVerifier(compilation.createClasspathVerifier());
 
             ScriptRunner<? extends BasicScript> classPathScriptRunner = compiler.compile(scriptType);
             classPathScriptRunner.getScript().init(target, services);
@@ -132,10 +175,8 @@ public class DefaultScriptPluginFactory implements ScriptPluginFactory {
 
             compiler.setClassloader(targetScope.getLocalClassLoader());
 
-            compiler.setTransformer(new BuildScriptTransformer("no_" + classpathScriptTransformer.getId(), classpathScriptTransformer.invert()));
-
-            // TODO - find a less tangled way of getting this in here, see the verifier impl for why it's needed
-            compiler.setVerifier(new ClosureCreationInterceptingVerifier());
+            compiler.setTransformer(compilation.getBuildTransformer());
+            compiler.setVerifier(compilation.createBuildVerifier());
 
             ScriptRunner<? extends BasicScript> runner = compiler.compile(scriptType);
 
@@ -17,6 +17,7 @@ package org.gradle.configuration.project;
 
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.project.ProjectScript;
+import org.gradle.configuration.DefaultScriptPluginFactory;
 import org.gradle.configuration.ScriptPlugin;
 import org.gradle.configuration.ScriptPluginFactory;
 import org.gradle.util.Clock;
@@ -35,7 +36,7 @@ public class BuildScriptProcessor implements ProjectConfigureAction {
         LOGGER.info(String.format("Evaluating %s using %s.", project, project.getBuildScriptSource().getDisplayName()));
         Clock clock = new Clock();
         try {
-            ScriptPlugin configurer = configurerFactory.create(project.getBuildScriptSource(), project.getBuildscript(), project.getClassLoaderScope(), project.getBaseClassLoaderScope(), "buildscript", ProjectScript.class, true);
+            ScriptPlugin configurer = configurerFactory.create(project.getBuildScriptSource(), project.getBuildscript(), project.getClassLoaderScope(), project.getBaseClassLoaderScope(), DefaultScriptPluginFactory.BUILD_SCRIPT_CLASSPATH_CLOSURE_NAME, ProjectScript.class, true);
             configurer.apply(project);
         } finally {
             LOGGER.debug("Timing: Running the build script took " + clock.getTime());
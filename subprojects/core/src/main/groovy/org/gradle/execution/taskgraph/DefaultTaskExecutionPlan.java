@@ -16,11 +16,15 @@
 
 package org.gradle.execution.taskgraph;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import org.gradle.api.BuildCancelledException;
 import org.gradle.api.CircularReferenceException;
+import org.gradle.api.Nullable;
 import org.gradle.api.Task;
 import org.gradle.api.Transformer;
 import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository;
 import org.gradle.api.internal.tasks.CachingTaskDependencyResolveContext;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.specs.Specs;
@@ -47,7 +51,8 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final Lock lock = new ReentrantLock();
-    private final Condition condition = lock.newCondition();
+    private final Condition taskAvailable = lock.newCondition();
+    private final Condition tasksCompleted = lock.newCondition();
     private final Set<TaskInfo> tasksInUnknownState = new LinkedHashSet<TaskInfo>();
     private final Set<TaskInfo> entryTasks = new LinkedHashSet<TaskInfo>();
     private final TaskDependencyGraph graph = new TaskDependencyGraph();
@@ -57,10 +62,29 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     private TaskFailureHandler failureHandler = new RethrowingFailureHandler();
     private final BuildCancellationToken cancellationToken;
-    private final List<String> runningProjects = new ArrayList<String>();
+    private final ListMultimap<String, TaskInfo> runningTasksByProject = ArrayListMultimap.create();
+    private final TreeSet<TaskInfo> readyTasks = new TreeSet<TaskInfo>(new TaskPriorityComparator());
+    private final Map<String, List<TaskInfo>> tasksWaitingForProject = new HashMap<String, List<TaskInfo>>();
+    private boolean schedulingStarted;
+    private int runningTasks;
+
+    private final TaskDurationRepository taskDurationRepository;
+    private final boolean intraProjectParallelization;
+    private final LinkedList<TaskInfo> tasksWaitingForDeclaredFiles = new LinkedList<TaskInfo>();
 
     public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken) {
+        this(cancellationToken, null, false);
+    }
+
+    /**
+     * @param taskDurationRepository The previous task durations to use to prioritise tasks on the critical path. When null, ready tasks are executed in the order of the plan.
+     * @param intraProjectParallelization When true, tasks of the same project may execute at the same time, provided they declare outputs and the files they declare
+     * do not overlap. When false, only one task per project executes at a time.
+     */
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, @Nullable TaskDurationRepository taskDurationRepository, boolean intraProjectParallelization) {
         this.cancellationToken = cancellationToken;
+        this.taskDurationRepository = taskDurationRepository;
+        this.intraProjectParallelization = intraProjectParallelization;
     }
 
     public void addToTaskGraph(Collection<? extends Task> tasks) {
@@ -367,7 +391,12 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             entryTasks.clear();
             executionPlan.clear();
             failures.clear();
-            runningProjects.clear();
+            runningTasksByProject.clear();
+            tasksWaitingForDeclaredFiles.clear();
+            readyTasks.clear();
+            tasksWaitingForProject.clear();
+            schedulingStarted = false;
+            runningTasks = 0;
         } finally {
             lock.unlock();
         }
@@ -388,37 +417,31 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     public TaskInfo getTaskToExecute() {
         lock.lock();
         try {
+            if (!schedulingStarted) {
+                startScheduling();
+            }
             while (true) {
                 if (cancellationToken.isCancellationRequested()) {
                     abortExecution();
                 }
-                TaskInfo nextMatching = null;
-                boolean allTasksComplete = true;
-                for (TaskInfo taskInfo : executionPlan.values()) {
-                    allTasksComplete = allTasksComplete && taskInfo.isComplete();
-                    if (taskInfo.isReady() && taskInfo.allDependenciesComplete() && !runningProjects.contains(taskInfo.getTask().getProject().getPath())) {
-                        nextMatching = taskInfo;
-                        break;
-                    }
+                TaskInfo nextMatching = pollReadyTask();
+                if (nextMatching != null) {
+                    nextMatching.startExecution();
+                    runningTasksByProject.put(nextMatching.getTask().getProject().getPath(), nextMatching);
+                    runningTasks++;
+                    return nextMatching;
+                }
+                if (!tasksWaitingForDeclaredFiles.isEmpty()) {
+                    resolveDeclaredFiles(tasksWaitingForDeclaredFiles.removeFirst());
+                    continue;
                 }
-                if (allTasksComplete) {
+                if (runningTasks == 0 && allTasksComplete()) {
                     return null;
                 }
-                if (nextMatching == null) {
-                    try {
-                        condition.await();
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
-                } else {
-                    if (nextMatching.allDependenciesSuccessful()) {
-                        nextMatching.startExecution();
-                        runningProjects.add(nextMatching.getTask().getProject().getPath());
-                        return nextMatching;
-                    } else {
-                        nextMatching.skipExecution();
-                        condition.signalAll();
-                    }
+                try {
+                    taskAvailable.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
                 }
             }
         } finally {
@@ -426,6 +449,143 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
     }
 
+    /**
+     * Counts the incomplete dependencies of each task in the plan and queues those that can start straight away. From here on, tasks are queued
+     * as their last dependency completes, so that finding the next task to execute does not require a scan of the whole plan.
+     */
+    private void startScheduling() {
+        schedulingStarted = true;
+        int executionOrder = 0;
+        for (TaskInfo taskInfo : executionPlan.values()) {
+            taskInfo.prepareForScheduling(executionOrder++);
+        }
+        if (taskDurationRepository != null) {
+            calculateCriticalPaths();
+        }
+        for (TaskInfo taskInfo : executionPlan.values()) {
+            queueIfReady(taskInfo);
+        }
+    }
+
+    /**
+     * Calculates the longest chain of work that has to wait for each task, using the duration of the previous execution of each task. Tasks
+     * that have not been executed before are assumed to take the average time. Ready tasks at the head of the longest chains are started first.
+     */
+    private void calculateCriticalPaths() {
+        Map<Task, Long> durations = taskDurationRepository.getPreviousDurations(executionPlan.keySet());
+        long defaultDuration = 1;
+        if (!durations.isEmpty()) {
+            long total = 0;
+            for (Long duration : durations.values()) {
+                total += duration;
+            }
+            defaultDuration = Math.max(1, total / durations.size());
+        }
+
+        // Tasks that wait for a given task always appear later in the plan, so visit the plan in reverse
+        List<TaskInfo> tasks = new ArrayList<TaskInfo>(executionPlan.values());
+        for (int i = tasks.size() - 1; i >= 0; i--) {
+            TaskInfo taskInfo = tasks.get(i);
+            long longestWaitingPath = 0;
+            for (TaskInfo predecessor : taskInfo.getExecutionPredecessors()) {
+                longestWaitingPath = Math.max(longestWaitingPath, predecessor.getCriticalPathDuration());
+            }
+            Long duration = durations.get(taskInfo.getTask());
+            taskInfo.setCriticalPathDuration((duration == null ? defaultDuration : duration) + longestWaitingPath);
+        }
+    }
+
+    private TaskInfo pollReadyTask() {
+        while (!readyTasks.isEmpty()) {
+            TaskInfo taskInfo = readyTasks.pollFirst();
+            if (!taskInfo.isReady() || !taskInfo.allExecutionSuccessorsComplete()) {
+                // Task has been skipped or has had a dependency enforced since it was queued
+                continue;
+            }
+            if (intraProjectParallelization && taskInfo.getDeclaredFiles() == null) {
+                tasksWaitingForDeclaredFiles.add(taskInfo);
+                continue;
+            }
+            String projectPath = taskInfo.getTask().getProject().getPath();
+            if (!canRunAlongsideTasksOfProject(taskInfo, runningTasksByProject.get(projectPath))) {
+                waitForProject(projectPath, taskInfo);
+                continue;
+            }
+            if (taskInfo.allDependenciesSuccessful()) {
+                return taskInfo;
+            }
+            taskInfo.skipExecution();
+            taskCompleted(taskInfo);
+        }
+        return null;
+    }
+
+    private boolean canRunAlongsideTasksOfProject(TaskInfo taskInfo, List<TaskInfo> runningTasks) {
+        if (runningTasks.isEmpty()) {
+            return true;
+        }
+        if (!intraProjectParallelization) {
+            return false;
+        }
+        TaskDeclaredFiles candidateFiles = taskInfo.getDeclaredFiles();
+        if (!candidateFiles.hasOutputs()) {
+            return false;
+        }
+        for (TaskInfo runningTask : runningTasks) {
+            TaskDeclaredFiles runningFiles = runningTask.getDeclaredFiles();
+            if (!runningFiles.hasOutputs() || candidateFiles.overlapsWith(runningFiles)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Resolves the files of a task that has become ready, so that it can be compared with the other tasks of its project. Resolving the files may
+     * run build logic or resolve dependencies, so this is done without holding the lock, and the task is queued again once its files are known.
+     */
+    private void resolveDeclaredFiles(TaskInfo taskInfo) {
+        TaskDeclaredFiles files;
+        lock.unlock();
+        try {
+            files = TaskDeclaredFiles.of(taskInfo.getTask());
+        } finally {
+            lock.lock();
+        }
+        taskInfo.setDeclaredFiles(files);
+        queueIfReady(taskInfo);
+    }
+
+    private void waitForProject(String projectPath, TaskInfo taskInfo) {
+        List<TaskInfo> waitingTasks = tasksWaitingForProject.get(projectPath);
+        if (waitingTasks == null) {
+            waitingTasks = new ArrayList<TaskInfo>();
+            tasksWaitingForProject.put(projectPath, waitingTasks);
+        }
+        waitingTasks.add(taskInfo);
+    }
+
+    private void queueIfReady(TaskInfo taskInfo) {
+        if (taskInfo.isReady() && taskInfo.allExecutionSuccessorsComplete()) {
+            readyTasks.add(taskInfo);
+            taskAvailable.signal();
+        }
+    }
+
+    private void taskCompleted(TaskInfo taskInfo) {
+        for (TaskInfo predecessor : taskInfo.getExecutionPredecessors()) {
+            predecessor.executionSuccessorCompleted();
+            queueIfReady(predecessor);
+        }
+    }
+
+    private void taskReopened(TaskInfo taskInfo) {
+        for (TaskInfo predecessor : taskInfo.getExecutionPredecessors()) {
+            predecessor.executionSuccessorReopened();
+        }
+        queueIfReady(taskInfo);
+    }
+
     public void taskComplete(TaskInfo taskInfo) {
         lock.lock();
         try {
@@ -435,8 +595,20 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             }
 
             taskInfo.finishExecution();
-            runningProjects.remove(taskInfo.getTask().getProject().getPath());
-            condition.signalAll();
+            taskCompleted(taskInfo);
+            runningTasks--;
+            String projectPath = taskInfo.getTask().getProject().getPath();
+            runningTasksByProject.remove(projectPath, taskInfo);
+            List<TaskInfo> waitingTasks = tasksWaitingForProject.remove(projectPath);
+            if (waitingTasks != null) {
+                for (TaskInfo waitingTask : waitingTasks) {
+                    queueIfReady(waitingTask);
+                }
+            }
+            if (runningTasks == 0) {
+                taskAvailable.signalAll();
+                tasksCompleted.signalAll();
+            }
         } finally {
             lock.unlock();
         }
@@ -454,7 +626,10 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         for (TaskInfo dependencyNode : node.getDependencySuccessors()) {
             enforceWithDependencies(dependencyNode);
         }
-        if (node.getMustNotRun() || node.isRequired()) {
+        if (node.getMustNotRun()) {
+            node.enforceRun();
+            taskReopened(node);
+        } else if (node.isRequired()) {
             node.enforceRun();
         }
     }
@@ -484,6 +659,7 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         for (TaskInfo taskInfo : executionPlan.values()) {
             if (taskInfo.isRequired()) {
                 taskInfo.skipExecution();
+                taskCompleted(taskInfo);
             }
         }
     }
@@ -493,7 +669,7 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         try {
             while (!allTasksComplete()) {
                 try {
-                    condition.await();
+                    tasksCompleted.await();
                 } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 }
@@ -538,6 +714,15 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
     }
 
+    private static class TaskPriorityComparator implements Comparator<TaskInfo> {
+        public int compare(TaskInfo taskInfo1, TaskInfo taskInfo2) {
+            if (taskInfo1.getCriticalPathDuration() != taskInfo2.getCriticalPathDuration()) {
+                return taskInfo1.getCriticalPathDuration() > taskInfo2.getCriticalPathDuration() ? -1 : 1;
+            }
+            return taskInfo1.getExecutionOrder() - taskInfo2.getExecutionOrder();
+        }
+    }
+
     private static class RethrowingFailureHandler implements TaskFailureHandler {
         public void onTaskFailure(Task task) {
             task.getState().rethrowFailure();
@@ -20,6 +20,7 @@ import groovy.lang.Closure;
 import org.gradle.api.Task;
 import org.gradle.api.execution.TaskExecutionGraphListener;
 import org.gradle.api.execution.TaskExecutionListener;
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository;
 import org.gradle.api.specs.Spec;
 import org.gradle.execution.TaskFailureHandler;
 import org.gradle.execution.TaskGraphExecuter;
@@ -49,10 +50,24 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
     private TaskGraphState taskGraphState = TaskGraphState.EMPTY;
 
     public DefaultTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, BuildCancellationToken cancellationToken) {
+        this(listenerManager, taskPlanExecutor, new DefaultTaskExecutionPlan(cancellationToken));
+    }
+
+    /**
+     * Creates an executer for parallel execution, that prioritises tasks on the critical path of the graph based on how long each task took to execute previously.
+     *
+     * @param intraProjectParallelization Whether tasks of the same project with separate outputs may execute at the same time.
+     */
+    public DefaultTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, BuildCancellationToken cancellationToken, TaskDurationRepository taskDurationRepository,
+                                    boolean intraProjectParallelization) {
+        this(listenerManager, taskPlanExecutor, new DefaultTaskExecutionPlan(cancellationToken, taskDurationRepository, intraProjectParallelization));
+    }
+
+    private DefaultTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, DefaultTaskExecutionPlan taskExecutionPlan) {
         this.taskPlanExecutor = taskPlanExecutor;
         graphListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionGraphListener.class);
         taskListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionListener.class);
-        taskExecutionPlan = new DefaultTaskExecutionPlan(cancellationToken);
+        this.taskExecutionPlan = taskExecutionPlan;
     }
 
     public void useFailureHandler(TaskFailureHandler handler) {
@@ -33,9 +33,15 @@ import java.util.concurrent.Executor;
 class ParallelTaskPlanExecutor extends AbstractTaskPlanExecutor {
     private static final Logger LOGGER = Logging.getLogger(ParallelTaskPlanExecutor.class);
     private final int executorCount;
+    private final boolean intraProjectParallelization;
     private final ExecutorFactory executorFactory;
 
     public ParallelTaskPlanExecutor(int numberOfParallelExecutors, ExecutorFactory executorFactory) {
+        this(numberOfParallelExecutors, false, executorFactory);
+    }
+
+    public ParallelTaskPlanExecutor(int numberOfParallelExecutors, boolean intraProjectParallelization, ExecutorFactory executorFactory) {
+        this.intraProjectParallelization = intraProjectParallelization;
         this.executorFactory = executorFactory;
         if (numberOfParallelExecutors < 1) {
             throw new IllegalArgumentException("Not a valid number of parallel executors: " + numberOfParallelExecutors);
@@ -56,8 +62,12 @@ class ParallelTaskPlanExecutor extends AbstractTaskPlanExecutor {
     }
 
     private void startAdditionalWorkers(TaskExecutionPlan taskExecutionPlan, TaskExecutionListener taskListener, Executor executor) {
-        List<Project> projects = getAllProjects(taskExecutionPlan);
-        int numExecutors = Math.min(executorCount, projects.size());
+        int numExecutors = executorCount;
+        if (!intraProjectParallelization) {
+            // Only one task per project executes at a time, so there is no point having more workers than projects
+            List<Project> projects = getAllProjects(taskExecutionPlan);
+            numExecutors = Math.min(executorCount, projects.size());
+        }
 
         LOGGER.info("Using {} parallel executor threads", numExecutors);
 
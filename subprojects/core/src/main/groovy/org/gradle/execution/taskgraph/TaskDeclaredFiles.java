@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.internal.TaskInternal;
+
+import java.io.File;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * The absolute paths of the files that a task declares as its inputs and outputs, used to decide whether two tasks may safely run at the same time.
+ * Two paths overlap when they are the same, or one is an ancestor of the other.
+ */
+class TaskDeclaredFiles {
+    private static final TaskDeclaredFiles UNKNOWN = new TaskDeclaredFiles(new TreeSet<String>(), new TreeSet<String>());
+
+    private final NavigableSet<String> inputs;
+    private final NavigableSet<String> outputs;
+
+    private TaskDeclaredFiles(NavigableSet<String> inputs, NavigableSet<String> outputs) {
+        this.inputs = inputs;
+        this.outputs = outputs;
+    }
+
+    static TaskDeclaredFiles of(TaskInternal task) {
+        NavigableSet<String> outputs;
+        NavigableSet<String> inputs;
+        try {
+            outputs = paths(task.getOutputs().getFiles());
+            inputs = paths(task.getInputs().getFiles());
+        } catch (RuntimeException e) {
+            // Leave it to the task to report the problem when it executes
+            return UNKNOWN;
+        }
+        return new TaskDeclaredFiles(inputs, outputs);
+    }
+
+    private static NavigableSet<String> paths(Iterable<File> files) {
+        NavigableSet<String> paths = new TreeSet<String>();
+        for (File file : files) {
+            paths.add(file.getAbsolutePath());
+        }
+        return paths;
+    }
+
+    /**
+     * A task that declares no outputs may write anywhere, so can only run by itself.
+     */
+    boolean hasOutputs() {
+        return !outputs.isEmpty();
+    }
+
+    /**
+     * Returns true if either task writes to a location that the other reads from or writes to.
+     */
+    boolean overlapsWith(TaskDeclaredFiles other) {
+        for (String output : outputs) {
+            if (overlaps(output, other.outputs) || overlaps(output, other.inputs)) {
+                return true;
+            }
+        }
+        for (String input : inputs) {
+            if (overlaps(input, other.outputs)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean overlaps(String path, NavigableSet<String> paths) {
+        if (paths.isEmpty()) {
+            return false;
+        }
+        // Same path, or an ancestor of the path
+        for (String ancestor = path; ancestor != null; ancestor = new File(ancestor).getParent()) {
+            if (paths.contains(ancestor)) {
+                return true;
+            }
+        }
+        // A descendant of the path
+        String prefix = path + File.separator;
+        String candidate = paths.ceiling(prefix);
+        return candidate != null && candidate.startsWith(prefix);
+    }
+}
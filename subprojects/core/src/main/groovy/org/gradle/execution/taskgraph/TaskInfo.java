@@ -16,9 +16,10 @@
 
 package org.gradle.execution.taskgraph;
 
-import com.google.common.collect.Iterables;
 import org.gradle.api.internal.TaskInternal;
 
+import java.util.HashSet;
+import java.util.Set;
 import java.util.TreeSet;
 
 public class TaskInfo implements Comparable<TaskInfo> {
@@ -36,6 +37,11 @@ public class TaskInfo implements Comparable<TaskInfo> {
     private final TreeSet<TaskInfo> mustSuccessors = new TreeSet<TaskInfo>();
     private final TreeSet<TaskInfo> shouldSuccessors = new TreeSet<TaskInfo>();
     private final TreeSet<TaskInfo> finalizers = new TreeSet<TaskInfo>();
+    private final Set<TaskInfo> executionPredecessors = new HashSet<TaskInfo>();
+    private int incompleteExecutionSuccessors;
+    private int executionOrder;
+    private long criticalPathDuration;
+    private TaskDeclaredFiles declaredFiles;
 
     public TaskInfo(TaskInternal task) {
         this.task = task;
@@ -129,15 +135,6 @@ public class TaskInfo implements Comparable<TaskInfo> {
         return this.getTask().getState().getFailure();
     }
 
-    public boolean allDependenciesComplete() {
-        for (TaskInfo dependency : Iterables.concat(mustSuccessors, dependencySuccessors)) {
-            if (!dependency.isComplete()) {
-                return false;
-            }
-        }
-        return true;
-    }
-
     public boolean allDependenciesSuccessful() {
         for (TaskInfo dependency : dependencySuccessors) {
             if (!dependency.isSuccessful()) {
@@ -196,6 +193,68 @@ public class TaskInfo implements Comparable<TaskInfo> {
         shouldSuccessors.remove(toNode);
     }
 
+    /**
+     * Prepares this task for scheduling, by registering it with each of the tasks it must wait for and counting those that are not yet complete.
+     */
+    public void prepareForScheduling(int executionOrder) {
+        this.executionOrder = executionOrder;
+        Set<TaskInfo> executionSuccessors = new HashSet<TaskInfo>(dependencySuccessors);
+        executionSuccessors.addAll(mustSuccessors);
+        incompleteExecutionSuccessors = 0;
+        for (TaskInfo successor : executionSuccessors) {
+            successor.executionPredecessors.add(this);
+            if (!successor.isComplete()) {
+                incompleteExecutionSuccessors++;
+            }
+        }
+    }
+
+    /**
+     * The tasks that must wait for this task to complete before they can start, ie. the tasks that depend on or must run after this task.
+     */
+    public Set<TaskInfo> getExecutionPredecessors() {
+        return executionPredecessors;
+    }
+
+    public int getExecutionOrder() {
+        return executionOrder;
+    }
+
+    /**
+     * The estimated time from the start of this task until all tasks that must wait for it have completed.
+     */
+    public long getCriticalPathDuration() {
+        return criticalPathDuration;
+    }
+
+    public void setCriticalPathDuration(long criticalPathDuration) {
+        this.criticalPathDuration = criticalPathDuration;
+    }
+
+    /**
+     * The files that this task declares, or null when these have not been resolved yet.
+     */
+    TaskDeclaredFiles getDeclaredFiles() {
+        return declaredFiles;
+    }
+
+    void setDeclaredFiles(TaskDeclaredFiles declaredFiles) {
+        this.declaredFiles = declaredFiles;
+    }
+
+    public boolean allExecutionSuccessorsComplete() {
+        return incompleteExecutionSuccessors == 0;
+    }
+
+    public void executionSuccessorCompleted() {
+        assert incompleteExecutionSuccessors > 0;
+        incompleteExecutionSuccessors--;
+    }
+
+    public void executionSuccessorReopened() {
+        incompleteExecutionSuccessors++;
+    }
+
     public int compareTo(TaskInfo otherInfo) {
         return task.compareTo(otherInfo.getTask());
     }
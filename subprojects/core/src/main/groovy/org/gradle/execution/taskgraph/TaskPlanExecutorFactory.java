@@ -20,17 +20,28 @@ import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.ExecutorFactory;
 
 public class TaskPlanExecutorFactory implements Factory<TaskPlanExecutor> {
+    /**
+     * The system property that enables parallel execution of tasks within the same project, for tasks whose declared inputs and outputs do not overlap.
+     */
+    public static final String INTRA_PROJECT_PARALLELIZATION_PROPERTY = "org.gradle.parallel.intra";
+
     private final int parallelThreads;
+    private final boolean intraProjectParallelization;
     private final ExecutorFactory executorFactory;
 
     public TaskPlanExecutorFactory(int parallelThreads, ExecutorFactory executorFactory) {
+        this(parallelThreads, false, executorFactory);
+    }
+
+    public TaskPlanExecutorFactory(int parallelThreads, boolean intraProjectParallelization, ExecutorFactory executorFactory) {
         this.parallelThreads = parallelThreads;
+        this.intraProjectParallelization = intraProjectParallelization;
         this.executorFactory = executorFactory;
     }
 
     public TaskPlanExecutor create() {
         if (executeProjectsInParallel()) {
-            return new ParallelTaskPlanExecutor(numberOfParallelThreads(), executorFactory);
+            return new ParallelTaskPlanExecutor(numberOfParallelThreads(), intraProjectParallelization, executorFactory);
         }
         return new DefaultTaskPlanExecutor();
     }
@@ -16,10 +16,10 @@
 
 package org.gradle.groovy.scripts.internal;
 
+import com.google.common.io.Files;
 import groovy.lang.GroovyClassLoader;
 import groovy.lang.GroovyCodeSource;
 import groovy.lang.Script;
-import groovyjarjarasm.asm.ClassWriter;
 import org.apache.commons.lang.StringUtils;
 import org.codehaus.groovy.ast.expr.ConstantExpression;
 import org.codehaus.groovy.ast.stmt.ReturnStatement;
@@ -36,10 +36,17 @@ import org.gradle.internal.UncheckedException;
 import org.gradle.util.Clock;
 import org.gradle.util.GFileUtils;
 import org.gradle.util.WrapUtil;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.Remapper;
+import org.objectweb.asm.commons.RemappingClassAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.net.URLClassLoader;
 import java.security.CodeSource;
@@ -153,14 +160,32 @@ public class DefaultScriptCompilationHandler implements ScriptCompilationHandler
             URLClassLoader urlClassLoader = new URLClassLoader(WrapUtil.toArray(scriptCacheDir.toURI().toURL()), classLoader);
             return urlClassLoader.loadClass(source.getClassName()).asSubclass(scriptBaseClass);
         } catch (Exception e) {
-            File expectedClassFile = new File(scriptCacheDir, source.getClassName() + ".class");
-            if (!expectedClassFile.exists()) {
-                throw new GradleException(String.format("Could not load compiled classes for %s from cache. Expected class file %s does not exist.", source.getDisplayName(), expectedClassFile.getAbsolutePath()), e);
-            }
-            throw new GradleException(String.format("Could not load compiled classes for %s from cache.", source.getDisplayName()), e);
+            throw loadFailure(source, scriptCacheDir, source.getClassName(), e);
         }
     }
 
+    public <T extends Script> Class<? extends T> loadFromDir(ScriptSource source, String compiledClassName, ClassLoader classLoader, File scriptCacheDir,
+                                                             Class<T> scriptBaseClass) {
+        if (new File(scriptCacheDir, EMPTY_SCRIPT_MARKER_FILE_NAME).isFile()) {
+            return emptyScriptGenerator.generate(scriptBaseClass);
+        }
+
+        try {
+            RemappingScriptClassLoader remappingClassLoader = new RemappingScriptClassLoader(classLoader, scriptCacheDir, compiledClassName, source);
+            return remappingClassLoader.loadClass(source.getClassName()).asSubclass(scriptBaseClass);
+        } catch (Exception e) {
+            throw loadFailure(source, scriptCacheDir, compiledClassName, e);
+        }
+    }
+
+    private GradleException loadFailure(ScriptSource source, File scriptCacheDir, String className, Exception e) {
+        File expectedClassFile = new File(scriptCacheDir, className + ".class");
+        if (!expectedClassFile.exists()) {
+            return new GradleException(String.format("Could not load compiled classes for %s from cache. Expected class file %s does not exist.", source.getDisplayName(), expectedClassFile.getAbsolutePath()), e);
+        }
+        return new GradleException(String.format("Could not load compiled classes for %s from cache.", source.getDisplayName()), e);
+    }
+
     private static class PackageStatementDetector extends CompilationUnit.SourceUnitOperation {
         private boolean hasPackageStatement;
 
@@ -225,7 +250,7 @@ public class DefaultScriptCompilationHandler implements ScriptCompilationHandler
         // because it does not know where Gradle scripts might live.
         @Override
         protected groovyjarjarasm.asm.ClassVisitor createClassVisitor() {
-            return new ClassWriter(ClassWriter.COMPUTE_MAXS) {
+            return new groovyjarjarasm.asm.ClassWriter(groovyjarjarasm.asm.ClassWriter.COMPUTE_MAXS) {
                 @Override
                 public byte[] toByteArray() {
                     // ignore the sourcePath that is given by Groovy (this is only the filename) and instead
@@ -236,4 +261,72 @@ public class DefaultScriptCompilationHandler implements ScriptCompilationHandler
             };
         }
     }
+
+    /**
+     * Defines the classes of a script from class files that were compiled under another class name. The classes are renamed to those of the given
+     * script source, and their source file attribute is replaced with the file name of the source, which is what stack traces are matched against.
+     * Classes declared by the script keep their names, but are otherwise treated the same way.
+     */
+    private static class RemappingScriptClassLoader extends ClassLoader {
+        private final File classesDir;
+        private final String compiledClassName;
+        private final String className;
+        private final String fileName;
+
+        RemappingScriptClassLoader(ClassLoader parent, File classesDir, String compiledClassName, ScriptSource source) {
+            super(parent);
+            this.classesDir = classesDir;
+            this.compiledClassName = compiledClassName;
+            this.className = source.getClassName();
+            this.fileName = source.getFileName();
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            String compiledName = rename(name, className, compiledClassName);
+            File classFile = new File(classesDir, compiledName.replace('.', '/') + ".class");
+            if (!classFile.isFile()) {
+                throw new ClassNotFoundException(name);
+            }
+            byte[] bytecode;
+            try {
+                bytecode = remap(Files.toByteArray(classFile));
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+            return defineClass(name, bytecode, 0, bytecode.length);
+        }
+
+        private byte[] remap(byte[] bytecode) {
+            ClassReader reader = new ClassReader(bytecode);
+            ClassWriter writer = new ClassWriter(0);
+            ClassVisitor sourceFileReplacer = new ClassVisitor(Opcodes.ASM5, writer) {
+                @Override
+                public void visitSource(String source, String debug) {
+                    super.visitSource(fileName, debug);
+                }
+            };
+            reader.accept(new RemappingClassAdapter(sourceFileReplacer, new Remapper() {
+                @Override
+                public String map(String typeName) {
+                    return rename(typeName, compiledClassName, className);
+                }
+            }), 0);
+            return writer.toByteArray();
+        }
+
+        /**
+         * Renames the script class or one of its nested classes. Scripts cannot declare a package, so the binary names and internal names of these
+         * classes are the same.
+         */
+        private static String rename(String name, String from, String to) {
+            if (name.equals(from)) {
+                return to;
+            }
+            if (name.startsWith(from + "$")) {
+                return to + name.substring(from.length());
+            }
+            return name;
+        }
+    }
 }
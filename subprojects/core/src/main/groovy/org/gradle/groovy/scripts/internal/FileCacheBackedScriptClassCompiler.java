@@ -17,105 +17,374 @@ package org.gradle.groovy.scripts.internal;
 
 import groovy.lang.Script;
 import org.codehaus.groovy.classgen.Verifier;
-import org.gradle.api.Action;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.file.TemporaryFileProvider;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.CacheValidator;
 import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.FileLockManager;
+import org.gradle.groovy.scripts.DelegatingScriptSource;
 import org.gradle.groovy.scripts.ScriptSource;
 import org.gradle.groovy.scripts.Transformer;
-import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.classloader.ClassLoaderVisitor;
 import org.gradle.internal.hash.HashUtil;
 import org.gradle.logging.ProgressLogger;
 import org.gradle.logging.ProgressLoggerFactory;
+import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 /**
  * A {@link ScriptClassCompiler} which compiles scripts to a cache directory, and loads them from there.
+ *
+ * <p>The cache is keyed by the content of the script rather than by its location, so that scripts with identical content are compiled once and share a
+ * single cache entry. A script is compiled under a class name derived from its content, and its classes are renamed to those of the script source they
+ * are loaded for. As the compiler resolves the classes the script refers to using the class loader it is compiled with, the key also includes the class
+ * path of that class loader, along with the size and modification time of each of its jars.</p>
+ *
+ * <p>Cache entries are never changed or removed once they are in place, so they are looked up and their classes loaded without locking. An entry is
+ * compiled into a temporary directory that is then moved into place. When another process has put the same entry in place in the meantime, the copy is
+ * discarded. When the cache is invalid, the script is compiled into a new version of its entry, leaving the previous version for any process that may
+ * still be loading classes from it. Older versions are removed. Temporary directories left behind by a process that did not finish compiling are
+ * removed when the cache is next opened.</p>
+ *
+ * <p>Scripts can also be precompiled ahead of their use, from any thread, using a class loader that may see fewer classes than the one the script is
+ * eventually compiled with. The classes that the compiler could not find are recorded, and the precompiled classes are only moved into the cache
+ * if none of these classes is visible to the actual class loader.</p>
  */
 public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileCacheBackedScriptClassCompiler.class);
+    private static final String TMP_DIR_NAME = "tmp";
+    // Long enough for a temporary directory to no longer be in use by the process that created it
+    private static final long STALE_TMP_DIR_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
     private final ScriptCompilationHandler scriptCompilationHandler;
     private ProgressLoggerFactory progressLoggerFactory;
     private final CacheRepository cacheRepository;
     private final CacheValidator validator;
-    private final CompositeStoppable caches = new CompositeStoppable();
+    private final TemporaryFileProvider temporaryFileProvider;
+    private final ConcurrentMap<String, File> entries = new ConcurrentHashMap<String, File>();
+    private final ConcurrentMap<String, Object> entryLocks = new ConcurrentHashMap<String, Object>();
+    private final ConcurrentMap<String, Boolean> precompileRequests = new ConcurrentHashMap<String, Boolean>();
+    private final ConcurrentMap<String, PrecompiledScript> precompiledScripts = new ConcurrentHashMap<String, PrecompiledScript>();
+    private final Map<ClassLoader, String> classPathHashes = Collections.synchronizedMap(new WeakHashMap<ClassLoader, String>());
+    private PersistentCache cache;
+    private File precompiledScriptsDir;
 
-    public FileCacheBackedScriptClassCompiler(CacheRepository cacheRepository, CacheValidator validator, ScriptCompilationHandler scriptCompilationHandler, ProgressLoggerFactory progressLoggerFactory) {
+    public FileCacheBackedScriptClassCompiler(CacheRepository cacheRepository, CacheValidator validator, ScriptCompilationHandler scriptCompilationHandler, ProgressLoggerFactory progressLoggerFactory,
+                                              TemporaryFileProvider temporaryFileProvider) {
         this.cacheRepository = cacheRepository;
         this.validator = validator;
         this.scriptCompilationHandler = scriptCompilationHandler;
         this.progressLoggerFactory = progressLoggerFactory;
+        this.temporaryFileProvider = temporaryFileProvider;
     }
 
     public <T extends Script> Class<? extends T> compile(ScriptSource source, ClassLoader classLoader, Transformer transformer, Class<T> scriptBaseClass, Verifier verifier) {
-        Map<String, Object> properties = new HashMap<String, Object>();
-        properties.put("source.filename", source.getFileName());
-        properties.put("source.hash", HashUtil.createCompactMD5(source.getResource().getText()));
+        ContentAddressedScriptSource compiledSource = new ContentAddressedScriptSource(source);
+        File classesDir = getEntry(compiledSource, classLoader, transformer, scriptBaseClass, verifier);
+        return scriptCompilationHandler.loadFromDir(source, compiledSource.getClassName(), classLoader, classesDir, scriptBaseClass);
+    }
+
+    private File getEntry(ContentAddressedScriptSource source, ClassLoader classLoader, Transformer transformer, Class<? extends Script> scriptBaseClass, Verifier verifier) {
+        String scriptKey = scriptKey(source, transformer, scriptBaseClass);
+        String entryName = scriptKey + "/" + classPathHash(classLoader);
+        File entryDir = entries.get(entryName);
+        if (entryDir != null) {
+            return entryDir;
+        }
+
+        // Compile each script once, but allow different scripts to be compiled concurrently
+        Object newLock = new Object();
+        Object entryLock = entryLocks.putIfAbsent(entryName, newLock);
+        if (entryLock == null) {
+            entryLock = newLock;
+        }
+        synchronized (entryLock) {
+            entryDir = entries.get(entryName);
+            if (entryDir != null) {
+                return entryDir;
+            }
+
+            File versionsDir = new File(getCache().getBaseDir(), entryName);
+            int latestVersion = latestVersion(versionsDir);
+            boolean invalid = !validator.isValid();
+            if (invalid || latestVersion < 0) {
+                File classesDir = createTemporaryEntryDir();
+                try {
+                    PrecompiledScript precompiledScript = precompiledScripts.remove(scriptKey);
+                    if (precompiledScript != null && precompiledScript.isUsableWith(classLoader)) {
+                        GFileUtils.moveDirectory(precompiledScript.classesDir, classesDir);
+                    } else {
+                        compileToDir(source, classLoader, classesDir, transformer, scriptBaseClass, verifier);
+                    }
+                    entryDir = moveIntoPlace(classesDir, new File(versionsDir, String.valueOf(latestVersion + 1)));
+                } finally {
+                    GFileUtils.deleteQuietly(classesDir);
+                }
+                removeVersionsBefore(versionsDir, latestVersion);
+            } else {
+                entryDir = new File(versionsDir, String.valueOf(latestVersion));
+            }
+            entries.put(entryName, entryDir);
+            return entryDir;
+        }
+    }
+
+    /**
+     * Returns the latest version of the given entry that is in place, or -1 when there is none.
+     */
+    private static int latestVersion(File versionsDir) {
+        int latest = -1;
+        String[] versions = versionsDir.list();
+        if (versions == null) {
+            return latest;
+        }
+        for (String version : versions) {
+            try {
+                latest = Math.max(latest, Integer.parseInt(version));
+            } catch (NumberFormatException e) {
+                // Not a version
+            }
+        }
+        return latest;
+    }
 
-        String cacheName = String.format("scripts/%s/%s/%s", source.getClassName(), scriptBaseClass.getSimpleName(), transformer.getId());
-        PersistentCache cache = cacheRepository.cache(cacheName)
-                .withProperties(properties)
-                .withValidator(validator)
-                .withDisplayName(String.format("%s class cache for %s", transformer.getId(), source.getDisplayName()))
-                .withInitializer(new ProgressReportingInitializer(progressLoggerFactory, new CacheInitializer(source, classLoader, transformer, verifier, scriptBaseClass)))
-                .open();
+    /**
+     * Removes the versions of the given entry that are older than the given version.
+     */
+    private static void removeVersionsBefore(File versionsDir, int keepVersion) {
+        String[] versions = versionsDir.list();
+        if (versions == null) {
+            return;
+        }
+        for (String version : versions) {
+            try {
+                if (Integer.parseInt(version) < keepVersion) {
+                    GFileUtils.deleteQuietly(new File(versionsDir, version));
+                }
+            } catch (NumberFormatException e) {
+                // Not a version
+            }
+        }
+    }
 
-        // This isn't quite right. The cache will be closed at the end of the build, releasing the shared lock on the classes. Instead, the cache for a script should be
-        // closed once we no longer require the script classes. This may be earlier than the end of the current build, or it may used across multiple builds
-        caches.add(cache);
+    private void compileToDir(ScriptSource source, ClassLoader classLoader, File classesDir, Transformer transformer, Class<? extends Script> scriptBaseClass, Verifier verifier) {
+        ProgressLogger op = progressLoggerFactory.newOperation(FileCacheBackedScriptClassCompiler.class)
+                .start("Compile script into cache", "Compiling script into cache");
+        try {
+            scriptCompilationHandler.compileToDir(source, classLoader, classesDir, transformer, scriptBaseClass, verifier);
+        } finally {
+            op.completed();
+        }
+    }
+
+    private File moveIntoPlace(File classesDir, File entryDir) {
+        GFileUtils.mkdirs(entryDir.getParentFile());
+        // Fails when another process has put the same version in place, in which case that version is used
+        if (!classesDir.renameTo(entryDir) && !entryDir.isDirectory()) {
+            throw new UncheckedIOException(String.format("Could not move compiled script classes from %s to %s.", classesDir, entryDir));
+        }
+        return entryDir;
+    }
 
-        File classesDir = classesDir(cache);
-        return scriptCompilationHandler.loadFromDir(source, classLoader, classesDir, scriptBaseClass);
+    private File createTemporaryEntryDir() {
+        return new File(new File(getCache().getBaseDir(), TMP_DIR_NAME), UUID.randomUUID().toString());
+    }
+
+    /**
+     * Compiles the given script in preparation for a later call to {@link #compile}, unless the script is already in the cache. Does not fail when the
+     * script cannot be compiled. Can be called concurrently.
+     */
+    public void precompile(ScriptSource source, ClassLoader classLoader, Transformer transformer, Class<? extends Script> scriptBaseClass, Verifier verifier) {
+        ContentAddressedScriptSource compiledSource = new ContentAddressedScriptSource(source);
+        String scriptKey = scriptKey(compiledSource, transformer, scriptBaseClass);
+        if (precompileRequests.putIfAbsent(scriptKey, Boolean.TRUE) != null) {
+            return;
+        }
+
+        File classesDir = new File(getPrecompiledScriptsDir(), scriptKey);
+        MissingClassRecordingClassLoader recordingClassLoader = new MissingClassRecordingClassLoader(classLoader);
+        try {
+            // The script is usually compiled with a class loader that has the same class path as the given one
+            String entryName = scriptKey + "/" + classPathHash(classLoader);
+            if (validator.isValid() && latestVersion(new File(getCache().getBaseDir(), entryName)) >= 0) {
+                return;
+            }
+            scriptCompilationHandler.compileToDir(compiledSource, recordingClassLoader, classesDir, transformer, scriptBaseClass, verifier);
+        } catch (RuntimeException e) {
+            // Report any failure when the script is compiled for real, in the context of its evaluation
+            LOGGER.debug(String.format("Could not precompile %s.", source.getDisplayName()), e);
+            return;
+        }
+        precompiledScripts.put(scriptKey, new PrecompiledScript(classesDir, recordingClassLoader.getMissingClasses()));
+    }
+
+    private synchronized PersistentCache getCache() {
+        if (cache == null) {
+            // Entries are never changed once written, so the cache does not need to be locked
+            cache = cacheRepository.cache("scriptClasses")
+                    .withDisplayName("script class cache")
+                    .withLockOptions(mode(FileLockManager.LockMode.None))
+                    .open();
+            removeStaleTemporaryDirs(new File(cache.getBaseDir(), TMP_DIR_NAME));
+        }
+        return cache;
+    }
+
+    private static void removeStaleTemporaryDirs(File tmpDir) {
+        File[] dirs = tmpDir.listFiles();
+        if (dirs == null) {
+            return;
+        }
+        long staleBefore = System.currentTimeMillis() - STALE_TMP_DIR_AGE_MILLIS;
+        for (File dir : dirs) {
+            if (dir.lastModified() < staleBefore) {
+                GFileUtils.deleteQuietly(dir);
+            }
+        }
+    }
+
+    private synchronized File getPrecompiledScriptsDir() {
+        if (precompiledScriptsDir == null) {
+            precompiledScriptsDir = temporaryFileProvider.createTemporaryDirectory("gradle", "scripts");
+        }
+        return precompiledScriptsDir;
+    }
+
+    private String scriptKey(ContentAddressedScriptSource source, Transformer transformer, Class<? extends Script> scriptBaseClass) {
+        return String.format("%s/%s/%s", source.getContentHash(), scriptBaseClass.getSimpleName(), transformer.getId());
+    }
+
+    /**
+     * Returns a hash of the class path of the given class loader. Calculated once for each class loader, as its class path does not change once classes
+     * have been loaded from it.
+     */
+    String classPathHash(ClassLoader classLoader) {
+        String hash = classPathHashes.get(classLoader);
+        if (hash == null) {
+            final StringBuilder classPath = new StringBuilder();
+            new ClassLoaderVisitor() {
+                @Override
+                public void visitClassPath(URL[] urls) {
+                    for (URL url : urls) {
+                        classPath.append(url).append('\n');
+                        if (url.getProtocol().equals("file")) {
+                            File file = new File(url.getPath());
+                            if (file.isFile()) {
+                                classPath.append(file.length()).append('/').append(file.lastModified()).append('\n');
+                            }
+                        }
+                    }
+                }
+            }.visit(classLoader);
+            hash = HashUtil.createCompactMD5(classPath.toString());
+            classPathHashes.put(classLoader, hash);
+        }
+        return hash;
     }
 
     public void close() {
-        caches.stop();
+        try {
+            synchronized (this) {
+                if (cache != null) {
+                    cache.close();
+                    cache = null;
+                }
+            }
+        } finally {
+            entries.clear();
+            entryLocks.clear();
+            precompileRequests.clear();
+            precompiledScripts.clear();
+            classPathHashes.clear();
+            if (precompiledScriptsDir != null) {
+                GFileUtils.deleteDirectory(precompiledScriptsDir);
+                precompiledScriptsDir = null;
+            }
+        }
     }
 
-    private File classesDir(PersistentCache cache) {
-        return new File(cache.getBaseDir(), "classes");
+    /**
+     * A script source whose class name is derived from the content of the script, rather than from its location.
+     */
+    private static class ContentAddressedScriptSource extends DelegatingScriptSource {
+        private final String contentHash;
+
+        private ContentAddressedScriptSource(ScriptSource source) {
+            super(source);
+            this.contentHash = HashUtil.createCompactMD5(source.getResource().getText());
+        }
+
+        String getContentHash() {
+            return contentHash;
+        }
+
+        @Override
+        public String getClassName() {
+            return "script_" + contentHash;
+        }
     }
 
-    private class CacheInitializer implements Action<PersistentCache> {
-        private final Verifier verifier;
-        private final Class<? extends Script> scriptBaseClass;
-        private final ClassLoader classLoader;
-        private final Transformer transformer;
-        private final ScriptSource source;
+    private static class PrecompiledScript {
+        private final File classesDir;
+        private final Set<String> missingClasses;
 
-        private CacheInitializer(ScriptSource source, ClassLoader classLoader, Transformer transformer, Verifier verifier, Class<? extends Script> scriptBaseClass) {
-            this.source = source;
-            this.classLoader = classLoader;
-            this.transformer = transformer;
-            this.verifier = verifier;
-            this.scriptBaseClass = scriptBaseClass;
+        private PrecompiledScript(File classesDir, Set<String> missingClasses) {
+            this.classesDir = classesDir;
+            this.missingClasses = missingClasses;
         }
 
-        public void execute(PersistentCache cache) {
-            File classesDir = classesDir(cache);
-            scriptCompilationHandler.compileToDir(source, classLoader, classesDir, transformer, scriptBaseClass, verifier);
+        /**
+         * Returns true when the given class loader cannot see any of the classes that were missing when the script was precompiled, so that compiling
+         * the script with this class loader would produce the same classes.
+         */
+        boolean isUsableWith(ClassLoader classLoader) {
+            for (String className : missingClasses) {
+                try {
+                    classLoader.loadClass(className);
+                    return false;
+                } catch (ClassNotFoundException e) {
+                    // Still missing
+                } catch (LinkageError e) {
+                    return false;
+                }
+            }
+            return true;
         }
     }
 
-    static class ProgressReportingInitializer implements Action<PersistentCache> {
-        private ProgressLoggerFactory progressLoggerFactory;
-        private Action<? super PersistentCache> delegate;
+    private static class MissingClassRecordingClassLoader extends ClassLoader {
+        private final Set<String> missingClasses = new HashSet<String>();
 
-        public ProgressReportingInitializer(ProgressLoggerFactory progressLoggerFactory, Action<PersistentCache> delegate) {
-            this.progressLoggerFactory = progressLoggerFactory;
-            this.delegate = delegate;
+        private MissingClassRecordingClassLoader(ClassLoader parent) {
+            super(parent);
         }
 
-        public void execute(PersistentCache cache) {
-            ProgressLogger op = progressLoggerFactory.newOperation(FileCacheBackedScriptClassCompiler.class)
-                    .start("Compile script into cache", "Compiling script into cache");
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
             try {
-                delegate.execute(cache);
-            } finally {
-                op.completed();
+                return super.loadClass(name, resolve);
+            } catch (ClassNotFoundException e) {
+                synchronized (missingClasses) {
+                    missingClasses.add(name);
+                }
+                throw e;
+            }
+        }
+
+        Set<String> getMissingClasses() {
+            synchronized (missingClasses) {
+                return new HashSet<String>(missingClasses);
             }
         }
     }
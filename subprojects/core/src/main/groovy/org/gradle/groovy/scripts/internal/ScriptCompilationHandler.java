@@ -28,4 +28,11 @@ public interface ScriptCompilationHandler {
 
     <T extends Script> Class<? extends T> loadFromDir(ScriptSource source, ClassLoader classLoader, File scriptCacheDir,
                                        Class<T> scriptBaseClass);
+
+    /**
+     * Loads the classes of a script that were compiled under the given class name, possibly from another script source with the same content. The
+     * classes are renamed to the class name of the given source, and refer to the file of the given source in their debug information.
+     */
+    <T extends Script> Class<? extends T> loadFromDir(ScriptSource source, String compiledClassName, ClassLoader classLoader, File scriptCacheDir,
+                                       Class<T> scriptBaseClass);
 }
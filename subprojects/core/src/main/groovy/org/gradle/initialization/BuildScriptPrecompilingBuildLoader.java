@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.initialization;
+
+import org.gradle.api.Project;
+import org.gradle.api.initialization.ProjectDescriptor;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.initialization.ClassLoaderScope;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.configuration.BuildScriptPrecompiler;
+import org.gradle.groovy.scripts.ScriptSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles the build scripts of all projects once the projects have been loaded, so that the evaluation of the projects finds the scripts in the cache.
+ */
+public class BuildScriptPrecompilingBuildLoader implements BuildLoader {
+    private final BuildLoader buildLoader;
+    private final BuildScriptPrecompiler precompiler;
+
+    public BuildScriptPrecompilingBuildLoader(BuildLoader buildLoader, BuildScriptPrecompiler precompiler) {
+        this.buildLoader = buildLoader;
+        this.precompiler = precompiler;
+    }
+
+    public void load(ProjectDescriptor rootProjectDescriptor, ProjectDescriptor defaultProject, GradleInternal gradle, ClassLoaderScope classLoaderScope) {
+        buildLoader.load(rootProjectDescriptor, defaultProject, gradle, classLoaderScope);
+
+        // With configure on demand, only some of the projects will be evaluated
+        if (gradle.getStartParameter().isConfigureOnDemand()) {
+            return;
+        }
+        List<ScriptSource> buildScripts = new ArrayList<ScriptSource>();
+        for (Project project : gradle.getRootProject().getAllprojects()) {
+            buildScripts.add(((ProjectInternal) project).getBuildScriptSource());
+        }
+        precompiler.precompile(buildScripts, classLoaderScope.getExportClassLoader());
+    }
+}
@@ -30,6 +30,7 @@ import org.gradle.api.internal.component.ComponentTypeRegistry;
 import org.gradle.api.internal.component.DefaultComponentTypeRegistry;
 import org.gradle.api.internal.file.FileLookup;
 import org.gradle.api.internal.file.FileResolver;
+import org.gradle.api.internal.file.TemporaryFileProvider;
 import org.gradle.api.internal.initialization.DefaultScriptHandlerFactory;
 import org.gradle.api.internal.initialization.ScriptHandlerFactory;
 import org.gradle.api.internal.plugins.CorePluginRegistry;
@@ -55,6 +56,7 @@ import org.gradle.internal.Factory;
 import org.gradle.internal.TimeProvider;
 import org.gradle.internal.TrueTimeProvider;
 import org.gradle.internal.classloader.ClassLoaderFactory;
+import org.gradle.internal.concurrent.BatchExecutor;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.id.LongIdGenerator;
 import org.gradle.internal.reflect.Instantiator;
@@ -75,6 +77,7 @@ import org.gradle.process.internal.WorkerProcessBuilder;
 import org.gradle.process.internal.child.WorkerProcessClassPathProvider;
 import org.gradle.profile.ProfileEventAdapter;
 import org.gradle.profile.ProfileListener;
+import org.gradle.profile.TaskPhaseRecorder;
 import org.gradle.util.GradleVersion;
 
 /**
@@ -134,14 +137,27 @@ public class BuildScopeServices extends DefaultServiceRegistry {
         return new DefaultActorFactory(get(ExecutorFactory.class));
     }
 
+    /**
+     * A pool of threads, bounded for the whole build, that is used to spread work such as hashing files or compiling scripts over the available processors.
+     */
+    protected BatchExecutor createBatchExecutor() {
+        return BatchExecutor.create(get(ExecutorFactory.class), "Batch worker");
+    }
+
     protected IGradlePropertiesLoader createGradlePropertiesLoader() {
         return new DefaultGradlePropertiesLoader(get(StartParameter.class));
     }
 
     protected BuildLoader createBuildLoader() {
-        return new ProjectPropertySettingBuildLoader(
-                get(IGradlePropertiesLoader.class),
-                new InstantiatingBuildLoader(get(IProjectFactory.class)));
+        return new BuildScriptPrecompilingBuildLoader(
+                new ProjectPropertySettingBuildLoader(
+                        get(IGradlePropertiesLoader.class),
+                        new InstantiatingBuildLoader(get(IProjectFactory.class))),
+                new BuildScriptPrecompiler(
+                        get(FileCacheBackedScriptClassCompiler.class),
+                        get(ImportsReader.class),
+                        get(DocumentationRegistry.class),
+                        get(BatchExecutor.class)));
     }
 
     protected CacheRepository createCacheRepository() {
@@ -189,7 +205,8 @@ public class BuildScopeServices extends DefaultServiceRegistry {
         return new AsmBackedEmptyScriptGenerator();
     }
 
-    protected FileCacheBackedScriptClassCompiler createFileCacheBackedScriptClassCompiler(CacheRepository cacheRepository, EmptyScriptGenerator emptyScriptGenerator, final StartParameter startParameter, ProgressLoggerFactory progressLoggerFactory) {
+    protected FileCacheBackedScriptClassCompiler createFileCacheBackedScriptClassCompiler(CacheRepository cacheRepository, EmptyScriptGenerator emptyScriptGenerator, final StartParameter startParameter, ProgressLoggerFactory progressLoggerFactory,
+                                                                                           TemporaryFileProvider temporaryFileProvider) {
         CacheValidator scriptCacheInvalidator = new CacheValidator() {
             public boolean isValid() {
                 return !startParameter.isRecompileScripts();
@@ -200,7 +217,8 @@ public class BuildScopeServices extends DefaultServiceRegistry {
                 scriptCacheInvalidator,
                 new DefaultScriptCompilationHandler(
                         emptyScriptGenerator),
-                progressLoggerFactory
+                progressLoggerFactory,
+                temporaryFileProvider
         );
     }
 
@@ -275,8 +293,12 @@ public class BuildScopeServices extends DefaultServiceRegistry {
         return new DefaultProjectAccessListener();
     }
 
+    protected TaskPhaseRecorder createTaskPhaseRecorder() {
+        return new TaskPhaseRecorder();
+    }
+
     protected ProfileEventAdapter createProfileEventAdapter() {
-        return new ProfileEventAdapter(get(BuildRequestMetaData.class), get(TimeProvider.class), get(ListenerManager.class).getBroadcaster(ProfileListener.class));
+        return new ProfileEventAdapter(get(BuildRequestMetaData.class), get(TimeProvider.class), get(ListenerManager.class).getBroadcaster(ProfileListener.class), get(TaskPhaseRecorder.class));
     }
 
     protected PluginRegistry createPluginRegistry() {
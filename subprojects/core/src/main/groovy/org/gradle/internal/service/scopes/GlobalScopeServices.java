@@ -19,6 +19,7 @@ package org.gradle.internal.service.scopes;
 import org.gradle.StartParameter;
 import org.gradle.api.internal.*;
 import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
+import org.gradle.api.internal.changedetection.state.WatchedFileSnapshotCache;
 import org.gradle.api.internal.classpath.DefaultModuleRegistry;
 import org.gradle.api.internal.classpath.DefaultPluginModuleRegistry;
 import org.gradle.api.internal.classpath.ModuleRegistry;
@@ -157,6 +158,10 @@ public class GlobalScopeServices {
         return new InMemoryTaskArtifactCache();
     }
 
+    WatchedFileSnapshotCache createWatchedFileSnapshotCache() {
+        return WatchedFileSnapshotCache.create(environment.isLongLivingProcess());
+    }
+
     DefaultFileLockContentionHandler createFileLockContentionHandler(ExecutorFactory executorFactory, MessagingServices messagingServices) {
         return new DefaultFileLockContentionHandler(
                 executorFactory,
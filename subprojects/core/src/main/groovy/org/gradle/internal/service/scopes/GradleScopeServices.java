@@ -19,6 +19,7 @@ import org.gradle.StartParameter;
 import org.gradle.api.internal.DependencyInjectingInstantiator;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.artifacts.dsl.dependencies.ProjectFinder;
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository;
 import org.gradle.api.internal.plugins.DefaultPluginContainer;
 import org.gradle.api.internal.plugins.PluginRegistry;
 import org.gradle.api.internal.project.ProjectInternal;
@@ -29,6 +30,7 @@ import org.gradle.execution.commandline.CommandLineTaskConfigurer;
 import org.gradle.execution.commandline.CommandLineTaskParser;
 import org.gradle.execution.taskgraph.DefaultTaskGraphExecuter;
 import org.gradle.execution.taskgraph.TaskPlanExecutor;
+import org.gradle.execution.taskgraph.TaskPlanExecutorFactory;
 import org.gradle.initialization.BuildCancellationToken;
 import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.service.DefaultServiceRegistry;
@@ -88,7 +90,11 @@ public class GradleScopeServices extends DefaultServiceRegistry {
         };
     }
 
-    TaskGraphExecuter createTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, BuildCancellationToken cancellationToken) {
+    TaskGraphExecuter createTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, BuildCancellationToken cancellationToken, StartParameter startParameter, TaskDurationRepository taskDurationRepository) {
+        if (startParameter.getParallelThreadCount() != 0) {
+            boolean intraProjectParallelization = Boolean.getBoolean(TaskPlanExecutorFactory.INTRA_PROJECT_PARALLELIZATION_PROPERTY);
+            return new DefaultTaskGraphExecuter(listenerManager, taskPlanExecutor, cancellationToken, taskDurationRepository, intraProjectParallelization);
+        }
         return new DefaultTaskGraphExecuter(listenerManager, taskPlanExecutor, cancellationToken);
     }
 
@@ -22,6 +22,8 @@ import org.gradle.api.internal.changedetection.changes.DefaultTaskArtifactStateR
 import org.gradle.api.internal.changedetection.changes.ShortCircuitTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.state.*;
 import org.gradle.api.internal.hash.DefaultHasher;
+import org.gradle.api.internal.hash.Hasher;
+import org.gradle.api.internal.hash.Murmur3Hasher;
 import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.api.internal.tasks.execution.*;
 import org.gradle.api.invocation.Gradle;
@@ -29,6 +31,8 @@ import org.gradle.cache.CacheRepository;
 import org.gradle.cache.internal.CacheDecorator;
 import org.gradle.execution.taskgraph.TaskPlanExecutor;
 import org.gradle.execution.taskgraph.TaskPlanExecutorFactory;
+import org.gradle.internal.TimeProvider;
+import org.gradle.internal.concurrent.BatchExecutor;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.environment.GradleBuildEnvironment;
 import org.gradle.internal.id.RandomLongIdGenerator;
@@ -36,37 +40,57 @@ import org.gradle.internal.reflect.Instantiator;
 import org.gradle.listener.ListenerManager;
 import org.gradle.messaging.serialize.DefaultSerializerRegistry;
 import org.gradle.messaging.serialize.SerializerRegistry;
+import org.gradle.profile.TaskExecutionPhase;
+import org.gradle.profile.TaskPhaseRecorder;
 
 public class TaskExecutionServices {
-    TaskExecuter createTaskExecuter(TaskArtifactStateRepository repository, ListenerManager listenerManager) {
-        return new ExecuteAtMostOnceTaskExecuter(
-                new SkipOnlyIfTaskExecuter(
+    TaskExecuter createTaskExecuter(TaskArtifactStateRepository repository, ListenerManager listenerManager, StartParameter startParameter, TaskDurationRepository taskDurationRepository, TimeProvider timeProvider,
+                                    TaskPhaseRecorder taskPhaseRecorder) {
+        TaskExecuter actionsExecuter = new ExecuteActionsTaskExecuter(listenerManager.getBroadcaster(TaskActionListener.class));
+        if (startParameter.isProfile()) {
+            actionsExecuter = new RecordTaskPhaseTaskExecuter(TaskExecutionPhase.EXECUTE_ACTIONS, taskPhaseRecorder, actionsExecuter);
+        }
+        if (startParameter.getParallelThreadCount() != 0) {
+            // Durations are only used to prioritise long running tasks when executing in parallel. Only record them for tasks whose
+            // actions run, so that a skipped or up-to-date task does not replace the duration of its last real execution
+            actionsExecuter = new RecordTaskDurationTaskExecuter(taskDurationRepository, timeProvider, actionsExecuter);
+        }
+        TaskExecuter executer = new SkipOnlyIfTaskExecuter(
                         new SkipTaskWithNoActionsExecuter(
                                 new SkipEmptySourceFilesTaskExecuter(
                                         new ValidatingTaskExecuter(
                                                 new SkipUpToDateTaskExecuter(repository,
-                                                        new PostExecutionAnalysisTaskExecuter(
-                                                                new ExecuteActionsTaskExecuter(
-                                                                        listenerManager.getBroadcaster(TaskActionListener.class)
-                                                                ))))))));
+                                                        new PostExecutionAnalysisTaskExecuter(actionsExecuter))))));
+        return new ExecuteAtMostOnceTaskExecuter(executer);
     }
 
-    TaskArtifactStateCacheAccess createCacheAccess(Gradle gradle, CacheRepository cacheRepository, InMemoryTaskArtifactCache inMemoryTaskArtifactCache, GradleBuildEnvironment environment) {
+    TaskArtifactStateCacheAccess createCacheAccess(Gradle gradle, CacheRepository cacheRepository, InMemoryTaskArtifactCache inMemoryTaskArtifactCache, GradleBuildEnvironment environment,
+                                                   StartParameter startParameter, TaskPhaseRecorder taskPhaseRecorder) {
         CacheDecorator decorator;
         if (environment.isLongLivingProcess()) {
             decorator = inMemoryTaskArtifactCache;
         } else {
             decorator = new NoOpDecorator();
         }
-        return new DefaultTaskArtifactStateCacheAccess(gradle, cacheRepository, decorator);
+        TaskArtifactStateCacheAccess cacheAccess = new DefaultTaskArtifactStateCacheAccess(gradle, cacheRepository, decorator);
+        if (startParameter.isProfile()) {
+            return new ProfilingTaskArtifactStateCacheAccess(cacheAccess, taskPhaseRecorder);
+        }
+        return cacheAccess;
+    }
+
+    TaskDurationRepository createTaskDurationRepository(TaskArtifactStateCacheAccess cacheAccess) {
+        return new CacheBackedTaskDurationRepository(cacheAccess);
     }
 
-    FileSnapshotter createFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess) {
-        return new CachingFileSnapshotter(new DefaultHasher(), cacheAccess);
+    FileSnapshotter createFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess, WatchedFileSnapshotCache watchedFileSnapshotCache) {
+        Hasher hasher = Boolean.getBoolean(Murmur3Hasher.ENABLED_PROPERTY) ? new Murmur3Hasher() : new DefaultHasher();
+        return watchedFileSnapshotCache.decorate(new CachingFileSnapshotter(hasher, cacheAccess));
     }
 
-    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, TaskArtifactStateCacheAccess cacheAccess, StartParameter startParameter, FileSnapshotter fileSnapshotter) {
-        FileCollectionSnapshotter fileCollectionSnapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess);
+    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, TaskArtifactStateCacheAccess cacheAccess, StartParameter startParameter, FileSnapshotter fileSnapshotter,
+                                                                  BatchExecutor batchExecutor, TaskPhaseRecorder taskPhaseRecorder) {
+        FileCollectionSnapshotter fileCollectionSnapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, batchExecutor);
 
         FileCollectionSnapshotter outputFilesSnapshotter = new OutputFilesCollectionSnapshotter(fileCollectionSnapshotter, new RandomLongIdGenerator(), cacheAccess);
 
@@ -74,10 +98,20 @@ public class TaskExecutionServices {
         fileCollectionSnapshotter.registerSerializers(serializerRegistry);
         outputFilesSnapshotter.registerSerializers(serializerRegistry);
 
-        TaskHistoryRepository taskHistoryRepository = new CacheBackedTaskHistoryRepository(cacheAccess,
-                new CacheBackedFileSnapshotRepository(cacheAccess,
-                        serializerRegistry.build(),
-                        new RandomLongIdGenerator()));
+        FileSnapshotRepository fileSnapshotRepository = new CacheBackedFileSnapshotRepository(cacheAccess,
+                serializerRegistry.build(),
+                new RandomLongIdGenerator());
+        if (startParameter.isProfile()) {
+            fileSnapshotRepository = new ProfilingFileSnapshotRepository(fileSnapshotRepository, taskPhaseRecorder);
+        }
+        TaskHistoryRepository taskHistoryRepository = new CacheBackedTaskHistoryRepository(cacheAccess, fileSnapshotRepository);
+
+        FileCollectionSnapshotter inputFilesSnapshotter = fileCollectionSnapshotter;
+        if (startParameter.isProfile()) {
+            taskHistoryRepository = new ProfilingTaskHistoryRepository(taskHistoryRepository, taskPhaseRecorder);
+            inputFilesSnapshotter = new ProfilingFileCollectionSnapshotter(inputFilesSnapshotter, TaskExecutionPhase.SNAPSHOT_INPUTS, taskPhaseRecorder);
+            outputFilesSnapshotter = new ProfilingFileCollectionSnapshotter(outputFilesSnapshotter, TaskExecutionPhase.SNAPSHOT_OUTPUTS, taskPhaseRecorder);
+        }
 
         return new ShortCircuitTaskArtifactStateRepository(
                         startParameter,
@@ -86,12 +120,13 @@ public class TaskExecutionServices {
                                 taskHistoryRepository,
                                 instantiator,
                                 outputFilesSnapshotter,
-                                fileCollectionSnapshotter
+                                inputFilesSnapshotter
                         )
         );
     }
 
     TaskPlanExecutor createTaskExecutorFactory(StartParameter startParameter, ExecutorFactory executorFactory) {
-        return new TaskPlanExecutorFactory(startParameter.getParallelThreadCount(), executorFactory).create();
+        boolean intraProjectParallelization = Boolean.getBoolean(TaskPlanExecutorFactory.INTRA_PROJECT_PARALLELIZATION_PROPERTY);
+        return new TaskPlanExecutorFactory(startParameter.getParallelThreadCount(), intraProjectParallelization, executorFactory).create();
     }
 }
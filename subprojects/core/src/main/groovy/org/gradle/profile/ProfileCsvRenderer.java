@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.profile;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.util.GFileUtils;
+
+import java.io.*;
+
+/**
+ * Writes the task executions of a build profile as CSV, one row per task, with the time in milliseconds spent in each {@link TaskExecutionPhase}.
+ * The phases may overlap, for example waiting for the cache lock happens while snapshotting files.
+ */
+public class ProfileCsvRenderer {
+    public void writeTo(BuildProfile buildProfile, File file) {
+        GFileUtils.parentMkdirs(file);
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+            try {
+                render(buildProfile, writer);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Could not write profile to '%s'.", file), e);
+        }
+    }
+
+    void render(BuildProfile buildProfile, Writer writer) throws IOException {
+        writer.write("task,durationMs,status");
+        for (TaskExecutionPhase phase : TaskExecutionPhase.values()) {
+            writer.write(",");
+            writer.write(phase.getId());
+            writer.write("Ms");
+        }
+        writer.write("\n");
+        for (ProjectProfile project : buildProfile.getProjects()) {
+            for (TaskExecution taskExecution : project.getTasks()) {
+                writer.write(quote(taskExecution.getPath()));
+                writer.write(",");
+                writer.write(String.valueOf(taskExecution.getElapsedTime()));
+                writer.write(",");
+                writer.write(quote(taskExecution.getStatus()));
+                for (TaskExecutionPhase phase : TaskExecutionPhase.values()) {
+                    writer.write(",");
+                    writer.write(String.valueOf(taskExecution.getPhaseDuration(phase)));
+                }
+                writer.write("\n");
+            }
+        }
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
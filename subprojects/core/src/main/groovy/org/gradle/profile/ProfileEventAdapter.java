@@ -38,12 +38,14 @@ public class ProfileEventAdapter implements BuildListener, ProjectEvaluationList
     private final BuildRequestMetaData buildMetaData;
     private final TimeProvider timeProvider;
     private final ProfileListener listener;
+    private final TaskPhaseRecorder taskPhaseRecorder;
     private BuildProfile buildProfile;
 
-    public ProfileEventAdapter(BuildRequestMetaData buildMetaData, TimeProvider timeProvider, ProfileListener listener) {
+    public ProfileEventAdapter(BuildRequestMetaData buildMetaData, TimeProvider timeProvider, ProfileListener listener, TaskPhaseRecorder taskPhaseRecorder) {
         this.buildMetaData = buildMetaData;
         this.timeProvider = timeProvider;
         this.listener = listener;
+        this.taskPhaseRecorder = taskPhaseRecorder;
     }
 
     // BuildListener
@@ -97,6 +99,8 @@ public class ProfileEventAdapter implements BuildListener, ProjectEvaluationList
         Project project = task.getProject();
         ProjectProfile projectProfile = buildProfile.getProjectProfile(project.getPath());
         projectProfile.getTaskProfile(task.getPath()).setStart(now);
+        // Discard anything recorded by this thread outside of task execution
+        taskPhaseRecorder.takeDurations();
     }
 
     public void afterExecute(Task task, TaskState state) {
@@ -106,6 +110,7 @@ public class ProfileEventAdapter implements BuildListener, ProjectEvaluationList
         TaskExecution taskExecution = projectProfile.getTaskProfile(task.getPath());
         taskExecution.setFinish(now);
         taskExecution.completed(state);
+        taskExecution.setPhaseDurations(taskPhaseRecorder.takeDurations());
     }
 
     // DependencyResolutionListener
@@ -32,9 +32,10 @@ public class ReportGeneratingProfileListener extends BuildAdapter implements Pro
     }
 
     public void buildFinished(BuildProfile buildProfile) {
+        String baseName = "reports/profile/profile-" + FILE_DATE_FORMAT.format(new Date(buildProfile.getBuildStarted()));
         ProfileReportRenderer renderer = new ProfileReportRenderer();
-        File file = new File(buildDir, "reports/profile/profile-" + FILE_DATE_FORMAT.format(new Date(buildProfile.getBuildStarted())) + ".html");
-        renderer.writeTo(buildProfile, file);
+        renderer.writeTo(buildProfile, new File(buildDir, baseName + ".html"));
+        new ProfileCsvRenderer().writeTo(buildProfile, new File(buildDir, baseName + ".csv"));
     }
 }
 
@@ -17,6 +17,9 @@ package org.gradle.profile;
 
 import org.gradle.api.tasks.TaskState;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 /**
  * Container for task profiling information.
  * This includes timestamps around task execution and the resulting task status.
@@ -27,6 +30,7 @@ public class TaskExecution extends ContinuousOperation {
 
     private final String path;
     private TaskState state;
+    private final Map<TaskExecutionPhase, Long> phaseDurations = new EnumMap<TaskExecutionPhase, Long>(TaskExecutionPhase.class);
 
     public TaskExecution(String taskPath) {
         super(taskPath);
@@ -52,4 +56,17 @@ public class TaskExecution extends ContinuousOperation {
         this.state = state;
         return this;
     }
+
+    /**
+     * Returns the time in milliseconds spent in the given phase of executing the task.
+     */
+    public long getPhaseDuration(TaskExecutionPhase phase) {
+        Long duration = phaseDurations.get(phase);
+        return duration == null ? 0 : duration;
+    }
+
+    public TaskExecution setPhaseDurations(Map<TaskExecutionPhase, Long> phaseDurations) {
+        this.phaseDurations.putAll(phaseDurations);
+        return this;
+    }
 }
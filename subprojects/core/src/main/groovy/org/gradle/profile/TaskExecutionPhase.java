@@ -0,0 +1,47 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.profile;
+
+/**
+ * The parts of executing a task that are timed separately when profiling.
+ */
+public enum TaskExecutionPhase {
+    SNAPSHOT_INPUTS("snapshotInputs"),
+    SNAPSHOT_OUTPUTS("snapshotOutputs"),
+    /**
+     * Reading and writing the task history, excluding the snapshots.
+     */
+    TASK_HISTORY("taskHistory"),
+    EXECUTE_ACTIONS("executeActions"),
+    /**
+     * Waiting for the task history cache to become available. Overlaps the other phases.
+     */
+    CACHE_LOCK_WAIT("cacheLockWait");
+
+    private final String id;
+
+    TaskExecutionPhase(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns the identifier of this phase, as used in reports.
+     */
+    public String getId() {
+        return id;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.profile;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accumulates the time spent in each {@link TaskExecutionPhase} by the current thread. A task is executed by a single thread, so the times
+ * recorded between {@link #takeDurations()} calls belong to the task that the thread is executing.
+ *
+ * <p>A phase may be started again while it is in progress, in which case only the outermost start and finish are timed.</p>
+ */
+public class TaskPhaseRecorder {
+    private final ThreadLocal<PhaseTimes> times = new ThreadLocal<PhaseTimes>() {
+        @Override
+        protected PhaseTimes initialValue() {
+            return new PhaseTimes();
+        }
+    };
+
+    public void start(TaskExecutionPhase phase) {
+        PhaseTimes phaseTimes = times.get();
+        int index = phase.ordinal();
+        if (phaseTimes.depth[index]++ == 0) {
+            phaseTimes.started[index] = System.nanoTime();
+        }
+    }
+
+    public void finish(TaskExecutionPhase phase) {
+        PhaseTimes phaseTimes = times.get();
+        int index = phase.ordinal();
+        if (--phaseTimes.depth[index] == 0) {
+            phaseTimes.elapsed[index] += System.nanoTime() - phaseTimes.started[index];
+        }
+    }
+
+    /**
+     * Returns the time in milliseconds that the current thread has spent in each phase since the previous call, and starts again from zero.
+     */
+    public Map<TaskExecutionPhase, Long> takeDurations() {
+        PhaseTimes phaseTimes = times.get();
+        Map<TaskExecutionPhase, Long> durations = new EnumMap<TaskExecutionPhase, Long>(TaskExecutionPhase.class);
+        for (TaskExecutionPhase phase : TaskExecutionPhase.values()) {
+            durations.put(phase, TimeUnit.NANOSECONDS.toMillis(phaseTimes.elapsed[phase.ordinal()]));
+            phaseTimes.elapsed[phase.ordinal()] = 0;
+        }
+        return durations;
+    }
+
+    private static class PhaseTimes {
+        final int[] depth = new int[TaskExecutionPhase.values().length];
+        final long[] started = new long[TaskExecutionPhase.values().length];
+        final long[] elapsed = new long[TaskExecutionPhase.values().length];
+    }
+}
@@ -110,6 +110,11 @@ public class InMemoryCacheFactory implements CacheFactory {
             return action.create();
         }
 
+        public <T> T updateFiles(Factory<? extends T> action) {
+            assertNotClosed();
+            return action.create();
+        }
+
         public void longRunningOperation(String operationDisplayName, Runnable action) {
             assertNotClosed();
             action.run();
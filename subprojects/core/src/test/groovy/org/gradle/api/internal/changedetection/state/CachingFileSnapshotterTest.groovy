@@ -16,13 +16,18 @@
 
 package org.gradle.api.internal.changedetection.state
 
+import org.gradle.api.internal.hash.DefaultHasher
 import org.gradle.api.internal.hash.Hasher
+import org.gradle.api.internal.hash.Murmur3Hasher
 import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.concurrent.BatchExecutor
+import org.gradle.messaging.serialize.SerializerSpec
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
-import spock.lang.Specification
 
-class CachingFileSnapshotterTest extends Specification {
+import java.util.concurrent.Executors
+
+class CachingFileSnapshotterTest extends SerializerSpec {
     @Rule
     TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
     def target = Mock(Hasher)
@@ -34,6 +39,7 @@ class CachingFileSnapshotterTest extends Specification {
 
     def setup() {
         file.write("some-content")
+        _ * target.algorithm >> "TEST"
         1 * cacheAccess.createCache("fileHashes", _, _) >> cache
         hasher = new CachingFileSnapshotter(target, cacheAccess);
     }
@@ -64,7 +70,7 @@ class CachingFileSnapshotterTest extends Specification {
         result.hash == hash
 
         and:
-        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(hash, 1024, file.lastModified())
+        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo("TEST", hash, 1024, file.lastModified())
         1 * target.hash(file) >> hash
         1 * cache.put(file, _) >> { File key, CachingFileSnapshotter.FileInfo fileInfo ->
             fileInfo.hash == hash
@@ -82,7 +88,7 @@ class CachingFileSnapshotterTest extends Specification {
         result.hash == hash
 
         and:
-        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), 124)
+        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo("TEST", hash, file.length(), 124)
         1 * target.hash(file) >> hash
         1 * cache.put(file, _) >> { File key, CachingFileSnapshotter.FileInfo fileInfo ->
             fileInfo.hash == hash
@@ -92,6 +98,22 @@ class CachingFileSnapshotterTest extends Specification {
         0 * _._
     }
 
+    def hashesFileWhenCachedHashWasCreatedUsingDifferentAlgorithm() {
+        when:
+        def result = hasher.snapshot(file)
+
+        then:
+        result.hash == hash
+
+        and:
+        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo("OTHER", "other".bytes, file.length(), file.lastModified())
+        1 * target.hash(file) >> hash
+        1 * cache.put(file, _) >> { File key, CachingFileSnapshotter.FileInfo fileInfo ->
+            fileInfo.hash == hash
+        }
+        0 * _._
+    }
+
     def doesNotHashFileWhenTimestampAndLengthHaveNotChanged() {
         when:
         def result = hasher.snapshot(file)
@@ -100,7 +122,61 @@ class CachingFileSnapshotterTest extends Specification {
         result.hash == hash
 
         and:
-        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), file.lastModified())
+        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo("TEST", hash, file.length(), file.lastModified())
         0 * _._
     }
+
+    def hashesOnlyChangedFilesWhenSnapshottingManyFiles() {
+        def unchanged = tmpDir.createFile("unchanged")
+        def otherHash = "other".bytes
+        def executor = Executors.newFixedThreadPool(2)
+
+        when:
+        def result = hasher.snapshot([file, unchanged], new BatchExecutor(executor, 2))
+
+        then:
+        result*.hash == [hash, otherHash]
+
+        and:
+        1 * cache.get(file) >> null
+        1 * cache.get(unchanged) >> new CachingFileSnapshotter.FileInfo("TEST", otherHash, unchanged.length(), unchanged.lastModified())
+        1 * target.hash(file) >> hash
+        1 * cache.put(file, _) >> { File key, CachingFileSnapshotter.FileInfo fileInfo ->
+            fileInfo.hash == hash
+            fileInfo.length == file.length()
+            fileInfo.timestamp == file.lastModified()
+        }
+        0 * _._
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    def "serializes file info with the algorithm as a single byte"() {
+        def serializer = new CachingFileSnapshotter.FileInfoSerializer()
+        def info = new CachingFileSnapshotter.FileInfo(algorithm, hash, 1024, 123)
+
+        when:
+        def bytes = toBytes(info, serializer)
+        def result = fromBytes(bytes, serializer)
+
+        then:
+        bytes.length == 1 + 1 + hash.length + 8 + 8
+        result.algorithm == algorithm
+        result.hash == hash
+        result.length == 1024
+        result.timestamp == 123
+
+        where:
+        algorithm << [DefaultHasher.ALGORITHM, Murmur3Hasher.ALGORITHM]
+    }
+
+    def "does not serialize file info of an unknown algorithm"() {
+        when:
+        toBytes(new CachingFileSnapshotter.FileInfo("TEST", hash, 1024, 123), new CachingFileSnapshotter.FileInfoSerializer())
+
+        then:
+        IllegalArgumentException e = thrown()
+        e.message == "Cannot serialize hash of unknown algorithm 'TEST'."
+    }
 }
@@ -17,6 +17,8 @@ package org.gradle.api.internal.changedetection.state
 
 import org.gradle.api.file.FileCollection
 import org.gradle.api.file.FileTree
+import org.gradle.internal.concurrent.BatchExecutor
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.hash.HashUtil
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -27,7 +29,9 @@ import spock.lang.Specification
 public class DefaultFileCollectionSnapshotterTest extends Specification {
     def fileSnapshotter = Stub(FileSnapshotter)
     def cacheAccess = Stub(TaskArtifactStateCacheAccess)
-    def snapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess)
+    def executorFactory = new DefaultExecutorFactory()
+    def batchExecutor = new BatchExecutor(executorFactory.create("test"), 3)
+    def snapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, batchExecutor)
 
     def listener = Mock(ChangeListener)
     @Rule
@@ -35,15 +39,23 @@ public class DefaultFileCollectionSnapshotterTest extends Specification {
 
     def setup() {
         fileSnapshotter.snapshot(_) >> { File file ->
-            return Stub(FileSnapshot) {
-                getHash() >> HashUtil.sha1(file).asByteArray()
-            }
+            return snapshot(file)
+        }
+        fileSnapshotter.snapshot(_, _) >> { List<File> files, BatchExecutor batchExecutor ->
+            return files.collect { snapshot(it) }
+        }
+        fileSnapshotter.findSnapshots(_) >> { List<File> files ->
+            return files.collect { null }
         }
         cacheAccess.useCache(_, _) >> { String name, Runnable action ->
             action.run()
         }
     }
 
+    def cleanup() {
+        executorFactory.stop()
+    }
+
     def getFilesReturnsOnlyTheFilesWhichExisted() {
         given:
         TestFile file = tmpDir.createFile('file1')
@@ -342,6 +354,53 @@ public class DefaultFileCollectionSnapshotterTest extends Specification {
         0 * _
     }
 
+    def diffMergesAddedChangedAndRemovedFilesIntoSnapshot() {
+        TestFile a = tmpDir.createFile('a')
+        TestFile b = tmpDir.createFile('b')
+        TestFile c = tmpDir.createFile('c')
+        TestFile d = tmpDir.createFile('d')
+        TestFile e = tmpDir.createFile('e')
+        TestFile f = tmpDir.createFile('f')
+        TestFile g = tmpDir.createFile('g')
+
+        when:
+        FileCollectionSnapshot original = snapshotter.snapshot(files(b, c, d, f))
+        FileCollectionSnapshot target = snapshotter.snapshot(files(b, c, d, f, g))
+        d.write('new content')
+        FileCollectionSnapshot modified = snapshotter.snapshot(files(a, c, d, e))
+        FileCollectionSnapshot merged = modified.changesSince(original).applyTo(target)
+        FileCollectionSnapshot expected = snapshotter.snapshot(files(a, c, d, e, g))
+        merged.iterateChangesSince(expected).next(listener)
+        expected.iterateChangesSince(merged).next(listener)
+
+        then:
+        merged.files.files == [a, c, d, e, g] as Set
+        0 * listener._
+    }
+
+    def checksFilesConcurrentlyWhenThereAreManyOfThem() {
+        given:
+        def inputs = (1..500).collect { tmpDir.createFile("file$it").write("content $it") } + (1..10).collect { tmpDir.createDir("dir$it") } + tmpDir.file("missing")
+        def serialSnapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, BatchExecutor.SERIAL)
+        def concurrentSnapshotter = snapshotter
+
+        when:
+        def serial = serialSnapshotter.snapshot(files(inputs as File[]))
+        def concurrent = concurrentSnapshotter.snapshot(files(inputs as File[]))
+        concurrent.iterateChangesSince(serial).next(listener)
+
+        then:
+        concurrent.files.files == serial.files.files
+        concurrent.files.files.size() == 500
+        0 * listener._
+    }
+
+    private FileSnapshot snapshot(File file) {
+        return Stub(FileSnapshot) {
+            getHash() >> HashUtil.sha1(file).asByteArray()
+        }
+    }
+
     private FileCollection files(File... files) {
         FileTree collection = Mock(FileTree.class)
         _ * collection.asFileTree >> collection
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.changedetection.state
 
+import org.gradle.internal.hash.HashUtil
 import org.gradle.messaging.serialize.SerializerSpec
 
 class DefaultFileSnapshotterSerializerTest extends SerializerSpec {
@@ -35,4 +36,24 @@ class DefaultFileSnapshotterSerializerTest extends SerializerSpec {
         out.snapshots['2'] instanceof DefaultFileCollectionSnapshotter.MissingFileSnapshot
         ((DefaultFileCollectionSnapshotter.FileHashSnapshot) out.snapshots['3']).hash == "foo".bytes
     }
+
+    def "writes only the part of each path that differs from the previous path"() {
+        def paths = (1..100).collect { "/some/long/path/to/a/source/directory/org/gradle/File${it}.java".toString() }
+        def snapshots = paths.collectEntries { [it, new DefaultFileCollectionSnapshotter.FileHashSnapshot(hash(it))] }
+
+        when:
+        def bytes = toBytes(new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(snapshots), serializer)
+        DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl out = fromBytes(bytes, serializer)
+
+        then:
+        out.snapshots.keySet() == paths as Set
+        paths.every { ((DefaultFileCollectionSnapshotter.FileHashSnapshot) out.snapshots[it]).hash == hash(it) }
+
+        and:
+        bytes.length < paths.sum { it.length() }
+    }
+
+    private static byte[] hash(String path) {
+        return HashUtil.createHash(path, "MD5").asByteArray()
+    }
 }
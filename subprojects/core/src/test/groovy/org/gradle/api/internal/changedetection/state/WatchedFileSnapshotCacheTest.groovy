@@ -0,0 +1,242 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.internal.concurrent.BatchExecutor
+import spock.lang.Specification
+
+class WatchedFileSnapshotCacheTest extends Specification {
+    def watcher = Mock(DirectoryWatcher)
+    def target = Mock(FileSnapshotter)
+    def cache = new WatchedFileSnapshotCache(watcher)
+    def dir = new File("dir").absoluteFile
+    def file = new File(dir, "file")
+    def snapshot = Stub(FileSnapshot)
+
+    def "reuses snapshot in later build when directory has not changed"() {
+        when:
+        def result = cache.decorate(target).snapshot(file)
+
+        then:
+        result == snapshot
+
+        and:
+        2 * watcher.pollChanges(_)
+        1 * watcher.watch(dir) >> true
+        1 * watcher.getDirectoryKey(dir) >> "key"
+        1 * target.snapshot([file], _) >> [snapshot]
+        0 * _
+
+        when:
+        result = cache.decorate(target).snapshot(file)
+
+        then:
+        result == snapshot
+
+        and:
+        1 * watcher.pollChanges(_)
+        1 * watcher.getDirectoryKey(dir) >> "key"
+        0 * _
+    }
+
+    def "checks file again when it has changed"() {
+        given:
+        def snapshotter = cache.decorate(target)
+        _ * watcher.watch(dir) >> true
+        _ * watcher.getDirectoryKey(dir) >> "key"
+        1 * target.snapshot([file], _) >> [Stub(FileSnapshot)]
+        snapshotter.snapshot(file)
+
+        when:
+        def result = snapshotter.snapshot(file)
+
+        then:
+        result == snapshot
+
+        and:
+        1 * watcher.pollChanges(_) >> { DirectoryWatcher.Listener listener -> listener.changed(file) }
+        0 * watcher.unwatch(_)
+        1 * target.snapshot([file], _) >> [snapshot]
+    }
+
+    def "keeps snapshots of other files in directory when a file has changed"() {
+        given:
+        def other = new File(dir, "other")
+        def snapshotter = cache.decorate(target)
+        _ * watcher.watch(dir) >> true
+        _ * watcher.getDirectoryKey(dir) >> "key"
+        1 * target.snapshot([file, other], _) >> [snapshot, Stub(FileSnapshot)]
+        snapshotter.snapshot([file, other], BatchExecutor.SERIAL)
+
+        when:
+        def result = snapshotter.snapshot(file)
+
+        then:
+        result == snapshot
+
+        and:
+        1 * watcher.pollChanges(_) >> { DirectoryWatcher.Listener listener -> listener.changed(other) }
+        0 * target._
+    }
+
+    def "finds known snapshots without looking at files"() {
+        given:
+        def other = new File(dir, "other")
+        def snapshotter = cache.decorate(target)
+        _ * watcher.watch(dir) >> true
+        _ * watcher.getDirectoryKey(dir) >> "key"
+        1 * target.snapshot([file], _) >> [snapshot]
+        snapshotter.snapshot(file)
+
+        when:
+        def result = snapshotter.findSnapshots([file, other])
+
+        then:
+        result == [snapshot, null]
+
+        and:
+        1 * watcher.pollChanges(_)
+        0 * target._
+    }
+
+    def "checks all files in directory again when directory has been removed"() {
+        given:
+        def snapshotter = cache.decorate(target)
+        _ * watcher.watch(dir) >> true
+        _ * watcher.getDirectoryKey(dir) >> "key"
+        1 * target.snapshot([file], _) >> [Stub(FileSnapshot)]
+        snapshotter.snapshot(file)
+
+        when:
+        def result = snapshotter.snapshot(file)
+
+        then:
+        result == snapshot
+
+        and:
+        1 * watcher.pollChanges(_) >> { DirectoryWatcher.Listener listener -> listener.directoryRemoved(dir) }
+        1 * watcher.unwatch(dir)
+        1 * target.snapshot([file], _) >> [snapshot]
+    }
+
+    def "discards snapshots of least recently used directories when there are too many"() {
+        given:
+        def cache = new WatchedFileSnapshotCache(watcher, 2)
+        def snapshotter = cache.decorate(target)
+        def dirs = (1..3).collect { new File("dir${it}").absoluteFile }
+        def files = dirs.collect { new File(it, "file") }
+        _ * watcher.watch(_) >> true
+        _ * watcher.getDirectoryKey(_) >> "key"
+        _ * target.snapshot(_, _) >> [Stub(FileSnapshot)]
+        snapshotter.snapshot(files[0])
+        snapshotter.snapshot(files[1])
+        snapshotter.snapshot(files[0])
+
+        when:
+        snapshotter.snapshot(files[2])
+
+        then:
+        1 * target.snapshot([files[2]], _) >> [snapshot]
+        1 * watcher.unwatch(dirs[1])
+        0 * watcher.unwatch(_)
+
+        when:
+        snapshotter.snapshot(files[0])
+        snapshotter.snapshot(files[2])
+
+        then:
+        0 * target.snapshot(_, _)
+    }
+
+    def "checks file again when changes have been lost"() {
+        given:
+        def snapshotter = cache.decorate(target)
+        _ * watcher.watch(dir) >> true
+        _ * watcher.getDirectoryKey(dir) >> "key"
+        1 * target.snapshot([file], _) >> [Stub(FileSnapshot)]
+        snapshotter.snapshot(file)
+
+        when:
+        def result = snapshotter.snapshot(file)
+
+        then:
+        result == snapshot
+
+        and:
+        1 * watcher.pollChanges(_) >> { DirectoryWatcher.Listener listener -> listener.changesLost() }
+        1 * target.snapshot([file], _) >> [snapshot]
+    }
+
+    def "checks file again in later build when directory has been replaced"() {
+        given:
+        _ * watcher.watch(dir) >> true
+        1 * watcher.getDirectoryKey(dir) >> "key"
+        1 * target.snapshot([file], _) >> [Stub(FileSnapshot)]
+        cache.decorate(target).snapshot(file)
+
+        when:
+        def result = cache.decorate(target).snapshot(file)
+
+        then:
+        result == snapshot
+
+        and:
+        _ * watcher.getDirectoryKey(dir) >> "other"
+        1 * target.snapshot([file], _) >> [snapshot]
+    }
+
+    def "does not keep snapshot when file changes while it is being checked"() {
+        given:
+        def snapshotter = cache.decorate(target)
+        _ * watcher.watch(dir) >> true
+        _ * watcher.getDirectoryKey(dir) >> "key"
+
+        when:
+        snapshotter.snapshot(file)
+
+        then:
+        1 * watcher.pollChanges(_)
+        1 * target.snapshot([file], _) >> [snapshot]
+
+        then:
+        1 * watcher.pollChanges(_) >> { DirectoryWatcher.Listener listener -> listener.changed(file) }
+
+        when:
+        snapshotter.snapshot(file)
+
+        then:
+        1 * target.snapshot([file], _) >> [snapshot]
+    }
+
+    def "does not keep snapshot when directory cannot be watched"() {
+        given:
+        def snapshotter = cache.decorate(target)
+        _ * watcher.watch(dir) >> false
+
+        when:
+        snapshotter.snapshot(file)
+        snapshotter.snapshot(file)
+
+        then:
+        2 * target.snapshot([file], _) >> [snapshot]
+    }
+
+    def "does not decorate snapshotter when not enabled"() {
+        expect:
+        WatchedFileSnapshotCache.create(false).decorate(target).is(target)
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state.jdk7
+
+import org.gradle.api.internal.changedetection.state.DirectoryWatcher
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
+import org.junit.Rule
+import spock.lang.Specification
+
+@Requires(TestPrecondition.LINUX)
+class WatchServiceDirectoryWatcherTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def watcher = new WatchServiceDirectoryWatcher()
+    def listener = Mock(DirectoryWatcher.Listener)
+
+    def cleanup() {
+        watcher.stop()
+    }
+
+    def "notifies listener when file in watched directory changes"() {
+        def dir = tmpDir.createDir("dir")
+        def file = dir.createFile("file")
+
+        given:
+        watcher.watch(dir)
+
+        when:
+        file.text = "changed"
+        watcher.pollChanges(listener)
+
+        then:
+        (1.._) * listener.changed(file)
+        0 * listener._
+    }
+
+    def "notifies listener when watched directory is removed"() {
+        def dir = tmpDir.createDir("dir")
+
+        given:
+        watcher.watch(dir)
+
+        when:
+        dir.deleteDir()
+        watcher.pollChanges(listener)
+
+        then:
+        1 * listener.directoryRemoved(dir)
+    }
+
+    def "does not notify listener when nothing has changed"() {
+        def dir = tmpDir.createDir("dir")
+        dir.createFile("file")
+
+        given:
+        watcher.watch(dir)
+
+        when:
+        watcher.pollChanges(listener)
+
+        then:
+        0 * listener._
+    }
+
+    def "does not notify listener of changes once directory is no longer watched"() {
+        def dir = tmpDir.createDir("dir")
+        def file = dir.createFile("file")
+
+        given:
+        watcher.watch(dir)
+        watcher.unwatch(dir)
+
+        when:
+        file.text = "changed"
+        watcher.pollChanges(listener)
+
+        then:
+        0 * listener._
+    }
+
+    def "identifies a replaced directory"() {
+        def dir = tmpDir.createDir("dir")
+        def key = watcher.getDirectoryKey(dir)
+
+        when:
+        dir.renameTo(tmpDir.file("old"))
+        tmpDir.createDir("dir")
+
+        then:
+        key != null
+        watcher.getDirectoryKey(dir) != key
+        watcher.getDirectoryKey(tmpDir.file("missing")) == null
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash
+
+import com.google.common.hash.Hashing
+import org.gradle.api.UncheckedIOException
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class Murmur3HasherTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def hasher = new Murmur3Hasher()
+
+    @Unroll
+    def "produces same hash as Guava for file of #size bytes"() {
+        def bytes = new byte[size]
+        new Random(size).nextBytes(bytes)
+        def file = tmpDir.file("content.bin")
+        file.bytes = bytes
+
+        expect:
+        hasher.hash(file) == Hashing.murmur3_128().hashBytes(bytes).asBytes()
+
+        where:
+        size << [0, 1, 8, 15, 16, 17, 64 * 1024 - 1, 64 * 1024 + 1, 4 * 1024 * 1024, 5 * 1024 * 1024 + 7]
+    }
+
+    def "produces different hashes for different content"() {
+        def file1 = tmpDir.file("file1").write("content")
+        def file2 = tmpDir.file("file2").write("other content")
+
+        expect:
+        hasher.hash(file1) != hasher.hash(file2)
+        hasher.hash(file1) == hasher.hash(file1)
+    }
+
+    def "reports missing file"() {
+        def file = tmpDir.file("missing")
+
+        when:
+        hasher.hash(file)
+
+        then:
+        UncheckedIOException e = thrown()
+        e.message == "Failed to create MURMUR3_128 hash for file ${file.absolutePath}."
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.execution
+
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository
+import org.gradle.api.internal.tasks.TaskExecuter
+import org.gradle.api.internal.tasks.TaskExecutionContext
+import org.gradle.api.internal.tasks.TaskStateInternal
+import org.gradle.internal.TimeProvider
+import spock.lang.Specification
+
+class RecordTaskDurationTaskExecuterTest extends Specification {
+    final TaskExecuter target = Mock()
+    final TaskInternal task = Mock()
+    final TaskStateInternal state = Mock()
+    final TaskExecutionContext executionContext = Mock()
+    final TaskDurationRepository taskDurationRepository = Mock()
+    final TimeProvider timeProvider = Mock()
+    final RecordTaskDurationTaskExecuter executer = new RecordTaskDurationTaskExecuter(taskDurationRepository, timeProvider, target)
+
+    def "records duration of task execution"() {
+        when:
+        executer.execute(task, state, executionContext)
+
+        then:
+        1 * timeProvider.currentTime >> 1000L
+
+        then:
+        1 * target.execute(task, state, executionContext)
+
+        then:
+        1 * timeProvider.currentTime >> 1250L
+
+        then:
+        1 * taskDurationRepository.recordDuration(task, 250L)
+        0 * _
+    }
+}
@@ -537,6 +537,113 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
         0 * _
     }
 
+    def "uses shared lock for unit of work when readers share the lock"() {
+        Factory<String> action = Mock()
+
+        when:
+        access.open(mode(None).useSharedLockForReads())
+        access.useCache("some operation", action)
+
+        then:
+        1 * lockManager.lock(lockFile, mode(Shared).useSharedLockForReads(), "<display-name>", "some operation") >> lock
+        1 * initializationAction.requiresInitialization(lock) >> false
+        1 * lockManager.allowContention(lock, _ as Runnable)
+        1 * action.create()
+        _ * lock.mode >> Shared
+        _ * lock.state
+        1 * lock.close()
+        0 * _._
+
+        and:
+        !access.owner
+    }
+
+    def "upgrades to exclusive lock to initialize cache when readers share the lock"() {
+        def sharedLock = Mock(FileLock)
+        def exclusiveLock = Mock(FileLock)
+        Factory<String> action = Mock()
+
+        when:
+        access.open(mode(None).useSharedLockForReads())
+        access.useCache("some operation", action)
+
+        then:
+        1 * lockManager.lock(lockFile, mode(Shared).useSharedLockForReads(), "<display-name>", "some operation") >> sharedLock
+        1 * initializationAction.requiresInitialization(sharedLock) >> true
+        _ * sharedLock.mode >> Shared
+        1 * sharedLock.close()
+
+        then:
+        1 * lockManager.lock(lockFile, mode(Exclusive).useSharedLockForReads(), "<display-name>", "some operation") >> exclusiveLock
+        1 * initializationAction.requiresInitialization(exclusiveLock) >> true
+        _ * exclusiveLock.mode >> Exclusive
+        1 * exclusiveLock.writeFile(_) >> { Runnable r -> r.run() }
+        1 * initializationAction.initialize(exclusiveLock)
+
+        then:
+        1 * action.create()
+        0 * exclusiveLock.close()
+    }
+
+    def "upgrades to exclusive lock when unit of work that holds shared lock writes to the cache"() {
+        def sharedLock = Mock(FileLock)
+        def exclusiveLock = Mock(FileLock)
+        def sharedState = Mock(FileLock.State)
+        def action = Mock(Runnable)
+
+        given:
+        lockManager.lock(lockFile, mode(Shared).useSharedLockForReads(), "<display-name>", "some operation") >> sharedLock
+        sharedLock.mode >> Shared
+        sharedLock.state >> sharedState
+        exclusiveLock.mode >> Exclusive
+        access.open(mode(None).useSharedLockForReads())
+
+        when:
+        access.useCache("some operation") {
+            access.fileAccess.writeFile(action)
+        }
+
+        then:
+        1 * sharedLock.close()
+
+        then:
+        1 * lockManager.lock(lockFile, mode(Exclusive).useSharedLockForReads(), "<display-name>", "some operation") >> exclusiveLock
+
+        then:
+        1 * exclusiveLock.writeFile(action)
+        0 * exclusiveLock.close()
+    }
+
+    def "upgrades to exclusive lock when unit of work that holds shared lock updates files"() {
+        def sharedLock = Mock(FileLock)
+        def exclusiveLock = Mock(FileLock)
+        Factory<String> action = Mock()
+
+        given:
+        lockManager.lock(lockFile, mode(Shared).useSharedLockForReads(), "<display-name>", "some operation") >> sharedLock
+        sharedLock.mode >> Shared
+        exclusiveLock.mode >> Exclusive
+        access.open(mode(None).useSharedLockForReads())
+
+        when:
+        def result = access.useCache("some operation", {
+            access.updateFiles(action)
+        } as Factory)
+
+        then:
+        result == "result"
+
+        and:
+        1 * sharedLock.close()
+
+        then:
+        1 * lockManager.lock(lockFile, mode(Exclusive).useSharedLockForReads(), "<display-name>", "some operation") >> exclusiveLock
+
+        then:
+        1 * action.create() >> "result"
+        0 * exclusiveLock.close()
+    }
+
     def "can close cache when there is no owner"() {
         given:
         lockManager.lock(lockFile, mode(Exclusive), "<display-name>", "use cache") >> lock
@@ -552,4 +659,59 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
         1 * lock.close()
     }
 
-}
\ No newline at end of file
+    def "does not discard content of corrupt cache while holding shared lock"() {
+        def cacheAccess = new DefaultCacheAccess("<display-name>", lockFile, cacheDir, lockManager, initializationAction)
+        def cacheFile = cacheDir.createDir().file("cache.bin")
+        cacheFile.text = "some junk"
+
+        given:
+        lockManager.lock(lockFile, mode(Shared), "<display-name>") >> lock
+        lock.mode >> Shared
+        lock.readFile(_) >> { Factory action -> action.create() }
+        lock.writeFile(_) >> { throw new InsufficientLockModeException("An exclusive lock is required for this operation") }
+        cacheAccess.open(mode(Shared))
+        def cache = cacheAccess.newCache(new PersistentIndexedCacheParameters('cache', String.class, Integer.class))
+
+        when:
+        cache.get("key")
+
+        then:
+        thrown(InsufficientLockModeException)
+        cacheFile.text == "some junk"
+
+        cleanup:
+        cacheAccess.close()
+    }
+
+    def "upgrades to exclusive lock to discard content of corrupt cache when readers share the lock"() {
+        def cacheAccess = new DefaultCacheAccess("<display-name>", lockFile, cacheDir, lockManager, initializationAction)
+        def cacheFile = cacheDir.createDir().file("cache.bin")
+        cacheFile.text = "some junk"
+        def sharedLock = Mock(FileLock)
+        def exclusiveLock = Mock(FileLock)
+
+        given:
+        lockManager.lock(lockFile, mode(Shared).useSharedLockForReads(), "<display-name>", "some operation") >> sharedLock
+        sharedLock.mode >> Shared
+        sharedLock.readFile(_) >> { Factory action -> action.create() }
+        lockManager.lock(lockFile, mode(Exclusive).useSharedLockForReads(), "<display-name>", "some operation") >> exclusiveLock
+        exclusiveLock.mode >> Exclusive
+        exclusiveLock.readFile(_) >> { Factory action -> action.create() }
+        exclusiveLock.writeFile(_) >> { Runnable action -> action.run() }
+        cacheAccess.open(mode(None).useSharedLockForReads())
+        def cache = cacheAccess.newCache(new PersistentIndexedCacheParameters('cache', String.class, Integer.class))
+
+        when:
+        def result = cacheAccess.useCache("some operation", { cache.get("key") } as Factory)
+
+        then:
+        result == null
+        !cacheFile.text.startsWith("some junk")
+
+        and:
+        1 * sharedLock.close()
+
+        cleanup:
+        cacheAccess.close()
+    }
+}
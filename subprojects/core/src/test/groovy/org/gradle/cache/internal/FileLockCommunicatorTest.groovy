@@ -26,6 +26,7 @@ class FileLockCommunicatorTest extends ConcurrentSpecification {
 
     def communicator = new FileLockCommunicator(new InetAddressFactory())
     Long receivedId
+    FileLockPacket receivedPacket
 
     def cleanup() {
         communicator.stop()
@@ -46,7 +47,7 @@ class FileLockCommunicatorTest extends ConcurrentSpecification {
 
     def "can receive lock id"() {
         start {
-            receivedId = communicator.receive()
+            receivedId = communicator.receive().lockId
         }
 
         poll {
@@ -62,6 +63,64 @@ class FileLockCommunicatorTest extends ConcurrentSpecification {
         }
     }
 
+    def "can confirm release of lock to requester"() {
+        def requester = new FileLockCommunicator(new InetAddressFactory())
+        FileLockPacket request = null
+
+        start {
+            request = communicator.receive()
+        }
+        start {
+            receivedPacket = requester.receive()
+        }
+
+        when:
+        requester.pingOwner(communicator.getPort(), 155, "lock")
+
+        then:
+        poll {
+            assert request != null
+        }
+        request.type == FileLockPacket.Type.UNLOCK_REQUEST_WITH_RELEASE_NOTIFICATION
+        request.lockId == 155
+
+        when:
+        communicator.confirmReleased(request.sender, 155)
+
+        then:
+        poll {
+            assert receivedPacket != null
+        }
+        receivedPacket.type == FileLockPacket.Type.LOCK_RELEASED
+        receivedPacket.lockId == 155
+
+        cleanup:
+        requester?.stop()
+    }
+
+    def "can receive unlock request from older versions"() {
+        start {
+            receivedPacket = communicator.receive()
+        }
+
+        when:
+        def bytes = new ByteArrayOutputStream()
+        def output = new DataOutputStream(bytes)
+        output.writeByte(1)
+        output.writeLong(177)
+        output.flush()
+        def socket = new DatagramSocket()
+        socket.send(new DatagramPacket(bytes.toByteArray(), bytes.size(), InetAddress.getByName(null), communicator.getPort()))
+        socket.close()
+
+        then:
+        poll {
+            assert receivedPacket != null
+        }
+        receivedPacket.type == FileLockPacket.Type.UNLOCK_REQUEST
+        receivedPacket.lockId == 177
+    }
+
     def "may not receive after the stop"() {
         communicator.stop()
         when:
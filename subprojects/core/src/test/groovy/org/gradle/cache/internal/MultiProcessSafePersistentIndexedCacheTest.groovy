@@ -30,6 +30,27 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         cache.get("value")
 
         then:
+        2 * fileAccess.readFile(!null) >> { Factory action -> action.create() }
+        1 * factory.create() >> backingCache
+        0 * fileAccess.writeFile(_)
+    }
+
+    def "holds write lock while opening cache when its integrity cannot be guaranteed"() {
+        when:
+        cache.get("value")
+
+        then:
+        1 * fileAccess.readFile(!null) >> { throw new FileIntegrityViolationException("broken") }
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * factory.create() >> backingCache
+    }
+
+    def "holds write lock while opening cache when cache cannot be created under current lock"() {
+        when:
+        cache.get("value")
+
+        then:
+        1 * fileAccess.readFile(!null) >> { throw new InsufficientLockModeException("shared") }
         1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
         1 * factory.create() >> backingCache
     }
@@ -50,6 +71,23 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         0 * _._
     }
 
+    def "holds write lock while getting entry from corrupt cache"() {
+        given:
+        cacheOpened()
+
+        when:
+        def result = cache.get("value")
+
+        then:
+        result == null
+
+        and:
+        1 * fileAccess.readFile(!null) >> { throw new InsufficientLockModeException("shared") }
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.get("value")
+        0 * _._
+    }
+
     def "holds write lock while putting entry into cache"() {
         given:
         cacheOpened()
@@ -76,9 +114,12 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         0 * _._
     }
 
-    def "holds write lock while closing cache"() {
+    def "holds write lock while closing cache after it has been modified"() {
         given:
         cacheOpened()
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.put("key", "value")
+        cache.put("key", "value")
 
         when:
         cache.close()
@@ -89,7 +130,7 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         0 * _._
     }
 
-    def "closes cache when closed"() {
+    def "closes cache without write lock when it has not been modified"() {
         given:
         cacheOpened()
 
@@ -97,11 +138,43 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         cache.close()
 
         then:
-        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
         1 * backingCache.close()
         0 * _._
     }
 
+    def "resets open cache when it has been changed by another process"() {
+        def state1 = Mock(FileLock.State)
+        def state2 = Mock(FileLock.State)
+
+        given:
+        cacheOpened()
+        cache.onEndWork(state1)
+
+        when:
+        cache.onStartWork("update", state2)
+
+        then:
+        1 * state2.hasBeenUpdatedSince(state1) >> true
+        1 * backingCache.reset()
+        0 * _._
+    }
+
+    def "does not reset open cache when it has not been changed"() {
+        def state1 = Mock(FileLock.State)
+        def state2 = Mock(FileLock.State)
+
+        given:
+        cacheOpened()
+        cache.onEndWork(state1)
+
+        when:
+        cache.onStartWork("update", state2)
+
+        then:
+        1 * state2.hasBeenUpdatedSince(state1) >> false
+        0 * _._
+    }
+
     def "does nothing on close when cache is not open"() {
         when:
         cache.close()
@@ -117,7 +190,6 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         cache.close()
 
         then:
-        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
         1 * backingCache.close()
         0 * _._
 
@@ -129,7 +201,7 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
     }
 
     def cacheOpened() {
-        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        2 * fileAccess.readFile(!null) >> { Factory action -> action.create() }
         1 * factory.create() >> backingCache
         
         cache.get("something")
@@ -15,6 +15,7 @@
  */
 package org.gradle.cache.internal.btree;
 
+import org.gradle.cache.internal.InsufficientLockModeException;
 import org.gradle.messaging.serialize.DefaultSerializer;
 import org.gradle.messaging.serialize.Serializer;
 import org.gradle.test.fixtures.file.TestFile;
@@ -31,6 +32,7 @@ import java.util.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 public class BTreePersistentIndexedCacheTest {
     @Rule
@@ -234,6 +236,40 @@ public class BTreePersistentIndexedCacheTest {
         cache.verify();
     }
 
+    @Test
+    public void doesNotDiscardBadlyFormedCacheFileWhenNotAllowed() throws IOException {
+        cacheFile.write("some junk");
+
+        try {
+            new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, new NeverDiscard());
+            fail();
+        } catch (InsufficientLockModeException e) {
+            assertThat(e.getMessage(), equalTo("cannot discard"));
+        }
+
+        assertThat(cacheFile.getText(), equalTo("some junk"));
+    }
+
+    @Test
+    public void doesNotDiscardCorruptEntriesWhenNotAllowed() throws IOException {
+        cache.put("key_1", 99);
+        cache.close();
+        RandomAccessFile file = new RandomAccessFile(cacheFile, "rw");
+        file.setLength(file.length() - 10);
+        file.close();
+        long length = cacheFile.length();
+
+        BTreePersistentIndexedCache<String, Integer> cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, new NeverDiscard());
+        try {
+            cache.get("key_1");
+            fail();
+        } catch (InsufficientLockModeException e) {
+            assertThat(e.getMessage(), equalTo("cannot discard"));
+        }
+
+        assertThat(cacheFile.length(), equalTo(length));
+    }
+
     @Test
     public void canUseFileAsKey() {
         BTreePersistentIndexedCache<File, Integer> cache = new BTreePersistentIndexedCache<File, Integer>(cacheFile, new DefaultSerializer<File>(), integerSerializer);
@@ -313,4 +349,10 @@ public class BTreePersistentIndexedCacheTest {
         }
     }
 
-}
\ No newline at end of file
+
+    private static class NeverDiscard implements BTreePersistentIndexedCache.DiscardCheck {
+        public void checkCanDiscard() {
+            throw new InsufficientLockModeException("cannot discard");
+        }
+    }
+}
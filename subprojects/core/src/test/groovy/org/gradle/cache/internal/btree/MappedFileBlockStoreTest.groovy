@@ -0,0 +1,163 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree
+
+import org.gradle.messaging.serialize.DefaultSerializer
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class MappedFileBlockStoreTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    final cacheFile = tmpDir.file("cache.bin")
+
+    def "persists entries that span multiple regions"() {
+        given:
+        def cache = cache(new MappedFileBlockStore(cacheFile, 64))
+
+        when:
+        (1..100).each { cache.put("key_$it", "value_$it".multiply(it)) }
+        cache.reset()
+
+        then:
+        (1..100).every { cache.get("key_$it") == "value_$it".multiply(it) }
+        cache.verify()
+
+        cleanup:
+        cache.close()
+    }
+
+    def "can read entries written by file backed store"() {
+        given:
+        def fileCache = cache(new FileBackedBlockStore(cacheFile))
+        (1..20).each { fileCache.put("key_$it", "value_$it") }
+        fileCache.close()
+
+        when:
+        def mappedCache = cache(new MappedFileBlockStore(cacheFile, 128))
+
+        then:
+        (1..20).every { mappedCache.get("key_$it") == "value_$it" }
+        mappedCache.verify()
+
+        cleanup:
+        mappedCache.close()
+    }
+
+    def "file backed store can read entries written by mapped store"() {
+        given:
+        def mappedCache = cache(new MappedFileBlockStore(cacheFile, 128))
+        (1..20).each { mappedCache.put("key_$it", "value_$it") }
+        mappedCache.remove("key_10")
+        mappedCache.close()
+
+        when:
+        def fileCache = cache(new FileBackedBlockStore(cacheFile))
+
+        then:
+        fileCache.get("key_10") == null
+        ((1..9) + (11..20)).every { fileCache.get("key_$it") == "value_$it" }
+        fileCache.verify()
+
+        cleanup:
+        fileCache.close()
+    }
+
+    def "rebuilds corrupt file after regions of it have been mapped"() {
+        given:
+        def cache = cache(new MappedFileBlockStore(cacheFile, 64))
+        (1..20).each { cache.put("key_$it", "value_$it") }
+        cache.reset()
+        assert cache.get("key_1") == "value_1"
+
+        when:
+        def file = new RandomAccessFile(cacheFile, "rw")
+        file.seek(64)
+        file.write(new byte[(int) (file.length() - 64)])
+        file.close()
+
+        then:
+        cache.get("key_2") == null
+
+        when:
+        cache.put("key_1", "value")
+
+        then:
+        cache.get("key_1") == "value"
+        cache.verify()
+
+        cleanup:
+        cache.close()
+    }
+
+    def "reads blocks that another store appended after regions of the file were mapped"() {
+        given:
+        def factory = { new TestBlock() } as BlockStore.Factory
+        def store = new MappedFileBlockStore(cacheFile, 64)
+        store.open({} as Runnable, factory)
+        newBlock(store, "first")
+        assert store.readFirst(TestBlock).value == "first"
+
+        and:
+        def otherStore = new MappedFileBlockStore(cacheFile, 64)
+        otherStore.open({} as Runnable, factory)
+        def block = newBlock(otherStore, "second".multiply(20))
+        otherStore.close()
+
+        expect:
+        store.read(block.pos, TestBlock).value == "second".multiply(20)
+        store.readFirst(TestBlock).value == "first"
+
+        cleanup:
+        store.close()
+    }
+
+    private TestBlock newBlock(BlockStore store, String value) {
+        def block = new TestBlock(value: value)
+        store.attach(block)
+        store.write(block)
+        return block
+    }
+
+    private BTreePersistentIndexedCache<String, String> cache(BlockStore store) {
+        return new BTreePersistentIndexedCache<String, String>(cacheFile, store, new DefaultSerializer<String>(), new DefaultSerializer<String>(), (short) 4, 100)
+    }
+
+    static class TestBlock extends BlockPayload {
+        String value
+
+        @Override
+        protected int getSize() {
+            return 2 + value.length()
+        }
+
+        @Override
+        protected int getType() {
+            return 0x55
+        }
+
+        @Override
+        protected void read(DataInputStream inputStream) {
+            value = inputStream.readUTF()
+        }
+
+        @Override
+        protected void write(DataOutputStream outputStream) {
+            outputStream.writeUTF(value)
+        }
+    }
+}
@@ -121,6 +121,62 @@ class DefaultFileLockContentionHandlerTest extends ConcurrentSpecification {
         poll { assert executed.get() }
     }
 
+    def "tells requester when lock is released"() {
+        def released = new AtomicBoolean()
+
+        when:
+        int port = handler.reservePort()
+        handler.lockAcquired(10)
+        start {
+            released.set(client.waitForRelease(port, 10, "lock 1", 10000))
+        }
+        sleep(300) //so that the request is received
+
+        then:
+        !released.get()
+
+        when:
+        handler.lockReleased(10)
+
+        then:
+        poll {
+            assert released.get()
+        }
+    }
+
+    def "tells requester right away when lock is not held"() {
+        when:
+        int port = handler.reservePort()
+        handler.lockAcquired(11)
+
+        then:
+        client.waitForRelease(port, 10, "lock 1", 10000)
+    }
+
+    def "waiting for release times out when lock is not released"() {
+        when:
+        int port = handler.reservePort()
+        handler.lockAcquired(10)
+
+        then:
+        !client.waitForRelease(port, 10, "lock 1", 100)
+    }
+
+    def "runs contended action when requester waits for release"() {
+        def action = new AtomicBoolean()
+
+        when:
+        int port = handler.reservePort()
+        handler.lockAcquired(10)
+        handler.start(10, { action.set(true) })
+        client.waitForRelease(port, 10, "lock 1", 100)
+
+        then:
+        poll {
+            assert action.get()
+        }
+    }
+
     def "reserving port is safely reentrant"() {
         when:
         int port = handler.reservePort()
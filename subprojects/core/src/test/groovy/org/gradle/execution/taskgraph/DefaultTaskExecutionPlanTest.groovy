@@ -20,6 +20,7 @@ import org.gradle.api.BuildCancelledException
 import org.gradle.api.CircularReferenceException
 import org.gradle.api.Task
 import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository
 import org.gradle.api.internal.project.DefaultProject
 import org.gradle.api.internal.tasks.TaskStateInternal
 import org.gradle.api.specs.Spec
@@ -29,6 +30,7 @@ import org.gradle.initialization.BuildCancellationToken
 import org.gradle.util.TextUtil
 import spock.lang.Issue
 import spock.lang.Specification
+import spock.lang.Timeout
 import spock.lang.Unroll
 
 import static org.gradle.util.TestUtil.createChildProject
@@ -804,6 +806,111 @@ public class DefaultTaskExecutionPlanTest extends Specification {
         t3.task.project != t4.task.project
     }
 
+    def "task held back while its project is busy is returned once the project is idle"() {
+        given:
+        def projectA = createChildProject(root, "a")
+        def projectB = createChildProject(root, "b")
+
+        def fooA = projectA.task("foo")
+        def barA = projectA.task("bar")
+        def fooB = projectB.task("foo")
+
+        addToGraphAndPopulate([fooA, barA, fooB])
+
+        when:
+        def t1 = executionPlan.getTaskToExecute()
+        def t2 = executionPlan.getTaskToExecute()
+
+        then:
+        t1.task == barA
+        t2.task == fooB
+
+        when:
+        executionPlan.taskComplete(t2)
+        executionPlan.taskComplete(t1)
+
+        then:
+        executedTasks == [fooA]
+    }
+
+    def "tasks of the same project with separate outputs execute in parallel when intra-project parallelization is enabled"() {
+        given:
+        executionPlan = new DefaultTaskExecutionPlan(cancellationHandler, null, true)
+        def projectA = createChildProject(root, "a")
+
+        def fooA = projectA.task("foo")
+        def barA = projectA.task("bar")
+        def bazA = projectA.task("baz")
+        fooA.outputs.file("build/foo")
+        barA.outputs.dir("build/bar")
+        bazA.outputs.file("build/bar/baz")
+
+        addToGraphAndPopulate([fooA, barA, bazA])
+
+        when:
+        def t1 = executionPlan.getTaskToExecute()
+        def t2 = executionPlan.getTaskToExecute()
+
+        then:
+        t1.task == barA
+        t2.task == fooA
+
+        when:
+        executionPlan.taskComplete(t1)
+        executionPlan.taskComplete(t2)
+
+        then:
+        executedTasks == [bazA]
+    }
+
+    @Timeout(10)
+    def "resolves the files of a task without holding on to the plan"() {
+        given:
+        executionPlan = new DefaultTaskExecutionPlan(cancellationHandler, null, true)
+        def projectA = createChildProject(root, "a")
+
+        def barA = projectA.task("bar")
+        def fooA = projectA.task("foo")
+        def running = null
+        barA.outputs.file("build/bar")
+        fooA.outputs.file({
+            if (running != null) {
+                // Completes another task from a different thread while the files are being resolved
+                Thread.start { executionPlan.taskComplete(running) }.join()
+            }
+            "build/foo"
+        })
+
+        addToGraphAndPopulate([barA, fooA])
+
+        when:
+        running = executionPlan.getTaskToExecute()
+        def next = executionPlan.getTaskToExecute()
+
+        then:
+        running.task == barA
+        running.complete
+        next.task == fooA
+    }
+
+    def "executes ready tasks on the longest path through the graph first when task durations are available"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+        TaskDurationRepository taskDurations = Stub() {
+            getPreviousDurations(_) >> [(a): 10L, (b): 10L, (c): 100L]
+        }
+        executionPlan = new DefaultTaskExecutionPlan(cancellationHandler, taskDurations, false)
+
+        when:
+        addToGraphAndPopulate([a, c])
+
+        then:
+        executionPlan.tasks == [a, b, c]
+        executedTasks == [b, c, a]
+    }
+
     void executes(Task... expectedTasks) {
         assert executionPlan.tasks == expectedTasks as List
         assert expectedTasks == expectedTasks as List
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution.taskgraph
+
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.project.DefaultProject
+import org.gradle.util.TestUtil
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class TaskDeclaredFilesTest extends Specification {
+    final DefaultProject project = TestUtil.createRootProject()
+
+    def "tasks without declared outputs have no outputs"() {
+        expect:
+        !TaskDeclaredFiles.of(task("a")).hasOutputs()
+        TaskDeclaredFiles.of(task("b", outputs: ["build/b"])).hasOutputs()
+    }
+
+    def "tasks with separate outputs do not overlap"() {
+        def a = TaskDeclaredFiles.of(task("a", outputs: ["build/a"], inputs: ["src/a"]))
+        def b = TaskDeclaredFiles.of(task("b", outputs: ["build/ab"], inputs: ["src/a"]))
+
+        expect:
+        !a.overlapsWith(b)
+        !b.overlapsWith(a)
+    }
+
+    @Unroll
+    def "tasks overlap when #description"() {
+        def a = TaskDeclaredFiles.of(task("a", outputs: aOutputs, inputs: aInputs))
+        def b = TaskDeclaredFiles.of(task("b", outputs: bOutputs, inputs: []))
+
+        expect:
+        a.overlapsWith(b)
+        b.overlapsWith(a)
+
+        where:
+        description                              | aOutputs            | aInputs       | bOutputs
+        "outputs are the same"                   | ["build/out"]       | []            | ["build/out"]
+        "output is inside other output"          | ["build/out/a.txt"] | []            | ["build/out"]
+        "output contains other output"           | ["build"]           | []            | ["build/out/a.txt"]
+        "input is produced by other task"        | ["build/a"]         | ["build/out"] | ["build/out/a.txt"]
+    }
+
+    private TaskInternal task(Map options = [:], String name) {
+        def task = project.task(name)
+        options.outputs.each { task.outputs.file(it) }
+        options.inputs.each { task.inputs.file(it) }
+        return task
+    }
+}
@@ -98,14 +98,18 @@ public class DefaultScriptCompilationHandlerTest {
     }
 
     private ScriptSource scriptSource(final String scriptText) {
-        final ScriptSource source = context.mock(ScriptSource.class, scriptText);
+        return scriptSource(scriptText, scriptClassName, scriptFileName);
+    }
+
+    private ScriptSource scriptSource(final String scriptText, final String className, final String fileName) {
+        final ScriptSource source = context.mock(ScriptSource.class, className + scriptText);
         context.checking(new Expectations(){{
-            Resource resource = context.mock(Resource.class, scriptText + "resource");
+            Resource resource = context.mock(Resource.class, className + scriptText + "resource");
 
             allowing(source).getClassName();
-            will(returnValue(scriptClassName));
+            will(returnValue(className));
             allowing(source).getFileName();
-            will(returnValue(scriptFileName));
+            will(returnValue(fileName));
             allowing(source).getDisplayName();
             will(returnValue("script-display-name"));
             allowing(source).getResource();
@@ -204,6 +208,49 @@ public class DefaultScriptCompilationHandlerTest {
         assertThat(script, isA(expectedScriptClass));
     }
 
+    @Test
+    public void testLoadFromDirUnderAnotherClassName() throws Exception {
+        String text = "[1].each { throw new RuntimeException('broken') }";
+        ScriptSource compiledSource = scriptSource(text, "CompiledClassName", "compiled-file-name");
+        scriptCompilationHandler.compileToDir(compiledSource, classLoader, scriptCacheDir, null, expectedScriptClass, verifier);
+
+        Script script = scriptCompilationHandler.loadFromDir(scriptSource(text), "CompiledClassName", classLoader, scriptCacheDir,
+                expectedScriptClass).newInstance();
+
+        assertThat(script, instanceOf(expectedScriptClass));
+        assertEquals(scriptClassName, script.getClass().getName());
+        try {
+            script.run();
+            fail();
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), equalTo("broken"));
+            StackTraceElement closureElement = null;
+            for (StackTraceElement element : e.getStackTrace()) {
+                if (element.getClassName().startsWith(scriptClassName + "$")) {
+                    closureElement = element;
+                    break;
+                }
+            }
+            assertNotNull(closureElement);
+            assertThat(closureElement.getFileName(), equalTo(scriptFileName));
+            assertThat(closureElement.getLineNumber(), equalTo(1));
+        }
+    }
+
+    @Test
+    public void testLoadFromDirUnderAnotherClassNameWithClassDeclaredByScript() throws Exception {
+        String text = "class Greeting { String text = '" + TEST_EXPECTED_SYSTEMPROP_VALUE + "' }\n"
+                + "System.setProperty('" + TEST_EXPECTED_SYSTEMPROP_KEY + "', new Greeting().text)";
+        ScriptSource compiledSource = scriptSource(text, "CompiledClassName", "compiled-file-name");
+        scriptCompilationHandler.compileToDir(compiledSource, classLoader, scriptCacheDir, null, expectedScriptClass, verifier);
+
+        Script script = scriptCompilationHandler.loadFromDir(scriptSource(text), "CompiledClassName", classLoader, scriptCacheDir,
+                expectedScriptClass).newInstance();
+
+        assertEquals(scriptClassName, script.getClass().getName());
+        evaluateScript(script);
+    }
+
     @Test
     public void testLoadFromDirWhenNotAssignableToBaseClass() {
         scriptCompilationHandler.compileToDir(scriptSource, classLoader, scriptCacheDir, null, Script.class, verifier);
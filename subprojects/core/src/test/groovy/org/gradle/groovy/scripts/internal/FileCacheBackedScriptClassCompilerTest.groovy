@@ -16,8 +16,7 @@
 package org.gradle.groovy.scripts.internal
 
 import org.codehaus.groovy.classgen.Verifier
-import org.gradle.api.Action
-import org.gradle.internal.resource.Resource
+import org.gradle.api.internal.file.TemporaryFileProvider
 import org.gradle.cache.CacheBuilder
 import org.gradle.cache.CacheRepository
 import org.gradle.cache.CacheValidator
@@ -25,113 +24,331 @@ import org.gradle.cache.PersistentCache
 import org.gradle.groovy.scripts.Script
 import org.gradle.groovy.scripts.ScriptSource
 import org.gradle.groovy.scripts.Transformer
+import org.gradle.internal.hash.HashUtil
+import org.gradle.internal.resource.Resource
 import org.gradle.logging.ProgressLogger
 import org.gradle.logging.ProgressLoggerFactory
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
 import spock.lang.Specification
 
 class FileCacheBackedScriptClassCompilerTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    final TemporaryFileProvider temporaryFileProvider = Stub() {
+        createTemporaryDirectory(_, _) >> { tmpDir.createDir("precompiled") }
+    }
     final ScriptCompilationHandler scriptCompilationHandler = Mock()
     final CacheRepository cacheRepository = Mock()
     final CacheBuilder cacheBuilder = Mock()
     final CacheValidator validator = Mock()
     final PersistentCache cache = Mock()
+    final ProgressLoggerFactory progressLoggerFactory = Mock()
+    final ProgressLogger progressLogger = Mock()
     final ScriptSource source = Mock()
     final ClassLoader classLoader = Mock()
     final Transformer transformer = Mock()
-    final File cacheDir = new File("base-dir")
-    final FileCacheBackedScriptClassCompiler compiler = new FileCacheBackedScriptClassCompiler(cacheRepository, validator, scriptCompilationHandler, Stub(ProgressLoggerFactory))
+    final String contentHash = HashUtil.createCompactMD5('this is the script')
+    final String compiledClassName = "script_${contentHash}"
+    TestFile cacheDir
+    TestFile versionsDir
+    TestFile entryDir
+    final FileCacheBackedScriptClassCompiler compiler = new FileCacheBackedScriptClassCompiler(cacheRepository, validator, scriptCompilationHandler, progressLoggerFactory, temporaryFileProvider)
     private Verifier verifier = new Verifier()
 
     def setup() {
-        Resource resource = Mock()
-        _ * source.resource >> resource
-        _ * resource.text >> 'this is the script'
+        cacheDir = tmpDir.createDir("cache")
+        versionsDir = cacheDir.file("${contentHash}/Script/TransformerId/${compiler.classPathHash(classLoader)}")
+        entryDir = versionsDir.file("0")
+        _ * source.resource >> resource('this is the script')
         _ * source.className >> 'ScriptClassName'
         _ * source.fileName >> 'ScriptFileName'
+        _ * source.displayName >> 'script'
         _ * transformer.id >> 'TransformerId'
+        _ * cacheRepository.cache("scriptClasses") >> cacheBuilder
+        _ * cacheBuilder.withDisplayName(!null) >> cacheBuilder
+        _ * cacheBuilder.withLockOptions(!null) >> cacheBuilder
+        _ * cacheBuilder.open() >> cache
         _ * cache.baseDir >> cacheDir
+        _ * progressLoggerFactory.newOperation(FileCacheBackedScriptClassCompiler) >> progressLogger
+        _ * progressLogger.start(_, _) >> progressLogger
         _ * validator.isValid() >> true
     }
 
-    def "loads classes from cache directory"() {
+    def "loads classes from cache entry"() {
+        given:
+        entryDir.createDir()
+
         when:
         def result = compiler.compile(source, classLoader, transformer, Script, verifier)
 
         then:
         result == Script
-        1 * cacheRepository.cache("scripts/ScriptClassName/Script/TransformerId") >> cacheBuilder
-        1 * cacheBuilder.withProperties(!null) >> { args ->
-            assert args[0].get('source.filename') == 'ScriptFileName'
-            assert args[0].containsKey('source.hash')
-            return cacheBuilder
+        1 * scriptCompilationHandler.loadFromDir(source, compiledClassName, classLoader, entryDir, Script) >> Script
+        0 * scriptCompilationHandler._
+    }
+
+    def "compiles script into cache entry when not cached"() {
+        when:
+        def result = compiler.compile(source, classLoader, transformer, Script, verifier)
+
+        then:
+        result == Script
+        1 * scriptCompilationHandler.compileToDir({ it.className == compiledClassName && it.fileName == 'ScriptFileName' }, classLoader, { it != entryDir }, transformer, Script, verifier) >> { args ->
+            writeClasses(args[2], "compiled")
         }
-        1 * cacheBuilder.withInitializer(!null) >> cacheBuilder
-        1 * cacheBuilder.withDisplayName(!null) >> cacheBuilder
-        1 * cacheBuilder.withValidator(!null) >> cacheBuilder
-        1 * cacheBuilder.open() >> cache
-        1 * scriptCompilationHandler.loadFromDir(source, classLoader, new File(cacheDir, "classes"), Script) >> Script
+        1 * scriptCompilationHandler.loadFromDir(source, compiledClassName, classLoader, entryDir, Script) >> Script
         0 * scriptCompilationHandler._
+
+        and:
+        entryDir.file("${compiledClassName}.class").text == "compiled"
+        cacheDir.file("tmp").list().length == 0
     }
 
-    def "passes CacheValidator to cacheBuilder"() {
-        setup:
-        cacheRepository.cache("scripts/ScriptClassName/Script/TransformerId") >> cacheBuilder
-        cacheBuilder.withProperties(!null) >> cacheBuilder
-        cacheBuilder.withInitializer(!null) >> cacheBuilder
-        cacheBuilder.withDisplayName(!null) >> cacheBuilder
-        cacheBuilder.open() >> cache
-        scriptCompilationHandler.loadFromDir(source, classLoader, new File(cacheDir, "classes"), Script) >> Script
+    def "scripts with the same content share a cache entry"() {
+        def other = Mock(ScriptSource) {
+            _ * getResource() >> resource('this is the script')
+            _ * getClassName() >> 'OtherClassName'
+            _ * getFileName() >> 'OtherFileName'
+        }
 
         when:
         compiler.compile(source, classLoader, transformer, Script, verifier)
+        compiler.compile(other, classLoader, transformer, Script, verifier)
 
         then:
-        1 * cacheBuilder.withValidator(validator) >> cacheBuilder
+        1 * scriptCompilationHandler.compileToDir(_, classLoader, _, transformer, Script, verifier) >> { args -> writeClasses(args[2], "compiled") }
+        1 * scriptCompilationHandler.loadFromDir(source, compiledClassName, classLoader, entryDir, Script) >> Script
+        1 * scriptCompilationHandler.loadFromDir(other, compiledClassName, classLoader, entryDir, Script) >> Script
+        0 * scriptCompilationHandler._
+    }
+
+    def "recompiles cache entry once into a new version when cache is invalid"() {
+        def newEntryDir = versionsDir.file("1")
+
+        given:
+        writeClasses(entryDir, "stale")
+
+        when:
+        compiler.compile(source, classLoader, transformer, Script, verifier)
+        compiler.compile(source, classLoader, transformer, Script, verifier)
 
+        then:
+        _ * validator.isValid() >> false
+        1 * scriptCompilationHandler.compileToDir(_, classLoader, _, transformer, Script, verifier) >> { args -> writeClasses(args[2], "compiled") }
+        2 * scriptCompilationHandler.loadFromDir(source, compiledClassName, classLoader, newEntryDir, Script) >> Script
 
+        and:
+        newEntryDir.file("${compiledClassName}.class").text == "compiled"
+        entryDir.file("${compiledClassName}.class").text == "stale"
     }
 
-    def "compiles classes to cache directory when cache is invalid"() {
-        def initializer
+    def "removes older versions of cache entry when cache is invalid"() {
+        def previousEntryDir = versionsDir.file("1")
+        def newEntryDir = versionsDir.file("2")
+
+        given:
+        writeClasses(entryDir, "old")
+        writeClasses(previousEntryDir, "stale")
 
         when:
-        def result = compiler.compile(source, classLoader, transformer, Script, verifier)
+        compiler.compile(source, classLoader, transformer, Script, verifier)
 
         then:
-        result == Script
-        1 * cacheRepository.cache("scripts/ScriptClassName/Script/TransformerId") >> cacheBuilder
-        1 * cacheBuilder.withProperties(!null) >> cacheBuilder
-        1 * cacheBuilder.withDisplayName(!null) >> cacheBuilder
-        1 * cacheBuilder.withValidator(!null) >> cacheBuilder
-        1 * cacheBuilder.withInitializer(!null) >> {args -> initializer = args[0]; return cacheBuilder}
-        1 * cacheBuilder.open() >> {initializer.execute(cache); return cache}
-        1 * scriptCompilationHandler.compileToDir(source, classLoader, new File(cacheDir, "classes"), transformer, Script, verifier)
-        1 * scriptCompilationHandler.loadFromDir(source, classLoader, new File(cacheDir, "classes"), Script) >> Script
+        _ * validator.isValid() >> false
+        1 * scriptCompilationHandler.compileToDir(_, classLoader, _, transformer, Script, verifier) >> { args -> writeClasses(args[2], "compiled") }
+        1 * scriptCompilationHandler.loadFromDir(source, compiledClassName, classLoader, newEntryDir, Script) >> Script
+
+        and:
+        versionsDir.list() as Set == ["1", "2"] as Set
+    }
+
+    def "compiles script into separate cache entry for class loader with different class path"() {
+        def jar = tmpDir.createFile("lib.jar")
+        def otherClassLoader = new URLClassLoader([jar.toURI().toURL()] as URL[], null)
+        def otherEntryDir = cacheDir.file("${contentHash}/Script/TransformerId/${compiler.classPathHash(otherClassLoader)}/0")
+
+        given:
+        entryDir.createDir()
+
+        when:
+        compiler.compile(source, otherClassLoader, transformer, Script, verifier)
+
+        then:
+        otherEntryDir != entryDir
+        1 * scriptCompilationHandler.compileToDir(_, otherClassLoader, _, transformer, Script, verifier) >> { args -> writeClasses(args[2], "compiled") }
+        1 * scriptCompilationHandler.loadFromDir(source, compiledClassName, otherClassLoader, otherEntryDir, Script) >> Script
+    }
+
+    def "class path hash changes when a jar changes"() {
+        def jar = tmpDir.createFile("lib.jar")
+        def urls = [jar.toURI().toURL()] as URL[]
+        def hash = compiler.classPathHash(new URLClassLoader(urls, null))
+
+        when:
+        jar.text = "changed"
+
+        then:
+        compiler.classPathHash(new URLClassLoader(urls, null)) != hash
+    }
+
+    def "removes temporary directories left behind by an earlier process"() {
+        def staleDir = cacheDir.createDir("tmp/stale")
+        def recentDir = cacheDir.createDir("tmp/recent")
+        staleDir.setLastModified(System.currentTimeMillis() - 2 * 60 * 60 * 1000)
+
+        given:
+        entryDir.createDir()
+
+        when:
+        compiler.compile(source, classLoader, transformer, Script, verifier)
+
+        then:
+        1 * scriptCompilationHandler.loadFromDir(source, compiledClassName, classLoader, entryDir, Script) >> Script
+        !staleDir.exists()
+        recentDir.exists()
+    }
+
+    def "loads classes from latest version of cache entry"() {
+        def latestEntryDir = versionsDir.file("2")
+
+        given:
+        entryDir.createDir()
+        latestEntryDir.createDir()
+
+        when:
+        compiler.compile(source, classLoader, transformer, Script, verifier)
+
+        then:
+        1 * scriptCompilationHandler.loadFromDir(source, compiledClassName, classLoader, latestEntryDir, Script) >> Script
         0 * scriptCompilationHandler._
     }
 
-    def "reports compilation progress even in case of a failure"() {
-        def factory = Mock(ProgressLoggerFactory)
-        def delegate = Mock(Action)
-        def cache = Mock(PersistentCache)
-        def logger = Mock(ProgressLogger)
+    def "uses cache entry written by another process while compiling"() {
+        when:
+        compiler.compile(source, classLoader, transformer, Script, verifier)
 
-        def initializer = new FileCacheBackedScriptClassCompiler.ProgressReportingInitializer(factory, delegate)
+        then:
+        1 * scriptCompilationHandler.compileToDir(_, classLoader, _, transformer, Script, verifier) >> { args ->
+            writeClasses(args[2], "compiled")
+            writeClasses(entryDir, "other process")
+        }
+        1 * scriptCompilationHandler.loadFromDir(source, compiledClassName, classLoader, entryDir, Script) >> Script
+
+        and:
+        entryDir.file("${compiledClassName}.class").text == "other process"
+        cacheDir.file("tmp").list().length == 0
+    }
 
+    def "reports compilation progress even in case of a failure"() {
         when:
-        initializer.execute(cache)
+        compiler.compile(source, classLoader, transformer, Script, verifier)
 
         then:
         def ex = thrown(RuntimeException)
         ex.message == "Boo!"
 
-        1 * factory.newOperation(FileCacheBackedScriptClassCompiler) >> logger
-        1 * logger.start("Compile script into cache", "Compiling script into cache") >> logger
+        1 * progressLoggerFactory.newOperation(FileCacheBackedScriptClassCompiler) >> progressLogger
+        1 * progressLogger.start("Compile script into cache", "Compiling script into cache") >> progressLogger
+
+        then:
+        1 * scriptCompilationHandler.compileToDir(_, classLoader, _, transformer, Script, verifier) >> { throw new RuntimeException("Boo!") }
+
+        then:
+        1 * progressLogger.completed()
+
+        and:
+        !entryDir.exists()
+    }
+
+    def "uses precompiled classes when script is first compiled"() {
+        when:
+        compiler.precompile(source, classLoader, transformer, Script, verifier)
+
+        then:
+        1 * scriptCompilationHandler.compileToDir({ it.className == compiledClassName }, { it != classLoader }, _, transformer, Script, verifier) >> { args ->
+            writeClasses(args[2], "precompiled")
+        }
+
+        when:
+        def result = compiler.compile(source, classLoader, transformer, Script, verifier)
 
         then:
-        1 * delegate.execute(cache) >> { throw new RuntimeException("Boo!")} //stress it a bit with a failure
+        result == Script
+        1 * scriptCompilationHandler.loadFromDir(source, compiledClassName, classLoader, entryDir, Script) >> Script
+        0 * scriptCompilationHandler._
+        entryDir.file("${compiledClassName}.class").text == "precompiled"
+    }
+
+    def "compiles script again when class that was missing during precompilation is visible"() {
+        when:
+        compiler.precompile(source, classLoader, transformer, Script, verifier)
 
         then:
-        1 * logger.completed()
+        1 * scriptCompilationHandler.compileToDir(_, _, _, transformer, Script, verifier) >> { args ->
+            try {
+                args[1].loadClass("org.gradle.SomeClass")
+            } catch (ClassNotFoundException e) {
+                // Expected
+            }
+        }
+
+        when:
+        compiler.compile(source, classLoader, transformer, Script, verifier)
+
+        then:
+        1 * classLoader.loadClass("org.gradle.SomeClass") >> String
+        1 * scriptCompilationHandler.compileToDir(_, classLoader, _, transformer, Script, verifier) >> { args -> writeClasses(args[2], "compiled") }
+        1 * scriptCompilationHandler.loadFromDir(source, compiledClassName, classLoader, entryDir, Script) >> Script
+        entryDir.file("${compiledClassName}.class").text == "compiled"
+    }
+
+    def "does not precompile script that is already in the cache"() {
+        given:
+        entryDir.createDir()
+
+        when:
+        compiler.precompile(source, classLoader, transformer, Script, verifier)
+
+        then:
+        0 * scriptCompilationHandler._
+    }
+
+    def "ignores failure to precompile script"() {
+        when:
+        compiler.precompile(source, classLoader, transformer, Script, verifier)
+
+        then:
+        1 * scriptCompilationHandler.compileToDir(_, _, _, transformer, Script, verifier) >> { throw new RuntimeException("broken") }
+
+        when:
+        compiler.compile(source, classLoader, transformer, Script, verifier)
+
+        then:
+        1 * scriptCompilationHandler.compileToDir(_, classLoader, _, transformer, Script, verifier) >> { args -> writeClasses(args[2], "compiled") }
+        1 * scriptCompilationHandler.loadFromDir(source, compiledClassName, classLoader, entryDir, Script) >> Script
+    }
+
+    def "deletes precompiled classes and closes cache on close"() {
+        given:
+        compiler.precompile(source, classLoader, transformer, Script, verifier)
+
+        when:
+        compiler.close()
+
+        then:
+        1 * cache.close()
+        !tmpDir.file("precompiled").exists()
+    }
+
+    private Resource resource(String text) {
+        return Stub(Resource) {
+            getText() >> text
+        }
+    }
+
+    private void writeClasses(File dir, String content) {
+        dir.mkdirs()
+        new File(dir, "${compiledClassName}.class").text = content
     }
 }
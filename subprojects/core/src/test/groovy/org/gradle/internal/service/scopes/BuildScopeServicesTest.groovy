@@ -251,7 +251,7 @@ public class BuildScopeServicesTest extends Specification {
         setup:
         expectParentServiceLocated(Instantiator)
         expect:
-        assertThat(registry.get(BuildLoader), instanceOf(ProjectPropertySettingBuildLoader))
+        assertThat(registry.get(BuildLoader), instanceOf(BuildScriptPrecompilingBuildLoader))
         assertThat(registry.get(BuildLoader), sameInstance(registry.get(BuildLoader)))
     }
 
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.profile
+
+import org.gradle.StartParameter
+import org.gradle.api.tasks.TaskState
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class ProfileCsvRendererTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temp = new TestNameTestDirectoryProvider()
+
+    def "renders a row for each task with the duration of each phase"() {
+        def model = new BuildProfile(new StartParameter())
+        def file = temp.file("reports/profile.csv")
+        def skipped = Stub(TaskState) {
+            getSkipped() >> true
+            getSkipMessage() >> 'UP-TO-DATE, "really"'
+        }
+        def executed = Stub(TaskState) {
+            getDidWork() >> true
+        }
+
+        model.getProjectProfile(":a").getTaskProfile(":a:foo").completed(executed).setStart(1000).setFinish(3500)
+                .setPhaseDurations([(TaskExecutionPhase.SNAPSHOT_INPUTS): 100L, (TaskExecutionPhase.EXECUTE_ACTIONS): 2000L, (TaskExecutionPhase.CACHE_LOCK_WAIT): 5L])
+        model.getProjectProfile(":a").getTaskProfile(":a:bar").completed(skipped).setStart(3500).setFinish(3600)
+                .setPhaseDurations([(TaskExecutionPhase.SNAPSHOT_OUTPUTS): 20L, (TaskExecutionPhase.TASK_HISTORY): 30L])
+
+        when:
+        new ProfileCsvRenderer().writeTo(model, file)
+
+        then:
+        file.text == """task,durationMs,status,snapshotInputsMs,snapshotOutputsMs,taskHistoryMs,executeActionsMs,cacheLockWaitMs
+:a:foo,2500,,100,0,0,2000,5
+:a:bar,100,"UP-TO-DATE, ""really""",0,20,30,0,0
+"""
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.profile
+
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+class TaskPhaseRecorderTest extends ConcurrentSpec {
+    def recorder = new TaskPhaseRecorder()
+
+    def "records time spent in each phase until taken"() {
+        when:
+        recorder.start(TaskExecutionPhase.EXECUTE_ACTIONS)
+        Thread.sleep(20)
+        recorder.finish(TaskExecutionPhase.EXECUTE_ACTIONS)
+        def durations = recorder.takeDurations()
+
+        then:
+        durations[TaskExecutionPhase.EXECUTE_ACTIONS] >= 15
+        durations[TaskExecutionPhase.SNAPSHOT_INPUTS] == 0
+        durations.keySet() == EnumSet.allOf(TaskExecutionPhase)
+
+        and:
+        recorder.takeDurations()[TaskExecutionPhase.EXECUTE_ACTIONS] == 0
+    }
+
+    def "times only the outermost start and finish of a phase"() {
+        when:
+        recorder.start(TaskExecutionPhase.TASK_HISTORY)
+        recorder.start(TaskExecutionPhase.TASK_HISTORY)
+        Thread.sleep(20)
+        recorder.finish(TaskExecutionPhase.TASK_HISTORY)
+        Thread.sleep(20)
+        recorder.finish(TaskExecutionPhase.TASK_HISTORY)
+
+        then:
+        def duration = recorder.takeDurations()[TaskExecutionPhase.TASK_HISTORY]
+        duration >= 35
+        duration < 80
+    }
+
+    def "records time separately for each thread"() {
+        when:
+        def otherThreadDuration = null
+        recorder.start(TaskExecutionPhase.SNAPSHOT_INPUTS)
+        async {
+            start {
+                recorder.start(TaskExecutionPhase.SNAPSHOT_INPUTS)
+                Thread.sleep(50)
+                recorder.finish(TaskExecutionPhase.SNAPSHOT_INPUTS)
+                otherThreadDuration = recorder.takeDurations()[TaskExecutionPhase.SNAPSHOT_INPUTS]
+            }
+        }
+        recorder.finish(TaskExecutionPhase.SNAPSHOT_INPUTS)
+        def duration = recorder.takeDurations()[TaskExecutionPhase.SNAPSHOT_INPUTS]
+
+        then:
+        otherThreadDuration >= 45
+        duration >= otherThreadDuration
+    }
+}
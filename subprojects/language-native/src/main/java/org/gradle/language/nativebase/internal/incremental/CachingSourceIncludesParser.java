@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.language.nativebase.internal.incremental;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.changedetection.state.FileSnapshotter;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.hash.HashValue;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps the includes of each source file keyed by the hash of its content, so that a header file is only parsed once regardless of how
+ * many compile tasks use it. Must be used while holding the cache lock.
+ *
+ * <p>The includes of a file content are discarded once the task that used it has been compiled again without it, so the cache holds at most
+ * the distinct file contents used by the most recent compilation of each task. A content still used by some other task is parsed again the
+ * next time that task needs it.</p>
+ */
+public class CachingSourceIncludesParser implements SourceIncludesParser {
+    private final SourceIncludesParser delegate;
+    private final FileSnapshotter snapshotter;
+    private final PersistentIndexedCache<String, SourceIncludes> cache;
+
+    public CachingSourceIncludesParser(SourceIncludesParser delegate, FileSnapshotter snapshotter, PersistentIndexedCache<String, SourceIncludes> cache) {
+        this.delegate = delegate;
+        this.snapshotter = snapshotter;
+        this.cache = cache;
+    }
+
+    public SourceIncludes parseIncludes(File sourceFile) {
+        String key = keyFor(snapshotter.snapshot(sourceFile).getHash());
+        SourceIncludes includes = cache.get(key);
+        if (includes == null) {
+            includes = delegate.parseIncludes(sourceFile);
+            cache.put(key, includes);
+        }
+        return includes;
+    }
+
+    /**
+     * Discards the includes of the file contents used by the previous compilation of a task that are not used by its current compilation.
+     */
+    public void discardUnused(@Nullable CompilationState previous, CompilationState current) {
+        if (previous == null) {
+            return;
+        }
+        Set<String> used = new HashSet<String>();
+        for (CompilationFileState state : current.getFileStates()) {
+            used.add(keyFor(state.getHash()));
+        }
+        for (CompilationFileState state : previous.getFileStates()) {
+            String key = keyFor(state.getHash());
+            if (used.add(key)) {
+                cache.remove(key);
+            }
+        }
+    }
+
+    private static String keyFor(byte[] hash) {
+        return new HashValue(hash).asCompactString();
+    }
+}
@@ -38,4 +38,8 @@ public class CompilationState implements Serializable {
     public void setState(File file, CompilationFileState compilationFileState) {
         fileStates.put(file, compilationFileState);
     }
+
+    public Collection<CompilationFileState> getFileStates() {
+        return fileStates.values();
+    }
 }
@@ -18,22 +18,38 @@ package org.gradle.language.nativebase.internal.incremental;
 import org.gradle.util.GFileUtils;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.LinkedHashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
+/**
+ * Resolves includes against the directory of the source file and the include path. Each include is only searched for once for each search
+ * path, so an instance should only be used for as long as the include directories are not expected to change, such as for a single task.
+ */
 public class DefaultSourceIncludesResolver implements SourceIncludesResolver {
     private final List<File> includePaths;
+    private final IncludeDirectoryIndex directoryIndex;
+    private final Set<File> checkedDirectories = new HashSet<File>();
+    private final Map<String, File> systemIncludes = new HashMap<String, File>();
+    private final Map<File, Map<String, File>> quotedIncludes = new HashMap<File, Map<String, File>>();
 
     public DefaultSourceIncludesResolver(List<File> includePaths) {
+        this(includePaths, new IncludeDirectoryIndex());
+    }
+
+    public DefaultSourceIncludesResolver(List<File> includePaths, IncludeDirectoryIndex directoryIndex) {
         this.includePaths = includePaths;
+        this.directoryIndex = directoryIndex;
     }
 
     public Set<ResolvedInclude> resolveIncludes(File sourceFile, SourceIncludes includes) {
         Set<ResolvedInclude> dependencies = new LinkedHashSet<ResolvedInclude>();
-        searchForDependencies(dependencies, prependSourceDir(sourceFile, includePaths), includes.getQuotedIncludes());
-        searchForDependencies(dependencies, includePaths, includes.getSystemIncludes());
+        File sourceDir = sourceFile.getParentFile();
+        Map<String, File> quotedIncludesForDir = quotedIncludes.get(sourceDir);
+        if (quotedIncludesForDir == null) {
+            quotedIncludesForDir = new HashMap<String, File>();
+            quotedIncludes.put(sourceDir, quotedIncludesForDir);
+        }
+        searchForDependencies(dependencies, prependSourceDir(sourceFile, includePaths), includes.getQuotedIncludes(), quotedIncludesForDir);
+        searchForDependencies(dependencies, includePaths, includes.getSystemIncludes(), systemIncludes);
         if (!includes.getMacroIncludes().isEmpty()) {
             dependencies.add(new ResolvedInclude(includes.getMacroIncludes().get(0), null));
         }
@@ -48,19 +64,34 @@ public class DefaultSourceIncludesResolver implements SourceIncludesResolver {
         return quotedSearchPath;
     }
 
-    private void searchForDependencies(Set<ResolvedInclude> dependencies, List<File> searchPath, List<String> includes) {
+    private void searchForDependencies(Set<ResolvedInclude> dependencies, List<File> searchPath, List<String> includes, Map<String, File> resolved) {
         for (String include : includes) {
-            searchForDependency(dependencies, searchPath, include);
+            File dependencyFile;
+            if (resolved.containsKey(include)) {
+                dependencyFile = resolved.get(include);
+            } else {
+                dependencyFile = searchForDependency(searchPath, include);
+                resolved.put(include, dependencyFile);
+            }
+            if (dependencyFile != null) {
+                dependencies.add(new ResolvedInclude(include, dependencyFile));
+            }
         }
     }
 
-    private void searchForDependency(Set<ResolvedInclude> dependencies, List<File> searchPath, String include) {
+    private File searchForDependency(List<File> searchPath, String include) {
         for (File searchDir : searchPath) {
             File candidate = new File(searchDir, include);
-            if (candidate.isFile()) {
-                dependencies.add(new ResolvedInclude(include, GFileUtils.canonicalise(candidate)));
-                return;
+            if (isFile(candidate)) {
+                return GFileUtils.canonicalise(candidate);
             }
         }
+        return null;
+    }
+
+    private boolean isFile(File candidate) {
+        File directory = candidate.getParentFile();
+        boolean revalidate = checkedDirectories.add(directory);
+        return directoryIndex.mayContain(directory, candidate.getName(), revalidate) && candidate.isFile();
     }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.language.nativebase.internal.incremental;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the listing of each directory that includes are searched in, so that most candidate include files can be ruled out without touching
+ * the file system. Shared by all native compile tasks of a build.
+ *
+ * <p>A listing is checked against the modification time of its directory when a caller asks for it to be revalidated, as files may be
+ * generated into an include directory while the build runs.</p>
+ */
+public class IncludeDirectoryIndex {
+    // The resolution of directory modification times on some file systems
+    private static final long TIMESTAMP_RESOLUTION = 2000;
+
+    private final ConcurrentMap<File, DirectoryListing> listings = new ConcurrentHashMap<File, DirectoryListing>();
+
+    /**
+     * Returns false when the given directory definitely does not contain an entry with the given name. Names are compared ignoring case, so
+     * that this works on case insensitive file systems, which means that the caller needs to check a true result against the file system.
+     *
+     * @param revalidate whether the listing of the directory should be checked for changes since it was taken.
+     */
+    public boolean mayContain(File directory, String name, boolean revalidate) {
+        DirectoryListing listing = listings.get(directory);
+        if (listing == null || (revalidate && !listing.isUpToDate(directory))) {
+            listing = new DirectoryListing(directory);
+            listings.put(directory, listing);
+        }
+        return listing.names.contains(name.toLowerCase(Locale.ENGLISH));
+    }
+
+    private static class DirectoryListing {
+        final long lastModified;
+        final long listedAt;
+        final Set<String> names = new HashSet<String>();
+
+        DirectoryListing(File directory) {
+            listedAt = System.currentTimeMillis();
+            lastModified = directory.lastModified();
+            String[] entries = directory.list();
+            if (entries != null) {
+                for (String entry : entries) {
+                    names.add(entry.toLowerCase(Locale.ENGLISH));
+                }
+            }
+        }
+
+        boolean isUpToDate(File directory) {
+            // A directory that changed shortly before it was listed may change again without a change to its modification time
+            return listedAt - lastModified > TIMESTAMP_RESOLUTION && directory.lastModified() == lastModified;
+        }
+    }
+}
@@ -25,13 +25,15 @@ import org.gradle.nativeplatform.toolchain.internal.NativeCompileSpec;
 public class IncrementalCompilerBuilder {
     private final TaskArtifactStateCacheAccess cacheAccess;
     private final FileSnapshotter fileSnapshotter;
+    private final IncludeDirectoryIndex includeDirectoryIndex;
 
-    public IncrementalCompilerBuilder(TaskArtifactStateCacheAccess cacheAccess, FileSnapshotter fileSnapshotter) {
+    public IncrementalCompilerBuilder(TaskArtifactStateCacheAccess cacheAccess, FileSnapshotter fileSnapshotter, IncludeDirectoryIndex includeDirectoryIndex) {
         this.cacheAccess = cacheAccess;
         this.fileSnapshotter = fileSnapshotter;
+        this.includeDirectoryIndex = includeDirectoryIndex;
     }
 
     public Compiler<NativeCompileSpec> createIncrementalCompiler(TaskInternal task, Compiler<NativeCompileSpec> compiler, ToolChain toolchain) {
-        return new IncrementalNativeCompiler(task, cacheAccess, fileSnapshotter, compiler, toolchain);
+        return new IncrementalNativeCompiler(task, cacheAccess, fileSnapshotter, includeDirectoryIndex, compiler, toolchain);
     }
 }
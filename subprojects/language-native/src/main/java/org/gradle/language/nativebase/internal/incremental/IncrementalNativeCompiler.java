@@ -41,13 +41,16 @@ public class IncrementalNativeCompiler implements Compiler<NativeCompileSpec> {
     private final TaskInternal task;
     private final TaskArtifactStateCacheAccess cacheAccess;
     private final FileSnapshotter fileSnapshotter;
+    private final IncludeDirectoryIndex includeDirectoryIndex;
 
     private final CSourceParser sourceParser = new RegexBackedCSourceParser();
 
-    public IncrementalNativeCompiler(TaskInternal task, TaskArtifactStateCacheAccess cacheAccess, FileSnapshotter fileSnapshotter, Compiler<NativeCompileSpec> delegateCompiler, ToolChain toolChain) {
+    public IncrementalNativeCompiler(TaskInternal task, TaskArtifactStateCacheAccess cacheAccess, FileSnapshotter fileSnapshotter, IncludeDirectoryIndex includeDirectoryIndex,
+                                     Compiler<NativeCompileSpec> delegateCompiler, ToolChain toolChain) {
         this.task = task;
         this.cacheAccess = cacheAccess;
         this.fileSnapshotter = fileSnapshotter;
+        this.includeDirectoryIndex = includeDirectoryIndex;
         this.delegateCompiler = delegateCompiler;
         this.importsAreIncludes = Clang.class.isAssignableFrom(toolChain.getClass()) || Gcc.class.isAssignableFrom(toolChain.getClass());
     }
@@ -55,7 +58,10 @@ public class IncrementalNativeCompiler implements Compiler<NativeCompileSpec> {
     public WorkResult execute(final NativeCompileSpec spec) {
         IncrementalCompilation compilation = cacheAccess.useCache("process source files", new Factory<IncrementalCompilation>() {
             public IncrementalCompilation create() {
-                DefaultSourceIncludesParser sourceIncludesParser = new DefaultSourceIncludesParser(sourceParser, importsAreIncludes);
+                CachingSourceIncludesParser sourceIncludesParser = new CachingSourceIncludesParser(
+                        new DefaultSourceIncludesParser(sourceParser, importsAreIncludes),
+                        fileSnapshotter,
+                        cacheAccess.createCache(importsAreIncludes ? "sourceIncludesWithImports" : "sourceIncludes", String.class, new SourceIncludesSerializer()));
                 IncrementalCompileProcessor processor = createProcessor(sourceIncludesParser, spec.getIncludeRoots());
                 // TODO - do not hold the lock while processing the source files - this prevents other tasks from executing concurrently
                 return processor.processSourceFiles(spec.getSourceFiles());
@@ -94,15 +100,15 @@ public class IncrementalNativeCompiler implements Compiler<NativeCompileSpec> {
         return task;
     }
 
-    private IncrementalCompileProcessor createProcessor(SourceIncludesParser sourceIncludesParser, Iterable<File> includes) {
-        PersistentStateCache<CompilationState> compileStateCache = createCompileStateCache(task.getPath());
+    private IncrementalCompileProcessor createProcessor(CachingSourceIncludesParser sourceIncludesParser, Iterable<File> includes) {
+        PersistentStateCache<CompilationState> compileStateCache = createCompileStateCache(task.getPath(), sourceIncludesParser);
 
-        DefaultSourceIncludesResolver dependencyParser = new DefaultSourceIncludesResolver(CollectionUtils.toList(includes));
+        DefaultSourceIncludesResolver dependencyParser = new DefaultSourceIncludesResolver(CollectionUtils.toList(includes), includeDirectoryIndex);
 
         return new IncrementalCompileProcessor(compileStateCache, dependencyParser, sourceIncludesParser, fileSnapshotter);
     }
 
-    private PersistentStateCache<CompilationState> createCompileStateCache(final String taskPath) {
+    private PersistentStateCache<CompilationState> createCompileStateCache(final String taskPath, final CachingSourceIncludesParser sourceIncludesParser) {
         final PersistentIndexedCache<String, CompilationState> stateIndexedCache = cacheAccess.createCache("compilationState", String.class, new CompilationStateSerializer());
         return new PersistentStateCache<CompilationState>() {
             public CompilationState get() {
@@ -110,6 +116,7 @@ public class IncrementalNativeCompiler implements Compiler<NativeCompileSpec> {
             }
 
             public void set(CompilationState newValue) {
+                sourceIncludesParser.discardUnused(stateIndexedCache.get(taskPath), newValue);
                 stateIndexedCache.put(taskPath, newValue);
             }
 
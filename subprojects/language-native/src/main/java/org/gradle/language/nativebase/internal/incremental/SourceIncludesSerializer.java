@@ -0,0 +1,36 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.language.nativebase.internal.incremental;
+
+import org.gradle.messaging.serialize.*;
+
+class SourceIncludesSerializer implements Serializer<SourceIncludes> {
+    private final ListSerializer<String> stringListSerializer = new ListSerializer<String>(new BaseSerializerFactory().getSerializerFor(String.class));
+
+    public SourceIncludes read(Decoder decoder) throws Exception {
+        SourceIncludes sourceIncludes = new DefaultSourceIncludes();
+        sourceIncludes.getQuotedIncludes().addAll(stringListSerializer.read(decoder));
+        sourceIncludes.getSystemIncludes().addAll(stringListSerializer.read(decoder));
+        sourceIncludes.getMacroIncludes().addAll(stringListSerializer.read(decoder));
+        return sourceIncludes;
+    }
+
+    public void write(Encoder encoder, SourceIncludes value) throws Exception {
+        stringListSerializer.write(encoder, value.getQuotedIncludes());
+        stringListSerializer.write(encoder, value.getSystemIncludes());
+        stringListSerializer.write(encoder, value.getMacroIncludes());
+    }
+}
@@ -18,6 +18,7 @@ package org.gradle.language.nativebase.internal.registry;
 
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.scopes.PluginServiceRegistry;
+import org.gradle.language.nativebase.internal.incremental.IncludeDirectoryIndex;
 import org.gradle.language.nativebase.internal.incremental.IncrementalCompilerBuilder;
 
 public class NativeLanguageServices implements PluginServiceRegistry {
@@ -25,6 +26,7 @@ public class NativeLanguageServices implements PluginServiceRegistry {
     }
 
     public void registerBuildServices(ServiceRegistration registration) {
+        registration.add(IncludeDirectoryIndex.class);
     }
 
     public void registerProjectServices(ServiceRegistration registration) {
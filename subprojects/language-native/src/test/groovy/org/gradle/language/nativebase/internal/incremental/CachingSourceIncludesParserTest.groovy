@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.language.nativebase.internal.incremental
+
+import org.gradle.api.internal.changedetection.state.FileSnapshot
+import org.gradle.api.internal.changedetection.state.FileSnapshotter
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.hash.HashValue
+import spock.lang.Specification
+
+class CachingSourceIncludesParserTest extends Specification {
+    def delegate = Mock(SourceIncludesParser)
+    def snapshotter = Stub(FileSnapshotter)
+    def cache = Mock(PersistentIndexedCache)
+    def parser = new CachingSourceIncludesParser(delegate, snapshotter, cache)
+    def file = new File("header.h")
+    def includes = Stub(SourceIncludes)
+
+    def setup() {
+        snapshotter.snapshot(file) >> Stub(FileSnapshot) {
+            getHash() >> ([1, 2, 3] as byte[])
+        }
+    }
+
+    def "parses file and caches includes by file hash"() {
+        when:
+        def result = parser.parseIncludes(file)
+
+        then:
+        result == includes
+        1 * cache.get("1eyr") >> null
+        1 * delegate.parseIncludes(file) >> includes
+        1 * cache.put("1eyr", includes)
+        0 * _
+    }
+
+    def "uses cached includes for file with same hash"() {
+        when:
+        def result = parser.parseIncludes(file)
+
+        then:
+        result == includes
+        1 * cache.get("1eyr") >> includes
+        0 * _
+    }
+
+    def "discards includes of file contents that are no longer used by task"() {
+        def previous = new CompilationState()
+        previous.setState(new File("unchanged.h"), new CompilationFileState([1, 2, 3] as byte[]))
+        previous.setState(new File("changed.h"), new CompilationFileState([4, 5, 6] as byte[]))
+        previous.setState(new File("removed.h"), new CompilationFileState([7, 8, 9] as byte[]))
+        def current = new CompilationState()
+        current.setState(new File("unchanged.h"), new CompilationFileState([1, 2, 3] as byte[]))
+        current.setState(new File("changed.h"), new CompilationFileState([7, 8, 9] as byte[]))
+
+        when:
+        parser.discardUnused(previous, current)
+
+        then:
+        1 * cache.remove(new HashValue([4, 5, 6] as byte[]).asCompactString())
+        0 * _
+    }
+
+    def "does not discard anything on first compilation of task"() {
+        when:
+        parser.discardUnused(null, new CompilationState())
+
+        then:
+        0 * _
+    }
+}
@@ -131,6 +131,41 @@ class DefaultSourceIncludesResolverTest extends Specification {
         dependencies == deps(relativeHeader, otherHeader)
     }
 
+    def "searches for each include only once"() {
+        given:
+        def includeDir = testDirectory.file("include")
+        final header = includeDir.createFile("test.h")
+        includePaths << includeDir
+        systemIncludes << "test.h" << "missing.h"
+        def resolver = new DefaultSourceIncludesResolver(includePaths)
+
+        when:
+        def first = resolver.resolveIncludes(sourceFile, includes) as List
+        header.delete()
+        def second = resolver.resolveIncludes(sourceFile, includes) as List
+
+        then:
+        first == deps(header)
+        second == deps(header)
+    }
+
+    def "locates include created in include directory by an earlier task"() {
+        given:
+        def includeDir = testDirectory.createDir("include")
+        def index = new IncludeDirectoryIndex()
+        includePaths << includeDir
+        systemIncludes << "generated.h"
+
+        when:
+        def before = new DefaultSourceIncludesResolver(includePaths, index).resolveIncludes(sourceFile, includes) as List
+        final header = includeDir.createFile("generated.h")
+        def after = new DefaultSourceIncludesResolver(includePaths, index).resolveIncludes(sourceFile, includes) as List
+
+        then:
+        before == []
+        after == deps(header)
+    }
+
     def "includes unknown source dependency for first macro include"() {
         when:
         macroIncludes << 'DEFINE_1' << 'DEFINE_2'
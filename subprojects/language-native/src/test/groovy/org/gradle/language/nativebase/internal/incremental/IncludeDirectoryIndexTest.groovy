@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.language.nativebase.internal.incremental
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class IncludeDirectoryIndexTest extends Specification {
+    @Rule final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def index = new IncludeDirectoryIndex()
+
+    def "reports entries of directory ignoring case"() {
+        def dir = tmpDir.createDir("include")
+        dir.createFile("header.h")
+        dir.createDir("nested")
+
+        expect:
+        index.mayContain(dir, "header.h", false)
+        index.mayContain(dir, "HEADER.h", false)
+        index.mayContain(dir, "nested", false)
+        !index.mayContain(dir, "other.h", false)
+    }
+
+    def "reports no entries for missing directory"() {
+        expect:
+        !index.mayContain(tmpDir.file("missing"), "header.h", false)
+    }
+
+    def "uses listing until asked to revalidate"() {
+        def dir = tmpDir.createDir("include")
+        dir.createFile("header.h")
+
+        when:
+        index.mayContain(dir, "header.h", false)
+        dir.createFile("generated.h")
+
+        then:
+        !index.mayContain(dir, "generated.h", false)
+        index.mayContain(dir, "generated.h", true)
+    }
+
+    def "keeps listing of directory that has not changed since it was listed"() {
+        def dir = tmpDir.createDir("include")
+        dir.createFile("header.h")
+        def lastModified = System.currentTimeMillis() - 10000
+        dir.setLastModified(lastModified)
+
+        when:
+        index.mayContain(dir, "header.h", false)
+        dir.file("header.h").delete()
+        dir.setLastModified(lastModified)
+
+        then:
+        index.mayContain(dir, "header.h", true)
+    }
+}
@@ -23,13 +23,12 @@ import org.gradle.tooling.internal.provider.jdk6.Jdk6ClassLookup;
 
 import java.io.*;
 import java.lang.reflect.Proxy;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 @ThreadSafe
 public class PayloadSerializer {
     private static final short SYSTEM_CLASS_LOADER_ID = (short) -1;
+    static final int CHUNK_SIZE = 64 * 1024;
     private static final Set<ClassLoader> SYSTEM_CLASS_LOADERS = new HashSet<ClassLoader>();
     private final Transformer<ObjectStreamClass, Class<?>> classLookup;
     private final PayloadClassLoaderRegistry classLoaderRegistry;
@@ -48,8 +47,30 @@ public class PayloadSerializer {
     public SerializedPayload serialize(Object payload) {
         final SerializeMap map = classLoaderRegistry.newSerializeSession();
         try {
-            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            ChunkedOutputStream content = new ChunkedOutputStream();
             final ObjectOutputStream objectStream = new ObjectOutputStream(content) {
+                private final Map<Object, Object> canonicalValues = new HashMap<Object, Object>();
+
+                {
+                    enableReplaceObject(true);
+                }
+
+                /**
+                 * Replaces each string and file with the first equal instance that was written, so that the stream refers back to that instance
+                 * instead of writing a copy. Models tend to contain many equal paths and names, and these are then also shared by the receiver.
+                 */
+                @Override
+                protected Object replaceObject(Object obj) {
+                    if (obj instanceof String || (obj != null && obj.getClass() == File.class)) {
+                        Object canonical = canonicalValues.get(obj);
+                        if (canonical != null) {
+                            return canonical;
+                        }
+                        canonicalValues.put(obj, obj);
+                    }
+                    return obj;
+                }
+
                 @Override
                 protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
                     Class<?> targetClass = desc.forClass();
@@ -86,7 +107,7 @@ public class PayloadSerializer {
             if (classLoaders.containsKey(SYSTEM_CLASS_LOADER_ID)) {
                 throw new IllegalArgumentException("Unexpected ClassLoader id found");
             }
-            return new SerializedPayload(classLoaders, content.toByteArray());
+            return new SerializedPayload(classLoaders, content.getChunks());
         } catch (IOException e) {
             throw UncheckedException.throwAsUncheckedException(e);
         }
@@ -98,7 +119,7 @@ public class PayloadSerializer {
             final ClassLoader systemClassLoader = ClassLoader.getSystemClassLoader().getParent();
             final Map<Short, ClassLoaderDetails> classLoaderDetails = (Map<Short, ClassLoaderDetails>) payload.getHeader();
 
-            final ObjectInputStream objectStream = new ObjectInputStream(new ByteArrayInputStream(payload.getSerializedModel())) {
+            final ObjectInputStream objectStream = new ObjectInputStream(chunksInputStream(payload.getSerializedModel())) {
                 @Override
                 protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
                     Class<?> aClass = readClass();
@@ -139,4 +160,58 @@ public class PayloadSerializer {
             throw UncheckedException.throwAsUncheckedException(e);
         }
     }
+
+    private static InputStream chunksInputStream(List<byte[]> chunks) {
+        List<InputStream> streams = new ArrayList<InputStream>(chunks.size());
+        for (byte[] chunk : chunks) {
+            streams.add(new ByteArrayInputStream(chunk));
+        }
+        return new SequenceInputStream(Collections.enumeration(streams));
+    }
+
+    /**
+     * Collects the serialized model in fixed size chunks. Unlike a {@link ByteArrayOutputStream}, this does not copy the content each time
+     * it grows, or again when it is done, so a large model needs about as much heap as its serialized size rather than several times that.
+     */
+    private static class ChunkedOutputStream extends OutputStream {
+        private final List<byte[]> chunks = new ArrayList<byte[]>();
+        private byte[] current = new byte[CHUNK_SIZE];
+        private int pos;
+
+        @Override
+        public void write(int b) {
+            if (pos == current.length) {
+                nextChunk();
+            }
+            current[pos++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            while (length > 0) {
+                if (pos == current.length) {
+                    nextChunk();
+                }
+                int count = Math.min(length, current.length - pos);
+                System.arraycopy(buffer, offset, current, pos, count);
+                pos += count;
+                offset += count;
+                length -= count;
+            }
+        }
+
+        private void nextChunk() {
+            chunks.add(current);
+            current = new byte[CHUNK_SIZE];
+            pos = 0;
+        }
+
+        List<byte[]> getChunks() {
+            byte[] last = new byte[pos];
+            System.arraycopy(current, 0, last, 0, pos);
+            chunks.add(last);
+            current = null;
+            return chunks;
+        }
+    }
 }
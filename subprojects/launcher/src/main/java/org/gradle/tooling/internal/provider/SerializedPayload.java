@@ -17,12 +17,17 @@
 package org.gradle.tooling.internal.provider;
 
 import java.io.Serializable;
+import java.util.List;
 
+/**
+ * A serialized model, along with the details of the ClassLoaders needed to deserialize it. The model is held in a list of chunks rather than a
+ * single array, so that a large model does not need a single large allocation.
+ */
 public class SerializedPayload implements Serializable {
-    private final byte[] serializedModel;
+    private final List<byte[]> serializedModel;
     private final Object header;
 
-    public SerializedPayload(Object header, byte[] serializedModel) {
+    public SerializedPayload(Object header, List<byte[]> serializedModel) {
         this.header = header;
         this.serializedModel = serializedModel;
     }
@@ -31,7 +36,7 @@ public class SerializedPayload implements Serializable {
         return header;
     }
 
-    public byte[] getSerializedModel() {
+    public List<byte[]> getSerializedModel() {
         return serializedModel;
     }
 }
@@ -151,6 +151,39 @@ class PayloadSerializerTest extends AbstractClassGraphSpec {
         received.name == cl.name
     }
 
+    def "sends equal strings and files only once"() {
+        def original = []
+        3.times {
+            original << new String("some value")
+            original << new File("some-file")
+        }
+
+        when:
+        def serialized = originator.serialize(original)
+        def received = receiver.deserialize(serialized)
+
+        then:
+        received == original
+        received[0].is(received[2])
+        received[0].is(received[4])
+        received[1].is(received[3])
+        received[1].is(received[5])
+    }
+
+    def "splits a large payload into chunks"() {
+        def original = (1..20000).collect { "value $it".toString() }
+
+        when:
+        def serialized = originator.serialize(original)
+        def received = receiver.deserialize(serialized)
+
+        then:
+        received == original
+        serialized.serializedModel.size() > 1
+        serialized.serializedModel.every { it.length <= PayloadSerializer.CHUNK_SIZE }
+        serialized.serializedModel[0..-2].every { it.length == PayloadSerializer.CHUNK_SIZE }
+    }
+
     def "reuses ClassLoaders for multiple invocations"() {
         def cl = isolated(WrapperPayload, CustomPayload, PayloadInterface)
         def wrapperClass = cl.loadClass(WrapperPayload.name)
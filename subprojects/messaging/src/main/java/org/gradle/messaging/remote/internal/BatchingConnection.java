@@ -0,0 +1,30 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.messaging.remote.internal;
+
+import java.util.List;
+
+/**
+ * A {@link Connection} that can send several messages together, which is cheaper than dispatching each of them on its own.
+ */
+public interface BatchingConnection<T> extends Connection<T> {
+    /**
+     * Sends the given messages in order. The messages are not necessarily written to the underlying transport until the last message has been
+     * serialized.
+     */
+    void dispatchBatch(List<? extends T> messages);
+}
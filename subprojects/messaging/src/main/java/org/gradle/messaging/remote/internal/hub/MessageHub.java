@@ -17,16 +17,19 @@
 package org.gradle.messaging.remote.internal.hub;
 
 import org.gradle.api.Action;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.AsyncStoppable;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.messaging.dispatch.Dispatch;
+import org.gradle.messaging.remote.internal.BatchingConnection;
 import org.gradle.messaging.remote.internal.Connection;
 import org.gradle.messaging.remote.internal.hub.protocol.*;
 import org.gradle.messaging.remote.internal.hub.queue.EndPointQueue;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -37,11 +40,15 @@ public class MessageHub implements AsyncStoppable {
     private enum State {Running, Stopping, Stopped}
 
     private static final Discard DISCARD = new Discard();
+    private static final int DEFAULT_MAX_QUEUED_OUTGOING_MESSAGES = 10000;
     private final StoppableExecutor workers;
     private final String displayName;
     private final Action<? super Throwable> errorHandler;
     private final Lock lock = new ReentrantLock();
+    private final Condition outgoingQueueDrained = lock.newCondition();
+    private final int maxQueuedOutgoingMessages;
     private State state = State.Running;
+    private int activeConnectionDispatches;
     private final IncomingQueue incomingQueue = new IncomingQueue(lock);
     private final OutgoingQueue outgoingQueue = new OutgoingQueue(incomingQueue, lock);
     private final ConnectionSet connections = new ConnectionSet(incomingQueue, outgoingQueue);
@@ -50,8 +57,17 @@ public class MessageHub implements AsyncStoppable {
      * @param errorHandler Notified when some asynch. activity fails. Must be thread-safe.
      */
     public MessageHub(String displayName, ExecutorFactory executorFactory, Action<? super Throwable> errorHandler) {
+        this(displayName, executorFactory, errorHandler, DEFAULT_MAX_QUEUED_OUTGOING_MESSAGES);
+    }
+
+    /**
+     * @param errorHandler Notified when some asynch. activity fails. Must be thread-safe.
+     * @param maxQueuedOutgoingMessages The number of outgoing messages that can be queued up for the connections before dispatching an outgoing message blocks.
+     */
+    public MessageHub(String displayName, ExecutorFactory executorFactory, Action<? super Throwable> errorHandler, int maxQueuedOutgoingMessages) {
         this.displayName = displayName;
         this.errorHandler = errorHandler;
+        this.maxQueuedOutgoingMessages = maxQueuedOutgoingMessages;
         workers = executorFactory.create(String.format("%s workers", displayName));
     }
 
@@ -59,6 +75,9 @@ public class MessageHub implements AsyncStoppable {
      * <p>Adds a {@link Dispatch} implementation that can be used to send outgoing messages on the given channel. The returned value is thread-safe.</p>
      *
      * <p>All messages sent via the dispatch are forwarded to exactly one connection.</p>
+     *
+     * <p>While a connection is attached and falls behind, dispatching a message blocks until the connection has caught up with the queued messages.
+     * When no connection is attached, messages are queued without limit.</p>
      */
     public <T> Dispatch<T> getOutgoing(final String channelName, final Class<T> type) {
         lock.lock();
@@ -127,6 +146,7 @@ public class MessageHub implements AsyncStoppable {
         try {
             assertRunning("add connection");
             ConnectionState connectionState = connections.add(connection);
+            activeConnectionDispatches++;
             workers.execute(new ConnectionDispatch(connectionState));
             workers.execute(new ConnectionReceive(connectionState));
         } finally {
@@ -162,6 +182,7 @@ public class MessageHub implements AsyncStoppable {
                 connections.requestStop();
             } finally {
                 state = State.Stopping;
+                outgoingQueueDrained.signalAll();
             }
         } finally {
             lock.unlock();
@@ -271,21 +292,20 @@ public class MessageHub implements AsyncStoppable {
                         lock.lock();
                         try {
                             queue.take(messages);
+                            outgoingQueueDrained.signalAll();
                         } finally {
                             lock.unlock();
                         }
-                        for (Object message : messages) {
-                            InterHubMessage channelMessage = (InterHubMessage) message;
-                            connection.dispatch(channelMessage);
-                            if (message instanceof EndOfStream) {
-                                return;
-                            }
+                        if (dispatch(messages)) {
+                            return;
                         }
                         messages.clear();
                     }
                 } finally {
                     lock.lock();
                     try {
+                        activeConnectionDispatches--;
+                        outgoingQueueDrained.signalAll();
                         connectionState.dispatchFinished();
                     } finally {
                         lock.unlock();
@@ -295,6 +315,31 @@ public class MessageHub implements AsyncStoppable {
                 errorHandler.execute(t);
             }
         }
+
+        /**
+         * Sends everything that has been queued up since the previous batch, up to and including any end-of-stream marker.
+         *
+         * @return true when end-of-stream has been sent.
+         */
+        private boolean dispatch(List<InterHubMessage> messages) {
+            List<InterHubMessage> batch = messages;
+            boolean endOfStream = false;
+            for (int i = 0; i < messages.size(); i++) {
+                if (messages.get(i) instanceof EndOfStream) {
+                    batch = messages.subList(0, i + 1);
+                    endOfStream = true;
+                    break;
+                }
+            }
+            if (connection instanceof BatchingConnection) {
+                ((BatchingConnection<InterHubMessage>) connection).dispatchBatch(batch);
+            } else {
+                for (InterHubMessage message : batch) {
+                    connection.dispatch(message);
+                }
+            }
+            return endOfStream;
+        }
     }
 
     private class ChannelDispatch<T> implements Dispatch<T> {
@@ -316,6 +361,14 @@ public class MessageHub implements AsyncStoppable {
             try {
                 assertRunning("dispatch message");
                 outgoingQueue.dispatch(new ChannelMessage(channelIdentifier, message));
+                // Hold up the sender while the connections catch up, rather than queue up messages without limit
+                while (state == State.Running && activeConnectionDispatches > 0 && outgoingQueue.isBacklogged(maxQueuedOutgoingMessages)) {
+                    try {
+                        outgoingQueueDrained.await();
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
+                }
             } finally {
                 lock.unlock();
             }
@@ -52,6 +52,13 @@ public class MultiEndPointQueue implements Dispatch<InterHubMessage> {
         queue.dispatch(new EndOfStream());
     }
 
+    /**
+     * Returns true when at least the given number of messages are waiting for an endpoint of this queue to take them.
+     */
+    public boolean isBacklogged(int maxQueued) {
+        return !endpoints.isEmpty() && queue.size() >= maxQueued;
+    }
+
     public void drain(Collection<InterHubMessage> drainTo) {
         drainTo.addAll(queue);
         queue.clear();
@@ -20,7 +20,7 @@ import com.google.common.base.Objects;
 import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.UncheckedException;
 import org.gradle.messaging.remote.Address;
-import org.gradle.messaging.remote.internal.Connection;
+import org.gradle.messaging.remote.internal.BatchingConnection;
 import org.gradle.messaging.remote.internal.MessageIOException;
 import org.gradle.messaging.remote.internal.MessageSerializer;
 import org.gradle.messaging.serialize.ObjectReader;
@@ -36,8 +36,9 @@ import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
+import java.util.List;
 
-public class SocketConnection<T> implements Connection<T> {
+public class SocketConnection<T> implements BatchingConnection<T> {
     private final SocketChannel socket;
     private final SocketInetAddress localAddress;
     private final SocketInetAddress remoteAddress;
@@ -116,6 +117,20 @@ public class SocketConnection<T> implements Connection<T> {
         }
     }
 
+    public void dispatchBatch(List<? extends T> messages) {
+        T message = null;
+        try {
+            // Serialize everything into the output buffer, and only then flush it, so that a batch of small messages goes out in as few writes as possible
+            for (T current : messages) {
+                message = current;
+                objectWriter.write(current);
+            }
+            outstr.flush();
+        } catch (Exception e) {
+            throw new MessageIOException(String.format("Could not write message %s to '%s'.", message, remoteAddress), e);
+        }
+    }
+
     public void requestStop() {
         CompositeStoppable.stoppable(instr).stop();
     }
@@ -144,7 +159,7 @@ public class SocketConnection<T> implements Connection<T> {
             if (nread <= 0) {
                 return nread;
             }
-            return readBuffer[0];
+            return readBuffer[0] & 0xff;
         }
 
         @Override
@@ -154,17 +169,13 @@ public class SocketConnection<T> implements Connection<T> {
             }
 
             if (buffer.remaining() == 0) {
-                try {
-                    selector.select();
-                } catch (ClosedSelectorException e) {
-                    return -1;
-                }
-                if (!selector.isOpen()) {
-                    return -1;
+                if (max >= buffer.capacity()) {
+                    // Read directly into the destination, rather than copying the content through the buffer
+                    return readFromSocket(ByteBuffer.wrap(dest, offset, max));
                 }
 
                 buffer.clear();
-                int nread = socket.read(buffer);
+                int nread = readFromSocket(buffer);
                 buffer.flip();
 
                 if (nread < 0) {
@@ -177,6 +188,26 @@ public class SocketConnection<T> implements Connection<T> {
             return count;
         }
 
+        private int readFromSocket(ByteBuffer dest) throws IOException {
+            if (!selector.isOpen()) {
+                return -1;
+            }
+            // Only wait for the socket when nothing can be read yet. The peer is usually still sending when there is a lot of traffic
+            int nread = socket.read(dest);
+            while (nread == 0) {
+                try {
+                    selector.select();
+                } catch (ClosedSelectorException e) {
+                    return -1;
+                }
+                if (!selector.isOpen()) {
+                    return -1;
+                }
+                nread = socket.read(dest);
+            }
+            return nread;
+        }
+
         @Override
         public void close() throws IOException {
             selector.close();
@@ -204,32 +235,35 @@ public class SocketConnection<T> implements Connection<T> {
 
         @Override
         public void write(byte[] src, int offset, int max) throws IOException {
-            int remaining = max;
-            int currentPos = offset;
-            while (remaining > 0) {
-                int count = Math.min(remaining, buffer.remaining());
-                if (count > 0) {
-                    buffer.put(src, currentPos, count);
-                    remaining -= count;
-                    currentPos += count;
-                }
-                if (buffer.remaining() == 0) {
-                    flush();
-                }
+            if (max <= buffer.remaining()) {
+                buffer.put(src, offset, max);
+                return;
             }
+
+            // Does not fit: write the buffered content and the given content together, rather than copying the content through the buffer
+            buffer.flip();
+            writeToSocket(buffer, ByteBuffer.wrap(src, offset, max));
+            buffer.clear();
         }
 
         @Override
         public void flush() throws IOException {
             buffer.flip();
-            while (buffer.remaining() > 0) {
-                selector.select();
+            writeToSocket(buffer);
+            buffer.clear();
+        }
+
+        private void writeToSocket(ByteBuffer... content) throws IOException {
+            ByteBuffer last = content[content.length - 1];
+            while (last.remaining() > 0) {
                 if (!selector.isOpen()) {
                     throw new EOFException();
                 }
-                socket.write(buffer);
+                // Only wait for the socket when nothing can be written. Usually the socket can take more content straight away
+                if (socket.write(content) == 0) {
+                    selector.select();
+                }
             }
-            buffer.clear();
         }
 
         @Override
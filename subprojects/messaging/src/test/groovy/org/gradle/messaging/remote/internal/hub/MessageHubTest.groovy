@@ -18,6 +18,7 @@ package org.gradle.messaging.remote.internal.hub
 
 import org.gradle.api.Action
 import org.gradle.messaging.dispatch.Dispatch
+import org.gradle.messaging.remote.internal.BatchingConnection
 import org.gradle.messaging.remote.internal.Connection
 import org.gradle.messaging.remote.internal.hub.protocol.ChannelIdentifier
 import org.gradle.messaging.remote.internal.hub.protocol.ChannelMessage
@@ -249,6 +250,82 @@ class MessageHubTest extends ConcurrentSpec {
         connection.stop()
     }
 
+    def "outgoing messages queued while connection is busy are dispatched together to batching connection"() {
+        Dispatch<List<InterHubMessage>> outgoing = Mock()
+        def connection = new MockBatchingConnection(outgoing)
+        def dispatcher = hub.getOutgoing("channel", Long)
+
+        given:
+        hub.addConnection(connection)
+
+        when:
+        dispatcher.dispatch(0)
+        thread.blockUntil.firstBatchStarted
+        dispatcher.dispatch(1)
+        dispatcher.dispatch(2)
+        instant.queued
+        thread.blockUntil.secondBatchDispatched
+
+        then:
+        1 * outgoing.dispatch({ it.size() == 1 && it[0] instanceof ChannelMessage && it[0].payload == 0 }) >> {
+            instant.firstBatchStarted
+            thread.blockUntil.queued
+        }
+        1 * outgoing.dispatch({ it.size() == 2 && it[0].payload == 1 && it[1].payload == 2 }) >> {
+            instant.secondBatchDispatched
+        }
+        0 * _._
+
+        cleanup:
+        connection.stop()
+    }
+
+    def "dispatch of outgoing message blocks while too many messages are queued for connection"() {
+        def boundedHub = new MessageHub("<bounded hub>", executorFactory, errorHandler, 2)
+        Dispatch<InterHubMessage> outgoing = Mock()
+        def connection = new MockOutgoingConnection(outgoing)
+        def dispatcher = boundedHub.getOutgoing("channel", Long)
+
+        given:
+        boundedHub.addConnection(connection)
+
+        when:
+        operation.dispatch {
+            4.times { dispatcher.dispatch(it) }
+        }
+        thread.blockUntil.lastDispatched
+
+        then:
+        1 * outgoing.dispatch({ it.payload == 0 }) >> {
+            thread.block()
+            instant.released
+        }
+        1 * outgoing.dispatch({ it.payload == 1 })
+        1 * outgoing.dispatch({ it.payload == 2 })
+        1 * outgoing.dispatch({ it.payload == 3 }) >> {
+            instant.lastDispatched
+        }
+        0 * _._
+
+        and:
+        operation.dispatch.end > instant.released
+
+        cleanup:
+        connection.stop()
+        boundedHub.stop()
+    }
+
+    def "does not block dispatch of outgoing messages when no connection is available"() {
+        def boundedHub = new MessageHub("<bounded hub>", executorFactory, errorHandler, 2)
+        def dispatcher = boundedHub.getOutgoing("channel", Long)
+
+        expect:
+        10.times { dispatcher.dispatch(it) }
+
+        cleanup:
+        boundedHub.stop()
+    }
+
     def "incoming messages are dispatched asynchronously to handler"() {
         def connection = new TestConnection()
         Dispatch<String> handler = Mock()
@@ -652,6 +729,35 @@ class MessageHubTest extends ConcurrentSpec {
         }
     }
 
+    private static class MockBatchingConnection implements BatchingConnection<InterHubMessage> {
+        private final Dispatch<List<InterHubMessage>> dispatch
+        private final BlockingQueue<InterHubMessage> incoming = new LinkedBlockingQueue<>()
+
+        MockBatchingConnection(Dispatch<List<InterHubMessage>> dispatch) {
+            this.dispatch = dispatch
+        }
+
+        void dispatch(InterHubMessage message) {
+            throw new UnsupportedOperationException()
+        }
+
+        void dispatchBatch(List<? extends InterHubMessage> messages) {
+            dispatch.dispatch(new ArrayList<InterHubMessage>(messages))
+        }
+
+        InterHubMessage receive() {
+            return incoming.take()
+        }
+
+        void requestStop() {
+            throw new UnsupportedOperationException()
+        }
+
+        void stop() {
+            incoming.put(new EndOfStream())
+        }
+    }
+
     private static class TestConnection implements Connection<InterHubMessage> {
         private final BlockingQueue<InterHubMessage> incoming = new LinkedBlockingQueue<>()
         private final BlockingQueue<InterHubMessage> outgoing = new LinkedBlockingQueue<>()
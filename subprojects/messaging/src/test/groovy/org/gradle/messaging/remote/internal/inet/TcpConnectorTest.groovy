@@ -179,5 +179,27 @@ class TcpConnectorTest extends ConcurrentSpec {
         connection?.stop()
         acceptor?.stop()
     }
-}
 
+    def "can send messages that are larger than the socket buffers"() {
+        def message = "message \u00e9\u00ff " * 20000
+
+        when:
+        def acceptor = incomingConnector.accept({ ConnectCompletion event ->
+            def connection = event.create(serializer)
+            connection.dispatch(message)
+            connection.dispatch("bye")
+            connection.stop()
+        } as Action, false)
+
+        def connection = outgoingConnector.connect(acceptor.address).create(serializer)
+
+        then:
+        connection.receive() == message
+        connection.receive() == "bye"
+        connection.receive() == null
+
+        cleanup:
+        connection?.stop()
+        acceptor?.stop()
+    }
+}
@@ -17,27 +17,56 @@
 package org.gradle.nativeplatform.toolchain.internal;
 
 import com.google.common.base.Joiner;
+import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.BatchExecutor;
 import org.gradle.internal.os.OperatingSystem;
 import org.gradle.process.internal.ExecAction;
 import org.gradle.process.internal.ExecActionFactory;
 import org.gradle.process.internal.ExecException;
 import org.gradle.util.GFileUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class CommandLineTool {
     private final String action;
     private final File executable;
     private final ExecActionFactory execActionFactory;
+    private final BatchExecutor batchExecutor;
 
-    public CommandLineTool(String action, File executable, ExecActionFactory execActionFactory) {
+    public CommandLineTool(String action, File executable, ExecActionFactory execActionFactory, BatchExecutor batchExecutor) {
         this.action = action;
         this.executable = executable;
         this.execActionFactory = execActionFactory;
+        this.batchExecutor = batchExecutor;
     }
 
     public void execute(CommandLineToolInvocation invocation) {
+        execute(invocation, null, null);
+    }
+
+    /**
+     * Executes the given invocations, running several of them at the same time on the build's batch executor, which bounds the number of
+     * concurrent invocations across all tasks of the build. The output of each invocation is then buffered and written out in the order of
+     * the invocations. Stops starting new invocations when one fails, and rethrows the failure of the earliest failed invocation.
+     */
+    public void execute(List<? extends CommandLineToolInvocation> invocations) {
+        if (invocations.size() <= 1) {
+            for (CommandLineToolInvocation invocation : invocations) {
+                execute(invocation);
+            }
+            return;
+        }
+        new ConcurrentExecution(invocations).run();
+    }
+
+    private void execute(CommandLineToolInvocation invocation, OutputStream standardOutput, OutputStream errorOutput) {
         ExecAction compiler = execActionFactory.newExecAction();
         compiler.executable(executable);
         if (invocation.getWorkDirectory() != null) {
@@ -56,10 +85,98 @@ public class CommandLineTool {
 
         compiler.environment(invocation.getEnvironment());
 
+        if (standardOutput != null) {
+            compiler.setStandardOutput(standardOutput);
+            compiler.setErrorOutput(errorOutput);
+        }
+
         try {
             compiler.execute();
         } catch (ExecException e) {
             throw new GradleException(String.format("%s failed; see the error output for details.", action), e);
         }
     }
+
+    private class ConcurrentExecution implements Action<Integer> {
+        private final List<? extends CommandLineToolInvocation> invocations;
+        private final AtomicBoolean failed = new AtomicBoolean();
+        private final InvocationResult[] results;
+        private int nextToReport;
+
+        ConcurrentExecution(List<? extends CommandLineToolInvocation> invocations) {
+            this.invocations = invocations;
+            this.results = new InvocationResult[invocations.size()];
+        }
+
+        void run() {
+            batchExecutor.forEachIndex(invocations.size(), this);
+            reportRemaining();
+        }
+
+        public void execute(Integer index) {
+            if (failed.get()) {
+                return;
+            }
+            InvocationResult result = new InvocationResult();
+            try {
+                CommandLineTool.this.execute(invocations.get(index), result.standardOutput, result.errorOutput);
+            } catch (RuntimeException e) {
+                result.failure = e;
+                failed.set(true);
+            }
+            completed(index, result);
+        }
+
+        /**
+         * Reports whatever completed after an earlier invocation failed and left a gap, and rethrows the earliest failure.
+         */
+        private synchronized void reportRemaining() {
+            RuntimeException failure = null;
+            for (InvocationResult result : results) {
+                if (result == null) {
+                    continue;
+                }
+                result.report();
+                if (failure == null) {
+                    failure = result.failure;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        private synchronized void completed(int index, InvocationResult result) {
+            results[index] = result;
+            while (nextToReport < results.length && results[nextToReport] != null) {
+                results[nextToReport].report();
+                if (results[nextToReport].failure == null) {
+                    results[nextToReport] = null;
+                }
+                nextToReport++;
+            }
+        }
+    }
+
+    private static class InvocationResult {
+        final ByteArrayOutputStream standardOutput = new ByteArrayOutputStream();
+        final ByteArrayOutputStream errorOutput = new ByteArrayOutputStream();
+        RuntimeException failure;
+        boolean reported;
+
+        void report() {
+            if (reported) {
+                return;
+            }
+            reported = true;
+            try {
+                standardOutput.writeTo(System.out);
+                errorOutput.writeTo(System.err);
+            } catch (IOException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+            System.out.flush();
+            System.err.flush();
+        }
+    }
 }
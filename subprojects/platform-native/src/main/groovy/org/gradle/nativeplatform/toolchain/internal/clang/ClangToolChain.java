@@ -17,6 +17,7 @@
 package org.gradle.nativeplatform.toolchain.internal.clang;
 
 import org.gradle.api.internal.file.FileResolver;
+import org.gradle.internal.concurrent.BatchExecutor;
 import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.nativeplatform.toolchain.Clang;
@@ -28,8 +29,8 @@ import org.gradle.process.internal.ExecActionFactory;
 public class ClangToolChain extends AbstractGccCompatibleToolChain implements Clang {
     public static final String DEFAULT_NAME = "clang";
 
-    public ClangToolChain(String name, OperatingSystem operatingSystem, FileResolver fileResolver, ExecActionFactory execActionFactory, CompilerMetaDataProviderFactory metaDataProviderFactory, Instantiator instantiator) {
-        super(name, operatingSystem, fileResolver, execActionFactory, metaDataProviderFactory.clang(), instantiator);
+    public ClangToolChain(String name, OperatingSystem operatingSystem, FileResolver fileResolver, ExecActionFactory execActionFactory, BatchExecutor batchExecutor, CompilerMetaDataProviderFactory metaDataProviderFactory, Instantiator instantiator) {
+        super(name, operatingSystem, fileResolver, execActionFactory, batchExecutor, metaDataProviderFactory.clang(), instantiator);
     }
 
     @Override
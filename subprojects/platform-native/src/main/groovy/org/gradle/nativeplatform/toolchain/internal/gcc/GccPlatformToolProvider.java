@@ -15,6 +15,7 @@
  */
 package org.gradle.nativeplatform.toolchain.internal.gcc;
 
+import org.gradle.internal.concurrent.BatchExecutor;
 import org.gradle.language.base.internal.compile.CompileSpec;
 import org.gradle.language.base.internal.compile.Compiler;
 import org.gradle.nativeplatform.internal.LinkerSpec;
@@ -33,14 +34,16 @@ class GccPlatformToolProvider implements PlatformToolProvider {
     private final OperatingSystemInternal targetOperatingSystem;
     private final ToolRegistry toolRegistry;
     private final ExecActionFactory execActionFactory;
+    private final BatchExecutor batchExecutor;
     private final boolean useCommandFile;
     private final String outputFileSuffix;
 
-    GccPlatformToolProvider(OperatingSystemInternal targetOperatingSystem, ToolSearchPath toolSearchPath, ToolRegistry toolRegistry, ExecActionFactory execActionFactory, boolean useCommandFile) {
+    GccPlatformToolProvider(OperatingSystemInternal targetOperatingSystem, ToolSearchPath toolSearchPath, ToolRegistry toolRegistry, ExecActionFactory execActionFactory, BatchExecutor batchExecutor, boolean useCommandFile) {
         this.targetOperatingSystem = targetOperatingSystem;
         this.toolRegistry = toolRegistry;
         this.toolSearchPath = toolSearchPath;
         this.execActionFactory = execActionFactory;
+        this.batchExecutor = batchExecutor;
         this.useCommandFile = useCommandFile;
         this.outputFileSuffix = "." + getObjectFileExtension();
     }
@@ -142,7 +145,7 @@ class GccPlatformToolProvider implements PlatformToolProvider {
     private CommandLineTool commandLineTool(GccCommandLineToolConfigurationInternal tool) {
         ToolType key = tool.getToolType();
         String exeName = tool.getExecutable();
-        return new CommandLineTool(key.getToolName(), toolSearchPath.locate(key, exeName).getTool(), execActionFactory);
+        return new CommandLineTool(key.getToolName(), toolSearchPath.locate(key, exeName).getTool(), execActionFactory, batchExecutor);
     }
 
     private CommandLineToolInvocation commandLineToolInvocation(GccCommandLineToolConfigurationInternal toolConfiguration) {
@@ -16,6 +16,7 @@
 package org.gradle.nativeplatform.toolchain.internal.gcc;
 
 import org.gradle.api.internal.file.FileResolver;
+import org.gradle.internal.concurrent.BatchExecutor;
 import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.nativeplatform.toolchain.Gcc;
@@ -30,8 +31,8 @@ import org.gradle.process.internal.ExecActionFactory;
 public class GccToolChain extends AbstractGccCompatibleToolChain implements Gcc {
     public static final String DEFAULT_NAME = "gcc";
 
-    public GccToolChain(Instantiator instantiator, String name, OperatingSystem operatingSystem, FileResolver fileResolver, ExecActionFactory execActionFactory, CompilerMetaDataProviderFactory metaDataProviderFactory) {
-        super(name, operatingSystem, fileResolver, execActionFactory, metaDataProviderFactory.gcc(), instantiator);
+    public GccToolChain(Instantiator instantiator, String name, OperatingSystem operatingSystem, FileResolver fileResolver, ExecActionFactory execActionFactory, BatchExecutor batchExecutor, CompilerMetaDataProviderFactory metaDataProviderFactory) {
+        super(name, operatingSystem, fileResolver, execActionFactory, batchExecutor, metaDataProviderFactory.gcc(), instantiator);
     }
 
     @Override
@@ -20,10 +20,12 @@ import org.gradle.api.Transformer;
 import org.gradle.api.internal.tasks.SimpleWorkResult;
 import org.gradle.language.base.internal.compile.Compiler;
 import org.gradle.api.tasks.WorkResult;
+import org.gradle.internal.hash.HashUtil;
 import org.gradle.internal.os.OperatingSystem;
 import org.gradle.nativeplatform.toolchain.internal.*;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -46,27 +48,33 @@ abstract public class NativeCompiler<T extends NativeCompileSpec> implements Com
     public WorkResult execute(T spec) {
         boolean windowsPathLimitation = OperatingSystem.current().isWindows();
 
-        MutableCommandLineToolInvocation invocation = baseInvocation.copy();
-        invocation.setWorkDirectory(spec.getObjectFileDir());
-        if (useCommandFile) {
-            invocation.addPostArgsAction(new GccOptionsFileArgTransformer(spec.getTempDir()));
-        }
-
         Transformer<List<String>, File> outputFileArgTransformer = new Transformer<List<String>, File>() {
             public List<String> transform(File outputFile) {
                 return Arrays.asList("-o", outputFile.getAbsolutePath());
             }
         };
 
+        List<CommandLineToolInvocation> invocations = new ArrayList<CommandLineToolInvocation>();
         for (File sourceFile : spec.getSourceFiles()) {
+            MutableCommandLineToolInvocation invocation = baseInvocation.copy();
+            invocation.setWorkDirectory(spec.getObjectFileDir());
+            if (useCommandFile) {
+                // Source files may be compiled concurrently, so each needs its own options file
+                invocation.addPostArgsAction(new GccOptionsFileArgTransformer(optionsFileDir(spec, sourceFile)));
+            }
             SingleSourceCompileArgTransformer<T> argTransformer = new SingleSourceCompileArgTransformer<T>(sourceFile,
                     objectFileSuffix,
                     new ShortCircuitArgsTransformer<T>(argsTransfomer),
                     windowsPathLimitation,
                     outputFileArgTransformer);
             invocation.setArgs(argTransformer.transform(spec));
-            commandLineTool.execute(invocation);
+            invocations.add(invocation);
         }
+        commandLineTool.execute(invocations);
         return new SimpleWorkResult(!spec.getSourceFiles().isEmpty());
     }
+
+    private File optionsFileDir(T spec, File sourceFile) {
+        return new File(spec.getTempDir(), HashUtil.createCompactMD5(sourceFile.getAbsolutePath()));
+    }
 }
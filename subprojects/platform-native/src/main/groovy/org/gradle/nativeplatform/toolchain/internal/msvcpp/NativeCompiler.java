@@ -20,10 +20,12 @@ import org.gradle.api.Transformer;
 import org.gradle.api.internal.tasks.SimpleWorkResult;
 import org.gradle.language.base.internal.compile.Compiler;
 import org.gradle.api.tasks.WorkResult;
+import org.gradle.internal.hash.HashUtil;
 import org.gradle.nativeplatform.toolchain.internal.*;
 import org.gradle.nativeplatform.toolchain.internal.ShortCircuitArgsTransformer;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -42,15 +44,16 @@ abstract public class NativeCompiler<T extends NativeCompileSpec> implements Com
     }
 
     public WorkResult execute(T spec) {
-        MutableCommandLineToolInvocation invocation = baseInvocation.copy();
-        invocation.addPostArgsAction(new VisualCppOptionsFileArgTransformer(spec.getTempDir()));
-
         Transformer<List<String>, File> outputFileArgTransformer = new Transformer<List<String>, File>(){
             public List<String> transform(File outputFile) {
                 return Arrays.asList("/Fo"+ outputFile.getAbsolutePath());
             }
         };
+        List<CommandLineToolInvocation> invocations = new ArrayList<CommandLineToolInvocation>();
         for (File sourceFile : spec.getSourceFiles()) {
+            MutableCommandLineToolInvocation invocation = baseInvocation.copy();
+            // Source files may be compiled concurrently, so each needs its own options file
+            invocation.addPostArgsAction(new VisualCppOptionsFileArgTransformer(optionsFileDir(spec, sourceFile)));
             String objectFileNameSuffix = ".obj";
             SingleSourceCompileArgTransformer<T> argTransformer = new SingleSourceCompileArgTransformer<T>(sourceFile,
                     objectFileNameSuffix,
@@ -59,8 +62,13 @@ abstract public class NativeCompiler<T extends NativeCompileSpec> implements Com
                     outputFileArgTransformer);
             invocation.setArgs(argTransformer.transform(specTransformer.transform(spec)));
             invocation.setWorkDirectory(spec.getObjectFileDir());
-            commandLineTool.execute(invocation);
+            invocations.add(invocation);
         }
+        commandLineTool.execute(invocations);
         return new SimpleWorkResult(!spec.getSourceFiles().isEmpty());
     }
+
+    private File optionsFileDir(T spec, File sourceFile) {
+        return new File(spec.getTempDir(), HashUtil.createCompactMD5(sourceFile.getAbsolutePath()));
+    }
 }
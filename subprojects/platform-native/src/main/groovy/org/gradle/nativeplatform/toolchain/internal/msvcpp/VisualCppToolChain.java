@@ -18,6 +18,7 @@ package org.gradle.nativeplatform.toolchain.internal.msvcpp;
 
 import org.gradle.api.Transformer;
 import org.gradle.api.internal.file.FileResolver;
+import org.gradle.internal.concurrent.BatchExecutor;
 import org.gradle.internal.jvm.Jvm;
 import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.reflect.Instantiator;
@@ -55,6 +56,7 @@ public class VisualCppToolChain extends ExtendableToolChain<VisualCppPlatformToo
     public static final String DEFAULT_NAME = "visualCpp";
 
     private final ExecActionFactory execActionFactory;
+    private final BatchExecutor batchExecutor;
     private final VisualStudioLocator visualStudioLocator;
     private final WindowsSdkLocator windowsSdkLocator;
     private final Instantiator instantiator;
@@ -64,7 +66,7 @@ public class VisualCppToolChain extends ExtendableToolChain<VisualCppPlatformToo
     private WindowsSdk windowsSdk;
     private ToolChainAvailability availability;
 
-    public VisualCppToolChain(String name, OperatingSystem operatingSystem, FileResolver fileResolver, ExecActionFactory execActionFactory,
+    public VisualCppToolChain(String name, OperatingSystem operatingSystem, FileResolver fileResolver, ExecActionFactory execActionFactory, BatchExecutor batchExecutor,
                               VisualStudioLocator visualStudioLocator, WindowsSdkLocator windowsSdkLocator, Instantiator instantiator) {
         super(name, operatingSystem, fileResolver);
 
@@ -72,6 +74,7 @@ public class VisualCppToolChain extends ExtendableToolChain<VisualCppPlatformToo
         this.operatingSystem = operatingSystem;
         this.fileResolver = fileResolver;
         this.execActionFactory = execActionFactory;
+        this.batchExecutor = batchExecutor;
         this.visualStudioLocator = visualStudioLocator;
         this.windowsSdkLocator = windowsSdkLocator;
         this.instantiator = instantiator;
@@ -292,7 +295,7 @@ public class VisualCppToolChain extends ExtendableToolChain<VisualCppPlatformToo
         }
 
         private CommandLineTool tool(String toolName, File exe) {
-            return new CommandLineTool(toolName, exe, execActionFactory);
+            return new CommandLineTool(toolName, exe, execActionFactory, batchExecutor);
         }
 
         private CommandLineToolInvocation invocation(CommandLineToolConfigurationInternal commandLineToolConfiguration) {
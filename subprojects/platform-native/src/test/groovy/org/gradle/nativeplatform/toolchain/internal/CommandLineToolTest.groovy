@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.nativeplatform.toolchain.internal
+
+import org.gradle.api.GradleException
+import org.gradle.internal.concurrent.BatchExecutor
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.process.internal.ExecAction
+import org.gradle.process.internal.ExecActionFactory
+import org.gradle.process.internal.ExecException
+import org.gradle.util.RedirectStdOutAndErr
+import org.junit.Rule
+import spock.lang.Specification
+
+class CommandLineToolTest extends Specification {
+    @Rule final RedirectStdOutAndErr outputs = new RedirectStdOutAndErr()
+    final executorFactory = new DefaultExecutorFactory()
+    final execActionFactory = Stub(ExecActionFactory) {
+        newExecAction() >> { execAction() }
+    }
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "reports output of concurrent invocations in order"() {
+        given:
+        def tool = newTool(new BatchExecutor(executorFactory.create("test"), 3))
+
+        when:
+        tool.execute([invocation("one", 200), invocation("two", 0), invocation("three", 100), invocation("four", 0)])
+
+        then:
+        outputs.stdOut == "out one\nout two\nout three\nout four\n"
+        outputs.stdErr == "err one\nerr two\nerr three\nerr four\n"
+    }
+
+    def "rethrows earliest failure and does not start further invocations"() {
+        given:
+        def tool = newTool(new BatchExecutor(executorFactory.create("test"), 1))
+
+        when:
+        tool.execute([invocation("one", 100), invocation("fail", 0), invocation("fail", 200)] + (1..20).collect { invocation("more", 0) })
+
+        then:
+        GradleException e = thrown()
+        e.message == "Compiler failed; see the error output for details."
+        outputs.stdOut == "out one\nout fail\n"
+    }
+
+    def "executes invocations one at a time when batch executor has no helper threads"() {
+        given:
+        def tool = newTool(BatchExecutor.SERIAL)
+
+        when:
+        tool.execute([invocation("one", 50), invocation("two", 0)])
+
+        then:
+        outputs.stdOut == "out one\nout two\n"
+    }
+
+    private CommandLineTool newTool(BatchExecutor batchExecutor) {
+        return new CommandLineTool("Compiler", new File("compiler"), execActionFactory, batchExecutor)
+    }
+
+    private CommandLineToolInvocation invocation(String name, long sleep) {
+        def invocation = new DefaultCommandLineToolInvocation()
+        invocation.args = [name, String.valueOf(sleep)]
+        return invocation
+    }
+
+    private ExecAction execAction() {
+        List<String> args = null
+        OutputStream standardOutput = System.out
+        OutputStream errorOutput = System.err
+        return Stub(ExecAction) {
+            args(_ as Iterable) >> { Iterable value -> args = value as List; null }
+            setStandardOutput(_) >> { OutputStream value -> standardOutput = value; null }
+            setErrorOutput(_) >> { OutputStream value -> errorOutput = value; null }
+            execute() >> {
+                Thread.sleep(args[1] as long)
+                standardOutput.write("out ${args[0]}\n".bytes)
+                errorOutput.write("err ${args[0]}\n".bytes)
+                if (args[0] == "fail") {
+                    throw new ExecException("failed")
+                }
+                null
+            }
+        }
+    }
+}
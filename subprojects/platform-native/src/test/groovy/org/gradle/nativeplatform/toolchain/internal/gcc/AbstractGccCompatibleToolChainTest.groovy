@@ -17,6 +17,7 @@ package org.gradle.nativeplatform.toolchain.internal.gcc
 
 import org.gradle.api.Action
 import org.gradle.api.internal.file.FileResolver
+import org.gradle.internal.concurrent.BatchExecutor
 import org.gradle.internal.os.OperatingSystem
 import org.gradle.internal.reflect.DirectInstantiator
 import org.gradle.internal.reflect.Instantiator
@@ -55,7 +56,7 @@ class AbstractGccCompatibleToolChainTest extends Specification {
     def operatingSystem = Stub(OperatingSystem)
 
     def instantiator = new DirectInstantiator()
-    def toolChain = new TestToolChain("test", operatingSystem, fileResolver, execActionFactory, toolSearchPath, metaDataProvider, instantiator)
+    def toolChain = new TestToolChain("test", operatingSystem, fileResolver, execActionFactory, BatchExecutor.SERIAL, toolSearchPath, metaDataProvider, instantiator)
     def platform = Stub(PlatformInternal)
 
     def "is unavailable when platform is not known and is not the default platform"() {
@@ -361,8 +362,8 @@ class AbstractGccCompatibleToolChainTest extends Specification {
     }
 
     static class TestToolChain extends AbstractGccCompatibleToolChain {
-        TestToolChain(String name, OperatingSystem operatingSystem, FileResolver fileResolver, ExecActionFactory execActionFactory, ToolSearchPath tools, CompilerMetaDataProvider metaDataProvider, Instantiator instantiator) {
-            super(name, operatingSystem, fileResolver, execActionFactory, tools, metaDataProvider, instantiator)
+        TestToolChain(String name, OperatingSystem operatingSystem, FileResolver fileResolver, ExecActionFactory execActionFactory, BatchExecutor batchExecutor, ToolSearchPath tools, CompilerMetaDataProvider metaDataProvider, Instantiator instantiator) {
+            super(name, operatingSystem, fileResolver, execActionFactory, batchExecutor, tools, metaDataProvider, instantiator)
         }
 
         @Override
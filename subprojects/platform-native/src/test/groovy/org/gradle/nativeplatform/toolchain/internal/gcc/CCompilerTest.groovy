@@ -34,7 +34,7 @@ class CCompilerTest extends Specification {
     String objectFileExtension = ".o";
     CCompiler compiler = new CCompiler(commandLineTool, invocation, objectFileExtension, false);
 
-    def "compiles all source files in separate executions"() {
+    def "compiles each source file in a separate invocation"() {
         given:
         def testDir = tmpDirProvider.testDirectory
         def objectFileDir = testDir.file("output/objects")
@@ -52,8 +52,8 @@ class CCompilerTest extends Specification {
         compiler.execute(compileSpec)
 
         then:
-        1 * invocation.copy() >> invocation
-        1 * invocation.setWorkDirectory(objectFileDir)
+        2 * invocation.copy() >> invocation
+        2 * invocation.setWorkDirectory(objectFileDir)
 
         ["one.c", "two.c"].each{ sourceFileName ->
 
@@ -68,8 +68,8 @@ class CCompilerTest extends Specification {
                     "-I", testDir.file("include.h").absolutePath,
                     testDir.file(sourceFileName).absolutePath,
                     "-o", outputFile.absolutePath])
-            1 * commandLineTool.execute(invocation)
         }
+        1 * commandLineTool.execute([invocation, invocation])
         0 * _
     }
 
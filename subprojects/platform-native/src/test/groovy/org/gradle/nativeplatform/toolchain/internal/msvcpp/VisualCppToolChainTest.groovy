@@ -18,6 +18,7 @@ package org.gradle.nativeplatform.toolchain.internal.msvcpp
 
 import org.gradle.api.Action
 import org.gradle.api.internal.file.FileResolver
+import org.gradle.internal.concurrent.BatchExecutor
 import org.gradle.internal.os.OperatingSystem
 import org.gradle.internal.reflect.DirectInstantiator
 import org.gradle.internal.reflect.Instantiator
@@ -52,14 +53,14 @@ class VisualCppToolChainTest extends Specification {
     }
 
     def setup() {
-        toolChain = new VisualCppToolChain("visualCpp", operatingSystem, fileResolver, execActionFactory, visualStudioLocator, windowsSdkLocator, instantiator)
+        toolChain = new VisualCppToolChain("visualCpp", operatingSystem, fileResolver, execActionFactory, BatchExecutor.SERIAL, visualStudioLocator, windowsSdkLocator, instantiator)
     }
 
     def "installs an unavailable tool chain when not windows"() {
         given:
         def operatingSystem = Stub(OperatingSystem)
         operatingSystem.isWindows() >> false
-        def toolChain = new VisualCppToolChain("visualCpp", operatingSystem, fileResolver, execActionFactory, visualStudioLocator, windowsSdkLocator, instantiator)
+        def toolChain = new VisualCppToolChain("visualCpp", operatingSystem, fileResolver, execActionFactory, BatchExecutor.SERIAL, visualStudioLocator, windowsSdkLocator, instantiator)
 
         when:
         def availability = new ToolChainAvailability()
@@ -37,6 +37,7 @@ import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resource.PasswordCredentials;
 import org.gradle.internal.resource.transport.http.DefaultHttpSettings;
 import org.gradle.internal.resource.transport.http.HttpClientHelper;
+import org.gradle.internal.resource.transport.http.HttpConnectionPool;
 import org.gradle.internal.resource.transport.http.HttpResourceAccessor;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.scopes.PluginServiceRegistry;
@@ -59,8 +60,8 @@ public class PluginUsePluginServiceRegistry implements PluginServiceRegistry {
     }
 
     private static class BuildScopeServices {
-        PluginResolutionServiceClient createPluginResolutionServiceClient(CacheRepository cacheRepository, StartParameter startParameter) {
-            HttpClientHelper http = new HttpClientHelper(new DefaultHttpSettings(new PasswordCredentials()));
+        PluginResolutionServiceClient createPluginResolutionServiceClient(CacheRepository cacheRepository, StartParameter startParameter, HttpConnectionPool httpConnectionPool) {
+            HttpClientHelper http = new HttpClientHelper(new DefaultHttpSettings(new PasswordCredentials()), httpConnectionPool);
             HttpResourceAccessor accessor = new HttpResourceAccessor(http);
             PluginResolutionServiceClient httpClient = startParameter.isOffline()
                     ? new OfflinePluginResolutionServiceClient()
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing;
+
+/**
+ * Notified once a test class has been processed, whether or not the class produced any results.
+ *
+ * <p>A {@link TestClassProcessor} that runs test classes in a worker process notifies the result processor given to
+ * {@link TestClassProcessor#startProcessing(TestResultProcessor)} of each test class it has finished with, when the result processor
+ * implements this interface.</p>
+ */
+public interface TestClassCompletionListener {
+    void testClassCompleted(TestClassRunInfo testClass);
+}
@@ -30,14 +30,17 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor> implements TestFrameworkDetector {
     protected static final String TEST_CASE = "junit/framework/TestCase";
     protected static final String GROOVY_TEST_CASE = "groovy/util/GroovyTestCase";
+    private static final String NOT_FOUND = "";
+    private static final String IN_TEST_CLASS_DIRECTORY = "dir";
 
     private List<File> testClassDirectories;
     private final ClassFileExtractionManager classFileExtractionManager;
-    private final Map<File, Boolean> superClasses;
+    private final Map<String, SuperClass> superClasses;
     private TestClassProcessor testClassProcessor;
     private final List<String> knownTestCaseClassNames;
 
@@ -47,19 +50,14 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
     protected AbstractTestFrameworkDetector(ClassFileExtractionManager classFileExtractionManager) {
         assert classFileExtractionManager != null;
         this.classFileExtractionManager = classFileExtractionManager;
-        this.superClasses = new HashMap<File, Boolean>();
+        this.superClasses = new ConcurrentHashMap<String, SuperClass>();
         this.knownTestCaseClassNames = new ArrayList<String>();
         addKnownTestCaseClassNames(TEST_CASE, GROOVY_TEST_CASE);
     }
 
     protected abstract T createClassVisitor();
 
-    protected File getSuperTestClassFile(String superClassName) {
-        prepareClasspath();
-        if (StringUtils.isEmpty(superClassName)) {
-            throw new IllegalArgumentException("superClassName is empty!");
-        }
-
+    private File getSuperTestClassFile(String superClassName) {
         final Iterator<File> testClassDirectoriesIt = testClassDirectories.iterator();
 
         File superTestClassFile = null;
@@ -71,19 +69,15 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
             }
         }
 
-        if (superTestClassFile != null) {
-            return superTestClassFile;
-        } else { // super test class file not in test class directories
-            return classFileExtractionManager.getLibraryClassFile(superClassName);
-        }
+        return superTestClassFile;
     }
 
-    private void prepareClasspath() {
+    private synchronized void prepareClasspath() {
         if (testClassDirectories != null) {
             return;
         }
 
-        testClassDirectories = new ArrayList<File>();
+        List<File> testClassDirectories = new ArrayList<File>();
 
         if (testClassesDirectory != null) {
             testClassDirectories.add(testClassesDirectory);
@@ -97,6 +91,7 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
                 }
             }
         }
+        this.testClassDirectories = testClassDirectories;
     }
 
     public void setTestClassesDirectory(File testClassesDirectory) {
@@ -108,15 +103,27 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
     }
 
     protected TestClassVisitor classVisitor(final File testClassFile) {
+        try {
+            return classVisitor(new BufferedInputStream(new FileInputStream(testClassFile)));
+        } catch (Throwable e) {
+            throw new GradleException("failed to read class file " + testClassFile.getAbsolutePath(), e);
+        }
+    }
+
+    private TestClassVisitor classVisitor(final TestClassDetectionCache.LibraryJar libraryJar, final String className) {
+        try {
+            return classVisitor(classFileExtractionManager.openLibraryClassFile(libraryJar, className));
+        } catch (Throwable e) {
+            throw new GradleException("failed to read class file " + className + " from " + libraryJar.getFile().getAbsolutePath(), e);
+        }
+    }
+
+    private TestClassVisitor classVisitor(final InputStream classStream) throws Exception {
         final TestClassVisitor classVisitor = createClassVisitor();
 
-        InputStream classStream = null;
         try {
-            classStream = new BufferedInputStream(new FileInputStream(testClassFile));
             final ClassReader classReader = new ClassReader(classStream);
             classReader.accept(classVisitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
-        } catch (Throwable e) {
-            throw new GradleException("failed to read class file " + testClassFile.getAbsolutePath(), e);
         } finally {
             IOUtils.closeQuietly(classStream);
         }
@@ -125,25 +132,81 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
     }
 
     public boolean processTestClass(File testClassFile) {
-        return processTestClass(testClassFile, false);
+        return processTestClass(classVisitor(testClassFile), false);
+    }
+
+    protected abstract boolean processTestClass(TestClassVisitor classVisitor, boolean superClass);
+
+    /**
+     * Determines whether the given super class is a test class. Super classes found in library jars are read in place,
+     * and the result for them is shared with other test tasks that find the super class in the same place.
+     *
+     * @return Whether the super class is a test class, or null when its class file could not be found.
+     */
+    protected Boolean processSuperClass(String superClassName) {
+        if (StringUtils.isEmpty(superClassName)) {
+            throw new IllegalArgumentException("superClassName is empty!");
+        }
+        prepareClasspath();
+
+        SuperClass superClass = superClasses.get(superClassName);
+        if (superClass == null) {
+            superClass = detectSuperClass(superClassName);
+            superClasses.put(superClassName, superClass);
+        }
+        return superClass.test;
     }
 
-    protected abstract boolean processTestClass(File testClassFile, boolean superClass);
+    private SuperClass detectSuperClass(String className) {
+        final File superClassFile = getSuperTestClassFile(className);
+        if (superClassFile != null) {
+            // Classes in directories may still change during the build, so the result is not shared
+            return new SuperClass(processTestClass(classVisitor(superClassFile), true), null);
+        }
 
-    protected boolean processSuperClass(File testClassFile) {
-        boolean isTest = false;
+        final TestClassDetectionCache.LibraryJar libraryJar = classFileExtractionManager.findLibraryJar(className);
+        if (libraryJar == null) {
+            return new SuperClass(null, Collections.singletonMap(className, NOT_FOUND));
+        }
 
-        Boolean isSuperTest = superClasses.get(testClassFile);
+        final String cacheKey = getClass().getName() + knownTestCaseClassNames + ":" + className;
+        TestClassDetectionCache.SuperClassVerdict verdict = classFileExtractionManager.getSuperClassVerdict(cacheKey);
+        if (verdict != null && isUpToDate(verdict)) {
+            return new SuperClass(verdict.test, verdict.classLocations);
+        }
 
-        if (isSuperTest == null) {
-            isTest = processTestClass(testClassFile, true);
+        final TestClassVisitor classVisitor = classVisitor(libraryJar, className);
+        final boolean isTest = processTestClass(classVisitor, true);
 
-            superClasses.put(testClassFile, isTest);
-        } else {
-            isTest = isSuperTest;
+        Map<String, String> classLocations = new HashMap<String, String>();
+        classLocations.put(className, libraryJar.getFingerprint());
+        // Any super class looked at while processing this class was also used to decide the result
+        SuperClass parent = classVisitor.getSuperClassName() == null ? null : superClasses.get(classVisitor.getSuperClassName());
+        if (parent != null) {
+            if (parent.classLocations == null) {
+                return new SuperClass(isTest, null);
+            }
+            classLocations.putAll(parent.classLocations);
         }
+        classFileExtractionManager.putSuperClassVerdict(cacheKey, new TestClassDetectionCache.SuperClassVerdict(isTest, classLocations));
+        return new SuperClass(isTest, classLocations);
+    }
 
-        return isTest;
+    private boolean isUpToDate(TestClassDetectionCache.SuperClassVerdict verdict) {
+        for (Map.Entry<String, String> entry : verdict.classLocations.entrySet()) {
+            if (!entry.getValue().equals(locate(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String locate(String className) {
+        if (getSuperTestClassFile(className) != null) {
+            return IN_TEST_CLASS_DIRECTORY;
+        }
+        TestClassDetectionCache.LibraryJar libraryJar = classFileExtractionManager.findLibraryJar(className);
+        return libraryJar == null ? NOT_FOUND : libraryJar.getFingerprint();
     }
 
     /**
@@ -161,6 +224,12 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         this.testClassProcessor = testClassProcessor;
     }
 
+    public synchronized void endDetection() {
+        classFileExtractionManager.closeLibraryJars();
+        testClassDirectories = null;
+        superClasses.clear();
+    }
+
     public void addKnownTestCaseClassNames(String... knownTestCaseClassNames) {
         if (knownTestCaseClassNames != null && knownTestCaseClassNames.length != 0) {
             for (String knownTestCaseClassName : knownTestCaseClassNames) {
@@ -180,4 +249,14 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
 
         return isKnownTestCase;
     }
+
+    private static class SuperClass {
+        final Boolean test;
+        final Map<String, String> classLocations;
+
+        SuperClass(Boolean test, Map<String, String> classLocations) {
+            this.test = test;
+            this.classLocations = classLocations;
+        }
+    }
 }
@@ -13,128 +13,104 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+
 package org.gradle.api.internal.tasks.testing.detection;
 
-import org.apache.commons.lang.text.StrBuilder;
 import org.gradle.api.GradleException;
-import org.gradle.api.internal.file.DefaultTemporaryFileProvider;
-import org.gradle.api.internal.file.TemporaryFileProvider;
-import org.gradle.internal.Factory;
-import org.gradle.util.JarUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /**
- * This class manages class file extraction from library jar files.
+ * This class manages reading class files from library jar files. The class files are read in place, from jars that are
+ * kept open until {@link #closeLibraryJars()} is called.
  */
 public class ClassFileExtractionManager {
     private static final Logger LOGGER = LoggerFactory.getLogger(ClassFileExtractionManager.class);
-    private final Map<String, Set<File>> packageJarFilesMappings;
-    private final Map<String, File> extractedJarClasses;
-    private final Set<String> unextractableClasses;
-    private final TemporaryFileProvider tempDirProvider;
+    private final TestClassDetectionCache detectionCache;
+    private final List<TestClassDetectionCache.LibraryJar> libraryJars = new ArrayList<TestClassDetectionCache.LibraryJar>();
+    private final Map<File, ZipFile> openJars = new HashMap<File, ZipFile>();
 
-    public ClassFileExtractionManager(final Factory<File> tempDirFactory) {
-        assert tempDirFactory != null;
-        tempDirProvider = new DefaultTemporaryFileProvider(tempDirFactory);
-        packageJarFilesMappings = new HashMap<String, Set<File>>();
-        extractedJarClasses = new HashMap<String, File>();
-        unextractableClasses = new TreeSet<String>();
+    public ClassFileExtractionManager(TestClassDetectionCache detectionCache) {
+        assert detectionCache != null;
+        this.detectionCache = detectionCache;
     }
 
     /**
-     * Add all packages found in the jar file to the package <> jar(s) index.
+     * Add the classes found in the jar file to the class <> jar index.
      *
      * @param libraryJar Jar file to add to the index.
      */
-    public void addLibraryJar(final File libraryJar) {
-        new JarFilePackageLister().listJarPackages(libraryJar, new JarFilePackageListener() {
-            public void receivePackage(String packageName) {
-                Set<File> jarFiles = packageJarFilesMappings.get(packageName);
-                if (jarFiles == null) {
-                    jarFiles = new TreeSet<File>();
-                }
-                jarFiles.add(libraryJar);
-
-                packageJarFilesMappings.put(packageName, jarFiles);
-            }
-        });
+    public synchronized void addLibraryJar(final File libraryJar) {
+        libraryJars.add(detectionCache.getLibraryJar(libraryJar));
     }
 
     /**
-     * Retrieve the file that contains the extracted class file. <p/> This method will extract the class file if it is
-     * not extracted yet. Extracted class files are deleted on exit of the Gradle process. The same class is only
-     * extracted once.
+     * Finds the first library jar that contains the given class.
      *
-     * @param className Name of the class to extract.
-     * @return File that contains the extracted class file.
+     * @param className Name of the class to find.
+     * @return The jar that contains the class file, or null if the class is not in any library jar.
      */
-    public File getLibraryClassFile(final String className) {
-        if (unextractableClasses.contains(className)) {
-            return null;
-        } else {
-            if (!extractedJarClasses.containsKey(className)) {
-                if (!extractClassFile(className)) {
-                    unextractableClasses.add(className);
-                }
+    public synchronized TestClassDetectionCache.LibraryJar findLibraryJar(final String className) {
+        for (TestClassDetectionCache.LibraryJar libraryJar : libraryJars) {
+            if (libraryJar.containsClass(className)) {
+                return libraryJar;
             }
-
-            return extractedJarClasses.get(className);
         }
+        return null;
     }
 
-    private boolean extractClassFile(final String className) {
-        boolean classFileExtracted = false;
-
-        final File extractedClassFile = tempFile();
-        final String classFileName = new StrBuilder().append(className).append(".class").toString();
-        final String classNamePackage = classNamePackage(className);
-        final Set<File> packageJarFiles = packageJarFilesMappings.get(classNamePackage);
-
-        File classFileSourceJar = null;
-
-        if (packageJarFiles != null && !packageJarFiles.isEmpty()) {
-            final Iterator<File> packageJarFilesIt = packageJarFiles.iterator();
-
-            while (!classFileExtracted && packageJarFilesIt.hasNext()) {
-                final File jarFile = packageJarFilesIt.next();
-
-                try {
-                    classFileExtracted = JarUtil.extractZipEntry(jarFile, classFileName, extractedClassFile);
-
-                    if (classFileExtracted) {
-                        classFileSourceJar = jarFile;
-                    }
-                } catch (IOException e) {
-                    throw new GradleException("failed to extract class file from jar (" + jarFile + ")", e);
+    /**
+     * Opens the class file for the given class in the given jar. The caller is responsible for closing the stream.
+     */
+    public InputStream openLibraryClassFile(final TestClassDetectionCache.LibraryJar libraryJar, final String className) {
+        final File jarFile = libraryJar.getFile();
+        try {
+            ZipFile zipFile;
+            synchronized (this) {
+                zipFile = openJars.get(jarFile);
+                if (zipFile == null) {
+                    zipFile = new ZipFile(jarFile);
+                    openJars.put(jarFile, zipFile);
                 }
             }
-
-            if (classFileExtracted) {
-                LOGGER.debug("extracted class {} from {}", className, classFileSourceJar.getName());
-
-                extractedJarClasses.put(className, extractedClassFile);
+            ZipEntry entry = zipFile.getEntry(className + ".class");
+            if (entry == null) {
+                throw new GradleException("class file " + className + " not found in jar (" + jarFile + ")");
             }
-        } // super class not on the classpath - unable to scan parent class
-
-        return classFileExtracted;
+            LOGGER.debug("reading class {} from {}", className, jarFile.getName());
+            return zipFile.getInputStream(entry);
+        } catch (IOException e) {
+            throw new GradleException("failed to read class file from jar (" + jarFile + ")", e);
+        }
     }
 
-    private String classNamePackage(final String className) {
-        final int lastSlashIndex = className.lastIndexOf('/');
+    TestClassDetectionCache.SuperClassVerdict getSuperClassVerdict(String key) {
+        return detectionCache.getSuperClassVerdict(key);
+    }
 
-        if (lastSlashIndex == -1) {
-            return null; // class in root package - should not happen
-        } else {
-            return className.substring(0, lastSlashIndex + 1);
-        }
+    void putSuperClassVerdict(String key, TestClassDetectionCache.SuperClassVerdict verdict) {
+        detectionCache.putSuperClassVerdict(key, verdict);
     }
 
-    private File tempFile() {
-        return tempDirProvider.createTemporaryFile("jar_extract_", "_tmp"); // Could throw UncheckedIOException
+    /**
+     * Closes the jars opened to read class files, and forgets the jars added to the index.
+     */
+    public synchronized void closeLibraryJars() {
+        for (ZipFile zipFile : openJars.values()) {
+            try {
+                zipFile.close();
+            } catch (IOException e) {
+                LOGGER.debug("failed to close jar " + zipFile.getName(), e);
+            }
+        }
+        openJars.clear();
+        libraryJars.clear();
     }
 }
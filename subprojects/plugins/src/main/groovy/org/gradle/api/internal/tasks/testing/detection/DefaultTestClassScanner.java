@@ -16,29 +16,47 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
+import org.gradle.api.Action;
 import org.gradle.api.file.EmptyFileVisitor;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.internal.concurrent.BatchExecutor;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The default test class scanner. Depending on the availability of a test framework detector,
- * a detection or filename scan is performed to find test classes.
+ * a detection or filename scan is performed to find test classes. A detection scan of many class files can use several threads,
+ * in which case test classes may be found in a different order to the candidate class files.
  */
 public class DefaultTestClassScanner implements Runnable {
+    // Below this, the cost of handing class files to other threads outweighs the cost of inspecting them
+    static final int MIN_CLASSES_FOR_CONCURRENCY = 200;
     private final FileTree candidateClassFiles;
     private final TestFrameworkDetector testFrameworkDetector;
     private final TestClassProcessor testClassProcessor;
+    private final BatchExecutor batchExecutor;
 
     public DefaultTestClassScanner(FileTree candidateClassFiles, TestFrameworkDetector testFrameworkDetector,
                                    TestClassProcessor testClassProcessor) {
+        this(candidateClassFiles, testFrameworkDetector, testClassProcessor, BatchExecutor.SERIAL);
+    }
+
+    /**
+     * @param batchExecutor The executor to use to inspect the class files concurrently when there are many of them. Shared with other users for the build.
+     */
+    public DefaultTestClassScanner(FileTree candidateClassFiles, TestFrameworkDetector testFrameworkDetector,
+                                   TestClassProcessor testClassProcessor, BatchExecutor batchExecutor) {
         this.candidateClassFiles = candidateClassFiles;
         this.testFrameworkDetector = testFrameworkDetector;
         this.testClassProcessor = testClassProcessor;
+        this.batchExecutor = batchExecutor;
     }
 
     public void run() {
@@ -50,12 +68,41 @@ public class DefaultTestClassScanner implements Runnable {
     }
 
     private void detectionScan() {
+        if (batchExecutor != BatchExecutor.SERIAL) {
+            parallelDetectionScan();
+            return;
+        }
         testFrameworkDetector.startDetection(testClassProcessor);
+        try {
+            candidateClassFiles.visit(new ClassFileVisitor() {
+                public void visitClassFile(FileVisitDetails fileDetails) {
+                    testFrameworkDetector.processTestClass(fileDetails.getFile());
+                }
+            });
+        } finally {
+            testFrameworkDetector.endDetection();
+        }
+    }
+
+    private void parallelDetectionScan() {
+        final List<File> classFiles = new ArrayList<File>();
         candidateClassFiles.visit(new ClassFileVisitor() {
             public void visitClassFile(FileVisitDetails fileDetails) {
-                testFrameworkDetector.processTestClass(fileDetails.getFile());
+                classFiles.add(fileDetails.getFile());
             }
         });
+
+        boolean concurrent = classFiles.size() >= MIN_CLASSES_FOR_CONCURRENCY;
+        testFrameworkDetector.startDetection(concurrent ? new SynchronizedTestClassProcessor(testClassProcessor) : testClassProcessor);
+        try {
+            (concurrent ? batchExecutor : BatchExecutor.SERIAL).forEachIndex(classFiles.size(), new Action<Integer>() {
+                public void execute(Integer index) {
+                    testFrameworkDetector.processTestClass(classFiles.get(index));
+                }
+            });
+        } finally {
+            testFrameworkDetector.endDetection();
+        }
     }
 
     private void filenameScan() {
@@ -79,4 +126,27 @@ public class DefaultTestClassScanner implements Runnable {
 
         public abstract void visitClassFile(FileVisitDetails fileDetails);
     }
+
+    /**
+     * Passes on the test classes found by the detection threads one at a time.
+     */
+    private static class SynchronizedTestClassProcessor implements TestClassProcessor {
+        private final TestClassProcessor delegate;
+
+        private SynchronizedTestClassProcessor(TestClassProcessor delegate) {
+            this.delegate = delegate;
+        }
+
+        public synchronized void startProcessing(TestResultProcessor resultProcessor) {
+            delegate.startProcessing(resultProcessor);
+        }
+
+        public synchronized void processTestClass(TestClassRunInfo testClass) {
+            delegate.processTestClass(testClass);
+        }
+
+        public synchronized void stop() {
+            delegate.stop();
+        }
+    }
 }
@@ -24,30 +24,54 @@ import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
+import org.gradle.api.internal.tasks.testing.testng.TestNGTestFramework;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.PooledTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.internal.Factory;
 import org.gradle.internal.TrueTimeProvider;
+import org.gradle.internal.concurrent.BatchExecutor;
 import org.gradle.messaging.actor.ActorFactory;
 import org.gradle.process.internal.WorkerProcessBuilder;
 
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * The default test class scanner factory.
  */
 public class DefaultTestExecuter implements TestExecuter {
     private final Factory<WorkerProcessBuilder> workerFactory;
     private final ActorFactory actorFactor;
+    private final Map<String, Long> previousDurations;
+    private final TestWorkerPool workerPool;
+    private final BatchExecutor batchExecutor;
 
     public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactor) {
+        this(workerFactory, actorFactor, Collections.<String, Long>emptyMap(), null, BatchExecutor.SERIAL);
+    }
+
+    public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactor, Map<String, Long> previousDurations,
+                               TestWorkerPool workerPool, BatchExecutor batchExecutor) {
         this.workerFactory = workerFactory;
         this.actorFactor = actorFactor;
+        this.previousDurations = previousDurations;
+        this.workerPool = workerPool;
+        this.batchExecutor = batchExecutor;
     }
 
     public void execute(final Test testTask, TestResultProcessor testResultProcessor) {
         final TestFramework testFramework = testTask.getTestFramework();
         final WorkerTestClassProcessorFactory testInstanceFactory = testFramework.getProcessorFactory();
+        // A pooled worker outlives the task, so it cannot be used when the task asks for fresh worker processes
+        final boolean reuseWorkers = workerPool != null && workerPool.isEnabled() && testTask.getForkEvery() == 0;
         final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
             public TestClassProcessor create() {
+                if (reuseWorkers) {
+                    return new PooledTestClassProcessor(workerPool, workerFactory, testInstanceFactory, testTask,
+                            testTask.getClasspath(), testFramework.getWorkerConfigurationAction());
+                }
                 return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
                         testTask.getClasspath(), testFramework.getWorkerConfigurationAction());
             }
@@ -58,8 +82,10 @@ public class DefaultTestExecuter implements TestExecuter {
             }
         };
 
+        // TestNG only reports its results when the worker stops, so its test classes cannot be handed out on completion
+        boolean pullTestClasses = !(testFramework instanceof TestNGTestFramework);
         TestClassProcessor processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(),
-                reforkingProcessorFactory, actorFactor);
+                reforkingProcessorFactory, actorFactor, previousDurations, pullTestClasses);
 
         final FileTree testClassFiles = testTask.getCandidateClassFiles();
 
@@ -68,7 +94,7 @@ public class DefaultTestExecuter implements TestExecuter {
             TestFrameworkDetector testFrameworkDetector = testTask.getTestFramework().getDetector();
             testFrameworkDetector.setTestClassesDirectory(testTask.getTestClassesDir());
             testFrameworkDetector.setTestClasspath(testTask.getClasspath());
-            detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor);
+            detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor, batchExecutor);
         } else {
             detector = new DefaultTestClassScanner(testClassFiles, null, processor);
         }
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.api.GradleException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Keeps what test class detection has learned about library jars, so that it can be shared by all test tasks in a
+ * build: the classes each jar contains, and whether the library classes that test classes extend are tests.
+ */
+public class TestClassDetectionCache {
+    private final Map<File, LibraryJar> libraryJars = new HashMap<File, LibraryJar>();
+    private final Map<String, SuperClassVerdict> superClassVerdicts = new HashMap<String, SuperClassVerdict>();
+
+    /**
+     * Returns the index of the given jar, reading the jar if it has not been read before or has changed since.
+     */
+    public LibraryJar getLibraryJar(File jarFile) {
+        long length = jarFile.length();
+        long lastModified = jarFile.lastModified();
+        synchronized (libraryJars) {
+            LibraryJar libraryJar = libraryJars.get(jarFile);
+            if (libraryJar != null && libraryJar.length == length && libraryJar.lastModified == lastModified) {
+                return libraryJar;
+            }
+        }
+        LibraryJar libraryJar = new LibraryJar(jarFile, length, lastModified, listClasses(jarFile));
+        synchronized (libraryJars) {
+            libraryJars.put(jarFile, libraryJar);
+        }
+        return libraryJar;
+    }
+
+    SuperClassVerdict getSuperClassVerdict(String key) {
+        synchronized (superClassVerdicts) {
+            return superClassVerdicts.get(key);
+        }
+    }
+
+    void putSuperClassVerdict(String key, SuperClassVerdict verdict) {
+        synchronized (superClassVerdicts) {
+            superClassVerdicts.put(key, verdict);
+        }
+    }
+
+    private static Set<String> listClasses(File jarFile) {
+        Set<String> classNames = new HashSet<String>();
+        try {
+            ZipFile zipFile = new ZipFile(jarFile);
+            try {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    String name = entries.nextElement().getName();
+                    if (name.endsWith(".class")) {
+                        classNames.add(name.substring(0, name.length() - ".class".length()));
+                    }
+                }
+            } finally {
+                zipFile.close();
+            }
+        } catch (IOException e) {
+            throw new GradleException("failed to scan jar file for classes (" + jarFile.getAbsolutePath() + ")", e);
+        }
+        return classNames;
+    }
+
+    /**
+     * The classes contained in a library jar.
+     */
+    public static class LibraryJar {
+        private final File file;
+        private final long length;
+        private final long lastModified;
+        private final Set<String> classNames;
+
+        LibraryJar(File file, long length, long lastModified, Set<String> classNames) {
+            this.file = file;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.classNames = classNames;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public boolean containsClass(String className) {
+            return classNames.contains(className);
+        }
+
+        /**
+         * Identifies this version of the jar.
+         */
+        public String getFingerprint() {
+            return file.getAbsolutePath() + ":" + length + ":" + lastModified;
+        }
+    }
+
+    /**
+     * Whether a library class is a test class, along with where each class this was decided from was found.
+     */
+    static class SuperClassVerdict {
+        final boolean test;
+        final Map<String, String> classLocations;
+
+        SuperClassVerdict(boolean test, Map<String, String> classLocations) {
+            this.test = test;
+            this.classLocations = classLocations;
+        }
+    }
+}
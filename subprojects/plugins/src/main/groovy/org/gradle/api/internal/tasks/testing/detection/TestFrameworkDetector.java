@@ -28,4 +28,9 @@ public interface TestFrameworkDetector {
     void setTestClassesDirectory(File testClassesDir);
 
     void setTestClasspath(FileCollection classpath);
+
+    /**
+     * Called once all candidate class files have been processed, to release any resources held during detection.
+     */
+    void endDetection();
 }
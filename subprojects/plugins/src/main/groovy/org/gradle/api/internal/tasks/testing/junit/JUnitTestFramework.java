@@ -22,6 +22,7 @@ import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 import org.gradle.api.internal.tasks.testing.detection.ClassFileExtractionManager;
+import org.gradle.api.internal.tasks.testing.detection.TestClassDetectionCache;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.api.tasks.testing.junit.JUnitOptions;
@@ -40,11 +41,11 @@ public class JUnitTestFramework implements TestFramework {
     private final Test testTask;
     private DefaultTestFilter filter;
 
-    public JUnitTestFramework(Test testTask, DefaultTestFilter filter) {
+    public JUnitTestFramework(Test testTask, DefaultTestFilter filter, TestClassDetectionCache detectionCache) {
         this.testTask = testTask;
         this.filter = filter;
         options = new JUnitOptions();
-        detector = new JUnitDetector(new ClassFileExtractionManager(testTask.getTemporaryDirFactory()));
+        detector = new JUnitDetector(new ClassFileExtractionManager(detectionCache));
     }
 
     public WorkerTestClassProcessorFactory getProcessorFactory() {
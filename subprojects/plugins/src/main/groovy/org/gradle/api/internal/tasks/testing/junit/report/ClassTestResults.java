@@ -72,6 +72,14 @@ public class ClassTestResults extends CompositeTestResults {
         return results;
     }
 
+    /**
+     * Releases the individual test results once the page for this class has been rendered. The counts, failures and ignored tests
+     * are still available to the package and overview pages.
+     */
+    public void discardTestResults() {
+        results.clear();
+    }
+
     public TestResult addTest(String testName, long duration) {
         TestResult test = new TestResult(testName, duration, this);
         results.add(test);
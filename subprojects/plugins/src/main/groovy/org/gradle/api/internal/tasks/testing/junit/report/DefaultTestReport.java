@@ -17,12 +17,14 @@ package org.gradle.api.internal.tasks.testing.junit.report;
 
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.internal.tasks.testing.junit.result.ReportWorkQueue;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestFailure;
 import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.concurrent.BatchExecutor;
 import org.gradle.reporting.HtmlReportBuilder;
 import org.gradle.reporting.HtmlReportRenderer;
 import org.gradle.reporting.ReportRenderer;
@@ -36,53 +38,36 @@ import static org.gradle.api.tasks.testing.TestResult.ResultType.SKIPPED;
 
 public class DefaultTestReport implements TestReporter {
     private final static Logger LOG = Logging.getLogger(DefaultTestReport.class);
+    private final BatchExecutor batchExecutor;
+
+    public DefaultTestReport() {
+        this(BatchExecutor.SERIAL);
+    }
+
+    public DefaultTestReport(BatchExecutor batchExecutor) {
+        this.batchExecutor = batchExecutor;
+    }
 
     public void generateReport(TestResultsProvider resultsProvider, File reportDir) {
         LOG.info("Generating HTML test report...");
 
         Clock clock = new Clock();
-        AllTestResults model = loadModelFromProvider(resultsProvider);
-        generateFiles(model, resultsProvider, reportDir);
+        generateFiles(resultsProvider, reportDir);
         LOG.info("Finished generating test html results ({}) into: {}", clock.getTime(), reportDir);
     }
 
-    private AllTestResults loadModelFromProvider(TestResultsProvider resultsProvider) {
-        final AllTestResults model = new AllTestResults();
-        resultsProvider.visitClasses(new Action<TestClassResult>() {
-            public void execute(TestClassResult classResult) {
-                model.addTestClass(classResult.getId(), classResult.getClassName());
-                List<TestMethodResult> collectedResults = classResult.getResults();
-                for (TestMethodResult collectedResult : collectedResults) {
-                    final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), collectedResult.getName(), collectedResult.getDuration());
-                    if (collectedResult.getResultType() == SKIPPED) {
-                        testResult.setIgnored();
-                    } else {
-                        List<TestFailure> failures = collectedResult.getFailures();
-                        for (TestFailure failure : failures) {
-                            testResult.addFailure(failure);
-                        }
-                    }
-                }
-            }
-        });
-        return model;
-    }
-
-    private void generateFiles(AllTestResults model, final TestResultsProvider resultsProvider, File reportDir) {
+    private void generateFiles(TestResultsProvider resultsProvider, File reportDir) {
         try {
             HtmlReportRenderer htmlRenderer = new HtmlReportRenderer();
-            htmlRenderer.render(model, new ReportRenderer<AllTestResults, HtmlReportBuilder>() {
+            htmlRenderer.render(resultsProvider, new ReportRenderer<TestResultsProvider, HtmlReportBuilder>() {
                 @Override
-                public void render(AllTestResults model, HtmlReportBuilder output) throws IOException {
-                    PackagePageRenderer packagePageRenderer = new PackagePageRenderer();
-                    ClassPageRenderer classPageRenderer = new ClassPageRenderer(resultsProvider);
+                public void render(TestResultsProvider resultsProvider, HtmlReportBuilder output) throws IOException {
+                    AllTestResults model = renderClassPages(resultsProvider, output);
 
+                    PackagePageRenderer packagePageRenderer = new PackagePageRenderer();
                     output.renderHtmlPage("index.html", model, new OverviewPageRenderer());
                     for (PackageTestResults packageResults : model.getPackages()) {
                         output.renderHtmlPage(packageResults.getBaseUrl(), packageResults, packagePageRenderer);
-                        for (ClassTestResults classResults : packageResults.getClasses()) {
-                            output.renderHtmlPage(classResults.getBaseUrl(), classResults, classPageRenderer);
-                        }
                     }
                 }
             }, reportDir);
@@ -90,4 +75,46 @@ public class DefaultTestReport implements TestReporter {
             throw new GradleException(String.format("Could not generate test report to '%s'.", reportDir), e);
         }
     }
+
+    /**
+     * Adds each class to the model and renders its page while the results are visited. Once a page has been written, the class
+     * keeps only its counts plus its failed and ignored tests, so the model does not grow with the number of passing tests.
+     */
+    private AllTestResults renderClassPages(final TestResultsProvider resultsProvider, final HtmlReportBuilder output) {
+        final AllTestResults model = new AllTestResults();
+        final ReportWorkQueue queue = new ReportWorkQueue(batchExecutor);
+        try {
+            resultsProvider.visitClasses(new Action<TestClassResult>() {
+                public void execute(TestClassResult classResult) {
+                    final ClassTestResults classResults = addClass(model, classResult);
+                    queue.submit(new Runnable() {
+                        public void run() {
+                            output.renderHtmlPage(classResults.getBaseUrl(), classResults, new ClassPageRenderer(resultsProvider));
+                            classResults.discardTestResults();
+                        }
+                    });
+                }
+            });
+        } finally {
+            queue.waitForCompletion();
+        }
+        return model;
+    }
+
+    private ClassTestResults addClass(AllTestResults model, TestClassResult classResult) {
+        ClassTestResults classResults = model.addTestClass(classResult.getId(), classResult.getClassName());
+        List<TestMethodResult> collectedResults = classResult.getResults();
+        for (TestMethodResult collectedResult : collectedResults) {
+            final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), collectedResult.getName(), collectedResult.getDuration());
+            if (collectedResult.getResultType() == SKIPPED) {
+                testResult.setIgnored();
+            } else {
+                List<TestFailure> failures = collectedResult.getFailures();
+                for (TestFailure failure : failures) {
+                    testResult.addFailure(failure);
+                }
+            }
+        }
+        return classResults;
+    }
 }
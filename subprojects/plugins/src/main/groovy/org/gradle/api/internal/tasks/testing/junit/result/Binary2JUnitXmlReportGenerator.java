@@ -23,6 +23,7 @@ import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.util.Clock;
 import org.gradle.internal.FileUtils;
+import org.gradle.internal.concurrent.BatchExecutor;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
@@ -35,35 +36,54 @@ public class Binary2JUnitXmlReportGenerator {
 
     private final File testResultsDir;
     private final TestResultsProvider testResultsProvider;
+    private final BatchExecutor batchExecutor;
     JUnitXmlResultWriter saxWriter;
     private final static Logger LOG = Logging.getLogger(Binary2JUnitXmlReportGenerator.class);
 
     public Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation) {
+        this(testResultsDir, testResultsProvider, outputAssociation, BatchExecutor.SERIAL);
+    }
+
+    public Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation, BatchExecutor batchExecutor) {
         this.testResultsDir = testResultsDir;
         this.testResultsProvider = testResultsProvider;
+        this.batchExecutor = batchExecutor;
         this.saxWriter = new JUnitXmlResultWriter(getHostname(), testResultsProvider, outputAssociation);
     }
 
     public void generate() {
         Clock clock = new Clock();
-        testResultsProvider.visitClasses(new Action<TestClassResult>() {
-            public void execute(TestClassResult result) {
-                File file = new File(testResultsDir, getReportFileName(result));
-                OutputStream output = null;
-                try {
-                    output = new BufferedOutputStream(new FileOutputStream(file));
-                    saxWriter.write(result, output);
-                    output.close();
-                } catch (Exception e) {
-                    throw new GradleException(String.format("Could not write XML test results for %s to file %s.", result.getClassName(), file), e);
-                } finally {
-                    IOUtils.closeQuietly(output);
+        final ReportWorkQueue queue = new ReportWorkQueue(batchExecutor);
+        try {
+            testResultsProvider.visitClasses(new Action<TestClassResult>() {
+                public void execute(final TestClassResult result) {
+                    queue.submit(new Runnable() {
+                        public void run() {
+                            writeReport(result);
+                        }
+                    });
                 }
-            }
-        });
+            });
+        } finally {
+            queue.waitForCompletion();
+        }
         LOG.info("Finished generating test XML results ({}) into: {}", clock.getTime(), testResultsDir);
     }
 
+    private void writeReport(TestClassResult result) {
+        File file = new File(testResultsDir, getReportFileName(result));
+        OutputStream output = null;
+        try {
+            output = new BufferedOutputStream(new FileOutputStream(file));
+            saxWriter.write(result, output);
+            output.close();
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not write XML test results for %s to file %s.", result.getClassName(), file), e);
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+    }
+
     private String getReportFileName(TestClassResult result) {
         return "TEST-" + FileUtils.toSafeFileName(result.getClassName()) + ".xml";
     }
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.BatchExecutor;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the per-class rendering work of a test report on the free threads of the build's {@link BatchExecutor}. Work that no thread is free for
+ * is run by the submitting thread, so that the producer never gets more than a few classes ahead of the writers and the results held in memory
+ * stay bounded. Once some work has failed, later work is skipped.
+ */
+public class ReportWorkQueue {
+    private final BatchExecutor executor;
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    private final Object lock = new Object();
+    private int running;
+
+    public ReportWorkQueue(BatchExecutor executor) {
+        this.executor = executor;
+    }
+
+    public void submit(final Runnable work) {
+        if (failure.get() != null) {
+            return;
+        }
+        synchronized (lock) {
+            running++;
+        }
+        Runnable action = new Runnable() {
+            public void run() {
+                try {
+                    if (failure.get() == null) {
+                        work.run();
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    synchronized (lock) {
+                        running--;
+                        lock.notifyAll();
+                    }
+                }
+            }
+        };
+        if (!executor.tryExecute(action)) {
+            action.run();
+        }
+    }
+
+    /**
+     * Waits for all submitted work to complete, rethrowing the first failure.
+     */
+    public void waitForCompletion() {
+        synchronized (lock) {
+            while (running > 0) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
+        if (failure.get() != null) {
+            throw UncheckedException.throwAsUncheckedException(failure.get());
+        }
+    }
+}
@@ -21,13 +21,18 @@ import com.esotericsoftware.kryo.io.Output;
 import com.google.common.collect.ImmutableMap;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.tasks.testing.TestOutputEvent;
-import org.gradle.internal.io.RandomAccessFileInputStream;
 import org.gradle.internal.UncheckedException;
 import org.gradle.messaging.serialize.kryo.KryoBackedDecoder;
 import org.gradle.messaging.serialize.kryo.KryoBackedEncoder;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -216,9 +221,14 @@ public class TestOutputStore {
         }
     }
 
+    /**
+     * Reads the output of tests. A reader can be used by multiple threads concurrently: each read works on its own position in the
+     * data file, and the content of each region is decoded straight into the target writer.
+     */
     public class Reader implements Closeable {
         private final Index index;
         private final RandomAccessFile dataFile;
+        private final FileChannel dataChannel;
 
         public Reader() {
             File indexFile = getIndexFile();
@@ -266,6 +276,7 @@ public class TestOutputStore {
                 } catch (FileNotFoundException e) {
                     throw new UncheckedIOException(e);
                 }
+                dataChannel = dataFile.getChannel();
             } else { // no outputs file
                 if (indexFile.exists()) {
                     throw new IllegalStateException(String.format("Test outputs data file '%s' does not exist but the index file '%s' does", outputsFile, indexFile));
@@ -273,6 +284,7 @@ public class TestOutputStore {
 
                 index = null;
                 dataFile = null;
+                dataChannel = null;
             }
         }
 
@@ -333,9 +345,9 @@ public class TestOutputStore {
             boolean ignoreTestLevel = !allClassOutput && testId == 0;
 
             try {
-                dataFile.seek(region.start);
                 long maxPos = region.stop - region.start;
-                KryoBackedDecoder decoder = new KryoBackedDecoder(new RandomAccessFileInputStream(dataFile));
+                KryoBackedDecoder decoder = new KryoBackedDecoder(new ChannelRegionInputStream(dataChannel, region.start));
+                MessageCopier copier = null;
                 while (decoder.getReadPosition() <= maxPos) {
                     boolean readStdout = decoder.readBoolean();
                     long readClassId = decoder.readSmallLong();
@@ -360,17 +372,10 @@ public class TestOutputStore {
                     }
 
                     if (testId == 0 || testId == readTestId) {
-                        byte[] stringBytes = new byte[readLength];
-                        decoder.readBytes(stringBytes);
-                        String message;
-                        try {
-                            message = new String(stringBytes, messageStorageCharset.name());
-                        } catch (UnsupportedEncodingException e) {
-                            // shouldn't happen
-                            throw UncheckedException.throwAsUncheckedException(e);
+                        if (copier == null) {
+                            copier = new MessageCopier(writer);
                         }
-
-                        writer.write(message);
+                        copier.copy(decoder, readLength);
                     } else {
                         decoder.skipBytes(readLength);
                     }
@@ -381,6 +386,91 @@ public class TestOutputStore {
         }
     }
 
+    /**
+     * Decodes messages from the data file into a writer, through fixed size buffers.
+     */
+    private class MessageCopier {
+        private final java.io.Writer writer;
+        private final CharsetDecoder charsetDecoder = messageStorageCharset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer bytes = ByteBuffer.allocate(8192);
+        private final CharBuffer chars = CharBuffer.allocate(8192);
+
+        private MessageCopier(java.io.Writer writer) {
+            this.writer = writer;
+        }
+
+        void copy(KryoBackedDecoder decoder, int length) throws IOException {
+            charsetDecoder.reset();
+            bytes.clear();
+            int remaining = length;
+            while (remaining > 0) {
+                int count = Math.min(remaining, bytes.remaining());
+                decoder.readBytes(bytes.array(), bytes.position(), count);
+                bytes.position(bytes.position() + count);
+                remaining -= count;
+                bytes.flip();
+                decode(remaining == 0);
+                bytes.compact();
+            }
+            bytes.flip();
+            decode(true);
+            while (charsetDecoder.flush(chars) == CoderResult.OVERFLOW) {
+                drain();
+            }
+            drain();
+        }
+
+        private void decode(boolean endOfInput) throws IOException {
+            while (charsetDecoder.decode(bytes, chars, endOfInput) == CoderResult.OVERFLOW) {
+                drain();
+            }
+        }
+
+        private void drain() throws IOException {
+            chars.flip();
+            writer.write(chars.array(), 0, chars.limit());
+            chars.clear();
+        }
+    }
+
+    /**
+     * Reads the data file from the given position, without touching the shared file pointer.
+     */
+    private static class ChannelRegionInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+
+        private ChannelRegionInputStream(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] buffer = new byte[1];
+            int count = read(buffer, 0, 1);
+            return count < 0 ? -1 : buffer[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int count = channel.read(ByteBuffer.wrap(bytes, offset, length), position);
+            if (count > 0) {
+                position += count;
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = Math.max(0, Math.min(n, channel.size() - position));
+            position += skipped;
+            return skipped;
+        }
+    }
+
     // IMPORTANT: return must be closed when done with.
     public Reader reader() {
         return new Reader();
@@ -16,37 +16,65 @@
 
 package org.gradle.api.internal.tasks.testing.processors;
 
+import org.gradle.api.internal.tasks.testing.*;
+import org.gradle.api.tasks.testing.TestOutputEvent;
 import org.gradle.internal.Factory;
-import org.gradle.api.internal.tasks.testing.TestClassProcessor;
-import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
-import org.gradle.api.internal.tasks.testing.TestResultProcessor;
-import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.messaging.actor.Actor;
 import org.gradle.messaging.actor.ActorFactory;
 import org.gradle.messaging.dispatch.DispatchException;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 /**
- * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
- * processors.
+ * Manages a set of parallel TestClassProcessors.
+ *
+ * <p>In pull mode, each processor is given at most {@link #MAX_OUTSTANDING_CLASSES} test classes at a time, and
+ * further classes are handed out as the processors report their classes complete through {@link TestClassCompletionListener}. Held classes are handed out
+ * slowest first, using the durations from the previous run, with classes that have no previous duration going
+ * first of all. This keeps a single long-running class from ending up at the back of a busy processor's queue.</p>
+ *
+ * <p>Test frameworks that only report results when the processor stops cannot be used in pull mode. For these, the
+ * classes are held until {@link #stop()} is called and are then assigned longest first to the processor with the
+ * least estimated work. When there are no previous durations, classes are assigned round-robin as they arrive.</p>
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
+    static final int MAX_OUTSTANDING_CLASSES = 2;
     private final int maxProcessors;
     private final Factory<TestClassProcessor> factory;
     private final ActorFactory actorFactory;
+    private final Map<String, Long> previousDurations;
+    private final boolean pullTestClasses;
+    private final boolean holdUntilStop;
+    private final long averageDuration;
+    private final Object lock = new Object();
+    private final PriorityQueue<PendingTestClass> pending = new PriorityQueue<PendingTestClass>();
+    private final List<Worker> workers = new ArrayList<Worker>();
     private TestResultProcessor resultProcessor;
     private int pos;
+    private long sequence;
     private List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
     private List<Actor> actors = new ArrayList<Actor>();
     private Actor resultProcessorActor;
 
     public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
+        this(maxProcessors, factory, actorFactory, Collections.<String, Long>emptyMap(), true);
+    }
+
+    public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory,
+                                          Map<String, Long> previousDurations, boolean pullTestClasses) {
         this.maxProcessors = maxProcessors;
         this.factory = factory;
         this.actorFactory = actorFactory;
+        this.previousDurations = previousDurations;
+        this.pullTestClasses = pullTestClasses;
+        this.holdUntilStop = !pullTestClasses && !previousDurations.isEmpty();
+        long total = 0;
+        for (Long duration : previousDurations.values()) {
+            total += duration;
+        }
+        this.averageDuration = previousDurations.isEmpty() ? 0 : total / previousDurations.size();
     }
 
     public void startProcessing(TestResultProcessor resultProcessor) {
@@ -55,26 +83,177 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     }
 
     public void processTestClass(TestClassRunInfo testClass) {
-        TestClassProcessor processor;
-        if (processors.size() < maxProcessors) {
-            processor = factory.create();
-            Actor actor = actorFactory.createActor(processor);
-            processor = actor.getProxy(TestClassProcessor.class);
-            actors.add(actor);
-            processors.add(processor);
-            processor.startProcessing(resultProcessor);
-        } else {
-            processor = processors.get(pos);
-            pos = (pos + 1) % processors.size();
+        synchronized (lock) {
+            PendingTestClass pendingClass = new PendingTestClass(testClass, previousDurations.get(testClass.getTestClassName()), sequence++);
+            if (workers.size() < maxProcessors) {
+                assign(pendingClass, startWorker());
+            } else if (holdUntilStop) {
+                pending.add(pendingClass);
+            } else if (!pullTestClasses) {
+                assign(pendingClass, workers.get(pos));
+                pos = (pos + 1) % workers.size();
+            } else {
+                pending.add(pendingClass);
+                dispatchPending();
+            }
         }
-        processor.processTestClass(testClass);
     }
 
     public void stop() {
         try {
+            synchronized (lock) {
+                if (pullTestClasses) {
+                    awaitPending();
+                }
+                // Anything still held goes to the processor with the least estimated work, longest first
+                while (!pending.isEmpty()) {
+                    PendingTestClass next = pending.poll();
+                    Worker leastLoaded = null;
+                    for (Worker worker : workers) {
+                        if (leastLoaded == null || worker.load < leastLoaded.load) {
+                            leastLoaded = worker;
+                        }
+                    }
+                    assign(next, leastLoaded);
+                }
+            }
             CompositeStoppable.stoppable(processors).add(actors).add(resultProcessorActor).stop();
         } catch (DispatchException e) {
             throw UncheckedException.throwAsUncheckedException(e.getCause());
         }
     }
+
+    private void awaitPending() {
+        try {
+            while (!pending.isEmpty()) {
+                lock.wait();
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private Worker startWorker() {
+        TestClassProcessor processor = factory.create();
+        Actor actor = actorFactory.createActor(processor);
+        processor = actor.getProxy(TestClassProcessor.class);
+        actors.add(actor);
+        processors.add(processor);
+        Worker worker = new Worker(processor);
+        workers.add(worker);
+        processor.startProcessing(pullTestClasses ? new CompletionTrackingResultProcessor(worker) : resultProcessor);
+        return worker;
+    }
+
+    private void dispatchPending() {
+        while (!pending.isEmpty()) {
+            Worker available = null;
+            for (Worker worker : workers) {
+                if (worker.outstanding.size() < MAX_OUTSTANDING_CLASSES
+                        && (available == null || worker.outstanding.size() < available.outstanding.size())) {
+                    available = worker;
+                }
+            }
+            if (available == null) {
+                return;
+            }
+            assign(pending.poll(), available);
+        }
+    }
+
+    private void assign(PendingTestClass testClass, Worker worker) {
+        worker.outstanding.add(testClass);
+        worker.load += estimate(testClass);
+        worker.processor.processTestClass(testClass.testClass);
+    }
+
+    private void completed(Worker worker, String className) {
+        synchronized (lock) {
+            PendingTestClass completed = null;
+            for (PendingTestClass testClass : worker.outstanding) {
+                if (testClass.testClass.getTestClassName().equals(className)) {
+                    completed = testClass;
+                    break;
+                }
+            }
+            if (completed == null) {
+                return;
+            }
+            worker.outstanding.remove(completed);
+            worker.load -= estimate(completed);
+            dispatchPending();
+            lock.notifyAll();
+        }
+    }
+
+    private long estimate(PendingTestClass testClass) {
+        return testClass.previousDuration == null ? averageDuration : testClass.previousDuration;
+    }
+
+    private static class Worker {
+        final TestClassProcessor processor;
+        final List<PendingTestClass> outstanding = new ArrayList<PendingTestClass>();
+        long load;
+
+        Worker(TestClassProcessor processor) {
+            this.processor = processor;
+        }
+    }
+
+    private static class PendingTestClass implements Comparable<PendingTestClass> {
+        final TestClassRunInfo testClass;
+        final Long previousDuration;
+        final long sequence;
+
+        PendingTestClass(TestClassRunInfo testClass, Long previousDuration, long sequence) {
+            this.testClass = testClass;
+            this.previousDuration = previousDuration;
+            this.sequence = sequence;
+        }
+
+        public int compareTo(PendingTestClass other) {
+            if (previousDuration == null || other.previousDuration == null) {
+                if (previousDuration != null) {
+                    return 1;
+                }
+                if (other.previousDuration != null) {
+                    return -1;
+                }
+            } else if (!previousDuration.equals(other.previousDuration)) {
+                return previousDuration > other.previousDuration ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : sequence == other.sequence ? 0 : 1;
+        }
+    }
+
+    /**
+     * Forwards results to the shared result processor, and is told by the worker when each of the classes given to it completes.
+     */
+    private class CompletionTrackingResultProcessor implements TestResultProcessor, TestClassCompletionListener {
+        private final Worker worker;
+
+        CompletionTrackingResultProcessor(Worker worker) {
+            this.worker = worker;
+        }
+
+        public void started(TestDescriptorInternal test, TestStartEvent event) {
+            resultProcessor.started(test, event);
+        }
+
+        public void completed(Object testId, TestCompleteEvent event) {
+            resultProcessor.completed(testId, event);
+        }
+
+        public void output(Object testId, TestOutputEvent event) {
+            resultProcessor.output(testId, event);
+        }
+
+        public void failure(Object testId, Throwable result) {
+            resultProcessor.failure(testId, result);
+        }
+
+        public void testClassCompleted(TestClassRunInfo testClass) {
+            MaxNParallelTestClassProcessor.this.completed(worker, testClass.getTestClassName());
+        }
+    }
 }
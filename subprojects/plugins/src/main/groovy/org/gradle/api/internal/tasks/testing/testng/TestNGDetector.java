@@ -21,8 +21,6 @@ import org.gradle.api.internal.tasks.testing.detection.TestClassVisitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-
 class TestNGDetector extends AbstractTestFrameworkDetector<TestNGTestClassDetecter> {
     private static final Logger LOGGER = LoggerFactory.getLogger(TestNGDetector.class);
 
@@ -35,22 +33,20 @@ class TestNGDetector extends AbstractTestFrameworkDetector<TestNGTestClassDetect
     }
 
     /**
-     * Uses a TestClassVisitor to detect whether the class in the testClassFile is a test class. <p/> If the class is not a test, this function will go up the inheritance tree to check if a parent
+     * Uses a TestClassVisitor to detect whether the visited class is a test class. <p/> If the class is not a test, this function will go up the inheritance tree to check if a parent
      * class is a test class. First the package of the parent class is checked, if it is a java.lang or groovy.lang the class can't be a test class, otherwise the parent class is scanned. <p/> When a
      * parent class is a test class all the extending classes are marked as test classes.
      */
-    protected boolean processTestClass(final File testClassFile, boolean superClass) {
-        final TestClassVisitor classVisitor = classVisitor(testClassFile);
-
+    protected boolean processTestClass(final TestClassVisitor classVisitor, boolean superClass) {
         boolean isTest = classVisitor.isTest();
 
         if (!isTest) {
             final String superClassName = classVisitor.getSuperClassName();
 
-            final File superClassFile = getSuperTestClassFile(superClassName);
+            final Boolean isSuperTest = processSuperClass(superClassName);
 
-            if (superClassFile != null) {
-                isTest = processSuperClass(superClassFile);
+            if (isSuperTest != null) {
+                isTest = isSuperTest;
             } else {
                 LOGGER.debug("test-class-scan : failed to scan parent class {}, could not find the class file",
                         superClassName);
@@ -23,6 +23,7 @@ import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 import org.gradle.api.internal.tasks.testing.detection.ClassFileExtractionManager;
+import org.gradle.api.internal.tasks.testing.detection.TestClassDetectionCache;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
 import org.gradle.api.internal.tasks.testing.junit.JULRedirector;
 import org.gradle.api.reporting.DirectoryReport;
@@ -44,13 +45,13 @@ public class TestNGTestFramework implements TestFramework {
     final Test testTask;
     private DefaultTestFilter filter;
 
-    public TestNGTestFramework(Test testTask, DefaultTestFilter filter, Instantiator instantiator) {
+    public TestNGTestFramework(Test testTask, DefaultTestFilter filter, Instantiator instantiator, TestClassDetectionCache detectionCache) {
         this.testTask = testTask;
         this.filter = filter;
         options = instantiator.newInstance(TestNGOptions.class, testTask.getProject().getProjectDir());
         options.setAnnotationsOnSourceCompatibility(JavaVersion.toVersion(testTask.getProject().property("sourceCompatibility")));
         conventionMapOutputDirectory(options, testTask.getReports().getHtml());
-        detector = new TestNGDetector(new ClassFileExtractionManager(testTask.getTemporaryDirFactory()));
+        detector = new TestNGDetector(new ClassFileExtractionManager(detectionCache));
     }
 
     private static void conventionMapOutputDirectory(TestNGOptions options, final DirectoryReport html) {
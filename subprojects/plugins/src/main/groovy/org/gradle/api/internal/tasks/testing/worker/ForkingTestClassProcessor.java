@@ -17,13 +17,17 @@
 package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 import org.gradle.internal.Factory;
 import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.ExecResult;
 import org.gradle.process.JavaForkOptions;
+import org.gradle.process.internal.ExecHandle;
+import org.gradle.process.internal.ExecHandleListener;
 import org.gradle.process.internal.WorkerProcess;
 import org.gradle.process.internal.WorkerProcessBuilder;
 
@@ -38,6 +42,7 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     private RemoteTestClassProcessor remoteProcessor;
     private WorkerProcess workerProcess;
     private TestResultProcessor resultProcessor;
+    private OutstandingTestClasses outstandingTestClasses;
 
     public ForkingTestClassProcessor(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction) {
         this.workerFactory = workerFactory;
@@ -49,14 +54,21 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
 
     public void startProcessing(TestResultProcessor resultProcessor) {
         this.resultProcessor = resultProcessor;
+        this.outstandingTestClasses = new OutstandingTestClasses(resultProcessor);
     }
 
     public void processTestClass(TestClassRunInfo testClass) {
-        if (remoteProcessor == null) {
-            remoteProcessor = forkProcess();
-        }
+        outstandingTestClasses.add(testClass);
+        try {
+            if (remoteProcessor == null) {
+                remoteProcessor = forkProcess();
+            }
 
-        remoteProcessor.processTestClass(testClass);
+            remoteProcessor.processTestClass(testClass);
+        } catch (RuntimeException e) {
+            outstandingTestClasses.testClassCompleted(testClass);
+            throw e;
+        }
     }
 
     RemoteTestClassProcessor forkProcess() {
@@ -67,6 +79,14 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         builder.worker(new TestWorker(processorFactory));
         options.copyTo(builder.getJavaCommand());
         buildConfigAction.execute(builder);
+        builder.getJavaCommand().listener(new ExecHandleListener() {
+            public void executionStarted(ExecHandle execHandle) {
+            }
+
+            public void executionFinished(ExecHandle execHandle, ExecResult execResult) {
+                outstandingTestClasses.workerStopped();
+            }
+        });
 
         workerProcess = builder.build();
         workerProcess.start();
@@ -74,6 +94,7 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         ObjectConnection connection = workerProcess.getConnection();
         connection.useParameterSerializer(new TestEventSerializer());
         connection.addIncoming(TestResultProcessor.class, resultProcessor);
+        connection.addIncoming(TestClassCompletionListener.class, outstandingTestClasses);
         RemoteTestClassProcessor remoteProcessor = connection.addOutgoing(RemoteTestClassProcessor.class);
         connection.connect();
         remoteProcessor.startProcessing();
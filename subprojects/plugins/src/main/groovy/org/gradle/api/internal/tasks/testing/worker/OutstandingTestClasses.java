@@ -0,0 +1,66 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The test classes given to a worker process that the worker has not finished with yet. Passes on each completion once, to the result
+ * processor when it is a {@link TestClassCompletionListener}. When the worker process stops, the classes it did not finish are completed,
+ * so that nothing waits for them.
+ */
+class OutstandingTestClasses implements TestClassCompletionListener {
+    private final TestClassCompletionListener listener;
+    private final Map<String, TestClassRunInfo> outstanding = new LinkedHashMap<String, TestClassRunInfo>();
+
+    OutstandingTestClasses(TestResultProcessor resultProcessor) {
+        this.listener = resultProcessor instanceof TestClassCompletionListener ? (TestClassCompletionListener) resultProcessor : null;
+    }
+
+    void add(TestClassRunInfo testClass) {
+        synchronized (outstanding) {
+            outstanding.put(testClass.getTestClassName(), testClass);
+        }
+    }
+
+    public void testClassCompleted(TestClassRunInfo testClass) {
+        TestClassRunInfo completed;
+        synchronized (outstanding) {
+            completed = outstanding.remove(testClass.getTestClassName());
+        }
+        if (completed != null && listener != null) {
+            listener.testClassCompleted(completed);
+        }
+    }
+
+    void workerStopped() {
+        List<TestClassRunInfo> remaining;
+        synchronized (outstanding) {
+            remaining = new ArrayList<TestClassRunInfo>(outstanding.values());
+        }
+        for (TestClassRunInfo testClass : remaining) {
+            testClassCompleted(testClass);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.Factory;
+import org.gradle.process.JavaForkOptions;
+import org.gradle.process.internal.WorkerProcessBuilder;
+
+import java.io.File;
+
+/**
+ * Runs test classes in a worker taken from a {@link TestWorkerPool}, and returns the worker to the pool when stopped.
+ */
+public class PooledTestClassProcessor implements TestClassProcessor {
+    private final TestWorkerPool workerPool;
+    private final Factory<WorkerProcessBuilder> workerFactory;
+    private final WorkerTestClassProcessorFactory processorFactory;
+    private final JavaForkOptions options;
+    private final Iterable<File> classPath;
+    private final Action<WorkerProcessBuilder> buildConfigAction;
+    private TestWorkerPool.PooledWorker worker;
+    private TestResultProcessor resultProcessor;
+    private OutstandingTestClasses outstandingTestClasses;
+
+    public PooledTestClassProcessor(TestWorkerPool workerPool, Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory,
+                                    JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction) {
+        this.workerPool = workerPool;
+        this.workerFactory = workerFactory;
+        this.processorFactory = processorFactory;
+        this.options = options;
+        this.classPath = classPath;
+        this.buildConfigAction = buildConfigAction;
+    }
+
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        this.resultProcessor = resultProcessor;
+        this.outstandingTestClasses = new OutstandingTestClasses(resultProcessor);
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        outstandingTestClasses.add(testClass);
+        try {
+            if (worker == null) {
+                worker = workerPool.acquire(workerFactory, processorFactory, options, classPath, buildConfigAction, resultProcessor, outstandingTestClasses);
+            }
+
+            worker.processTestClass(testClass);
+        } catch (RuntimeException e) {
+            outstandingTestClasses.testClassCompleted(testClass);
+            throw e;
+        }
+    }
+
+    public void stop() {
+        if (worker != null) {
+            try {
+                workerPool.release(worker);
+            } finally {
+                worker = null;
+            }
+        }
+    }
+}
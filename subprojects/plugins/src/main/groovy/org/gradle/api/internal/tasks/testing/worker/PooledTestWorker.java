@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.internal.TrueTimeProvider;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classpath.DefaultClassPath;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.id.IdGenerator;
+import org.gradle.internal.service.DefaultServiceRegistry;
+import org.gradle.listener.ContextClassLoaderProxy;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.internal.WorkerProcessContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.net.URLClassLoader;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A test worker that stays alive after a test task has finished with it, so that it can run the tests of later test
+ * tasks. The worker process loads only the test framework. Each session loads the rest of its test runtime classpath
+ * into a new ClassLoader, which is closed when the session stops.
+ */
+public class PooledTestWorker implements Action<WorkerProcessContext>, RemotePooledTestWorker, Serializable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledTestWorker.class);
+    private CountDownLatch completed;
+    private WorkerProcessContext workerProcessContext;
+    private DefaultServiceRegistry testServices;
+    private PooledTestWorkerClient client;
+    private TestClassProcessor processor;
+    private ClassLoader sessionClassLoader;
+    private Properties systemProperties;
+
+    public void execute(WorkerProcessContext workerProcessContext) {
+        LOGGER.info("{} started.", workerProcessContext.getDisplayName());
+
+        this.workerProcessContext = workerProcessContext;
+        completed = new CountDownLatch(1);
+
+        System.setProperty(TestWorker.WORKER_ID_SYS_PROPERTY, workerProcessContext.getWorkerId().toString());
+
+        testServices = new TestWorker.TestFrameworkServiceRegistry(workerProcessContext);
+        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
+        serverConnection.useParameterSerializer(new TestEventSerializer());
+        client = serverConnection.addOutgoing(PooledTestWorkerClient.class);
+        serverConnection.addIncoming(RemotePooledTestWorker.class, this);
+        serverConnection.connect();
+
+        try {
+            try {
+                completed.await();
+            } catch (InterruptedException e) {
+                throw new UncheckedException(e);
+            }
+        } finally {
+            LOGGER.info("{} stopped.", workerProcessContext.getDisplayName());
+            testServices.close();
+        }
+    }
+
+    public void startSession(TestWorkerSession session) {
+        Thread.currentThread().setName("Test worker");
+        systemProperties = (Properties) System.getProperties().clone();
+        sessionClassLoader = new URLClassLoader(new DefaultClassPath(session.getClasspath()).getAsURLArray(),
+                workerProcessContext.getApplicationClassLoader());
+
+        TestClassProcessor targetProcessor = session.getProcessorFactory().create(testServices);
+        IdGenerator<?> idGenerator = testServices.get(IdGenerator.class);
+        targetProcessor = new WorkerTestClassProcessor(targetProcessor, idGenerator.generateId(),
+                workerProcessContext.getDisplayName(), new TrueTimeProvider());
+        ContextClassLoaderProxy<TestClassProcessor> proxy = new ContextClassLoaderProxy<TestClassProcessor>(
+                TestClassProcessor.class, targetProcessor, sessionClassLoader);
+        processor = proxy.getSource();
+        processor.startProcessing(client);
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        Thread.currentThread().setName("Test worker");
+        try {
+            processor.processTestClass(testClass);
+        } finally {
+            // Clean the interrupted status
+            Thread.interrupted();
+            client.testClassCompleted(testClass);
+        }
+    }
+
+    public void stopSession() {
+        Thread.currentThread().setName("Test worker");
+        try {
+            processor.stop();
+        } finally {
+            processor = null;
+            // Release the jars of the session's classpath, so that the build can change or delete them
+            CompositeStoppable.stoppable(sessionClassLoader).stop();
+            sessionClassLoader = null;
+            // Undo the changes the tests might have made to the JVM, before the next session starts
+            System.setSecurityManager(null);
+            System.setProperties(systemProperties);
+            client.sessionStopped();
+        }
+    }
+
+    public void stop() {
+        completed.countDown();
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+
+/**
+ * The messages a build sends to a pooled test worker. A pooled worker runs a session for each test task that uses it.
+ */
+public interface RemotePooledTestWorker {
+    void startSession(TestWorkerSession session);
+
+    void processTestClass(TestClassRunInfo testClass);
+
+    void stopSession();
+
+    void stop();
+}
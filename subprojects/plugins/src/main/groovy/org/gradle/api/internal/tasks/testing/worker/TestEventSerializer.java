@@ -40,6 +40,7 @@ public class TestEventSerializer implements StatefulSerializer<Object[]> {
         registry.register(TestCompleteEvent.class, new TestCompleteEventSerializer());
         registry.register(DefaultTestOutputEvent.class, new DefaultTestOutputEventSerializer());
         registry.register(Throwable.class, new ThrowableSerializer());
+        registry.register(TestWorkerSession.class, new DefaultSerializer<TestWorkerSession>(TestEventSerializer.class.getClassLoader()));
         paramSerializer = registry.build();
     }
 
@@ -17,6 +17,7 @@
 package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
@@ -48,6 +49,7 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
     private CountDownLatch completed;
     private TestClassProcessor processor;
     private TestResultProcessor resultProcessor;
+    private TestClassCompletionListener completionListener;
 
     public TestWorker(WorkerTestClassProcessorFactory factory) {
         this.factory = factory;
@@ -90,6 +92,7 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         ObjectConnection serverConnection = workerProcessContext.getServerConnection();
         serverConnection.useParameterSerializer(new TestEventSerializer());
         this.resultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
+        this.completionListener = serverConnection.addOutgoing(TestClassCompletionListener.class);
         serverConnection.addIncoming(RemoteTestClassProcessor.class, this);
         serverConnection.connect();
     }
@@ -106,6 +109,8 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         } finally {
             // Clean the interrupted status
             Thread.interrupted();
+            // Tell the build even when the class produced no results, such as when a filter matches none of its tests
+            completionListener.testClassCompleted(testClass);
         }
     }
 
@@ -118,7 +123,7 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         }
     }
 
-    private static class TestFrameworkServiceRegistry extends DefaultServiceRegistry {
+    static class TestFrameworkServiceRegistry extends DefaultServiceRegistry {
         private final WorkerProcessContext workerProcessContext;
 
         public TestFrameworkServiceRegistry(WorkerProcessContext workerProcessContext) {
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.JavaForkOptions;
+import org.gradle.process.internal.JavaExecHandleBuilder;
+import org.gradle.process.internal.WorkerProcess;
+import org.gradle.process.internal.WorkerProcessBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A pool of test worker processes which is kept for the lifetime of the daemon, so that test tasks do not each pay
+ * for starting a new JVM and loading the test framework.
+ *
+ * <p>A worker can only be reused by a test task that would start an identical JVM: the same java command, JVM
+ * arguments, environment, working directory and log level, and the same test framework jars. Only the test framework
+ * is loaded by the worker process itself. The rest of each task's test runtime classpath is loaded into a separate
+ * ClassLoader for each task.</p>
+ */
+public class TestWorkerPool implements Stoppable {
+    public static final String REUSE_WORKERS_PROPERTY = "org.gradle.test.reuseWorkers";
+    public static final String MAX_IDLE_WORKERS_PROPERTY = "org.gradle.test.maxIdleWorkers";
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestWorkerPool.class);
+    // Libraries that the JUnit and TestNG jars link against, so must be loaded by the worker along with them
+    private static final List<String> FRAMEWORK_SUPPORT_PACKAGES = Arrays.asList("org.hamcrest", "com.beust.jcommander", "bsh", "org.yaml.snakeyaml");
+    private final Object lock = new Object();
+    private final LinkedList<PooledWorker> idleWorkers = new LinkedList<PooledWorker>();
+    private final Map<File, FrameworkJar> frameworkJars = new HashMap<File, FrameworkJar>();
+    private final ExecutorFactory executorFactory;
+    private final int maxIdleWorkers;
+    private StoppableExecutor executor;
+    private boolean stopped;
+
+    public TestWorkerPool(ExecutorFactory executorFactory) {
+        this(executorFactory, Integer.getInteger(MAX_IDLE_WORKERS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+
+    TestWorkerPool(ExecutorFactory executorFactory, int maxIdleWorkers) {
+        this.executorFactory = executorFactory;
+        this.maxIdleWorkers = maxIdleWorkers;
+    }
+
+    /**
+     * Returns true when test tasks should use this pool, rather than starting their own worker processes.
+     */
+    public boolean isEnabled() {
+        return Boolean.getBoolean(REUSE_WORKERS_PROPERTY);
+    }
+
+    /**
+     * Returns a worker that has started a session for the given test task details. Reuses an idle worker when there
+     * is a suitable one, otherwise starts a new worker process.
+     */
+    PooledWorker acquire(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options,
+                         Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction, TestResultProcessor resultProcessor,
+                         OutstandingTestClasses outstandingTestClasses) {
+        WorkerProcessBuilder builder = workerFactory.create();
+        builder.setBaseName("Gradle Test Executor");
+        builder.setLoadApplicationInSystemClassLoader(true);
+        builder.worker(new PooledTestWorker());
+        options.copyTo(builder.getJavaCommand());
+        buildConfigAction.execute(builder);
+
+        Set<String> frameworkPackages = new HashSet<String>(builder.getSharedPackages());
+        frameworkPackages.addAll(FRAMEWORK_SUPPORT_PACKAGES);
+        List<File> frameworkClasspath = new ArrayList<File>();
+        List<File> sessionClasspath = new ArrayList<File>();
+        List<String> frameworkFingerprint = new ArrayList<String>();
+        for (File file : classPath) {
+            FrameworkJar jar = frameworkJar(file, frameworkPackages);
+            if (jar != null) {
+                frameworkClasspath.add(file);
+                frameworkFingerprint.add(jar.toString());
+            } else {
+                sessionClasspath.add(file);
+            }
+        }
+        builder.applicationClasspath(frameworkClasspath);
+
+        JavaExecHandleBuilder javaCommand = builder.getJavaCommand();
+        List<Object> key = Arrays.<Object>asList(javaCommand.getExecutable(), javaCommand.getAllJvmArgs(), javaCommand.getEnvironment(),
+                javaCommand.getWorkingDir(), builder.getSharedPackages(), builder.getLogLevel(), frameworkFingerprint);
+
+        PooledWorker worker = takeIdleWorker(key);
+        if (worker == null) {
+            worker = startWorker(builder, key);
+        } else {
+            LOGGER.info("Reusing {}.", worker);
+        }
+        worker.startSession(resultProcessor, outstandingTestClasses, new TestWorkerSession(processorFactory, sessionClasspath));
+        return worker;
+    }
+
+    /**
+     * Stops the current session of the given worker, and returns the worker to the pool if it is still running.
+     */
+    void release(PooledWorker worker) {
+        worker.stopSession();
+
+        PooledWorker evicted;
+        synchronized (lock) {
+            if (stopped || !worker.isAlive()) {
+                evicted = worker;
+            } else {
+                idleWorkers.addLast(worker);
+                evicted = idleWorkers.size() > maxIdleWorkers ? idleWorkers.removeFirst() : null;
+            }
+        }
+        if (evicted != null) {
+            evicted.stop();
+        }
+    }
+
+    public void stop() {
+        List<PooledWorker> workers;
+        StoppableExecutor workerExecutor;
+        synchronized (lock) {
+            stopped = true;
+            workers = new ArrayList<PooledWorker>(idleWorkers);
+            idleWorkers.clear();
+            workerExecutor = executor;
+        }
+        for (PooledWorker worker : workers) {
+            worker.stop();
+        }
+        if (workerExecutor != null) {
+            workerExecutor.stop();
+        }
+    }
+
+    PooledWorker startWorker(WorkerProcessBuilder builder, List<Object> key) {
+        WorkerProcess workerProcess = builder.build();
+        workerProcess.start();
+
+        final PooledWorker worker = new PooledWorker(key, workerProcess);
+        ObjectConnection connection = workerProcess.getConnection();
+        connection.useParameterSerializer(new TestEventSerializer());
+        connection.addIncoming(PooledTestWorkerClient.class, worker);
+        worker.remote = connection.addOutgoing(RemotePooledTestWorker.class);
+        connection.connect();
+
+        getExecutor().execute(new Runnable() {
+            public void run() {
+                worker.waitForExit();
+            }
+        });
+        return worker;
+    }
+
+    /**
+     * Returns the executor that waits for the worker processes to exit. It is only created when the first worker is started, so that a daemon
+     * that does not reuse test workers does not keep a thread pool for it.
+     */
+    private StoppableExecutor getExecutor() {
+        synchronized (lock) {
+            if (executor == null) {
+                executor = executorFactory.create("Test worker pool");
+            }
+            return executor;
+        }
+    }
+
+    private PooledWorker takeIdleWorker(List<Object> key) {
+        synchronized (lock) {
+            Iterator<PooledWorker> iterator = idleWorkers.iterator();
+            while (iterator.hasNext()) {
+                PooledWorker worker = iterator.next();
+                if (!worker.isAlive()) {
+                    iterator.remove();
+                } else if (worker.key.equals(key)) {
+                    iterator.remove();
+                    return worker;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Returns the details of the given classpath entry if it is a jar that contains any of the given packages, or null if not.
+     */
+    private FrameworkJar frameworkJar(File file, Set<String> packages) {
+        if (!file.isFile()) {
+            return null;
+        }
+        synchronized (lock) {
+            FrameworkJar jar = frameworkJars.get(file);
+            if (jar == null || jar.length != file.length() || jar.lastModified != file.lastModified() || !jar.packages.equals(packages)) {
+                jar = new FrameworkJar(file, packages, containsAnyPackage(file, packages));
+                frameworkJars.put(file, jar);
+            }
+            return jar.framework ? jar : null;
+        }
+    }
+
+    private static boolean containsAnyPackage(File jar, Set<String> packages) {
+        List<String> prefixes = new ArrayList<String>();
+        for (String packageName : packages) {
+            prefixes.add(packageName.replace('.', '/') + "/");
+        }
+        try {
+            ZipFile zipFile = new ZipFile(jar);
+            try {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    String name = entries.nextElement().getName();
+                    for (String prefix : prefixes) {
+                        if (name.startsWith(prefix)) {
+                            return true;
+                        }
+                    }
+                }
+                return false;
+            } finally {
+                zipFile.close();
+            }
+        } catch (IOException e) {
+            // Not a jar we can read, so leave it to the session ClassLoader
+            return false;
+        }
+    }
+
+    private static class FrameworkJar {
+        final File file;
+        final long length;
+        final long lastModified;
+        final Set<String> packages;
+        final boolean framework;
+
+        FrameworkJar(File file, Set<String> packages, boolean framework) {
+            this.file = file;
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+            this.packages = packages;
+            this.framework = framework;
+        }
+
+        @Override
+        public String toString() {
+            return file.getAbsolutePath() + ":" + length + ":" + lastModified;
+        }
+    }
+
+    /**
+     * A worker process owned by the pool. Results from the worker are forwarded to the result processor of the current session.
+     */
+    static class PooledWorker implements PooledTestWorkerClient {
+        private final List<Object> key;
+        private final WorkerProcess workerProcess;
+        private final Object lock = new Object();
+        private RemotePooledTestWorker remote;
+        private volatile TestResultProcessor resultProcessor;
+        private volatile OutstandingTestClasses outstandingTestClasses;
+        private boolean sessionRunning;
+        private boolean exited;
+        private Throwable failure;
+
+        PooledWorker(List<Object> key, WorkerProcess workerProcess) {
+            this.key = key;
+            this.workerProcess = workerProcess;
+        }
+
+        void startSession(TestResultProcessor resultProcessor, OutstandingTestClasses outstandingTestClasses, TestWorkerSession session) {
+            synchronized (lock) {
+                this.resultProcessor = resultProcessor;
+                this.outstandingTestClasses = outstandingTestClasses;
+                sessionRunning = true;
+            }
+            remote.startSession(session);
+        }
+
+        void processTestClass(TestClassRunInfo testClass) {
+            remote.processTestClass(testClass);
+        }
+
+        void stopSession() {
+            remote.stopSession();
+            synchronized (lock) {
+                try {
+                    while (sessionRunning && !exited) {
+                        lock.wait();
+                    }
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+                if (sessionRunning && failure != null) {
+                    throw UncheckedException.throwAsUncheckedException(failure);
+                }
+            }
+        }
+
+        boolean isAlive() {
+            synchronized (lock) {
+                return !exited;
+            }
+        }
+
+        void stop() {
+            if (isAlive()) {
+                remote.stop();
+            }
+        }
+
+        void waitForExit() {
+            Throwable exitFailure = null;
+            try {
+                workerProcess.waitForStop();
+            } catch (Throwable e) {
+                exitFailure = e;
+            }
+            OutstandingTestClasses sessionTestClasses;
+            synchronized (lock) {
+                failure = exitFailure;
+                exited = true;
+                sessionTestClasses = sessionRunning ? outstandingTestClasses : null;
+                lock.notifyAll();
+            }
+            if (sessionTestClasses != null) {
+                sessionTestClasses.workerStopped();
+            }
+        }
+
+        public void started(TestDescriptorInternal test, TestStartEvent event) {
+            resultProcessor.started(test, event);
+        }
+
+        public void completed(Object testId, TestCompleteEvent event) {
+            resultProcessor.completed(testId, event);
+        }
+
+        public void output(Object testId, TestOutputEvent event) {
+            resultProcessor.output(testId, event);
+        }
+
+        public void failure(Object testId, Throwable result) {
+            resultProcessor.failure(testId, result);
+        }
+
+        public void testClassCompleted(TestClassRunInfo testClass) {
+            outstandingTestClasses.testClassCompleted(testClass);
+        }
+
+        public void sessionStopped() {
+            synchronized (lock) {
+                sessionRunning = false;
+                lock.notifyAll();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "test worker " + workerProcess;
+        }
+    }
+}
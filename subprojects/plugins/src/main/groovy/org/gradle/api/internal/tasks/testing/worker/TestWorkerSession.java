@@ -0,0 +1,47 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The details a pooled test worker needs to run the tests of a single test task.
+ */
+public class TestWorkerSession implements Serializable {
+    private final WorkerTestClassProcessorFactory processorFactory;
+    private final List<File> classpath;
+
+    public TestWorkerSession(WorkerTestClassProcessorFactory processorFactory, List<File> classpath) {
+        this.processorFactory = processorFactory;
+        this.classpath = classpath;
+    }
+
+    public WorkerTestClassProcessorFactory getProcessorFactory() {
+        return processorFactory;
+    }
+
+    /**
+     * The part of the test runtime classpath that is not already loaded by the worker.
+     */
+    public List<File> getClasspath() {
+        return classpath;
+    }
+}
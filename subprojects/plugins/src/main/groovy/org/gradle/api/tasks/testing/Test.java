@@ -31,6 +31,7 @@ import org.gradle.api.internal.tasks.testing.NoMatchingTestsReporter;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.detection.DefaultTestExecuter;
+import org.gradle.api.internal.tasks.testing.detection.TestClassDetectionCache;
 import org.gradle.api.internal.tasks.testing.detection.TestExecuter;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
 import org.gradle.api.internal.tasks.testing.junit.JUnitTestFramework;
@@ -40,6 +41,7 @@ import org.gradle.api.internal.tasks.testing.junit.result.*;
 import org.gradle.api.internal.tasks.testing.logging.*;
 import org.gradle.api.internal.tasks.testing.results.TestListenerAdapter;
 import org.gradle.api.internal.tasks.testing.testng.TestNGTestFramework;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
 import org.gradle.api.logging.LogLevel;
 import org.gradle.api.reporting.DirectoryReport;
 import org.gradle.api.reporting.Reporting;
@@ -50,6 +52,7 @@ import org.gradle.api.tasks.testing.logging.TestLoggingContainer;
 import org.gradle.api.tasks.util.PatternFilterable;
 import org.gradle.api.tasks.util.PatternSet;
 import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.BatchExecutor;
 import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.listener.ClosureBackedMethodInvocationDispatch;
@@ -175,6 +178,21 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         throw new UnsupportedOperationException();
     }
 
+    @Inject
+    protected TestClassDetectionCache getTestClassDetectionCache() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Inject
+    protected TestWorkerPool getTestWorkerPool() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Inject
+    protected BatchExecutor getBatchExecutor() {
+        throw new UnsupportedOperationException();
+    }
+
     @Inject
     protected FileResolver getFileResolver() {
         throw new UnsupportedOperationException();
@@ -477,6 +495,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         }
 
         File binaryResultsDir = getBinResultsDir();
+        Map<String, Long> previousDurations = readPreviousDurations(binaryResultsDir);
         getProject().delete(binaryResultsDir);
         getProject().mkdir(binaryResultsDir);
 
@@ -496,7 +515,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
                 getTestListenerBroadcaster().getSource(), testOutputListenerBroadcaster.getSource());
 
         if (testExecuter == null) {
-            testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory());
+            testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory(), previousDurations, getTestWorkerPool(), getBatchExecutor());
         }
 
         try {
@@ -514,7 +533,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
 
         try {
             if (testReporter == null) {
-                testReporter = new DefaultTestReport();
+                testReporter = new DefaultTestReport(getBatchExecutor());
             }
 
             JUnitXmlReport junitXml = reports.getJunitXml();
@@ -522,7 +541,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
                 TestOutputAssociation outputAssociation = junitXml.isOutputPerTestCase()
                         ? TestOutputAssociation.WITH_TESTCASE
                         : TestOutputAssociation.WITH_SUITE;
-                Binary2JUnitXmlReportGenerator binary2JUnitXmlReportGenerator = new Binary2JUnitXmlReportGenerator(junitXml.getDestination(), testResultsProvider, outputAssociation);
+                Binary2JUnitXmlReportGenerator binary2JUnitXmlReportGenerator = new Binary2JUnitXmlReportGenerator(junitXml.getDestination(), testResultsProvider, outputAssociation, getBatchExecutor());
                 binary2JUnitXmlReportGenerator.generate();
             }
 
@@ -890,7 +909,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
      * @param testFrameworkConfigure A closure used to configure the JUnit options.
      */
     public void useJUnit(Closure testFrameworkConfigure) {
-        useTestFramework(new JUnitTestFramework(this, filter), testFrameworkConfigure);
+        useTestFramework(new JUnitTestFramework(this, filter, getTestClassDetectionCache()), testFrameworkConfigure);
     }
 
     /**
@@ -907,7 +926,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
      * @param testFrameworkConfigure A closure used to configure the TestNG options.
      */
     public void useTestNG(Closure testFrameworkConfigure) {
-        useTestFramework(new TestNGTestFramework(this, this.filter, getInstantiator()), testFrameworkConfigure);
+        useTestFramework(new TestNGTestFramework(this, this.filter, getInstantiator(), getTestClassDetectionCache()), testFrameworkConfigure);
     }
 
     /**
@@ -1079,6 +1098,22 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         throw new AssertionError("could not determine current log level");
     }
 
+    private Map<String, Long> readPreviousDurations(File binaryResultsDir) {
+        final Map<String, Long> durations = new HashMap<String, Long>();
+        try {
+            new TestResultSerializer(binaryResultsDir).read(new Action<TestClassResult>() {
+                public void execute(TestClassResult result) {
+                    durations.put(result.getClassName(), result.getDuration());
+                }
+            });
+        } catch (Exception e) {
+            // The durations are only used to schedule the test classes, so carry on without them
+            getLogger().debug("Could not read the previous test durations from {}.", binaryResultsDir, e);
+            durations.clear();
+        }
+        return durations;
+    }
+
     private TestExceptionFormatter getExceptionFormatter(TestLogging testLogging) {
         switch (testLogging.getExceptionFormat()) {
             case SHORT:
@@ -1,58 +1,123 @@
-/*
- * Copyright 2010 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-
-package org.gradle.api.internal.tasks.testing.detection
-
-import org.gradle.util.JUnit4GroovyMockery
-import org.jmock.integration.junit4.JMock
-import org.junit.runner.RunWith
-import org.junit.Test
-
-import org.gradle.api.internal.tasks.testing.TestClassProcessor
-import org.jmock.Sequence
-import org.gradle.api.file.FileTree
-import static org.hamcrest.Matchers.*
-import org.gradle.api.file.FileVisitDetails
-
-@RunWith(JMock.class)
-public class DefaultTestClassScannerTest {
-    private final JUnit4GroovyMockery context = new JUnit4GroovyMockery()
-    private final TestFrameworkDetector detector = context.mock(TestFrameworkDetector.class)
-    private final TestClassProcessor processor = context.mock(TestClassProcessor.class)
-    private final FileTree files = context.mock(FileTree.class)
-
-    @Test
-    public void passesEachClassFileToTestClassDetector() {
-        DefaultTestClassScanner scanner = new DefaultTestClassScanner(files, detector, processor)
-
-        context.checking {
-            Sequence sequence = context.sequence('seq')
-            one(files).visit(withParam(notNullValue()))
-            will { visitor ->
-                visitor.visitFile({new File('class1.class')} as FileVisitDetails)
-                visitor.visitFile({new File('class2.class')} as FileVisitDetails)
-            }
-            one(detector).startDetection(processor)
-            inSequence(sequence)
-            one(detector).processTestClass(new File('class1.class'))
-            one(detector).processTestClass(new File('class2.class'))
-            inSequence(sequence)
-        }
-        
-        scanner.run()
-    }
-}
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.detection
+
+import org.gradle.util.JUnit4GroovyMockery
+import org.jmock.integration.junit4.JMock
+import org.junit.runner.RunWith
+import org.junit.Test
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.jmock.Sequence
+import org.gradle.api.file.FileTree
+import static org.hamcrest.Matchers.*
+import static org.junit.Assert.assertThat
+import org.gradle.api.file.FileVisitDetails
+import org.gradle.internal.concurrent.BatchExecutor
+
+import java.util.concurrent.Executors
+
+@RunWith(JMock.class)
+public class DefaultTestClassScannerTest {
+    private final JUnit4GroovyMockery context = new JUnit4GroovyMockery()
+    private final TestFrameworkDetector detector = context.mock(TestFrameworkDetector.class)
+    private final TestClassProcessor processor = context.mock(TestClassProcessor.class)
+    private final FileTree files = context.mock(FileTree.class)
+
+    @Test
+    public void passesEachClassFileToTestClassDetector() {
+        DefaultTestClassScanner scanner = new DefaultTestClassScanner(files, detector, processor)
+
+        context.checking {
+            Sequence sequence = context.sequence('seq')
+            one(files).visit(withParam(notNullValue()))
+            will { visitor ->
+                visitor.visitFile({new File('class1.class')} as FileVisitDetails)
+                visitor.visitFile({new File('class2.class')} as FileVisitDetails)
+            }
+            one(detector).startDetection(processor)
+            inSequence(sequence)
+            one(detector).processTestClass(new File('class1.class'))
+            one(detector).processTestClass(new File('class2.class'))
+            inSequence(sequence)
+            one(detector).endDetection()
+            inSequence(sequence)
+        }
+        
+        scanner.run()
+    }
+
+    @Test
+    public void passesEachClassFileToTestClassDetectorUsingMultipleThreads() {
+        def count = DefaultTestClassScanner.MIN_CLASSES_FOR_CONCURRENCY * 2
+        def processed = Collections.synchronizedSet(new HashSet<File>())
+        def endedDetection = false
+        TestFrameworkDetector threadSafeDetector = [
+                startDetection: { TestClassProcessor p -> assertThat(p, not(sameInstance(processor))) },
+                processTestClass: { File file -> processed << file; true },
+                endDetection: { endedDetection = true }
+        ] as TestFrameworkDetector
+        def batchExecutor = new BatchExecutor(Executors.newFixedThreadPool(3), 3)
+        DefaultTestClassScanner scanner = new DefaultTestClassScanner(files, threadSafeDetector, processor, batchExecutor)
+
+        context.checking {
+            one(files).visit(withParam(notNullValue()))
+            will { visitor ->
+                (1..count).each { visitor.visitFile({ new File("class${it}.class") } as FileVisitDetails) }
+            }
+        }
+
+        try {
+            scanner.run()
+        } finally {
+            batchExecutor.stop()
+        }
+
+        assertThat(processed, equalTo((1..count).collect { new File("class${it}.class") } as Set))
+        assertThat(endedDetection, equalTo(true))
+    }
+
+    @Test
+    public void passesClassFilesToTestClassDetectorInOrderWhenThereAreFewOfThem() {
+        def batchExecutor = new BatchExecutor(Executors.newFixedThreadPool(3), 3)
+        DefaultTestClassScanner scanner = new DefaultTestClassScanner(files, detector, processor, batchExecutor)
+
+        context.checking {
+            Sequence sequence = context.sequence('seq')
+            one(files).visit(withParam(notNullValue()))
+            will { visitor ->
+                visitor.visitFile({new File('class1.class')} as FileVisitDetails)
+                visitor.visitFile({new File('class2.class')} as FileVisitDetails)
+            }
+            one(detector).startDetection(processor)
+            inSequence(sequence)
+            one(detector).processTestClass(new File('class1.class'))
+            inSequence(sequence)
+            one(detector).processTestClass(new File('class2.class'))
+            inSequence(sequence)
+            one(detector).endDetection()
+            inSequence(sequence)
+        }
+
+        try {
+            scanner.run()
+        } finally {
+            batchExecutor.stop()
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit
+
+import org.gradle.api.internal.file.collections.SimpleFileCollection
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.detection.ClassFileExtractionManager
+import org.gradle.api.internal.tasks.testing.detection.TestClassDetectionCache
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import spock.lang.Specification
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class JUnitDetectorTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cache = new TestClassDetectionCache()
+    def processor = Mock(TestClassProcessor)
+    def classesDir = tmpDir.createDir("classes")
+    def libJar = tmpDir.file("lib.jar")
+
+    def setup() {
+        classesDir.file("MyTest.class").bytes = classFile("MyTest", "org/acme/BaseTest", false)
+    }
+
+    def "detects test class whose super class is in a library jar"() {
+        writeJar(libJar, "org/acme/BaseTest": classFile("org/acme/BaseTest", "java/lang/Object", true))
+
+        when:
+        detect()
+
+        then:
+        1 * processor.processTestClass({ it.testClassName == "MyTest" })
+    }
+
+    def "detects test class whose super class inherits from a test class in another library jar"() {
+        def otherJar = tmpDir.file("other.jar")
+        writeJar(libJar, "org/acme/BaseTest": classFile("org/acme/BaseTest", "org/other/OtherTest", false))
+        writeJar(otherJar, "org/other/OtherTest": classFile("org/other/OtherTest", "java/lang/Object", true))
+
+        when:
+        detect(libJar, otherJar)
+
+        then:
+        1 * processor.processTestClass({ it.testClassName == "MyTest" })
+    }
+
+    def "does not detect test class whose super class is not a test"() {
+        writeJar(libJar, "org/acme/BaseTest": classFile("org/acme/BaseTest", "java/lang/Object", false))
+
+        when:
+        detect()
+
+        then:
+        0 * processor.processTestClass(_)
+    }
+
+    def "reuses super class result in later detections until the library jar changes"() {
+        writeJar(libJar, "org/acme/BaseTest": classFile("org/acme/BaseTest", "java/lang/Object", true))
+
+        when:
+        detect()
+        detect()
+
+        then:
+        2 * processor.processTestClass({ it.testClassName == "MyTest" })
+
+        when:
+        writeJar(libJar, "org/acme/BaseTest": classFile("org/acme/BaseTest", "java/lang/Object", false), "org/acme/Other": classFile("org/acme/Other", "java/lang/Object", false))
+        libJar.lastModified = libJar.lastModified() + 2000
+        detect()
+
+        then:
+        0 * processor.processTestClass(_)
+    }
+
+    def "does not reuse super class result when the super class is found in a different place"() {
+        def otherJar = tmpDir.file("other.jar")
+        writeJar(libJar, "org/acme/BaseTest": classFile("org/acme/BaseTest", "java/lang/Object", true))
+        writeJar(otherJar, "org/acme/BaseTest": classFile("org/acme/BaseTest", "java/lang/Object", false))
+
+        when:
+        detect(libJar, otherJar)
+        detect(otherJar, libJar)
+
+        then:
+        1 * processor.processTestClass({ it.testClassName == "MyTest" })
+    }
+
+    def detect(File... classpath) {
+        def detector = new JUnitDetector(new ClassFileExtractionManager(cache))
+        detector.testClassesDirectory = classesDir
+        detector.testClasspath = new SimpleFileCollection(classpath.length == 0 ? [libJar] : classpath as List)
+        detector.startDetection(processor)
+        try {
+            detector.processTestClass(classesDir.file("MyTest.class"))
+        } finally {
+            detector.endDetection()
+        }
+    }
+
+    byte[] classFile(String name, String superName, boolean runWith) {
+        def writer = new ClassWriter(0)
+        writer.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC, name, null, superName, null)
+        if (runWith) {
+            writer.visitAnnotation("Lorg/junit/runner/RunWith;", true).visitEnd()
+        }
+        writer.visitEnd()
+        return writer.toByteArray()
+    }
+
+    void writeJar(Map<String, byte[]> classes, TestFile jar) {
+        def out = new ZipOutputStream(new FileOutputStream(jar))
+        try {
+            classes.each { name, bytes ->
+                out.putNextEntry(new ZipEntry(name + ".class"))
+                out.write(bytes)
+                out.closeEntry()
+            }
+        } finally {
+            out.close()
+        }
+    }
+}
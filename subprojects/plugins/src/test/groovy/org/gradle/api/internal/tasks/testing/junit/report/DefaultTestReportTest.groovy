@@ -18,6 +18,8 @@ package org.gradle.api.internal.tasks.testing.junit.report
 import org.gradle.api.internal.tasks.testing.BuildableTestResultsProvider
 import org.gradle.api.internal.tasks.testing.junit.result.AggregateTestResultsProvider
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider
+import org.gradle.internal.concurrent.BatchExecutor
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.ConfigureUtil
@@ -28,10 +30,15 @@ class DefaultTestReportTest extends Specification {
     @Rule
     public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
     final DefaultTestReport report = new DefaultTestReport()
+    final DefaultExecutorFactory executorFactory = new DefaultExecutorFactory()
     final TestFile reportDir = tmpDir.file('report')
     final TestFile indexFile = reportDir.file('index.html')
     final TestResultsProvider testResultProvider = Mock()
 
+    def cleanup() {
+        executorFactory.stop()
+    }
+
     def generatesReportWhenThereAreNoTestResults() {
         given:
         emptyResultSet()
@@ -477,6 +484,42 @@ class DefaultTestReportTest extends Specification {
         testClassFile.assertHasStandardError('err:\u0102')
     }
 
+    def rendersClassPagesUsingMultipleThreads() {
+        given:
+        def testTestResults = buildResults {
+            (1..40).each { i ->
+                testClassResult("org.gradle.package${i % 3}.Test${i}") {
+                    testcase("passed") {
+                        duration = 100
+                        stdout "output of ${i}"
+                    }
+                    testcase("failed") {
+                        duration = 100
+                        failure("failed ${i}", "failure of ${i}")
+                    }
+                }
+            }
+        }
+
+        when:
+        new DefaultTestReport(new BatchExecutor(executorFactory.create("test"), 3)).generateReport(testTestResults, reportDir)
+
+        then:
+        def index = results(indexFile)
+        index.assertHasTests(80)
+        index.assertHasFailures(40)
+        (1..40).each { i ->
+            def classFile = results(reportDir.file("classes/org.gradle.package${i % 3}.Test${i}.html"))
+            classFile.assertHasTests(2)
+            classFile.testDetails('passed').assertPassed()
+            classFile.assertHasFailure('failed', "failed ${i}\n\nfailure of ${i}")
+            classFile.assertHasStandardOutput("output of ${i}")
+        }
+        def packageFile = results(reportDir.file('packages/org.gradle.package1.html'))
+        packageFile.assertHasTests(28)
+        packageFile.assertHasFailedTest('../classes/org.gradle.package1.Test1', 'failed')
+    }
+
     TestResultsProvider buildResults(Closure closure) {
         ConfigureUtil.configure(closure, new BuildableTestResultsProvider())
     }
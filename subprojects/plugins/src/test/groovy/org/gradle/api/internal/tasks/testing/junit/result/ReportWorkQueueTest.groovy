@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.junit.result
+
+import org.gradle.internal.concurrent.BatchExecutor
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+class ReportWorkQueueTest extends Specification {
+    final executorFactory = new DefaultExecutorFactory()
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "runs all submitted work before completing"() {
+        def queue = new ReportWorkQueue(new BatchExecutor(executorFactory.create("test"), 3))
+        def done = new CopyOnWriteArrayList<Integer>()
+
+        when:
+        (0..<50).each { i -> queue.submit { Thread.sleep(1); done << i } }
+        queue.waitForCompletion()
+
+        then:
+        done.sort() == (0..<50).toList()
+    }
+
+    def "runs work on submitting thread when no thread is free"() {
+        def queue = new ReportWorkQueue(BatchExecutor.SERIAL)
+        def threads = []
+
+        when:
+        (0..<3).each { queue.submit { threads << Thread.currentThread() } }
+        queue.waitForCompletion()
+
+        then:
+        threads == [Thread.currentThread()] * 3
+    }
+
+    def "skips remaining work once some work has failed and rethrows the failure"() {
+        def queue = new ReportWorkQueue(BatchExecutor.SERIAL)
+        def failure = new RuntimeException("broken")
+        def ran = []
+
+        when:
+        queue.submit { ran << 1 }
+        queue.submit { throw failure }
+        queue.submit { ran << 3 }
+        queue.waitForCompletion()
+
+        then:
+        RuntimeException e = thrown()
+        e.is(failure)
+        ran == [1]
+    }
+}
@@ -89,6 +89,51 @@ class TestOutputStoreSpec extends WorkspaceTest {
         collectOutput(reader, 2, StdOut) == "[out-6]"
     }
 
+    def "copies large messages with multi-byte characters"() {
+        def message = ("\u0107\u0256\u0102 abc " * 5000) + "\u0256"
+
+        when:
+        def writer = output.writer()
+        writer.onOutput(1, 1, output(StdOut, message))
+        writer.onOutput(1, 1, output(StdOut, ""))
+        writer.onOutput(1, 1, output(StdOut, "[end]"))
+        writer.close()
+        def reader = output.reader()
+
+        then:
+        collectAllOutput(reader, 1, StdOut) == message + "[end]"
+
+        cleanup:
+        reader.close()
+    }
+
+    def "can read output from multiple threads concurrently"() {
+        when:
+        def writer = output.writer()
+        (1..20).each { classId ->
+            (1..50).each { line ->
+                writer.onOutput(classId, line, output(StdOut, "[$classId-$line]"))
+            }
+        }
+        writer.close()
+        def reader = output.reader()
+        def collected = Collections.synchronizedMap([:])
+        def threads = (1..20).collect { classId ->
+            Thread.start {
+                collected[classId] = collectAllOutput(reader, classId, StdOut)
+            }
+        }
+        threads*.join()
+
+        then:
+        (1..20).each { classId ->
+            assert collected[classId] == (1..50).collect { "[$classId-$it]" }.join("")
+        }
+
+        cleanup:
+        reader.close()
+    }
+
     def DefaultTestOutputEvent output(TestOutputEvent.Destination destination, String msg) {
         new DefaultTestOutputEvent(destination, msg)
     }
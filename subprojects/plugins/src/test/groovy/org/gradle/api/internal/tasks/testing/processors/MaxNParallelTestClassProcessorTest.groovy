@@ -16,9 +16,14 @@
 
 package org.gradle.api.internal.tasks.testing.processors
 
+import org.gradle.api.internal.tasks.testing.DefaultTestClassDescriptor
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import org.gradle.api.internal.tasks.testing.DefaultTestSuiteDescriptor
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.TestStartEvent
 import org.gradle.messaging.actor.Actor
 import org.gradle.messaging.actor.ActorFactory
 import spock.lang.Specification
@@ -73,7 +78,7 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * factory.create() >> processor1
         1 * actorFactory.createActor(processor1) >> actor1
         1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
-        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor1.startProcessing(_ as TestResultProcessor)
         1 * asyncProcessor1.processTestClass(test)
 
         when:
@@ -103,7 +108,7 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * factory.create() >> processor1
         1 * actorFactory.createActor(processor1) >> actor1
         1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
-        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor1.startProcessing(_ as TestResultProcessor)
         1 * asyncProcessor1.processTestClass(test)
 
         when:
@@ -113,7 +118,7 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * factory.create() >> processor2
         1 * actorFactory.createActor(processor2) >> actor2
         1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
-        1 * asyncProcessor2.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor2.startProcessing(_ as TestResultProcessor)
         1 * asyncProcessor2.processTestClass(test)
 
         when:
@@ -142,7 +147,7 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * factory.create() >> processor1
         1 * actorFactory.createActor(processor1) >> actor1
         1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
-        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor1.startProcessing(_ as TestResultProcessor)
         1 * asyncProcessor1.processTestClass(test)
 
         when:
@@ -152,7 +157,7 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * factory.create() >> processor2
         1 * actorFactory.createActor(processor2) >> actor2
         1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
-        1 * asyncProcessor2.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor2.startProcessing(_ as TestResultProcessor)
         1 * asyncProcessor2.processTestClass(test)
 
         when:
@@ -167,4 +172,161 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         then:
         1 * asyncProcessor2.processTestClass(test)
     }
+
+    def holdsTestClassesUntilProcessorCompletesAClass() {
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        Actor actor1 = Mock()
+        TestResultProcessor workerResultProcessor = null
+        def processor = new MaxNParallelTestClassProcessor(1, factory, actorFactory)
+
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        processor.startProcessing(resultProcessor)
+
+        when:
+        processor.processTestClass(testClass("A"))
+        processor.processTestClass(testClass("B"))
+        processor.processTestClass(testClass("C"))
+
+        then:
+        1 * factory.create() >> processor1
+        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        1 * asyncProcessor1.startProcessing(_) >> { workerResultProcessor = it[0] }
+        1 * asyncProcessor1.processTestClass({ it.testClassName == "A" })
+        1 * asyncProcessor1.processTestClass({ it.testClassName == "B" })
+        0 * asyncProcessor1.processTestClass(_)
+
+        when:
+        def suite = new DefaultTestSuiteDescriptor("worker", "worker")
+        def classA = new DefaultTestClassDescriptor("a", "A")
+        workerResultProcessor.started(suite, new TestStartEvent(0))
+        workerResultProcessor.started(classA, new TestStartEvent(0, "worker"))
+        workerResultProcessor.completed("a", new TestCompleteEvent(0))
+
+        then:
+        1 * asyncResultProcessor.started(suite, _)
+        1 * asyncResultProcessor.started(classA, _)
+        1 * asyncResultProcessor.completed("a", _)
+        0 * asyncProcessor1.processTestClass(_)
+
+        when:
+        workerResultProcessor.testClassCompleted(testClass("A"))
+
+        then:
+        1 * asyncProcessor1.processTestClass({ it.testClassName == "C" })
+
+        when:
+        processor.stop()
+
+        then:
+        1 * asyncProcessor1.stop()
+        1 * resultProcessorActor.stop()
+    }
+
+    def handsOutHeldTestClassesSlowestFirstWithUnknownClassesFirstOfAll() {
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        Actor actor1 = Mock()
+        TestResultProcessor workerResultProcessor = null
+        def processor = new MaxNParallelTestClassProcessor(1, factory, actorFactory, [Fast: 10L, Slow: 1000L, Medium: 100L], true)
+        def dispatched = []
+
+        given:
+        _ * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        _ * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        _ * factory.create() >> processor1
+        _ * actorFactory.createActor(processor1) >> actor1
+        _ * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        _ * asyncProcessor1.startProcessing(_) >> { workerResultProcessor = it[0] }
+        _ * asyncProcessor1.processTestClass(_) >> { TestClassRunInfo info -> dispatched << info.testClassName }
+        processor.startProcessing(resultProcessor)
+
+        when:
+        ["First", "Second", "Fast", "Slow", "Unknown", "Medium"].each { processor.processTestClass(testClass(it)) }
+        ["First", "Second", "Unknown", "Slow"].each { complete(workerResultProcessor, it) }
+
+        then:
+        dispatched == ["First", "Second", "Unknown", "Slow", "Medium", "Fast"]
+    }
+
+    def handsOutHeldTestClassesWhenCompletedClassesProduceNoResults() {
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        Actor actor1 = Mock()
+        TestResultProcessor workerResultProcessor = null
+        def processor = new MaxNParallelTestClassProcessor(1, factory, actorFactory)
+        def dispatched = []
+
+        given:
+        _ * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        _ * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        _ * factory.create() >> processor1
+        _ * actorFactory.createActor(processor1) >> actor1
+        _ * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        _ * asyncProcessor1.startProcessing(_) >> { workerResultProcessor = it[0] }
+        // Like a worker whose test filter matches none of the tests of the class: no results, only the completion
+        _ * asyncProcessor1.processTestClass(_) >> { TestClassRunInfo info ->
+            dispatched << info.testClassName
+            workerResultProcessor.testClassCompleted(info)
+        }
+        processor.startProcessing(resultProcessor)
+
+        when:
+        ["A", "B", "C", "D", "E"].each { processor.processTestClass(testClass(it)) }
+        processor.stop()
+
+        then:
+        dispatched == ["A", "B", "C", "D", "E"]
+        0 * asyncResultProcessor._
+    }
+
+    def assignsTestClassesLongestFirstToLeastLoadedProcessorOnStopWhenNotPulling() {
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        Actor actor1 = Mock()
+        Actor actor2 = Mock()
+        def processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, [A: 100L, B: 10L, C: 80L, D: 50L, E: 40L], false)
+        def dispatched1 = []
+        def dispatched2 = []
+
+        given:
+        _ * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        _ * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        _ * factory.create() >>> [processor1, processor2]
+        _ * actorFactory.createActor(processor1) >> actor1
+        _ * actorFactory.createActor(processor2) >> actor2
+        _ * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        _ * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        _ * asyncProcessor1.processTestClass(_) >> { TestClassRunInfo info -> dispatched1 << info.testClassName }
+        _ * asyncProcessor2.processTestClass(_) >> { TestClassRunInfo info -> dispatched2 << info.testClassName }
+        processor.startProcessing(resultProcessor)
+
+        when:
+        ["A", "B", "C", "D", "E"].each { processor.processTestClass(testClass(it)) }
+
+        then:
+        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor2.startProcessing(asyncResultProcessor)
+        dispatched1 == ["A"]
+        dispatched2 == ["B"]
+
+        when:
+        processor.stop()
+
+        then:
+        dispatched1 == ["A", "E"]
+        dispatched2 == ["B", "C", "D"]
+    }
+
+    def testClass(String name) {
+        return new DefaultTestClassRunInfo(name)
+    }
+
+    def complete(TestResultProcessor workerResultProcessor, String className) {
+        workerResultProcessor.testClassCompleted(testClass(className))
+    }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2009 the original author or authors.
+ * Copyright 2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,8 +14,10 @@
  * limitations under the License.
  */
 
-package org.gradle.api.internal.tasks.testing.detection;
+package org.gradle.api.internal.tasks.testing.worker
 
-public interface JarFilePackageListener {
-    void receivePackage(String packageName);
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+
+interface CompletionListeningResultProcessor extends TestResultProcessor, TestClassCompletionListener {
 }
@@ -18,6 +18,7 @@ package org.gradle.api.internal.tasks.testing.worker
 
 import org.gradle.api.Action
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
 import org.gradle.internal.Factory
 import org.gradle.process.JavaForkOptions
@@ -29,6 +30,7 @@ class ForkingTestClassProcessorTest extends Specification {
     @Subject processor = Spy(ForkingTestClassProcessor, constructorArgs: [Mock(Factory), Mock(WorkerTestClassProcessorFactory), Mock(JavaForkOptions), [new File("classpath.jar")], Mock(Action)])
 
     def "starts worker process on first test"() {
+        processor.startProcessing(Mock(TestResultProcessor))
         def test1 = Mock(TestClassRunInfo)
         def test2 = Mock(TestClassRunInfo)
         def remoteProcessor = Mock(RemoteTestClassProcessor)
@@ -43,4 +45,22 @@ class ForkingTestClassProcessorTest extends Specification {
         1 * remoteProcessor.processTestClass(test2)
         0 * remoteProcessor._
     }
+
+    def "completes a test class that cannot be given to the worker"() {
+        def resultProcessor = Mock(CompletionListeningResultProcessor)
+        def test1 = Mock(TestClassRunInfo) { getTestClassName() >> "Test1" }
+        def failure = new RuntimeException("broken")
+
+        given:
+        processor.startProcessing(resultProcessor)
+
+        when:
+        processor.processTestClass(test1)
+
+        then:
+        1 * processor.forkProcess() >> { throw failure }
+        1 * resultProcessor.testClassCompleted(test1)
+        def e = thrown(RuntimeException)
+        e.is(failure)
+    }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
+import org.gradle.internal.id.IdGenerator
+import org.gradle.internal.service.DefaultServiceRegistry
+import org.gradle.process.internal.WorkerProcessContext
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+class PooledTestWorkerTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    @Rule SetSystemProperties systemProperties = new SetSystemProperties()
+    def processorFactory = Mock(WorkerTestClassProcessorFactory)
+    def processor = Mock(TestClassProcessor)
+    def client = Mock(PooledTestWorkerClient)
+    def worker = new PooledTestWorker()
+
+    def setup() {
+        worker.@workerProcessContext = Stub(WorkerProcessContext) {
+            getDisplayName() >> "worker"
+            getApplicationClassLoader() >> null
+        }
+        worker.@testServices = new DefaultServiceRegistry().add(IdGenerator, Stub(IdGenerator))
+        worker.@client = client
+    }
+
+    def "closes the session ClassLoader when the session stops"() {
+        def classes = tmpDir.createDir("classes")
+        classes.createFile("resource.txt")
+        ClassLoader sessionClassLoader = null
+
+        when:
+        worker.startSession(new TestWorkerSession(processorFactory, [classes]))
+
+        then:
+        1 * processorFactory.create(_) >> processor
+        1 * processor.startProcessing(_) >> { sessionClassLoader = Thread.currentThread().contextClassLoader }
+        sessionClassLoader.getResource("resource.txt") != null
+
+        when:
+        worker.stopSession()
+
+        then:
+        1 * processor.stop()
+        1 * client.sessionStopped()
+        sessionClassLoader.getResource("resource.txt") == null
+    }
+}
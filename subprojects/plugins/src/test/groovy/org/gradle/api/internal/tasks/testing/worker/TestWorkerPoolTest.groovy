@@ -0,0 +1,195 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.Action
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.StoppableExecutor
+import org.gradle.process.JavaForkOptions
+import org.gradle.process.internal.JavaExecHandleBuilder
+import org.gradle.process.internal.WorkerProcess
+import org.gradle.process.internal.WorkerProcessBuilder
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class TestWorkerPoolTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def executorFactory = Stub(ExecutorFactory) {
+        create(_) >> Mock(StoppableExecutor)
+    }
+    def workerFactory = Mock(Factory)
+    def builder = Mock(WorkerProcessBuilder)
+    def javaCommand = Mock(JavaExecHandleBuilder)
+    def processorFactory = Mock(WorkerTestClassProcessorFactory)
+    def options = Mock(JavaForkOptions)
+    def buildConfigAction = Mock(Action)
+    def resultProcessor = Mock(CompletionListeningResultProcessor)
+    def remote1 = Mock(RemotePooledTestWorker)
+    def remote2 = Mock(RemotePooledTestWorker)
+    def remotes = [remote1, remote2]
+    def workerProcess = Stub(WorkerProcess)
+    def workers = [:]
+    def pool = Spy(TestWorkerPool, constructorArgs: [executorFactory, 1])
+
+    def setup() {
+        _ * workerFactory.create() >> builder
+        _ * builder.getJavaCommand() >> javaCommand
+        _ * builder.getSharedPackages() >> (["org.junit"] as Set)
+        _ * pool.startWorker(_, _) >> { WorkerProcessBuilder builder, List<Object> key -> newWorker(key) }
+        _ * remote1.stopSession() >> { workers[remote1].sessionStopped() }
+        _ * remote2.stopSession() >> { workers[remote2].sessionStopped() }
+    }
+
+    def "loads the test framework in the worker and the rest of the classpath in the session"() {
+        def junit = jar("junit.jar", "org/junit/Test.class")
+        def hamcrest = jar("hamcrest.jar", "org/hamcrest/Matcher.class")
+        def lib = jar("lib.jar", "com/acme/Lib.class")
+        def classes = tmpDir.createDir("classes")
+        classes.createFile("org/junit/MyTest.class")
+
+        when:
+        acquire([junit, lib, hamcrest, classes])
+
+        then:
+        1 * builder.applicationClasspath([junit, hamcrest])
+        1 * builder.worker({ it instanceof PooledTestWorker })
+        1 * remote1.startSession({ it.classpath == [lib, classes] && it.processorFactory == processorFactory })
+    }
+
+    def "reuses an idle worker that has the same configuration"() {
+        def classpath = [jar("junit.jar", "org/junit/Test.class")]
+
+        when:
+        def worker1 = acquire(classpath)
+        pool.release(worker1)
+        def worker2 = acquire(classpath)
+
+        then:
+        worker2.is(worker1)
+        workers.size() == 1
+    }
+
+    def "starts a new worker when the JVM arguments are different"() {
+        def classpath = [jar("junit.jar", "org/junit/Test.class")]
+        _ * javaCommand.getAllJvmArgs() >>> [["-Xmx64m"], ["-Xmx128m"]]
+
+        when:
+        def worker1 = acquire(classpath)
+        pool.release(worker1)
+        def worker2 = acquire(classpath)
+
+        then:
+        !worker2.is(worker1)
+        workers.size() == 2
+    }
+
+    def "does not reuse a worker whose process has exited"() {
+        def classpath = [jar("junit.jar", "org/junit/Test.class")]
+
+        when:
+        def worker1 = acquire(classpath)
+        pool.release(worker1)
+        worker1.waitForExit()
+        def worker2 = acquire(classpath)
+
+        then:
+        !worker2.is(worker1)
+    }
+
+    def "stops idle workers beyond the limit"() {
+        def classpath = [jar("junit.jar", "org/junit/Test.class")]
+
+        when:
+        def worker1 = acquire(classpath)
+        def worker2 = acquire(classpath)
+        pool.release(worker1)
+        pool.release(worker2)
+
+        then:
+        1 * remote1.stop()
+        0 * remote2.stop()
+
+        when:
+        pool.stop()
+
+        then:
+        1 * remote2.stop()
+    }
+
+    def "completes the test classes of the current session that the worker did not complete when its process exits"() {
+        def classpath = [jar("junit.jar", "org/junit/Test.class")]
+        def testA = new DefaultTestClassRunInfo("A")
+        def testB = new DefaultTestClassRunInfo("B")
+        def outstanding = new OutstandingTestClasses(resultProcessor)
+
+        when:
+        def worker = pool.acquire(workerFactory, processorFactory, options, classpath, buildConfigAction, resultProcessor, outstanding)
+        outstanding.add(testA)
+        worker.processTestClass(testA)
+        outstanding.add(testB)
+        worker.processTestClass(testB)
+        worker.testClassCompleted(testA)
+
+        then:
+        1 * resultProcessor.testClassCompleted(testA)
+        0 * resultProcessor.testClassCompleted(_)
+
+        when:
+        worker.waitForExit()
+
+        then:
+        1 * resultProcessor.testClassCompleted(testB)
+        0 * resultProcessor.testClassCompleted(_)
+    }
+
+    def "does not create an executor until a worker is started"() {
+        def executorFactory = Mock(ExecutorFactory)
+        def pool = new TestWorkerPool(executorFactory, 1)
+
+        when:
+        pool.stop()
+
+        then:
+        0 * executorFactory._
+    }
+
+    def acquire(List<File> classpath) {
+        return pool.acquire(workerFactory, processorFactory, options, classpath, buildConfigAction, resultProcessor, new OutstandingTestClasses(resultProcessor))
+    }
+
+    def newWorker(List<Object> key) {
+        def worker = new TestWorkerPool.PooledWorker(key, workerProcess)
+        def remote = remotes[workers.size()]
+        worker.remote = remote
+        workers[remote] = worker
+        return worker
+    }
+
+    TestFile jar(String name, String entry) {
+        def contents = tmpDir.createDir(name + "-contents")
+        contents.createFile(entry)
+        def jar = tmpDir.file(name)
+        contents.zipTo(jar)
+        return jar
+    }
+}
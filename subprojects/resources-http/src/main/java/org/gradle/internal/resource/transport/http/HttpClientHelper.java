@@ -21,6 +21,8 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.params.HttpClientParams;
+import org.apache.http.conn.ClientConnectionManager;
 import org.apache.http.impl.client.*;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.util.EntityUtils;
@@ -31,19 +33,32 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 
 /**
- * Provides some convenience and unified logging.
+ * Provides some convenience and unified logging. Can be used by multiple threads at the same time.
  */
 public class HttpClientHelper {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientHelper.class);
     private final HttpClient client;
-    private final BasicHttpContext httpContext = new BasicHttpContext();
+    private final HttpConnectionPool connectionPool;
+    private final ThreadLocal<BasicHttpContext> httpContext = new ThreadLocal<BasicHttpContext>() {
+        @Override
+        protected BasicHttpContext initialValue() {
+            return new BasicHttpContext();
+        }
+    };
 
-    public HttpClientHelper(HttpSettings settings) {
+    public HttpClientHelper(HttpSettings settings, final HttpConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
         alwaysUseKeepAliveConnections();
 
-        DefaultHttpClient client = new SystemDefaultHttpClient();
+        DefaultHttpClient client = new SystemDefaultHttpClient() {
+            @Override
+            protected ClientConnectionManager createClientConnectionManager() {
+                return connectionPool.getConnectionManager();
+            }
+        };
         new HttpClientConfigurer(settings).configure(client);
+        HttpClientParams.setConnectionManagerTimeout(client.getParams(), connectionPool.getConnectionRequestTimeout());
         this.client = new DecompressingHttpClient(client);
     }
 
@@ -105,10 +120,15 @@ public class HttpClientHelper {
 
     public HttpResponse performHttpRequest(HttpRequestBase request) throws IOException {
         // Without this, HTTP Client prohibits multiple redirects to the same location within the same context
-        httpContext.removeAttribute(DefaultRedirectStrategy.REDIRECT_LOCATIONS);
+        BasicHttpContext context = httpContext.get();
+        context.removeAttribute(DefaultRedirectStrategy.REDIRECT_LOCATIONS);
 
         LOGGER.debug("Performing HTTP {}: {}", request.getMethod(), request.getURI());
-        return client.execute(request, httpContext);
+        String host = request.getURI().getHost();
+        if (host != null) {
+            connectionPool.addHost(host);
+        }
+        return client.execute(request, context);
     }
 
     private HttpResponse processResponse(String source, String method, HttpResponse response) {
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http;
+
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.gradle.internal.concurrent.Stoppable;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A pool of keep-alive HTTP connections, shared by all the {@link HttpClientHelper} instances that are created for it.
+ *
+ * <p>The number of connections is limited per host, so that a host is not flooded with requests when many artifacts are downloaded at the same time.
+ * The total number of connections grows with the number of hosts that have been used, so that each host can use its full share. A request that
+ * cannot get a connection within the connection request timeout fails, rather than waiting forever.</p>
+ */
+public class HttpConnectionPool implements Stoppable {
+    public static final String MAX_CONNECTIONS_PER_HOST_PROPERTY = "org.gradle.http.maxConnectionsPerHost";
+    public static final String CONNECTION_REQUEST_TIMEOUT_PROPERTY = "org.gradle.http.connectionRequestTimeout";
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
+    private static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT = 60000;
+
+    private final PoolingClientConnectionManager connectionManager;
+    private final int maxConnectionsPerHost;
+    private final int connectionRequestTimeout;
+    private final Set<String> hosts = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    public HttpConnectionPool() {
+        this(Integer.getInteger(MAX_CONNECTIONS_PER_HOST_PROPERTY, DEFAULT_MAX_CONNECTIONS_PER_HOST),
+                Integer.getInteger(CONNECTION_REQUEST_TIMEOUT_PROPERTY, DEFAULT_CONNECTION_REQUEST_TIMEOUT));
+    }
+
+    /**
+     * @param connectionRequestTimeout The maximum time in milliseconds to wait for a connection to become available.
+     */
+    public HttpConnectionPool(int maxConnectionsPerHost, int connectionRequestTimeout) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.connectionRequestTimeout = connectionRequestTimeout;
+        connectionManager = new PoolingClientConnectionManager(SchemeRegistryFactory.createSystemDefault());
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+        connectionManager.setMaxTotal(maxConnectionsPerHost);
+    }
+
+    public ClientConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * The maximum time in milliseconds to wait for a connection to become available.
+     */
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    /**
+     * Makes room in this pool for connections to the given host, if it has not been used before.
+     */
+    public void addHost(String host) {
+        if (hosts.contains(host)) {
+            return;
+        }
+        synchronized (hosts) {
+            if (hosts.add(host)) {
+                connectionManager.setMaxTotal(maxConnectionsPerHost * hosts.size());
+            }
+        }
+    }
+
+    /**
+     * Closes all connections in this pool.
+     */
+    public void stop() {
+        connectionManager.shutdown();
+    }
+}
@@ -18,6 +18,7 @@ package org.gradle.internal.resource.transport.http
 import org.apache.http.HttpResponse
 import org.apache.http.client.methods.HttpGet
 import org.apache.http.client.methods.HttpRequestBase
+import org.apache.http.client.params.HttpClientParams
 import org.gradle.internal.resource.PasswordCredentials
 import org.gradle.util.SetSystemProperties
 import org.junit.Rule
@@ -25,9 +26,14 @@ import spock.lang.Specification
 
 class HttpClientHelperTest extends Specification {
     @Rule SetSystemProperties sysProp = new SetSystemProperties()
+    def connectionPool = new HttpConnectionPool(2, 1000)
+
+    def cleanup() {
+        connectionPool.stop()
+    }
 
     def "throws HttpRequestException if an IO error occurs during a request"() {
-        def client = new HttpClientHelper(httpSettings) {
+        def client = new HttpClientHelper(httpSettings, connectionPool) {
             @Override
             protected HttpResponse executeGetOrHead(HttpRequestBase method) {
                 throw new IOException("ouch")
@@ -47,12 +53,20 @@ class HttpClientHelperTest extends Specification {
         System.setProperty("http.keepAlive", "false")
 
         when:
-        new HttpClientHelper(httpSettings)
+        new HttpClientHelper(httpSettings, connectionPool)
 
         then:
         System.getProperty("http.keepAlive", "true")
     }
 
+    def "waits a limited time for a connection"() {
+        when:
+        def client = new HttpClientHelper(httpSettings, connectionPool)
+
+        then:
+        HttpClientParams.getConnectionManagerTimeout(client.client.params) == 1000
+    }
+
     private HttpSettings getHttpSettings() {
         return Stub(HttpSettings) {
             getCredentials() >> Stub(PasswordCredentials)
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http
+
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+class HttpConnectionPoolTest extends Specification {
+    @Rule SetSystemProperties sysProp = new SetSystemProperties()
+
+    def "limits the number of connections per host"() {
+        when:
+        def pool = new HttpConnectionPool(3, 1000)
+
+        then:
+        pool.connectionManager.defaultMaxPerRoute == 3
+        pool.connectionManager.maxTotal == 3
+        pool.connectionRequestTimeout == 1000
+
+        cleanup:
+        pool?.stop()
+    }
+
+    def "grows the total number of connections with the number of hosts used"() {
+        given:
+        def pool = new HttpConnectionPool(3, 1000)
+
+        when:
+        pool.addHost("repo1.example.com")
+        pool.addHost("repo2.example.com")
+        pool.addHost("repo1.example.com")
+
+        then:
+        pool.connectionManager.maxTotal == 6
+
+        cleanup:
+        pool?.stop()
+    }
+
+    def "uses system properties to configure the number of connections per host and the connection request timeout"() {
+        given:
+        System.setProperty(HttpConnectionPool.MAX_CONNECTIONS_PER_HOST_PROPERTY, "2")
+        System.setProperty(HttpConnectionPool.CONNECTION_REQUEST_TIMEOUT_PROPERTY, "500")
+
+        when:
+        def pool = new HttpConnectionPool()
+
+        then:
+        pool.connectionManager.defaultMaxPerRoute == 2
+        pool.connectionRequestTimeout == 500
+
+        cleanup:
+        pool?.stop()
+    }
+}